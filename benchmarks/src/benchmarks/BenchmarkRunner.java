@@ -0,0 +1,41 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the project with the GC profiler, so every benchmark reports its time per operation
+ * together with its allocations per operation (gc.alloc.rate.norm, in bytes).<br/>
+ * Arguments are regular expressions of the benchmarks to run (all benchmarks of this package by default); the
+ * results are also written to jmh-result.json.<br/>
+ * {@link RenderBenchmark} is not a JMH benchmark - it measures whole renders by its own warmup and runs, and is
+ * launched separately through its own main.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class BenchmarkRunner {
+    /** no instances */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks
+     * @param args regular expressions of benchmarks to run
+     * @throws RunnerException if running the benchmarks went wrong
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        if (args.length == 0) options.include(BenchmarkRunner.class.getPackageName() + "\\..*");
+        for (String pattern : args) options.include(pattern);
+        Options built = options
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(built).run();
+    }
+}
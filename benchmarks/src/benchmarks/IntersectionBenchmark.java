@@ -0,0 +1,137 @@
+package benchmarks;
+
+import geometries.Geometry;
+import geometries.Plane;
+import geometries.Polygon;
+import geometries.Sphere;
+import geometries.Triangle;
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the intersection of a ray with a single primitive - sphere, triangle, polygon and plane.<br/>
+ * Every primitive is measured separately for rays which hit it and for rays which miss it, since the two take
+ * different paths through the intersection code. The rays are sampled once, with a fixed seed, around the
+ * primitive (from a shell of radius 10 towards a box of size 4 or in random directions) and sorted to hits and
+ * misses by the primitive itself; every call takes the next ray of the pool, so branch prediction does not learn
+ * a single ray.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntersectionBenchmark {
+    /** amount of rays in a pool (a power of 2) */
+    private static final int POOL_SIZE = 1 << 10;
+    /** maximum amount of sampled rays for filling a pool */
+    private static final int MAX_SAMPLES = 1 << 22;
+
+    /** whether the rays hit or miss the primitive */
+    @Param({"hit", "miss"})
+    public String rays;
+
+    /** sphere of radius 1 at the origin */
+    private Sphere sphere;
+    /** triangle in the plane z=0 */
+    private Triangle triangle;
+    /** square in the plane z=0 */
+    private Polygon polygon;
+    /** the plane z=0 */
+    private Plane plane;
+
+    /** rays of the sphere */
+    private Ray[] sphereRays;
+    /** rays of the triangle */
+    private Ray[] triangleRays;
+    /** rays of the polygon */
+    private Ray[] polygonRays;
+    /** rays of the plane */
+    private Ray[] planeRays;
+    /** index of next ray */
+    private int next = 0;
+
+    /** creates the primitives and samples their rays */
+    @Setup(Level.Trial)
+    public void setup() {
+        sphere = new Sphere(Point.ZERO, 1);
+        triangle = new Triangle(new Point(-1, -1, 0), new Point(1, -1, 0), new Point(0, 1, 0));
+        polygon = new Polygon(new Point(-1, -1, 0), new Point(1, -1, 0), new Point(1, 1, 0), new Point(-1, 1, 0));
+        plane = new Plane(Point.ZERO, new Vector(0, 0, 1));
+        boolean hit = rays.equals("hit");
+        sphereRays = sample(sphere, hit, 1);
+        triangleRays = sample(triangle, hit, 2);
+        polygonRays = sample(polygon, hit, 3);
+        planeRays = sample(plane, hit, 4);
+    }
+
+    /**
+     * Samples a pool of rays which all hit, or all miss, a primitive
+     * @param geometry the primitive
+     * @param hit      true for rays which hit it, false for rays which miss it
+     * @param seed     seed of random numbers
+     * @return pool of rays
+     * @throws IllegalStateException if there are not enough rays of the kind among the samples
+     */
+    static Ray[] sample(Geometry geometry, boolean hit, long seed) {
+        Random random = new Random(seed);
+        Ray[] pool = new Ray[POOL_SIZE];
+        int amount = 0;
+        for (int s = 0; s < MAX_SAMPLES && amount < POOL_SIZE; ++s) {
+            Vector base = randomUnit(random).scale(10);
+            Vector dir = random.nextBoolean() ? randomUnit(random)
+                    : new Vector(4 * random.nextDouble() - 2, 4 * random.nextDouble() - 2, 4 * random.nextDouble() - 2)
+                    .subtract(base);
+            Ray ray = new Ray(Point.ZERO.add(base), dir);
+            if ((geometry.findIntersections(ray) != null) == hit) pool[amount++] = ray;
+        }
+        if (amount < POOL_SIZE)
+            throw new IllegalStateException("not enough " + (hit ? "hit" : "miss") + " rays for benchmark");
+        return pool;
+    }
+
+    /** samples a random unit vector (uniform on the sphere)
+     * @param random random numbers generator
+     * @return the vector */
+    private static Vector randomUnit(Random random) {
+        double z = 2 * random.nextDouble() - 1, phi = 2 * Math.PI * random.nextDouble(), r = Math.sqrt(1 - z * z);
+        return new Vector(r * Math.cos(phi), r * Math.sin(phi), z);
+    }
+
+    /** intersects the next ray of the pool with the sphere
+     * @return the intersection points */
+    @Benchmark
+    public List<Point> sphere() {
+        return sphere.findIntersections(sphereRays[next++ & (POOL_SIZE - 1)]);
+    }
+
+    /** intersects the next ray of the pool with the triangle
+     * @return the intersection points */
+    @Benchmark
+    public List<Point> triangle() {
+        return triangle.findIntersections(triangleRays[next++ & (POOL_SIZE - 1)]);
+    }
+
+    /** intersects the next ray of the pool with the polygon
+     * @return the intersection points */
+    @Benchmark
+    public List<Point> polygon() {
+        return polygon.findIntersections(polygonRays[next++ & (POOL_SIZE - 1)]);
+    }
+
+    /** intersects the next ray of the pool with the plane
+     * @return the intersection points */
+    @Benchmark
+    public List<Point> plane() {
+        return plane.findIntersections(planeRays[next++ & (POOL_SIZE - 1)]);
+    }
+}
@@ -0,0 +1,228 @@
+package benchmarks;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Color;
+import primitives.Ray;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+import renderer.RenderListener;
+import renderer.RenderJob;
+import scene.Scene;
+import xml.StaxSceneParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * End to end render benchmark - renders whole scenes at several resolutions and thread counts, and reports
+ * rays per second, pixels per second and parallel efficiency, as CSV and JSON files.<br/>
+ * Every scene is a render job file ({@link StaxSceneParser#parseXMLJob}) whose camera settings (anti aliasing,
+ * adaptive super sampling, depth of field) are kept; only the resolution (keeping the aspect ratio of the job's
+ * image) and the amount of threads change. The JVM is warmed up by rendering every scene before measuring, and
+ * every configuration is rendered several times and reported by its median time. Parallel efficiency of a thread
+ * count is the speedup over the lowest thread count of the same scene and resolution, divided by the ratio of
+ * thread counts. Rays are the camera rays (primary rays of all samples of all pixels).<br/>
+ * Options: {@code --scenes a.xml,b.xml --resolutions 100,200 --threads 1,2,4 --runs 3 --warmup 2 --out name}
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class RenderBenchmark {
+    /** default scenes - the teapot, the spheres of the improvement tests and the final image */
+    private static final String DEFAULT_SCENES = "benchmarks/scenes/teapot.xml,benchmarks/scenes/spheres-aa.xml,"
+            + "benchmarks/scenes/spheres-ass.xml,src/xml/finalimage.xml";
+    /** default widths of images */
+    private static final String DEFAULT_RESOLUTIONS = "100,200,400";
+    /** columns of the CSV file */
+    private static final String CSV_HEADER = "scene,width,height,threads,runs,median_seconds,best_seconds,rays,"
+            + "rays_per_second,pixels_per_second,parallel_efficiency";
+
+    /** result of a configuration
+     * @param scene name of scene
+     * @param width amount of pixels in a row
+     * @param height amount of pixels in a column
+     * @param threads amount of threads
+     * @param runs amount of measured renders
+     * @param median median time of a render, in seconds
+     * @param best best time of a render, in seconds
+     * @param rays amount of camera rays of a render
+     * @param efficiency parallel efficiency relatively to the lowest thread count */
+    record Result(String scene, int width, int height, int threads, int runs, double median, double best, long rays,
+                  double efficiency) {
+        /** calculates the rate of camera rays
+         * @return camera rays per second, by the median time */
+        double raysPerSecond() {
+            return rays / median;
+        }
+
+        /** calculates the rate of pixels
+         * @return pixels per second, by the median time */
+        double pixelsPerSecond() {
+            return (double) width * height / median;
+        }
+    }
+
+    /** ray tracer which counts the camera rays it traces */
+    private static class CountingRayTracer extends RayTracerBasic {
+        /** amount of traced camera rays */
+        final LongAdder rays = new LongAdder();
+
+        /** constructor for CountingRayTracer
+         * @param scene scene of ray tracer */
+        CountingRayTracer(Scene scene) {
+            super(scene);
+        }
+
+        @Override
+        public Color traceRay(Ray ray, GeoPoint closestPoint) {
+            rays.increment();
+            return super.traceRay(ray, closestPoint);
+        }
+    }
+
+    /** no instances */
+    private RenderBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args options - see the class documentation
+     * @throws Exception if a scene could not be read, or the results could not be written
+     */
+    public static void main(String[] args) throws Exception {
+        String scenes = option(args, "--scenes", DEFAULT_SCENES);
+        int[] resolutions = integers(option(args, "--resolutions", DEFAULT_RESOLUTIONS));
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threads = integers(option(args, "--threads", IntStream.iterate(1, t -> t <= cores, t -> t * 2)
+                .mapToObj(Integer::toString).collect(Collectors.joining(","))));
+        int runs = Integer.parseInt(option(args, "--runs", "3"));
+        int warmup = Integer.parseInt(option(args, "--warmup", "2"));
+        String out = option(args, "--out", "render-benchmark");
+        if (runs <= 0 || warmup < 0) throw new IllegalArgumentException("runs must be positive and warmup not negative");
+        Arrays.sort(threads);
+
+        List<Result> results = new ArrayList<>();
+        for (String file : scenes.split(",")) {
+            RenderJob job = StaxSceneParser.parseXMLJob(file.trim());
+            Camera camera = job.getCamera();
+            CountingRayTracer rayTracer = new CountingRayTracer(job.getScene());
+            camera.setRayTracer(rayTracer);
+            double aspect = (double) job.getImageWriter().getNy() / job.getImageWriter().getNx();
+
+            for (int w = 0; w < warmup; ++w)
+                render(camera, rayTracer, job.getScene().name, resolutions[0], aspect, threads[threads.length - 1]);
+
+            for (int width : resolutions) {
+                double baseline = 0;
+                for (int threadsCount : threads) {
+                    double[] times = new double[runs];
+                    long rays = 0;
+                    for (int r = 0; r < runs; ++r) {
+                        long start = System.nanoTime();
+                        rays = render(camera, rayTracer, job.getScene().name, width, aspect, threadsCount);
+                        times[r] = (System.nanoTime() - start) / 1e9;
+                    }
+                    Arrays.sort(times);
+                    double median = runs % 2 == 1 ? times[runs / 2] : (times[runs / 2 - 1] + times[runs / 2]) / 2;
+                    if (threadsCount == threads[0]) baseline = median * threadsCount;
+                    Result result = new Result(job.getScene().name, width, height(width, aspect), threadsCount, runs,
+                            median, times[0], rays, baseline / (median * threadsCount));
+                    results.add(result);
+                    System.out.printf(Locale.ROOT, "%n%s %dx%d %d threads: %.3fs, %.0f rays/s, efficiency %.2f%n",
+                            result.scene(), result.width(), result.height(), threadsCount, median,
+                            result.raysPerSecond(), result.efficiency());
+                }
+            }
+        }
+        writeCSV(Path.of(out + ".csv"), results);
+        writeJSON(Path.of(out + ".json"), results);
+    }
+
+    /**
+     * Renders a scene once
+     * @param camera       camera of scene
+     * @param rayTracer    counting ray tracer of camera
+     * @param name         name of image
+     * @param width        amount of pixels in a row
+     * @param aspect       ratio of height to width of image
+     * @param threadsCount amount of threads
+     * @return amount of camera rays of the render
+     */
+    private static long render(Camera camera, CountingRayTracer rayTracer, String name, int width, double aspect,
+                               int threadsCount) {
+        rayTracer.rays.reset();
+        camera.setImageWriter(new ImageWriter(name, width, height(width, aspect)))
+                .setMultiThreading(threadsCount, Long.MAX_VALUE)
+                .removeRenderListener(RenderListener.CONSOLE)
+                .renderImage();
+        return rayTracer.rays.sum();
+    }
+
+    /** calculates the height of an image
+     * @param width amount of pixels in a row
+     * @param aspect ratio of height to width
+     * @return amount of pixels in a column */
+    private static int height(int width, double aspect) {
+        return Math.max(1, (int) Math.round(width * aspect));
+    }
+
+    /** writes results as CSV
+     * @param file path of file
+     * @param results the results
+     * @throws IOException if writing the file went wrong */
+    private static void writeCSV(Path file, List<Result> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        for (Result r : results)
+            lines.add(String.format(Locale.ROOT, "\"%s\",%d,%d,%d,%d,%.6f,%.6f,%d,%.1f,%.1f,%.4f", r.scene().replace("\"", "\"\""),
+                    r.width(), r.height(), r.threads(), r.runs(), r.median(), r.best(), r.rays(),
+                    r.raysPerSecond(), r.pixelsPerSecond(), r.efficiency()));
+        Files.write(file, lines);
+    }
+
+    /** writes results as JSON - an array of objects with the fields of the CSV columns
+     * @param file path of file
+     * @param results the results
+     * @throws IOException if writing the file went wrong */
+    private static void writeJSON(Path file, List<Result> results) throws IOException {
+        String[] fields = CSV_HEADER.split(",");
+        StringBuilder json = new StringBuilder("[\n");
+        for (int k = 0; k < results.size(); ++k) {
+            Result r = results.get(k);
+            Object[] values = {'"' + r.scene().replace("\\", "\\\\").replace("\"", "\\\"") + '"', r.width(), r.height(),
+                    r.threads(), r.runs(), r.median(), r.best(), r.rays(), r.raysPerSecond(), r.pixelsPerSecond(),
+                    r.efficiency()};
+            json.append("  {");
+            for (int f = 0; f < fields.length; ++f)
+                json.append(f == 0 ? "" : ", ").append('"').append(fields[f]).append("\": ").append(values[f]);
+            json.append(k == results.size() - 1 ? "}\n" : "},\n");
+        }
+        Files.writeString(file, json.append("]\n"));
+    }
+
+    /** finds the value of an option
+     * @param args arguments of program
+     * @param name name of option
+     * @param defaultValue value if the option is not given
+     * @return value of option */
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int k = 0; k < args.length - 1; ++k)
+            if (args[k].equals(name)) return args[k + 1];
+        return defaultValue;
+    }
+
+    /** parses a comma separated list of integers
+     * @param list the list
+     * @return the integers */
+    private static int[] integers(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
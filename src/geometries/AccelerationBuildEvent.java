@@ -0,0 +1,26 @@
+package geometries;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of building an acceleration structure (bounding volume hierarchy of a mesh)
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+@Name("raytracer.AccelerationBuild")
+@Label("Acceleration Build")
+@Category({"Ray Tracer", "Scene"})
+@Description("Building of the bounding volume hierarchy of a mesh")
+class AccelerationBuildEvent extends Event {
+    /** amount of faces */
+    @Label("Faces")
+    int faces;
+
+    /** amount of nodes of the hierarchy */
+    @Label("Nodes")
+    int nodes;
+}
@@ -1,6 +1,7 @@
 package geometries;
 
 import primitives.Ray;
+import primitives.RenderStatistics;
 
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -44,9 +45,14 @@ public class Geometries extends Intersectable {
 
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        return findGeoIntersectionsHelper(ray, maxDistance, null);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance, RenderStatistics.Counters counters) {
         List<GeoPoint> points = null;
         for (Intersectable geometry : this.geometries) {
-            List<GeoPoint> intersections = geometry.findGeoIntersections(ray, maxDistance);
+            List<GeoPoint> intersections = geometry.findGeoIntersections(ray, maxDistance, counters);
             if (intersections != null) {
                 if (points == null) {
                     points = new LinkedList<GeoPoint>();
@@ -57,6 +63,11 @@ public class Geometries extends Intersectable {
         return points;
     }
 
+    @Override
+    protected boolean countsAsTest() {
+        return false;
+    }
+
     /** getter for geometries
      * @return geometries
      */
@@ -2,6 +2,7 @@ package geometries;
 
 import primitives.Point;
 import primitives.Ray;
+import primitives.RenderStatistics;
 
 import java.util.List;
 import java.util.Objects;
@@ -28,6 +29,17 @@ public abstract class Intersectable {
      */
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance);
 
+    /** helper function for findGeoIntersections of a render, which passes the counters of the render on to the
+     * primitives inside the geometry - composites and meshes override it, primitives ignore the counters
+     * @param ray ray of which we find intersections with
+     * @param maxDistance maximum distance of points from ray base
+     * @param counters statistics counters of the render, null if the search is not counted
+     * @return list of all GeoPoints of intersection
+     */
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance, RenderStatistics.Counters counters) {
+        return findGeoIntersectionsHelper(ray, maxDistance);
+    }
+
     /** Returns a lists of intersection geoPoints (geometry and point) between geometry\ies and ray
      * @param ray ray that intersects the geometry\ies
      * @return list of intersection geoPoints (geometry and point)
@@ -42,7 +54,28 @@ public abstract class Intersectable {
      * @return a lists of intersection geoPoints (geometry and point) between geometry\ies and ray up to a certain distance
      */
     public final List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance) {
-        return findGeoIntersectionsHelper(ray, maxDistance);
+        return this.findGeoIntersections(ray, maxDistance, null);
+    }
+
+    /** Returns a lists of intersection geoPoints (geometry and point) between geometry\ies and ray up to a certain
+     * distance, counting the intersection tests of primitives in the statistics counters of a render
+     * @param ray ray that intersects the geometry\ies
+     * @param maxDistance maximum distance of points from ray base
+     * @param counters statistics counters of the render, null if the search is not counted
+     * @return a lists of intersection geoPoints (geometry and point) between geometry\ies and ray up to a certain distance
+     */
+    public final List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance, RenderStatistics.Counters counters) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, maxDistance, counters);
+        if (RenderStatistics.ENABLED && counters != null && countsAsTest()) counters.primitiveTest(intersections != null);
+        return intersections;
+    }
+
+    /** whether a search of intersections is counted by render statistics as a single intersection test of a
+     * primitive - composites (and meshes, which count the tests of their triangles) are not
+     * @return true for a primitive
+     */
+    protected boolean countsAsTest() {
+        return true;
     }
 
     /** a PDS representing a Geometry and a point on it */
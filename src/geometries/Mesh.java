@@ -0,0 +1,579 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.RenderStatistics;
+import primitives.Vector;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * class Mesh is a compact indexed triangle mesh - vertex coordinates are kept as floats and faces as triplets of
+ * vertex indices, instead of a Triangle object (with its points, vectors and plane) per face.<br/>
+ * The faces are kept in a bounding volume hierarchy of flat arrays, built when the mesh is created, so a ray is
+ * tested only against faces in boxes it passes through. All faces share the material and emission of the mesh,
+ * and an intersection point's geometry is a {@link Face} of the mesh.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class Mesh extends Geometry {
+    /** maximum amount of faces in a leaf of the hierarchy */
+    public static final int LEAF_SIZE = 4;
+    /** minimum amount of faces of a sub-tree to be built by a separate task */
+    private static final int MIN_FORK_FACES = 1 << 14;
+    /** maximum depth of the hierarchy (of a balanced tree of up to 2^31 faces) */
+    static final int MAX_DEPTH = 64;
+    /** maximum distance of a point from a face to be on it (of float vertices vs. a calculated point) */
+    private static final double ON_FACE_DELTA = 1e-5;
+
+    /** x,y,z coordinates of vertices */
+    private final float[] vertices;
+    /** 3 vertex indices of every face, faces ordered by leaves of the hierarchy */
+    private final int[] indices;
+    /** amount of faces */
+    private final int amountFaces;
+    /** bounding boxes of the nodes of the hierarchy (min x,y,z, max x,y,z of every node) */
+    private final float[] bounds;
+    /** nodes of the hierarchy in depth first order, 2 ints per node: for a leaf - index of its first face and
+     * amount of faces, for an inner node - index of its right child (the left one follows it) and 0 */
+    private final int[] nodes;
+
+    /** a face of a mesh, as the geometry of an intersection point */
+    public static final class Face extends Geometry {
+        /** the mesh */
+        private final Mesh mesh;
+        /** index of face in the mesh */
+        private final int index;
+
+        /** constructor for Face
+         * @param mesh the mesh
+         * @param index index of face in the mesh */
+        private Face(Mesh mesh, int index) {
+            this.mesh = mesh;
+            this.index = index;
+        }
+
+        @Override
+        public Color getEmission() {
+            return mesh.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return mesh.getMaterial();
+        }
+
+        /** getter for the mesh of the face
+         * @return the mesh */
+        public Mesh getMesh() {
+            return mesh;
+        }
+
+        /** getter for index of the face
+         * @return index of face in the mesh */
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return mesh.faceNormal(index);
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+            return findGeoIntersectionsHelper(ray, maxDistance, null);
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance, RenderStatistics.Counters counters) {
+            List<GeoPoint> intersections = new LinkedList<>();
+            mesh.intersectFace(index, ray, maxDistance, intersections, counters);
+            return intersections.isEmpty() ? null : intersections;
+        }
+
+        @Override
+        protected boolean countsAsTest() {
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Face face && face.mesh == mesh && face.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(mesh), index);
+        }
+    }
+
+    /**
+     * Constructor for Mesh, builds its bounding volume hierarchy (in parallel for large meshes)
+     * @param vertices x,y,z coordinates of vertices
+     * @param indices  3 vertex indices of every face - the array is kept by the mesh, and its faces are reordered
+     * @throws IllegalArgumentException if the arrays are not of triplets, there are no faces,
+     *                                  or a vertex index is out of range
+     */
+    public Mesh(float[] vertices, int[] indices) {
+        if (vertices.length % 3 != 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("vertices and faces must be triplets");
+        if (indices.length == 0) throw new IllegalArgumentException("a mesh must have faces");
+        int amountVertices = vertices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= amountVertices) throw new IllegalArgumentException("vertex index out of range");
+        this.vertices = vertices;
+        this.indices = indices;
+        this.amountFaces = indices.length / 3;
+        int amountNodes = nodeCount(amountFaces, new HashMap<>());
+        this.bounds = new float[6 * amountNodes];
+        this.nodes = new int[2 * amountNodes];
+        build();
+    }
+
+    /**
+     * Constructor for Mesh of which the hierarchy was already built (e.g. read from a compiled scene file)
+     * @param vertices x,y,z coordinates of vertices
+     * @param indices  3 vertex indices of every face, faces ordered by leaves of the hierarchy
+     * @param bounds   bounding boxes of the nodes of the hierarchy
+     * @param nodes    nodes of the hierarchy
+     * @throws IllegalArgumentException if the hierarchy does not match the amount of faces
+     */
+    public Mesh(float[] vertices, int[] indices, float[] bounds, int[] nodes) {
+        if (indices.length % 3 != 0 || indices.length == 0 || bounds.length != 3 * nodes.length
+                || nodes.length != 2 * nodeCount(indices.length / 3, new HashMap<>()))
+            throw new IllegalArgumentException("hierarchy does not match the faces");
+        this.vertices = vertices;
+        this.indices = indices;
+        this.amountFaces = indices.length / 3;
+        this.bounds = bounds;
+        this.nodes = nodes;
+    }
+
+    /** getter for amount of vertices
+     * @return amount of vertices */
+    public int getAmountVertices() {
+        return vertices.length / 3;
+    }
+
+    /** getter for amount of faces
+     * @return amount of faces */
+    public int getAmountFaces() {
+        return amountFaces;
+    }
+
+    /** getter for a vertex
+     * @param index index of vertex
+     * @return the vertex */
+    public Point getVertex(int index) {
+        return new Point(vertices[3 * index], vertices[3 * index + 1], vertices[3 * index + 2]);
+    }
+
+    /** getter for vertex coordinates (not a copy)
+     * @return x,y,z coordinates of vertices */
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    /** getter for face indices (not a copy)
+     * @return 3 vertex indices of every face, faces ordered by leaves of the hierarchy */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /** getter for bounding boxes of the hierarchy (not a copy)
+     * @return min x,y,z and max x,y,z of every node */
+    public float[] getBounds() {
+        return bounds;
+    }
+
+    /** getter for nodes of the hierarchy (not a copy)
+     * @return 2 ints of every node in depth first order */
+    public int[] getNodes() {
+        return nodes;
+    }
+
+    /** the normal of a mesh is the normal of the face the point is on - the face is searched in the hierarchy,
+     * so it is better to use the normal of the {@link Face} of an intersection
+     * @throws IllegalArgumentException if the point is not on a face of the mesh */
+    @Override
+    public Vector getNormal(Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        int[] stack = new int[MAX_DEPTH];
+        int top = 0, node = 0;
+        while (true) {
+            if (containsPoint(bounds, node, x, y, z)) {
+                int count = nodes[2 * node + 1];
+                if (count == 0) { // inner node - visit left child now and right child later
+                    stack[top++] = nodes[2 * node];
+                    ++node;
+                    continue;
+                }
+                int first = nodes[2 * node];
+                for (int face = first; face < first + count; ++face)
+                    if (onTriangle(vertices, 3 * indices[3 * face], 3 * indices[3 * face + 1], 3 * indices[3 * face + 2],
+                            x, y, z))
+                        return faceNormal(face);
+            }
+            if (top == 0) break;
+            node = stack[--top];
+        }
+        throw new IllegalArgumentException("point is not on a face of the mesh");
+    }
+
+    /** checks whether a point is in the bounding box of a node, up to {@link #ON_FACE_DELTA}
+     * @param bounds bounding boxes of nodes
+     * @param node index of node
+     * @param x x of point
+     * @param y y of point
+     * @param z z of point
+     * @return true if the point is in the box */
+    static boolean containsPoint(float[] bounds, int node, double x, double y, double z) {
+        int b = 6 * node;
+        return x >= bounds[b] - ON_FACE_DELTA && x <= bounds[b + 3] + ON_FACE_DELTA
+                && y >= bounds[b + 1] - ON_FACE_DELTA && y <= bounds[b + 4] + ON_FACE_DELTA
+                && z >= bounds[b + 2] - ON_FACE_DELTA && z <= bounds[b + 5] + ON_FACE_DELTA;
+    }
+
+    /** checks whether a point is on a triangle (including its edges), up to {@link #ON_FACE_DELTA}
+     * @param vertices coordinates of vertices
+     * @param a index of x of first vertex
+     * @param b index of x of second vertex
+     * @param c index of x of third vertex
+     * @param x x of point
+     * @param y y of point
+     * @param z z of point
+     * @return true if the point is on the triangle, false also for a degenerate triangle */
+    static boolean onTriangle(float[] vertices, int a, int b, int c, double x, double y, double z) {
+        double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1], e1z = vertices[b + 2] - vertices[a + 2];
+        double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1], e2z = vertices[c + 2] - vertices[a + 2];
+        double px = x - vertices[a], py = y - vertices[a + 1], pz = z - vertices[a + 2];
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        double area = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (isZero(area) || Math.abs(px * nx + py * ny + pz * nz) > ON_FACE_DELTA * area) return false;
+        // barycentric coordinates of the point in the plane of the triangle
+        double d11 = e1x * e1x + e1y * e1y + e1z * e1z, d12 = e1x * e2x + e1y * e2y + e1z * e2z;
+        double d22 = e2x * e2x + e2y * e2y + e2z * e2z;
+        double dp1 = px * e1x + py * e1y + pz * e1z, dp2 = px * e2x + py * e2y + pz * e2z;
+        double denominator = d11 * d22 - d12 * d12;
+        double u = (d22 * dp1 - d12 * dp2) / denominator, v = (d11 * dp2 - d12 * dp1) / denominator;
+        double delta = ON_FACE_DELTA * Math.sqrt(Math.max(d11, d22)) / area;
+        return u >= -delta && v >= -delta && u + v <= 1 + delta;
+    }
+
+    /** calculates the normal of a face
+     * @param face index of face
+     * @return unit normal of face */
+    Vector faceNormal(int face) {
+        return triangleNormal(vertices, 3 * indices[3 * face], 3 * indices[3 * face + 1], 3 * indices[3 * face + 2]);
+    }
+
+    /** calculates the normal of a triangle - (b-a)x(c-a)
+     * @param vertices coordinates of vertices
+     * @param a index of x of first vertex
+     * @param b index of x of second vertex
+     * @param c index of x of third vertex
+     * @return unit normal of triangle */
+    static Vector triangleNormal(float[] vertices, int a, int b, int c) {
+        double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1], e1z = vertices[b + 2] - vertices[a + 2];
+        double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1], e2z = vertices[c + 2] - vertices[a + 2];
+        return new Vector(e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x).normalize();
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        return findGeoIntersectionsHelper(ray, maxDistance, null);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance, RenderStatistics.Counters counters) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / dir.getX(), iy = 1 / dir.getY(), iz = 1 / dir.getZ();
+        List<GeoPoint> intersections = new LinkedList<>();
+        int[] stack = new int[MAX_DEPTH];
+        int top = 0, node = 0;
+        while (true) {
+            if (hitsBox(bounds, node, ox, oy, oz, ix, iy, iz, maxDistance)) {
+                int count = nodes[2 * node + 1];
+                if (count == 0) { // inner node - visit left child now and right child later
+                    stack[top++] = nodes[2 * node];
+                    ++node;
+                    continue;
+                }
+                int first = nodes[2 * node];
+                for (int face = first; face < first + count; ++face)
+                    intersectFace(face, ray, maxDistance, intersections, counters);
+            }
+            if (top == 0) break;
+            node = stack[--top];
+        }
+        return intersections.isEmpty() ? null : intersections;
+    }
+
+    @Override
+    protected boolean countsAsTest() {
+        return false;
+    }
+
+    /** checks whether a ray passes through the bounding box of a node (slab test)
+     * @param bounds bounding boxes of nodes
+     * @param node index of node
+     * @param ox x of ray base
+     * @param oy y of ray base
+     * @param oz z of ray base
+     * @param ix inverse of x of ray direction
+     * @param iy inverse of y of ray direction
+     * @param iz inverse of z of ray direction
+     * @param maxDistance maximum distance from ray base
+     * @return true if the ray passes through the box */
+    static boolean hitsBox(float[] bounds, int node, double ox, double oy, double oz,
+                           double ix, double iy, double iz, double maxDistance) {
+        int b = 6 * node;
+        double t1 = (bounds[b] - ox) * ix, t2 = (bounds[b + 3] - ox) * ix;
+        double tMin = Math.min(t1, t2), tMax = Math.max(t1, t2);
+        t1 = (bounds[b + 1] - oy) * iy;
+        t2 = (bounds[b + 4] - oy) * iy;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        t1 = (bounds[b + 2] - oz) * iz;
+        t2 = (bounds[b + 5] - oz) * iz;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        // NaN of a ray in the plane of a box face fails the comparison, and the box is visited
+        return !(tMax < tMin || tMax < 0 || tMin > maxDistance);
+    }
+
+    /** intersects a ray with a face, including the face edges so there are no cracks between neighbour faces
+     * @param face index of face
+     * @param ray the ray
+     * @param maxDistance maximum distance from ray base
+     * @param intersections list to add the intersection to
+     * @param counters statistics counters of the render, null if the test is not counted */
+    void intersectFace(int face, Ray ray, double maxDistance, List<GeoPoint> intersections,
+                       RenderStatistics.Counters counters) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double t = intersectTriangle(vertices, 3 * indices[3 * face], 3 * indices[3 * face + 1], 3 * indices[3 * face + 2],
+                p0.getX(), p0.getY(), p0.getZ(), dir.getX(), dir.getY(), dir.getZ());
+        boolean hit = t > 0 && alignZero(t - maxDistance) <= 0;
+        if (RenderStatistics.ENABLED && counters != null) counters.primitiveTest(hit);
+        if (hit) intersections.add(new GeoPoint(new Face(this, face), ray.getPoint(t)));
+    }
+
+    /** intersects a ray with a triangle (Moller-Trumbore), including the triangle edges
+     * @param vertices coordinates of vertices
+     * @param a index of x of first vertex
+     * @param b index of x of second vertex
+     * @param c index of x of third vertex
+     * @param ox x of ray base
+     * @param oy y of ray base
+     * @param oz z of ray base
+     * @param dx x of ray direction
+     * @param dy y of ray direction
+     * @param dz z of ray direction
+     * @return distance of intersection from ray base, 0 if there is no intersection in front of the ray base */
+    static double intersectTriangle(float[] vertices, int a, int b, int c,
+                                    double ox, double oy, double oz, double dx, double dy, double dz) {
+        double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1], e1z = vertices[b + 2] - vertices[a + 2];
+        double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1], e2z = vertices[c + 2] - vertices[a + 2];
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (isZero(det)) return 0;
+        double inv = 1 / det;
+        double sx = ox - vertices[a], sy = oy - vertices[a + 1], sz = oz - vertices[a + 2];
+        double u = (sx * px + sy * py + sz * pz) * inv;
+        if (u < 0 || u > 1) return 0;
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = (dx * qx + dy * qy + dz * qz) * inv;
+        if (v < 0 || u + v > 1) return 0;
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * inv);
+        return t > 0 ? t : 0;
+    }
+
+    /** calculates the amount of nodes of a hierarchy - faces of a node are split to halves until a leaf is reached,
+     * so the tree shape depends only on the amount of faces
+     * @param faces amount of faces
+     * @param memo amounts which were already calculated
+     * @return amount of nodes */
+    private static int nodeCount(int faces, Map<Integer, Integer> memo) {
+        if (faces <= LEAF_SIZE) return 1;
+        Integer count = memo.get(faces);
+        if (count == null) {
+            count = 1 + nodeCount(faces / 2, memo) + nodeCount(faces - faces / 2, memo);
+            memo.put(faces, count);
+        }
+        return count;
+    }
+
+    /** builds the bounding volume hierarchy - every node is split at the median of face centroids along the
+     * longest axis of their bounds, and the faces are reordered by leaves */
+    private void build() {
+        AccelerationBuildEvent event = new AccelerationBuildEvent();
+        event.begin();
+        float[] centroids = new float[3 * amountFaces];
+        int[] order = new int[amountFaces];
+        for (int face = 0; face < amountFaces; ++face) {
+            order[face] = face;
+            for (int k = 0; k < 3; ++k)
+                centroids[3 * face + k] = (vertices[3 * indices[3 * face] + k] + vertices[3 * indices[3 * face + 1] + k]
+                        + vertices[3 * indices[3 * face + 2] + k]) / 3;
+        }
+        Map<Integer, Integer> memo = new HashMap<>();
+        nodeCount(amountFaces, memo);
+        new BuildTask(0, 0, amountFaces, centroids, order, memo).invoke();
+        int[] original = indices.clone();
+        for (int face = 0; face < amountFaces; ++face)
+            System.arraycopy(original, 3 * order[face], indices, 3 * face, 3);
+        if (event.shouldCommit()) {
+            event.faces = amountFaces;
+            event.nodes = nodes.length / 2;
+            event.commit();
+        }
+    }
+
+    /** task of building a sub-tree of the hierarchy */
+    private class BuildTask extends RecursiveAction {
+        /** serialization version - tasks are never serialized, it is declared for the serializable super class */
+        private static final long serialVersionUID = 1L;
+        /** index of sub-tree root node */
+        private final int node;
+        /** index of first face of the sub-tree (in order) */
+        private final int from;
+        /** index after last face of the sub-tree (in order) */
+        private final int to;
+        /** centroids of faces */
+        private final float[] centroids;
+        /** order of faces by leaves, being built */
+        private final int[] order;
+        /** amounts of nodes of sub-trees, by amount of faces */
+        private final Map<Integer, Integer> memo;
+
+        /** constructor for BuildTask
+         * @param node index of sub-tree root node
+         * @param from index of first face of the sub-tree
+         * @param to index after last face of the sub-tree
+         * @param centroids centroids of faces
+         * @param order order of faces
+         * @param memo amounts of nodes of sub-trees */
+        BuildTask(int node, int from, int to, float[] centroids, int[] order, Map<Integer, Integer> memo) {
+            this.node = node;
+            this.from = from;
+            this.to = to;
+            this.centroids = centroids;
+            this.order = order;
+            this.memo = memo;
+        }
+
+        @Override
+        protected void compute() {
+            setBounds(node, from, to, order);
+            if (to - from <= LEAF_SIZE) {
+                nodes[2 * node] = from;
+                nodes[2 * node + 1] = to - from;
+                return;
+            }
+            int axis = longestAxis(from, to);
+            int mid = from + (to - from) / 2;
+            select(from, to, mid, axis);
+            int right = node + 1 + nodeCount(mid - from, memo);
+            nodes[2 * node] = right;
+            nodes[2 * node + 1] = 0;
+            BuildTask left = new BuildTask(node + 1, from, mid, centroids, order, memo);
+            BuildTask rightTask = new BuildTask(right, mid, to, centroids, order, memo);
+            if (to - from >= MIN_FORK_FACES) ForkJoinTask.invokeAll(left, rightTask);
+            else {
+                left.compute();
+                rightTask.compute();
+            }
+        }
+
+        /** finds the axis along which the centroids of a range of faces are spread the most
+         * @param from index of first face
+         * @param to index after last face
+         * @return 0, 1 or 2 for x, y or z */
+        private int longestAxis(int from, int to) {
+            float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+            float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+            for (int f = from; f < to; ++f) {
+                for (int k = 0; k < 3; ++k) {
+                    float c = centroids[3 * order[f] + k];
+                    if (c < min[k]) min[k] = c;
+                    if (c > max[k]) max[k] = c;
+                }
+            }
+            int axis = 0;
+            for (int k = 1; k < 3; ++k)
+                if (max[k] - min[k] > max[axis] - min[axis]) axis = k;
+            return axis;
+        }
+
+        /** reorders a range of faces so the face of a given position is in its place by centroid along an axis,
+         * faces before it are not greater and faces after it are not smaller (quick select)
+         * @param from index of first face
+         * @param to index after last face
+         * @param k the position
+         * @param axis 0, 1 or 2 for x, y or z */
+        private void select(int from, int to, int k, int axis) {
+            int lo = from, hi = to - 1;
+            while (lo < hi) {
+                float pivot = key(lo + (hi - lo) / 2, axis);
+                int i = lo, j = hi;
+                while (i <= j) {
+                    while (key(i, axis) < pivot) ++i;
+                    while (key(j, axis) > pivot) --j;
+                    if (i <= j) {
+                        int temp = order[i];
+                        order[i++] = order[j];
+                        order[j--] = temp;
+                    }
+                }
+                if (k <= j) hi = j;
+                else if (k >= i) lo = i;
+                else return;
+            }
+        }
+
+        /** centroid coordinate of a face
+         * @param position position of face in order
+         * @param axis 0, 1 or 2 for x, y or z
+         * @return coordinate of centroid */
+        private float key(int position, int axis) {
+            return centroids[3 * order[position] + axis];
+        }
+    }
+
+    /** sets the bounding box of a node to the bounds of its faces
+     * @param node index of node
+     * @param from index of first face (in order)
+     * @param to index after last face (in order)
+     * @param order order of faces */
+    private void setBounds(int node, int from, int to, int[] order) {
+        int b = 6 * node;
+        for (int k = 0; k < 3; ++k) {
+            bounds[b + k] = Float.MAX_VALUE;
+            bounds[b + 3 + k] = -Float.MAX_VALUE;
+        }
+        for (int f = from; f < to; ++f) {
+            for (int corner = 0; corner < 3; ++corner) {
+                int v = 3 * indices[3 * order[f] + corner];
+                for (int k = 0; k < 3; ++k) {
+                    bounds[b + k] = Math.min(bounds[b + k], vertices[v + k]);
+                    bounds[b + 3 + k] = Math.max(bounds[b + 3 + k], vertices[v + k]);
+                }
+            }
+        }
+    }
+}
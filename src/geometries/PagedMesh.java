@@ -0,0 +1,953 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.RenderStatistics;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static primitives.Util.alignZero;
+
+/**
+ * class PagedMesh is a triangle mesh which is kept out of the heap, for scenes larger than the heap.<br/>
+ * The hierarchy of a {@link Mesh} is cut into blocks - sub-trees of up to a given amount of faces - which are
+ * written to a file with their own nodes, bounds and face vertices. Only the top of the hierarchy, above the
+ * blocks, is kept on the heap. The file is memory-mapped, and a block is copied to the heap when a ray reaches
+ * it; a bounded amount of blocks stay resident, and the least recently used ones are evicted (approximated by
+ * the clock algorithm, so hitting a resident block takes no lock). Counters of block hits, misses and evictions
+ * tell whether the resident amount fits the working set of the render.<br/>
+ * The file is written from a {@link Mesh} on the heap, or from a stream of faces by a {@link Writer}, which builds
+ * the hierarchy out of core - so a mesh larger than the heap can be paged as well.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class PagedMesh extends Geometry {
+    /** magic number of a paged mesh file ("PMSH") */
+    private static final int MAGIC = 0x504D5348;
+    /** version of the file format */
+    private static final int VERSION = 1;
+    /** size of file header */
+    private static final int HEADER_SIZE = 32;
+    /** size of a top node: bounds and node */
+    private static final int TOP_NODE_SIZE = 32;
+    /** size of an entry of the block table: offset, first face, amount of faces, amount of nodes */
+    private static final int ENTRY_SIZE = 24;
+    /** byte order of file */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    /** size of a mapped segment of the file - blocks do not cross segments */
+    private static final long SEGMENT_SIZE = 1L << 30;
+    /** default maximum amount of faces in a block */
+    public static final int DEFAULT_BLOCK_FACES = 4096;
+
+    /** bounding boxes of the top nodes */
+    private final float[] topBounds;
+    /** top nodes in depth first order, 2 ints per node: for a block - its index and -1, for an inner node - index
+     * of its right child (the left one follows it) and 0 */
+    private final int[] topNodes;
+    /** offset of every block in the file */
+    private final long[] blockOffsets;
+    /** index of the first face of every block in the mesh */
+    private final int[] blockFirstFaces;
+    /** amount of faces of every block */
+    private final int[] blockFaces;
+    /** amount of nodes of every block */
+    private final int[] blockNodes;
+    /** mapped segments of the file */
+    private final MappedByteBuffer[] segments;
+    /** amount of faces */
+    private final int amountFaces;
+
+    /** resident blocks by their index, null for a block which is not resident */
+    private final AtomicReferenceArray<Block> resident;
+    /** slots of resident blocks in clock order */
+    private final Block[] slots;
+    /** next slot to be checked for eviction */
+    private int hand = 0;
+    /** counter of accesses to resident blocks */
+    private final LongAdder hits = new LongAdder();
+    /** counter of accesses to blocks which were loaded */
+    private final LongAdder misses = new LongAdder();
+    /** counter of evicted blocks */
+    private final LongAdder evictions = new LongAdder();
+
+    /** a block of the hierarchy which was copied to the heap */
+    private static final class Block {
+        /** index of block */
+        final int index;
+        /** bounding boxes of the nodes of the block */
+        final float[] bounds;
+        /** nodes of the block, as of {@link Mesh} - indices of nodes and faces are in the block */
+        final int[] nodes;
+        /** x,y,z coordinates of the 3 vertices of every face */
+        final float[] vertices;
+        /** whether the block was accessed since the clock hand passed it */
+        volatile boolean referenced = true;
+
+        /** constructor for Block
+         * @param index index of block
+         * @param bounds bounding boxes of the nodes of the block
+         * @param nodes nodes of the block
+         * @param vertices coordinates of face vertices */
+        Block(int index, float[] bounds, int[] nodes, float[] vertices) {
+            this.index = index;
+            this.bounds = bounds;
+            this.nodes = nodes;
+            this.vertices = vertices;
+        }
+    }
+
+    /** a face of a paged mesh, as the geometry of an intersection point - the normal is calculated when the face
+     * is intersected, since its block may be evicted later */
+    public static final class Face extends Geometry {
+        /** the mesh */
+        private final PagedMesh mesh;
+        /** index of face in the mesh */
+        private final int index;
+        /** normal of face */
+        private final Vector normal;
+
+        /** constructor for Face
+         * @param mesh the mesh
+         * @param index index of face in the mesh
+         * @param normal normal of face */
+        private Face(PagedMesh mesh, int index, Vector normal) {
+            this.mesh = mesh;
+            this.index = index;
+            this.normal = normal;
+        }
+
+        @Override
+        public Color getEmission() {
+            return mesh.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return mesh.getMaterial();
+        }
+
+        /** getter for index of the face
+         * @return index of face in the mesh */
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return normal;
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+            return findGeoIntersectionsHelper(ray, maxDistance, null);
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance, RenderStatistics.Counters counters) {
+            int block = mesh.blockOf(index);
+            List<GeoPoint> intersections = new LinkedList<>();
+            mesh.intersectFace(mesh.block(block), index - mesh.blockFirstFaces[block], ray, maxDistance, intersections,
+                    counters);
+            return intersections.isEmpty() ? null : intersections;
+        }
+
+        @Override
+        protected boolean countsAsTest() {
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Face face && face.mesh == mesh && face.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(mesh), index);
+        }
+    }
+
+    /**
+     * Constructor for PagedMesh, opens a paged mesh file and reads the top of its hierarchy
+     * @param file           path of paged mesh file
+     * @param residentBlocks maximum amount of blocks on the heap
+     * @throws IOException              if reading the file went wrong
+     * @throws IllegalArgumentException if the file is not a paged mesh file or residentBlocks <= 0
+     */
+    public PagedMesh(Path file, int residentBlocks) throws IOException {
+        if (residentBlocks <= 0) throw new IllegalArgumentException("amount of resident blocks must be positive");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IllegalArgumentException("not a paged mesh file");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ORDER);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IllegalArgumentException("not a paged mesh file of version " + VERSION);
+            amountFaces = header.getInt(8);
+            int amountTop = header.getInt(12), amountBlocks = header.getInt(16);
+            long tableLength = (long) TOP_NODE_SIZE * amountTop + (long) ENTRY_SIZE * amountBlocks;
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, tableLength).order(ORDER);
+            topBounds = new float[6 * amountTop];
+            topNodes = new int[2 * amountTop];
+            table.asFloatBuffer().get(topBounds);
+            table.position(4 * topBounds.length);
+            table.slice().order(ORDER).asIntBuffer().get(topNodes);
+            table.position(TOP_NODE_SIZE * amountTop);
+            blockOffsets = new long[amountBlocks];
+            blockFirstFaces = new int[amountBlocks];
+            blockFaces = new int[amountBlocks];
+            blockNodes = new int[amountBlocks];
+            for (int b = 0; b < amountBlocks; ++b) {
+                blockOffsets[b] = table.getLong();
+                blockFirstFaces[b] = table.getInt();
+                blockFaces[b] = table.getInt();
+                blockNodes[b] = table.getInt();
+                table.getInt();
+            }
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int s = 0; s < segments.length; ++s)
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, s * SEGMENT_SIZE,
+                        Math.min(SEGMENT_SIZE, size - s * SEGMENT_SIZE));
+        }
+        resident = new AtomicReferenceArray<>(blockOffsets.length);
+        slots = new Block[Math.min(residentBlocks, Math.max(blockOffsets.length, 1))];
+    }
+
+    /**
+     * Writes a mesh to a paged mesh file, cutting its hierarchy into blocks. The whole mesh is on the heap while
+     * it is written - a mesh larger than the heap is written by a {@link Writer}
+     * @param mesh       the mesh
+     * @param file       path of paged mesh file
+     * @param blockFaces maximum amount of faces in a block
+     * @throws IOException              if writing the file went wrong
+     * @throws IllegalArgumentException if blockFaces is less than a leaf of the mesh
+     */
+    public static void write(Mesh mesh, Path file, int blockFaces) throws IOException {
+        checkBlockFaces(blockFaces);
+        float[] bounds = mesh.getBounds();
+        int[] nodes = mesh.getNodes();
+        List<float[]> topBounds = new ArrayList<>();
+        List<int[]> topNodes = new ArrayList<>();
+        List<Integer> roots = new ArrayList<>();
+        cut(nodes, bounds, 0, blockFaces, topBounds, topNodes, roots);
+
+        ByteBuffer table = table(mesh.getAmountFaces(), topBounds, topNodes, roots.size());
+        long offset = table.capacity();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int root : roots) {
+                ByteBuffer block = encodeBlock(mesh, root);
+                offset = place(offset, block.limit());
+                table.putLong(offset).putInt(firstFace(nodes, root)).putInt(endFace(nodes, root) - firstFace(nodes, root))
+                        .putInt(endNode(nodes, root) - root).putInt(0);
+                offset += writeFully(channel, block, offset);
+            }
+            writeFully(channel, table.flip(), 0);
+        }
+    }
+
+    /** getter for amount of faces
+     * @return amount of faces */
+    public int getAmountFaces() {
+        return amountFaces;
+    }
+
+    /** getter for amount of blocks
+     * @return amount of blocks in the file */
+    public int getAmountBlocks() {
+        return blockOffsets.length;
+    }
+
+    /** hash of the layout of the file - the amount of faces, the hierarchy above the blocks and the table of
+     * blocks (the faces inside the blocks are not read, as the file may be larger than the memory)
+     * @return hash of the layout */
+    public int getLayoutHash() {
+        return Objects.hash(amountFaces, Arrays.hashCode(topBounds), Arrays.hashCode(topNodes),
+                Arrays.hashCode(blockOffsets), Arrays.hashCode(blockFaces), Arrays.hashCode(blockNodes));
+    }
+
+    /** getter for maximum amount of resident blocks
+     * @return maximum amount of blocks on the heap */
+    public int getResidentCapacity() {
+        return slots.length;
+    }
+
+    /** counts the blocks which are resident now
+     * @return amount of blocks on the heap */
+    public int getResidentBlocks() {
+        int count = 0;
+        for (int b = 0; b < resident.length(); ++b)
+            if (resident.get(b) != null) ++count;
+        return count;
+    }
+
+    /** getter for block hits
+     * @return amount of accesses to resident blocks */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** getter for block misses
+     * @return amount of accesses to blocks which were loaded */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** getter for block evictions
+     * @return amount of blocks which were evicted */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** the normal of a mesh is the normal of the face the point is on - the face is searched in the hierarchy,
+     * loading the blocks whose boxes contain the point, so it is better to use the normal of the {@link Face} of
+     * an intersection
+     * @throws IllegalArgumentException if the point is not on a face of the mesh */
+    @Override
+    public Vector getNormal(Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        int[] stack = new int[Mesh.MAX_DEPTH];
+        int top = 0, node = 0;
+        while (true) {
+            if (Mesh.containsPoint(topBounds, node, x, y, z)) {
+                if (topNodes[2 * node + 1] == 0) { // inner node - visit left child now and right child later
+                    stack[top++] = topNodes[2 * node];
+                    ++node;
+                    continue;
+                }
+                Vector normal = blockNormal(block(topNodes[2 * node]), x, y, z);
+                if (normal != null) return normal;
+            }
+            if (top == 0) break;
+            node = stack[--top];
+        }
+        throw new IllegalArgumentException("point is not on a face of the mesh");
+    }
+
+    /** finds the normal of the face of a block which a point is on
+     * @param block the block
+     * @param x x of point
+     * @param y y of point
+     * @param z z of point
+     * @return unit normal of face, null if the point is not on a face of the block */
+    private static Vector blockNormal(Block block, double x, double y, double z) {
+        int[] stack = new int[Mesh.MAX_DEPTH];
+        int top = 0, node = 0;
+        while (true) {
+            if (Mesh.containsPoint(block.bounds, node, x, y, z)) {
+                int count = block.nodes[2 * node + 1];
+                if (count == 0) {
+                    stack[top++] = block.nodes[2 * node];
+                    ++node;
+                    continue;
+                }
+                int first = block.nodes[2 * node];
+                for (int a = 9 * first; a < 9 * (first + count); a += 9)
+                    if (Mesh.onTriangle(block.vertices, a, a + 3, a + 6, x, y, z))
+                        return Mesh.triangleNormal(block.vertices, a, a + 3, a + 6);
+            }
+            if (top == 0) return null;
+            node = stack[--top];
+        }
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        return findGeoIntersectionsHelper(ray, maxDistance, null);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance, RenderStatistics.Counters counters) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / dir.getX(), iy = 1 / dir.getY(), iz = 1 / dir.getZ();
+        List<GeoPoint> intersections = new LinkedList<>();
+        int[] stack = new int[Mesh.MAX_DEPTH];
+        int top = 0, node = 0;
+        while (true) {
+            if (Mesh.hitsBox(topBounds, node, ox, oy, oz, ix, iy, iz, maxDistance)) {
+                if (topNodes[2 * node + 1] == 0) { // inner node - visit left child now and right child later
+                    stack[top++] = topNodes[2 * node];
+                    ++node;
+                    continue;
+                }
+                int block = topNodes[2 * node];
+                intersectBlock(block(block), ray, ox, oy, oz, ix, iy, iz, maxDistance, intersections, counters);
+            }
+            if (top == 0) break;
+            node = stack[--top];
+        }
+        return intersections.isEmpty() ? null : intersections;
+    }
+
+    @Override
+    protected boolean countsAsTest() {
+        return false;
+    }
+
+    /** intersects a ray with the hierarchy of a block
+     * @param block the block
+     * @param ray the ray
+     * @param ox x of ray base
+     * @param oy y of ray base
+     * @param oz z of ray base
+     * @param ix inverse of x of ray direction
+     * @param iy inverse of y of ray direction
+     * @param iz inverse of z of ray direction
+     * @param maxDistance maximum distance from ray base
+     * @param intersections list to add the intersections to
+     * @param counters statistics counters of the render, null if the tests are not counted */
+    private void intersectBlock(Block block, Ray ray, double ox, double oy, double oz, double ix, double iy, double iz,
+                                double maxDistance, List<GeoPoint> intersections, RenderStatistics.Counters counters) {
+        int[] stack = new int[Mesh.MAX_DEPTH];
+        int top = 0, node = 0;
+        while (true) {
+            if (Mesh.hitsBox(block.bounds, node, ox, oy, oz, ix, iy, iz, maxDistance)) {
+                int count = block.nodes[2 * node + 1];
+                if (count == 0) {
+                    stack[top++] = block.nodes[2 * node];
+                    ++node;
+                    continue;
+                }
+                int first = block.nodes[2 * node];
+                for (int face = first; face < first + count; ++face)
+                    intersectFace(block, face, ray, maxDistance, intersections, counters);
+            }
+            if (top == 0) break;
+            node = stack[--top];
+        }
+    }
+
+    /** intersects a ray with a face of a block
+     * @param block the block
+     * @param face index of face in the block
+     * @param ray the ray
+     * @param maxDistance maximum distance from ray base
+     * @param intersections list to add the intersection to
+     * @param counters statistics counters of the render, null if the test is not counted */
+    private void intersectFace(Block block, int face, Ray ray, double maxDistance, List<GeoPoint> intersections,
+                               RenderStatistics.Counters counters) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        int a = 9 * face;
+        double t = Mesh.intersectTriangle(block.vertices, a, a + 3, a + 6,
+                p0.getX(), p0.getY(), p0.getZ(), dir.getX(), dir.getY(), dir.getZ());
+        boolean hit = t > 0 && alignZero(t - maxDistance) <= 0;
+        if (RenderStatistics.ENABLED && counters != null) counters.primitiveTest(hit);
+        if (hit) intersections.add(new GeoPoint(new Face(this, blockFirstFaces[block.index] + face,
+                    Mesh.triangleNormal(block.vertices, a, a + 3, a + 6)), ray.getPoint(t)));
+    }
+
+    /** finds the block of a face
+     * @param face index of face in the mesh
+     * @return index of block */
+    private int blockOf(int face) {
+        int low = 0, high = blockFirstFaces.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blockFirstFaces[middle] <= face) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    // ***************** Paging ********************** //
+
+    /** gets a block, loading it from the file if it is not resident
+     * @param index index of block
+     * @return the block */
+    private Block block(int index) {
+        Block block = resident.get(index);
+        if (block != null) {
+            block.referenced = true;
+            hits.increment();
+            return block;
+        }
+        misses.increment();
+        Block loaded = load(index);
+        synchronized (slots) {
+            block = resident.get(index);
+            if (block != null) return block; // loaded by another thread meanwhile
+            // clock: pass over recently referenced blocks, clearing their mark, until an unreferenced one
+            while (slots[hand] != null && slots[hand].referenced) {
+                slots[hand].referenced = false;
+                hand = (hand + 1) % slots.length;
+            }
+            if (slots[hand] != null) {
+                resident.set(slots[hand].index, null);
+                evictions.increment();
+            }
+            slots[hand] = loaded;
+            resident.set(index, loaded);
+            hand = (hand + 1) % slots.length;
+        }
+        return loaded;
+    }
+
+    /** copies a block from the mapped file to the heap
+     * @param index index of block
+     * @return the block */
+    private Block load(int index) {
+        long offset = blockOffsets[index];
+        int amountNodes = blockNodes[index];
+        float[] bounds = new float[6 * amountNodes];
+        int[] nodes = new int[2 * amountNodes];
+        float[] vertices = new float[9 * blockFaces[index]];
+        int length = 4 * (bounds.length + nodes.length + vertices.length);
+        ByteBuffer data = segments[(int) (offset / SEGMENT_SIZE)].slice((int) (offset % SEGMENT_SIZE), length).order(ORDER);
+        data.asFloatBuffer().get(bounds);
+        data.slice(4 * bounds.length, 4 * nodes.length).order(ORDER).asIntBuffer().get(nodes);
+        data.slice(4 * (bounds.length + nodes.length), 4 * vertices.length).order(ORDER).asFloatBuffer().get(vertices);
+        return new Block(index, bounds, nodes, vertices);
+    }
+
+    // ***************** File layout ********************** //
+
+    /** checks the maximum amount of faces in a block
+     * @param blockFaces maximum amount of faces in a block
+     * @throws IllegalArgumentException if blockFaces is less than a leaf of a mesh */
+    private static void checkBlockFaces(int blockFaces) {
+        if (blockFaces < Mesh.LEAF_SIZE)
+            throw new IllegalArgumentException("a block must have at least " + Mesh.LEAF_SIZE + " faces");
+    }
+
+    /** creates the start of a paged mesh file - the header and the top nodes, positioned at the block table
+     * @param amountFaces amount of faces
+     * @param topBounds bounding boxes of top nodes, in depth first order
+     * @param topNodes top nodes, in depth first order
+     * @param amountBlocks amount of blocks
+     * @return buffer of the start of the file, of the size of the header and the tables */
+    private static ByteBuffer table(int amountFaces, List<float[]> topBounds, List<int[]> topNodes, int amountBlocks) {
+        int amountTop = topNodes.size();
+        long size = HEADER_SIZE + (long) TOP_NODE_SIZE * amountTop + (long) ENTRY_SIZE * amountBlocks;
+        ByteBuffer table = ByteBuffer.allocate((int) size).order(ORDER);
+        table.putInt(MAGIC).putInt(VERSION).putInt(amountFaces).putInt(amountTop).putInt(amountBlocks);
+        table.position(HEADER_SIZE);
+        for (float[] box : topBounds) for (float value : box) table.putFloat(value);
+        for (int[] node : topNodes) table.putInt(node[0]).putInt(node[1]);
+        return table;
+    }
+
+    /** finds the offset of a block in the file - aligned to 8 bytes, and not crossing a mapped segment
+     * @param offset first free offset
+     * @param length size of block
+     * @return offset of block */
+    private static long place(long offset, int length) {
+        offset = (offset + 7) & ~7L;
+        if (offset / SEGMENT_SIZE != (offset + length - 1) / SEGMENT_SIZE)
+            offset = (offset / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+        return offset;
+    }
+
+    /** writes all the remaining bytes of a buffer
+     * @param channel file channel
+     * @param buffer the bytes
+     * @param position offset in the file
+     * @return amount of bytes written
+     * @throws IOException if writing the file went wrong */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        for (long end = position + length; position < end; ) position += channel.write(buffer, position);
+        return length;
+    }
+
+    // ***************** Cutting ********************** //
+
+    /** cuts the hierarchy of a mesh under a node into top nodes and blocks
+     * @param nodes nodes of the mesh
+     * @param bounds bounding boxes of the nodes of the mesh
+     * @param node index of node in the mesh
+     * @param blockFaces maximum amount of faces in a block
+     * @param topBounds bounding boxes of top nodes, in depth first order
+     * @param topNodes top nodes, in depth first order
+     * @param roots indices of the roots of the blocks in the mesh
+     * @return index of top node */
+    private static int cut(int[] nodes, float[] bounds, int node, int blockFaces,
+                           List<float[]> topBounds, List<int[]> topNodes, List<Integer> roots) {
+        int index = topNodes.size();
+        float[] box = new float[6];
+        System.arraycopy(bounds, 6 * node, box, 0, 6);
+        topBounds.add(box);
+        int[] top = new int[2];
+        topNodes.add(top);
+        if (nodes[2 * node + 1] != 0 || endFace(nodes, node) - firstFace(nodes, node) <= blockFaces) {
+            top[0] = roots.size();
+            top[1] = -1;
+            roots.add(node);
+        } else {
+            cut(nodes, bounds, node + 1, blockFaces, topBounds, topNodes, roots);
+            top[0] = cut(nodes, bounds, nodes[2 * node], blockFaces, topBounds, topNodes, roots);
+        }
+        return index;
+    }
+
+    /** encodes the sub-tree of a block - bounds, nodes with indices in the block, and vertices of faces
+     * @param mesh the mesh
+     * @param root index of root node of block in the mesh
+     * @return buffer of the encoded block */
+    private static ByteBuffer encodeBlock(Mesh mesh, int root) {
+        int[] nodes = mesh.getNodes(), indices = mesh.getIndices();
+        float[] bounds = mesh.getBounds(), vertices = mesh.getVertices();
+        int end = endNode(nodes, root), firstFace = firstFace(nodes, root), endFace = endFace(nodes, root);
+        int amountNodes = end - root, amountFaces = endFace - firstFace;
+        ByteBuffer block = ByteBuffer.allocate(4 * (8 * amountNodes + 9 * amountFaces)).order(ORDER);
+        for (int i = 6 * root; i < 6 * end; ++i) block.putFloat(bounds[i]);
+        for (int node = root; node < end; ++node) {
+            boolean leaf = nodes[2 * node + 1] != 0;
+            block.putInt(leaf ? nodes[2 * node] - firstFace : nodes[2 * node] - root).putInt(nodes[2 * node + 1]);
+        }
+        for (int i = 3 * firstFace; i < 3 * endFace; ++i) {
+            int vertex = 3 * indices[i];
+            block.putFloat(vertices[vertex]).putFloat(vertices[vertex + 1]).putFloat(vertices[vertex + 2]);
+        }
+        return block.flip();
+    }
+
+    /** finds the first face of a sub-tree - of its leftmost leaf
+     * @param nodes nodes of the mesh
+     * @param node root of sub-tree
+     * @return index of first face */
+    private static int firstFace(int[] nodes, int node) {
+        while (nodes[2 * node + 1] == 0) ++node;
+        return nodes[2 * node];
+    }
+
+    /** finds the end of the faces of a sub-tree - after the faces of its rightmost leaf
+     * @param nodes nodes of the mesh
+     * @param node root of sub-tree
+     * @return index after the last face */
+    private static int endFace(int[] nodes, int node) {
+        while (nodes[2 * node + 1] == 0) node = nodes[2 * node];
+        return nodes[2 * node] + nodes[2 * node + 1];
+    }
+
+    /** finds the end of the nodes of a sub-tree - after its rightmost leaf
+     * @param nodes nodes of the mesh
+     * @param node root of sub-tree
+     * @return index after the last node */
+    private static int endNode(int[] nodes, int node) {
+        while (nodes[2 * node + 1] == 0) node = nodes[2 * node];
+        return node + 1;
+    }
+
+    // ***************** Writing out of core ********************** //
+
+    /**
+     * Writer of a paged mesh file from a stream of faces, for meshes larger than the heap. The faces are appended
+     * to a temporary file as they are added, and the hierarchy is built out of core: a range of faces is
+     * partitioned into a second temporary file by the median of a sample of its centroids along their longest
+     * axis, level by level, until it fits in a block - whose own hierarchy is built on the heap as a {@link Mesh}.
+     * Only one block, the I/O buffers and the top of the hierarchy are on the heap.<br/>
+     * Faces may be added by several threads. The temporary files are created in the directory of the paged mesh
+     * file, and are deleted when the writer is closed.
+     */
+    public static final class Writer implements AutoCloseable {
+        /** size of a face in the temporary files - 9 coordinates of its vertices */
+        private static final int FACE_SIZE = 36;
+        /** amount of faces in an I/O buffer */
+        private static final int BUFFER_FACES = 1 << 14;
+        /** amount of centroids sampled to choose the median of a range */
+        private static final int SAMPLE_SIZE = 1 << 12;
+        /** depth of the top hierarchy from which ranges are divided into halves, so a hierarchy of up to 2^31
+         * faces is not deeper than {@link Mesh#MAX_DEPTH} whatever the centroids are */
+        private static final int HALVES_DEPTH = Mesh.MAX_DEPTH - 32;
+
+        /** path of paged mesh file */
+        private final Path file;
+        /** maximum amount of faces in a block */
+        private final int blockFaces;
+        /** the two temporary files of faces - a range is partitioned from one to the other */
+        private final FileChannel[] faces = new FileChannel[2];
+        /** buffer of added faces */
+        private final ByteBuffer added = ByteBuffer.allocateDirect(BUFFER_FACES * FACE_SIZE).order(ORDER);
+        /** buffer of read faces */
+        private final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_FACES * FACE_SIZE).order(ORDER);
+        /** buffer of faces of the lower part of a partitioned range */
+        private final ByteBuffer lower = ByteBuffer.allocateDirect(BUFFER_FACES * FACE_SIZE).order(ORDER);
+        /** buffer of faces of the upper part of a partitioned range */
+        private final ByteBuffer upper = ByteBuffer.allocateDirect(BUFFER_FACES * FACE_SIZE).order(ORDER);
+        /** amount of added faces */
+        private int amountFaces = 0;
+        /** was the paged mesh file written */
+        private boolean finished = false;
+
+        /** a block written to the temporary file of blocks
+         * @param offset offset of block in the temporary file
+         * @param length size of block
+         * @param firstFace index of the first face of the block in the mesh
+         * @param amountFaces amount of faces of the block
+         * @param amountNodes amount of nodes of the block */
+        private record Entry(long offset, int length, int firstFace, int amountFaces, int amountNodes) {
+        }
+
+        /**
+         * Constructor for Writer, creates its temporary files
+         * @param file       path of paged mesh file
+         * @param blockFaces maximum amount of faces in a block
+         * @throws IOException              if creating the temporary files went wrong
+         * @throws IllegalArgumentException if blockFaces is less than a leaf of a mesh
+         */
+        public Writer(Path file, int blockFaces) throws IOException {
+            checkBlockFaces(blockFaces);
+            this.file = file;
+            this.blockFaces = blockFaces;
+            try {
+                for (int k = 0; k < faces.length; ++k) faces[k] = temporary("faces");
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Adds faces to the mesh
+         * @param coordinates x,y,z coordinates of the 3 vertices of every face
+         * @param amount      amount of faces to add (from the start of coordinates)
+         * @throws IOException              if writing the temporary file went wrong
+         * @throws IllegalArgumentException if there are not enough coordinates or too many faces for a paged mesh
+         * @throws IllegalStateException    if the paged mesh file was already written
+         */
+        public synchronized void add(float[] coordinates, int amount) throws IOException {
+            if (finished) throw new IllegalStateException("paged mesh file was already written");
+            if (amount < 0 || 9L * amount > coordinates.length)
+                throw new IllegalArgumentException("not enough coordinates of faces");
+            if ((long) amountFaces + amount > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("too many faces for a paged mesh");
+            for (int done = 0; done < amount; ) {
+                int count = Math.min(amount - done, BUFFER_FACES);
+                added.clear().limit(count * FACE_SIZE);
+                added.asFloatBuffer().put(coordinates, 9 * done, 9 * count);
+                writeFully(faces[0], added, (long) amountFaces * FACE_SIZE);
+                amountFaces += count;
+                done += count;
+            }
+        }
+
+        /** getter for amount of added faces
+         * @return amount of faces */
+        public synchronized int getAmountFaces() {
+            return amountFaces;
+        }
+
+        /**
+         * Builds the hierarchy of the added faces and writes the paged mesh file
+         * @throws IOException              if reading the temporary files or writing the file went wrong
+         * @throws IllegalArgumentException if no faces were added
+         * @throws IllegalStateException    if the paged mesh file was already written
+         */
+        public synchronized void finish() throws IOException {
+            if (finished) throw new IllegalStateException("paged mesh file was already written");
+            if (amountFaces == 0) throw new IllegalArgumentException("a mesh must have faces");
+            finished = true;
+            List<float[]> topBounds = new ArrayList<>();
+            List<int[]> topNodes = new ArrayList<>();
+            List<Entry> entries = new ArrayList<>();
+            try (FileChannel blocks = temporary("blocks")) {
+                build(0, 0, amountFaces, 0, topBounds, topNodes, entries, blocks);
+                ByteBuffer table = table(amountFaces, topBounds, topNodes, entries.size());
+                long offset = table.capacity();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    for (Entry entry : entries) {
+                        offset = place(offset, entry.length);
+                        table.putLong(offset).putInt(entry.firstFace).putInt(entry.amountFaces)
+                                .putInt(entry.amountNodes).putInt(0);
+                        for (long done = 0; done < entry.length; )
+                            done += blocks.transferTo(entry.offset + done, entry.length - done,
+                                    channel.position(offset + done));
+                        offset += entry.length;
+                    }
+                    writeFully(channel, table.flip(), 0);
+                }
+            }
+        }
+
+        /** deletes the temporary files
+         * @throws IOException if closing the temporary files went wrong */
+        @Override
+        public synchronized void close() throws IOException {
+            for (FileChannel channel : faces)
+                if (channel != null) channel.close();
+        }
+
+        /** creates a temporary file in the directory of the paged mesh file, deleted when it is closed
+         * @param kind kind of temporary file
+         * @return channel of the temporary file
+         * @throws IOException if creating the file went wrong */
+        private FileChannel temporary(String kind) throws IOException {
+            Path path = Files.createTempFile(file.toAbsolutePath().getParent(), "pmesh", "." + kind);
+            return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        /** builds the sub-tree of the top hierarchy of a range of faces, writing its blocks
+         * @param source index of the temporary file of the faces of the range
+         * @param from index of first face of the range
+         * @param to index after the last face of the range
+         * @param depth depth of the sub-tree root
+         * @param topBounds bounding boxes of top nodes, in depth first order
+         * @param topNodes top nodes, in depth first order
+         * @param entries written blocks
+         * @param blocks temporary file of blocks
+         * @return index of top node
+         * @throws IOException if reading or writing the temporary files went wrong */
+        private int build(int source, int from, int to, int depth, List<float[]> topBounds, List<int[]> topNodes,
+                          List<Entry> entries, FileChannel blocks) throws IOException {
+            int index = topNodes.size();
+            float[] box = new float[6];
+            topBounds.add(box);
+            int[] top = new int[2];
+            topNodes.add(top);
+            int count = to - from;
+            if (count <= blockFaces) {
+                Mesh mesh = mesh(source, from, count);
+                ByteBuffer block = encodeBlock(mesh, 0);
+                Entry last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+                long offset = last == null ? 0 : last.offset + last.length;
+                entries.add(new Entry(offset, writeFully(blocks, block, offset), from, count, mesh.getNodes().length / 2));
+                System.arraycopy(mesh.getBounds(), 0, box, 0, 6);
+                top[0] = entries.size() - 1;
+                top[1] = -1;
+                return index;
+            }
+            int middle = depth < HALVES_DEPTH ? partition(source, from, to) : -1;
+            int child = middle < 0 ? source : 1 - source;
+            // a range which was not divided by its centroids is divided into halves
+            if (middle <= from || middle >= to) middle = from + count / 2;
+            build(child, from, middle, depth + 1, topBounds, topNodes, entries, blocks);
+            top[0] = build(child, middle, to, depth + 1, topBounds, topNodes, entries, blocks);
+            float[] left = topBounds.get(index + 1), right = topBounds.get(top[0]);
+            for (int k = 0; k < 3; ++k) {
+                box[k] = Math.min(left[k], right[k]);
+                box[k + 3] = Math.max(left[k + 3], right[k + 3]);
+            }
+            return index;
+        }
+
+        /** reads the faces of a range into a mesh, which builds their hierarchy
+         * @param source index of the temporary file of the faces
+         * @param from index of first face
+         * @param count amount of faces
+         * @return the mesh
+         * @throws IOException if reading the temporary file went wrong */
+        private Mesh mesh(int source, int from, int count) throws IOException {
+            float[] vertices = new float[9 * count];
+            for (int done = 0; done < count; ) {
+                int amount = Math.min(count - done, BUFFER_FACES);
+                read(source, from + done, amount).get(vertices, 9 * done, 9 * amount);
+                done += amount;
+            }
+            int[] indices = new int[3 * count];
+            for (int i = 0; i < indices.length; ++i) indices[i] = i;
+            return new Mesh(vertices, indices);
+        }
+
+        /** partitions a range of faces into the other temporary file - the faces whose centroid is below the
+         * median of a sample of centroids along their longest axis first, the others after them
+         * @param source index of the temporary file of the faces
+         * @param from index of first face of the range
+         * @param to index after the last face of the range
+         * @return index of the first face of the upper part, -1 if all the centroids are the same and the range
+         *         was not partitioned
+         * @throws IOException if reading or writing the temporary files went wrong */
+        private int partition(int source, int from, int to) throws IOException {
+            int count = to - from, step = Math.max(1, count / SAMPLE_SIZE), sampled = 0;
+            float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+            float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+            float[] sample = new float[3 * ((count - 1) / step + 1)];
+            for (int done = 0; done < count; ) {
+                int amount = Math.min(count - done, BUFFER_FACES);
+                FloatBuffer floats = read(source, from + done, amount);
+                for (int face = 0; face < amount; ++face) {
+                    boolean sampling = (done + face) % step == 0;
+                    for (int k = 0; k < 3; ++k) {
+                        float centroid = centroid(floats, face, k);
+                        min[k] = Math.min(min[k], centroid);
+                        max[k] = Math.max(max[k], centroid);
+                        if (sampling) sample[3 * sampled + k] = centroid;
+                    }
+                    if (sampling) ++sampled;
+                }
+                done += amount;
+            }
+            int axis = 0;
+            for (int k = 1; k < 3; ++k)
+                if (max[k] - min[k] > max[axis] - min[axis]) axis = k;
+            if (!(max[axis] > min[axis])) return -1;
+            float[] values = new float[sampled];
+            for (int i = 0; i < sampled; ++i) values[i] = sample[3 * i + axis];
+            Arrays.sort(values);
+            // faces below the pivot are lower - the pivot is above the minimum, so the lower part is not empty
+            float pivot = Math.max(values[sampled / 2], Math.nextUp(min[axis]));
+
+            FileChannel target = faces[1 - source];
+            long lowerPosition = (long) from * FACE_SIZE, upperPosition = (long) to * FACE_SIZE;
+            int amountLower = 0;
+            lower.clear();
+            upper.clear();
+            for (int done = 0; done < count; ) {
+                int amount = Math.min(count - done, BUFFER_FACES);
+                FloatBuffer floats = read(source, from + done, amount);
+                for (int face = 0; face < amount; ++face) {
+                    boolean isLower = centroid(floats, face, axis) < pivot;
+                    ByteBuffer part = isLower ? lower : upper;
+                    part.put(part.position(), input, face * FACE_SIZE, FACE_SIZE).position(part.position() + FACE_SIZE);
+                    if (isLower) ++amountLower;
+                    if (part.hasRemaining()) continue;
+                    // the upper part is written backwards from the end of the range, the order of faces is arbitrary
+                    if (isLower) lowerPosition += writeFully(target, lower.flip(), lowerPosition);
+                    else writeFully(target, upper.flip(), upperPosition -= upper.limit());
+                    part.clear();
+                }
+                done += amount;
+            }
+            writeFully(target, lower.flip(), lowerPosition);
+            writeFully(target, upper.flip(), upperPosition - upper.limit());
+            return from + amountLower;
+        }
+
+        /** reads faces of a temporary file into the input buffer
+         * @param source index of the temporary file
+         * @param from index of first face
+         * @param amount amount of faces, up to the size of the buffer
+         * @return coordinates of the faces
+         * @throws IOException if reading went wrong or the file ended */
+        private FloatBuffer read(int source, int from, int amount) throws IOException {
+            input.clear().limit(amount * FACE_SIZE);
+            for (long position = (long) from * FACE_SIZE; input.hasRemaining(); ) {
+                int read = faces[source].read(input, position);
+                if (read < 0) throw new IOException("temporary file of faces ended unexpectedly");
+                position += read;
+            }
+            return input.flip().asFloatBuffer();
+        }
+
+        /** calculates a coordinate of the centroid of a face
+         * @param floats coordinates of faces
+         * @param face index of face
+         * @param axis index of coordinate
+         * @return the coordinate of the centroid */
+        private static float centroid(FloatBuffer floats, int face, int axis) {
+            int a = 9 * face + axis;
+            return (floats.get(a) + floats.get(a + 3) + floats.get(a + 6)) / 3;
+        }
+    }
+}
@@ -78,12 +78,16 @@ public class Polygon extends Geometry {
       }
    }
 
+   /** getter for vertices
+    * @return list of vertices by their order on the edge path */
+   public List<Point> getVertices() { return vertices; }
+
    @Override
    public Vector getNormal(Point point) { return plane.getNormal(); }
 
    @Override
    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-      List<GeoPoint> intersections = this.plane.findGeoIntersections(ray, maxDistance);
+      List<GeoPoint> intersections = this.plane.findGeoIntersectionsHelper(ray, maxDistance);
       if (intersections == null) return null;
       intersections.get(0).geometry = this;
       Point p = intersections.get(0).point;
@@ -11,6 +11,12 @@ public class DirectionalLight extends Light implements LightSource {
     /** direction of light source*/
     private Vector dir;
 
+    /** getter for direction
+     * @return normalized direction of light */
+    public Vector getDir() {
+        return dir;
+    }
+
     @Override
     public double getDistance(Point point) {
         return Double.POSITIVE_INFINITY;
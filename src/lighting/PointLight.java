@@ -50,6 +50,30 @@ public class PointLight extends Light implements LightSource {
         this.position = position;
     }
 
+    /** getter for position
+     * @return position of light source */
+    public Point getPosition() {
+        return position;
+    }
+
+    /** getter for kC
+     * @return constant attenuation coefficient */
+    public double getKc() {
+        return kC;
+    }
+
+    /** getter for kL
+     * @return linear attenuation coefficient */
+    public double getKl() {
+        return kL;
+    }
+
+    /** getter for kQ
+     * @return squared attenuation coefficient */
+    public double getKq() {
+        return kQ;
+    }
+
     @Override
     public Color getIntensity(Point p) {
         double d = p.distance(this.position);
@@ -27,6 +27,18 @@ public class SpotLight extends PointLight implements LightSource {
         this.dir = dir.normalize();
     }
 
+    /** getter for direction
+     * @return normalized direction of light */
+    public Vector getDir() {
+        return dir;
+    }
+
+    /** getter for narrowness
+     * @return narrowness of beam */
+    public double getNarrowness() {
+        return narrowness;
+    }
+
     @Override
     public Color getIntensity(Point p) {
         double dirL = pow(alignZero(dir.dotProduct(this.getL(p))),narrowness);
@@ -59,6 +59,29 @@ public class Color {
       return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
    }
 
+   /** Color getter - returns the color packed into an int the way
+    * java.awt.Color#getRGB() does (0xAARRGGBB with alpha 255), without creating
+    * a java.awt.Color object. Any component bigger than 255 is set to 255
+    * @return packed RGB of this Color */
+   public int getRGB() {
+      int ir = (int) rgb.d1;
+      int ig = (int) rgb.d2;
+      int ib = (int) rgb.d3;
+      return 0xFF000000 | (ir > 255 ? 255 : ir) << 16 | (ig > 255 ? 255 : ig) << 8 | (ib > 255 ? 255 : ib);
+   }
+
+   /** getter for red component
+    * @return red component (not limited to 255) */
+   public double getRed() { return rgb.d1; }
+
+   /** getter for green component
+    * @return green component (not limited to 255) */
+   public double getGreen() { return rgb.d2; }
+
+   /** getter for blue component
+    * @return blue component (not limited to 255) */
+   public double getBlue() { return rgb.d3; }
+
    /** Operation of adding this and one or more other colors (by component)
     * @param  colors one or more other colors to add
     * @return        new Color object which is a result of the operation */
@@ -108,6 +131,21 @@ public class Color {
       return new Color(rgb.d1 / k.d1, rgb.d2 / k.d2, rgb.d3 / k.d3);
    }
 
+   /** Relative luminance of the color (Rec. 709 weights), in the same units as
+    * the RGB components
+    * @return luminance of the color */
+   public double luminance() {
+      return 0.2126 * rgb.d1 + 0.7152 * rgb.d2 + 0.0722 * rgb.d3;
+   }
+
+   /** Largest absolute difference between a component of this color and the
+    * same component of another color
+    * @param  other the other color
+    * @return       maximum per-component difference */
+   public double maxDifference(Color other) {
+      return Math.max(abs(rgb.d1 - other.rgb.d1), Math.max(abs(rgb.d2 - other.rgb.d2), abs(rgb.d3 - other.rgb.d3)));
+   }
+
    @Override
    public int hashCode() {
       return super.hashCode();
@@ -117,9 +155,7 @@ public class Color {
    public boolean equals(Object obj) {
       if (this == obj) return true;
       if (obj instanceof Color other)
-         return abs(rgb.d1 - other.rgb.d1) <= ACCURACY
-                 && abs(rgb.d2 - other.rgb.d2) <= ACCURACY
-                 && abs(rgb.d3 - other.rgb.d3) <= ACCURACY;
+         return maxDifference(other) <= ACCURACY;
       return false;
    }
 
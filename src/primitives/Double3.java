@@ -39,6 +39,18 @@ public class Double3 {
       this.d3 = value;
    }
 
+   /** getter for first number
+    * @return first number value */
+   public double getD1() { return d1; }
+
+   /** getter for second number
+    * @return second number value */
+   public double getD2() { return d2; }
+
+   /** getter for third number
+    * @return third number value */
+   public double getD3() { return d3; }
+
    @Override
    public boolean equals(Object obj) {
       if (this == obj) return true;
@@ -96,6 +108,12 @@ public class Double3 {
       return new Double3(d1 * rhs.d1, d2 * rhs.d2, d3 * rhs.d3);
    }
 
+   /** Finds the largest of the three numbers
+    * @return the largest number */
+   public double max() {
+      return Math.max(d1, Math.max(d2, d3));
+   }
+
    /** Checks whether all the numbers are lower than a test number
     * @param  k the test number
     * @return   true if all the numbers are less than k, false otherwise */
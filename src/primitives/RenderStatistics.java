@@ -0,0 +1,180 @@
+package primitives;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of rays and intersection tests of renders - primary, shadow, reflection and refraction rays,
+ * intersection tests of primitives (single geometries and triangles of meshes), hits, and the distribution of
+ * recursion depth of the traced rays.<br/>
+ * Counting is opt-in, by the system property {@code raytracer.statistics=true}. The flag is a static final field,
+ * so when it is off the JIT compiler removes every {@code if (RenderStatistics.ENABLED)} block and counting costs
+ * nothing. Every render counts in its own set of {@link Counters}, and an object of this class is a snapshot of
+ * such a set - the statistics of a single render, even when other renders run at the same time.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public final class RenderStatistics {
+    /** is counting on */
+    public static final boolean ENABLED = Boolean.getBoolean("raytracer.statistics");
+    /** amount of bins of the recursion depth histogram (deeper rays are counted in the last bin) */
+    public static final int DEPTH_BINS = 16;
+
+    /** amount of primary rays */
+    private final long primaryRays;
+    /** amount of shadow rays */
+    private final long shadowRays;
+    /** amount of reflected rays */
+    private final long reflectionRays;
+    /** amount of refracted rays */
+    private final long refractionRays;
+    /** amount of intersection tests of primitives */
+    private final long primitiveTests;
+    /** amount of intersection tests which found intersections */
+    private final long hits;
+    /** amounts of traced rays by recursion depth */
+    private final long[] depths;
+
+    /** constructor for RenderStatistics
+     * @param primaryRays amount of primary rays
+     * @param shadowRays amount of shadow rays
+     * @param reflectionRays amount of reflected rays
+     * @param refractionRays amount of refracted rays
+     * @param primitiveTests amount of intersection tests of primitives
+     * @param hits amount of intersection tests which found intersections
+     * @param depths amounts of traced rays by recursion depth */
+    private RenderStatistics(long primaryRays, long shadowRays, long reflectionRays, long refractionRays,
+                             long primitiveTests, long hits, long[] depths) {
+        this.primaryRays = primaryRays;
+        this.shadowRays = shadowRays;
+        this.reflectionRays = reflectionRays;
+        this.refractionRays = refractionRays;
+        this.primitiveTests = primitiveTests;
+        this.hits = hits;
+        this.depths = depths;
+    }
+
+    // ***************** Counting ********************** //
+
+    /**
+     * Counters of a single render - every render has its own set, held by the camera and its ray tracer and passed
+     * to the intersection searches of the geometries, so renders running at the same time are counted apart.
+     * The counters are striped ({@link LongAdder}), so the threads of a render rarely contend on them.
+     * Callers check {@link RenderStatistics#ENABLED} before counting.
+     */
+    public static final class Counters {
+        /** counter of primary (camera) rays */
+        private final LongAdder primaryRays = new LongAdder();
+        /** counter of shadow rays */
+        private final LongAdder shadowRays = new LongAdder();
+        /** counter of reflected rays */
+        private final LongAdder reflectionRays = new LongAdder();
+        /** counter of refracted rays */
+        private final LongAdder refractionRays = new LongAdder();
+        /** counter of intersection tests of primitives */
+        private final LongAdder primitiveTests = new LongAdder();
+        /** counter of intersection tests of primitives which found intersections */
+        private final LongAdder hits = new LongAdder();
+        /** counters of traced rays by their recursion depth */
+        private final LongAdder[] depths = new LongAdder[DEPTH_BINS];
+
+        /** constructor for Counters, all counters start at 0 */
+        public Counters() {
+            for (int d = 0; d < DEPTH_BINS; ++d) depths[d] = new LongAdder();
+        }
+
+        /** counts a primary ray */
+        public void primaryRay() {
+            primaryRays.increment();
+            depths[0].increment();
+        }
+
+        /** counts a shadow ray */
+        public void shadowRay() {
+            shadowRays.increment();
+        }
+
+        /** counts a reflected or refracted ray
+         * @param reflected true for a reflected ray, false for a refracted ray
+         * @param depth recursion depth of the ray (1 for a ray from the intersection of a primary ray) */
+        public void secondaryRay(boolean reflected, int depth) {
+            (reflected ? reflectionRays : refractionRays).increment();
+            depths[Math.min(depth, DEPTH_BINS - 1)].increment();
+        }
+
+        /** counts an intersection test of a primitive
+         * @param hit true if the test found intersections */
+        public void primitiveTest(boolean hit) {
+            primitiveTests.increment();
+            if (hit) hits.increment();
+        }
+
+        /** takes a snapshot of the counters
+         * @return current values of the counters */
+        public RenderStatistics snapshot() {
+            long[] amounts = new long[DEPTH_BINS];
+            for (int d = 0; d < DEPTH_BINS; ++d) amounts[d] = depths[d].sum();
+            return new RenderStatistics(primaryRays.sum(), shadowRays.sum(), reflectionRays.sum(),
+                    refractionRays.sum(), primitiveTests.sum(), hits.sum(), amounts);
+        }
+    }
+
+    // ***************** Statistics ********************** //
+
+    /** getter for amount of primary (camera) rays
+     * @return amount of primary rays */
+    public long getPrimaryRays() {
+        return primaryRays;
+    }
+
+    /** getter for amount of shadow rays
+     * @return amount of shadow rays */
+    public long getShadowRays() {
+        return shadowRays;
+    }
+
+    /** getter for amount of reflected rays
+     * @return amount of reflected rays */
+    public long getReflectionRays() {
+        return reflectionRays;
+    }
+
+    /** getter for amount of refracted rays
+     * @return amount of refracted rays */
+    public long getRefractionRays() {
+        return refractionRays;
+    }
+
+    /** getter for amount of rays of all kinds
+     * @return amount of rays */
+    public long getTotalRays() {
+        return primaryRays + shadowRays + reflectionRays + refractionRays;
+    }
+
+    /** getter for amount of intersection tests of primitives
+     * @return amount of tests */
+    public long getPrimitiveTests() {
+        return primitiveTests;
+    }
+
+    /** getter for amount of intersection tests which found intersections
+     * @return amount of hits */
+    public long getHits() {
+        return hits;
+    }
+
+    /** getter for the recursion depth histogram - amounts of traced (primary, reflected and refracted) rays
+     * by their depth, 0 for primary rays
+     * @return amounts of rays by depth, of DEPTH_BINS bins */
+    public long[] getDepthHistogram() {
+        return depths.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "RenderStatistics{primaryRays=" + primaryRays + ", shadowRays=" + shadowRays
+                + ", reflectionRays=" + reflectionRays + ", refractionRays=" + refractionRays
+                + ", primitiveTests=" + primitiveTests + ", hits=" + hits
+                + ", depths=" + Arrays.toString(depths) + '}';
+    }
+}
@@ -0,0 +1,139 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Encoder of finished images on a dedicated thread, so rendering of the next frame of an animation overlaps
+ * encoding of the previous one.<br/>
+ * Submitted images are copied into a bounded queue of frames - when the encoder falls behind by more frames than
+ * the queue holds, submitting waits, so memory is bounded. The first encoding error (an I/O error, or a runtime
+ * exception of the format) is thrown by the next {@link #submit} or by {@link #close()}, and a submitter waiting
+ * for room in the queue stops waiting if the encoder thread has stopped.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class AsyncImageEncoder implements AutoCloseable {
+    /** a frame waiting to be encoded
+     * @param path path of image file
+     * @param format file format of image
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @param rgbs packed RGB colors of pixels, row by row */
+    private record Frame(Path path, ImageFormat format, int nX, int nY, int[] rgbs) {
+    }
+
+    /** frame which tells the encoder thread to stop */
+    private static final Frame END = new Frame(null, null, 0, 0, null);
+    /** interval of checking the encoder thread while waiting for room in the queue (milliseconds) */
+    private static final long POLL_MILLIS = 100;
+
+    /** queue of frames waiting to be encoded */
+    private final BlockingQueue<Frame> queue;
+    /** thread encoding the frames */
+    private final Thread encoder;
+    /** logger of I/O errors */
+    private final Logger logger = Logger.getLogger("AsyncImageEncoder");
+    /** first encoding error, null if there was none */
+    private volatile Exception error;
+    /** whether the encoder was closed */
+    private boolean closed = false;
+
+    /**
+     * Constructor for AsyncImageEncoder, starts the encoder thread
+     * @param capacity maximum amount of frames waiting to be encoded
+     * @throws IllegalArgumentException if capacity <= 0
+     */
+    public AsyncImageEncoder(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("queue capacity must be positive");
+        queue = new ArrayBlockingQueue<>(capacity);
+        encoder = new Thread(this::encodeFrames, "image encoder");
+        encoder.setDaemon(true);
+        encoder.start();
+    }
+
+    /**
+     * Copies the image of an image writer and queues it to be encoded to a file, waiting if the queue is full.
+     * The image writer may be written again as soon as this method returns.
+     * @param imageWriter image writer of a finished image
+     * @param format file format of image
+     * @throws IllegalStateException if the encoder was closed, an earlier frame failed to be encoded,
+     * the encoder thread stopped, or the thread was interrupted
+     */
+    public synchronized void submit(ImageWriter imageWriter, ImageFormat format) {
+        if (closed) throw new IllegalStateException("image encoder was closed");
+        checkError();
+        Frame frame = new Frame(imageWriter.getFile(format), format, imageWriter.getNx(), imageWriter.getNy(),
+                imageWriter.snapshot());
+        try {
+            enqueue(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting to queue a frame", e);
+        }
+    }
+
+    /**
+     * Waits until all the queued frames are encoded and stops the encoder thread
+     * @throws IllegalStateException if a frame failed to be encoded, the encoder thread stopped, or the thread
+     * was interrupted
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                enqueue(END);
+                encoder.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for frames to be encoded", e);
+            }
+        }
+        checkError();
+    }
+
+    /** queues a frame, waiting while the queue is full and the encoder thread is running
+     * @param frame the frame
+     * @throws InterruptedException if the thread was interrupted
+     * @throws IllegalStateException if the encoder thread stopped */
+    private void enqueue(Frame frame) throws InterruptedException {
+        while (!queue.offer(frame, POLL_MILLIS, TimeUnit.MILLISECONDS))
+            if (!encoder.isAlive()) throw new IllegalStateException("image encoder thread stopped");
+    }
+
+    /** throws the first encoding error, if there was one
+     * @throws IllegalStateException if a frame failed to be encoded */
+    private void checkError() {
+        if (error != null)
+            throw new IllegalStateException((error instanceof IOException ? "I/O error" : "error")
+                    + " in encoding a frame", error);
+    }
+
+    /** loop of encoder thread - encodes frames until the end frame */
+    private void encodeFrames() {
+        try {
+            Frame frame;
+            while ((frame = queue.take()) != END) {
+                if (error != null) continue; // skip frames after an error, until closed
+                ImageEncodeEvent event = new ImageEncodeEvent();
+                event.begin();
+                try {
+                    frame.format().write(frame.path(), frame.nX(), frame.nY(), frame.rgbs());
+                    event.encoded(frame.path(), frame.format().extension, frame.nX(), frame.nY());
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "I/O error", e);
+                    error = e;
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "error in encoding a frame", e);
+                    error = e;
+                }
+            }
+        } catch (InterruptedException ignore) {}
+    }
+}
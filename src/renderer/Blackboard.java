@@ -3,7 +3,6 @@ package renderer;
 import primitives.Point;
 import primitives.Vector;
 
-import java.util.Random;
 import java.util.LinkedList;
 
 import static primitives.Util.isZero;
@@ -98,9 +97,8 @@ public class Blackboard {
      * @return moved point
      */
     private Point randomMovePoint(Point point) {
-        Random random = new Random();
-        double n1 = random.nextDouble() * interval - interval / 2;
-        double n2 = random.nextDouble() * interval - interval / 2;
+        double n1 = SampleRandom.nextDouble() * interval - interval / 2;
+        double n2 = SampleRandom.nextDouble() * interval - interval / 2;
         if (n1 != 0) point = point.add(this.vX.scale(n1));
         if (n2 != 0) point = point.add(this.vY.scale(n2));
         return point;
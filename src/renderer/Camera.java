@@ -1,9 +1,24 @@
 package renderer;
 
+import geometries.Geometry;
+import geometries.Intersectable.GeoPoint;
 import primitives.*;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.MissingResourceException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import static java.lang.Math.min;
@@ -13,6 +28,18 @@ import static primitives.Util.*;
  * @author Yoav Babayof and Avishai Shachor
  */
 public class Camera {
+    // ------[CONSTANTS]------- //
+    /** maximum amount of tasks queued by a render thread for a grid to still be split between threads */
+    private static final int MAX_SURPLUS_TASKS = 2;
+    /** minimum side (in intervals) of an ASS sub-grid to be split between threads */
+    private static final int MIN_FORK_GRID = 4;
+    /** minimum amount of rays in a beam to be split between threads */
+    private static final int MIN_FORK_BEAM = 32;
+    /** amount of pixels of a flight recorder event (or a span of the tile trace) of a batch of pixels */
+    private static final int EVENT_BATCH_PIXELS = 1024;
+    /** amount of camera rays traced by every thread (counted only while tile render events are recorded) */
+    private static final ThreadLocal<long[]> CAMERA_RAYS = ThreadLocal.withInitial(() -> new long[1]);
+
     // ------[PUBLIC FIELDS]------- //
     /** View Plane height */
     double vpHeight;
@@ -26,12 +53,16 @@ public class Camera {
     /** Pixel manager for supporting:
      * <ul>
      * <li>multi-threading</li>
-     * <li>debug print of progress percentage in Console window/tab</li>
+     * <li>progress reports to the render listeners and the render MBean</li>
      * <ul>
      */
     private PixelManager pixelManager;
     /** time every each printing of percentage of completion */
     private long printInterval;
+    /** listeners of progress of renders (the console printing by default) */
+    private final List<RenderListener> listeners = new CopyOnWriteArrayList<>(List.of(RenderListener.CONSOLE));
+    /** MBean of progress of current render */
+    private RenderMonitor monitor;
     /** amount of simultaneous threads running */
     int threadsCount;
     // general properties //
@@ -43,8 +74,8 @@ public class Camera {
     private Vector vRight;
     /** forward vector of camera */
     private Vector vTo;
-    /** image writer */
-    private ImageWriter imageWriter;
+    /** image writer (an image sink - the image may be streamed to its file instead of kept in memory) */
+    private ImageSink imageWriter;
     /** ray tracer */
     private RayTracerBase rayTracer;
 
@@ -52,6 +83,20 @@ public class Camera {
     // anti aliasing:
     /** amount of rays for anti aliasing */
     private int amountRaysAntiAliasing;
+    /** is anti aliasing applied only to pixels on edges found by a pre-pass of one ray per pixel */
+    private boolean edgeAntiAliasing;
+    /** minimum contrast (largest difference of a color component) between neighbour pixels of an edge */
+    private double edgeColorThreshold;
+    /** minimum difference of depth between neighbour pixels of an edge, relative to the nearer one */
+    private double edgeDepthThreshold;
+    /** colors of the pre-pass [row][column] */
+    private Color[][] prePassColors;
+    /** distances of the closest intersections of the pre-pass [row][column] (infinity for background) */
+    private double[][] prePassDepths;
+    /** geometries of the closest intersections of the pre-pass [row][column] (null for background) */
+    private Geometry[][] prePassGeometries;
+    /** pixels found on edges in last render [row][column] */
+    private boolean[][] edges;
     // depth of field:
     /** amount of rays for depth of field */
     private int amountRaysDOF;
@@ -61,11 +106,124 @@ public class Camera {
     private double apertureSize;
     /** is the ASS improvement on*/
     boolean adaptive;
+    /** metric of contrast between corners of an ASS sub-grid */
+    private ContrastMetric contrastMetric = ContrastMetric.CHANNEL;
+    /** maximum contrast between corners of an ASS sub-grid for it to be considered uniform */
+    private double contrastThreshold = 2;
+    /** minimum depth of ASS division (sub-grids are divided at least that many times) */
+    private int minDepth = 0;
+    /** maximum depth of ASS division (sub-grids are never divided deeper) */
+    private int maxDepth = Integer.MAX_VALUE;
+    /** amount of ASS divisions of every pixel in last render [row][column] */
+    private int[][] subdivisions;
+    // denoising:
+    /** denoiser applied to the rendered image, null for no denoising */
+    private Denoiser denoiser;
+    /** rendered colors to be denoised (r,g,b of every pixel) */
+    private double[] denoiseColors;
+    /** normals of geometries seen through pixel centers (x,y,z of every pixel, zero for background) */
+    private double[] denoiseNormals;
+    /** distances of geometries seen through pixel centers (infinity for background) */
+    private double[] denoiseDepths;
+    /** albedos (emission) of geometries seen through pixel centers (r,g,b of every pixel) */
+    private double[] denoiseAlbedos;
+    // sampling:
+    /** seed of the random numbers of sampling, null for renders which are not deterministic */
+    private Long seed;
+    // checkpoint:
+    /** file of crash-safe checkpoint of the render, null for no checkpoint */
+    private Path checkpointFile;
+    /** side of a checkpoint tile in pixels */
+    private int checkpointTileSize;
+    /** checkpoint of current render, null if there is none */
+    private RenderCheckpoint checkpoint;
+    // cost heatmap:
+    /** is the render time of every pixel recorded */
+    private boolean costHeatmap;
+    /** render time of every pixel in last render, in nanoseconds [row][column] */
+    private long[][] pixelCosts;
+    // flight recorder:
+    /** are tile render events recorded in current render (and camera rays counted for them) */
+    private boolean tileEvents;
+    // tile trace:
+    /** is the timeline of the tiles of every thread recorded */
+    private boolean traceTiles;
+    /** timeline of the tiles of last render, null if it was not recorded */
+    private TileTrace tileTrace;
+    // statistics:
+    /** ray and intersection statistics of last render, null if statistics are off */
+    private RenderStatistics statistics;
+
+    /** render cost of a pixel
+     * @param column column of pixel
+     * @param row row of pixel
+     * @param nanoseconds render time of pixel */
+    public record PixelCost(int column, int row, long nanoseconds) {
+    }
 
     /** ray(s) casting function */
     FourConsumer<Integer, Integer, Integer, Integer> rayCastFunc = this::castRay;
-    /** function to calculate ray color */
-    Function<Ray,Color> rayColorFunc = ray -> rayTracer.traceRay(ray);
+    /** function to calculate ray color, counting ASS divisions */
+    BiFunction<Ray, AtomicInteger, Color> rayColorFunc = (ray, divisions) -> traceCameraRay(ray);
+
+    /** batch of pixels rendered by a thread, reported by a flight recorder event of its bounds, pixels and rays
+     * and by a span of the tile trace */
+    private class PixelBatch {
+        /** maximum amount of pixels of an event */
+        private final int limit;
+        /** event of current batch */
+        private TileRenderEvent event;
+        /** amount of camera rays of the thread at the beginning of current batch */
+        private long firstRays;
+        /** start time of current batch in the tile trace */
+        private long start;
+
+        /** constructor for PixelBatch, begins the first batch
+         * @param limit maximum amount of pixels of an event */
+        PixelBatch(int limit) {
+            this.limit = limit;
+            begin();
+        }
+
+        /** begins a batch */
+        private void begin() {
+            event = new TileRenderEvent();
+            event.begin();
+            firstRays = CAMERA_RAYS.get()[0];
+            if (tileTrace != null) start = tileTrace.now();
+        }
+
+        /** adds a rendered pixel to the batch, and commits the batch when it is full
+         * @param j column of pixel
+         * @param i row of pixel */
+        void add(int j, int i) {
+            if (event.pixels++ == 0) {
+                event.firstColumn = event.lastColumn = j;
+                event.firstRow = event.lastRow = i;
+            } else {
+                event.firstColumn = min(event.firstColumn, j);
+                event.lastColumn = Math.max(event.lastColumn, j);
+                event.firstRow = min(event.firstRow, i);
+                event.lastRow = Math.max(event.lastRow, i);
+            }
+            if (event.pixels == limit) {
+                commit();
+                begin();
+            }
+        }
+
+        /** commits the batch, if it has pixels */
+        void commit() {
+            if (event.pixels == 0) return;
+            if (tileTrace != null)
+                tileTrace.addTile(monitor.getPass(), event.firstColumn, event.firstRow, event.lastColumn,
+                        event.lastRow, event.pixels, start);
+            if (!tileEvents) return;
+            event.image = imageWriter.getImageName();
+            event.rays = CAMERA_RAYS.get()[0] - firstRays;
+            event.commit();
+        }
+    }
 
     /** getter for height of View Plane
      * @return View Plane height */
@@ -101,7 +259,7 @@ public class Camera {
 
     /** setter for multithreading improvement
      * @param threadsCount number of threads that we want to use for the program
-     * @param printInterval interval between prints
+     * @param printInterval interval between prints (progress reports to the render listeners), in percents
      * @return the Camera object itself
      */
     public Camera setMultiThreading(int threadsCount, long printInterval) {
@@ -112,6 +270,24 @@ public class Camera {
         return this;
     }
 
+    /** adds a listener of progress of renders
+     * @param listener the listener
+     * @return the Camera object itself
+     */
+    public Camera addRenderListener(RenderListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener cannot be null"));
+        return this;
+    }
+
+    /** removes a listener of progress of renders (e.g. {@link RenderListener#CONSOLE} to stop the console printing)
+     * @param listener the listener
+     * @return the Camera object itself
+     */
+    public Camera removeRenderListener(RenderListener listener) {
+        listeners.remove(listener);
+        return this;
+    }
+
     /** setter for adaptive super sampling
      * @return the Camera object itself
      */
@@ -120,6 +296,90 @@ public class Camera {
         return this;
     }
 
+    /** setter for adaptive super sampling with a custom stopping criterion
+     * @param contrastMetric metric of contrast between corners of a sub-grid
+     * @param contrastThreshold maximum contrast between corners of a sub-grid for it not to be divided
+     * @param minDepth minimum depth of division
+     * @param maxDepth maximum depth of division
+     * @throws IllegalArgumentException if contrastThreshold < 0
+     * @throws IllegalArgumentException if minDepth < 0 or maxDepth < minDepth
+     * @return the Camera object itself
+     */
+    public Camera setASS(ContrastMetric contrastMetric, double contrastThreshold, int minDepth, int maxDepth) {
+        if (contrastThreshold < 0) throw new IllegalArgumentException("contrast threshold cannot be less than 0");
+        if (minDepth < 0) throw new IllegalArgumentException("minimum depth of division cannot be less than 0");
+        if (maxDepth < minDepth) throw new IllegalArgumentException("maximum depth of division cannot be less than minimum depth");
+        this.contrastMetric = contrastMetric;
+        this.contrastThreshold = contrastThreshold;
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
+        return setASS();
+    }
+
+    /** getter for amount of ASS divisions of every pixel in last render
+     * @return amount of divisions [row][column], or null if ASS was off in last render */
+    public int[][] getSubdivisions() {
+        return subdivisions;
+    }
+
+    /** setter for recording the render cost of every pixel - the time of casting its ray(s), for finding
+     * pathological geometry by a heatmap ({@link #writeCostHeatmap()}) or by the most expensive pixels
+     * @param costHeatmap is the render time of every pixel recorded
+     * @return Camera */
+    public Camera setCostHeatmap(boolean costHeatmap) {
+        this.costHeatmap = costHeatmap;
+        return this;
+    }
+
+    /** getter for render time of every pixel in last render
+     * @return render time in nanoseconds [row][column], or null if costs were not recorded in last render */
+    public long[][] getPixelCosts() {
+        return pixelCosts;
+    }
+
+    /** setter for recording the timeline of the tiles rendered by every thread (batches of pixels when there is
+     * no checkpoint), for diagnosing load imbalance of multi-threaded renders (see {@link TileTrace})
+     * @param traceTiles is the timeline of the tiles recorded
+     * @return Camera */
+    public Camera setTileTrace(boolean traceTiles) {
+        this.traceTiles = traceTiles;
+        return this;
+    }
+
+    /** getter for the timeline of the tiles of last render, to be written by {@link TileTrace#writeJson}
+     * @return the timeline, or null if it was not recorded in last render */
+    public TileTrace getTileTrace() {
+        return tileTrace;
+    }
+
+    /** finds the most expensive pixels of last render
+     * @param amount maximum amount of pixels
+     * @return the pixels of highest render time, from the most expensive one
+     * @throws IllegalStateException if costs were not recorded in last render */
+    public List<PixelCost> getMostExpensivePixels(int amount) {
+        if (pixelCosts == null) throw new IllegalStateException("pixel costs were not recorded in last render");
+        PriorityQueue<PixelCost> top = new PriorityQueue<>(Comparator.comparingLong(PixelCost::nanoseconds));
+        for (int i = 0; i < pixelCosts.length; ++i) {
+            for (int j = 0; j < pixelCosts[i].length; ++j) {
+                if (top.size() < amount) top.add(new PixelCost(j, i, pixelCosts[i][j]));
+                else if (amount > 0 && pixelCosts[i][j] > top.peek().nanoseconds()) {
+                    top.poll();
+                    top.add(new PixelCost(j, i, pixelCosts[i][j]));
+                }
+            }
+        }
+        List<PixelCost> pixels = new ArrayList<>(top);
+        pixels.sort(Comparator.comparingLong(PixelCost::nanoseconds).reversed());
+        return pixels;
+    }
+
+    /** getter for ray and intersection statistics of last render (counted only when the system property
+     * raytracer.statistics is true - see {@link RenderStatistics})
+     * @return statistics of last render, null if statistics are off or there was no render */
+    public RenderStatistics getStatistics() {
+        return statistics;
+    }
+
     /** setter for anti aliasing
      * @param amountRaysAntiAliasing amount of rays per pixel
      * @throws IllegalArgumentException if amountRaysAntiAliasing < 0
@@ -133,6 +393,31 @@ public class Camera {
         return this;
     }
 
+    /** setter for anti aliasing of edge pixels only - a pre-pass casts one ray per pixel and only pixels that differ
+     * from a neighbour pixel in color, depth or geometry are then cast a beam of rays
+     * @param amountRaysAntiAliasing amount of rays per edge pixel
+     * @param colorThreshold minimum contrast (largest difference of a color component) between neighbour pixels of an edge
+     * @param depthThreshold minimum difference of depth between neighbour pixels of an edge, relative to the nearer one
+     * @throws IllegalArgumentException if amountRaysAntiAliasing <= 1
+     * @throws IllegalArgumentException if colorThreshold < 0 or depthThreshold < 0
+     * @return Camera
+     */
+    public Camera setEdgeAntiAliasing(int amountRaysAntiAliasing, double colorThreshold, double depthThreshold) {
+        if (amountRaysAntiAliasing <= 1) throw new IllegalArgumentException("amount of rays for edge anti aliasing must be more than 1");
+        if (colorThreshold < 0) throw new IllegalArgumentException("color threshold of edges cannot be less than 0");
+        if (depthThreshold < 0) throw new IllegalArgumentException("depth threshold of edges cannot be less than 0");
+        this.edgeAntiAliasing = true;
+        this.edgeColorThreshold = colorThreshold;
+        this.edgeDepthThreshold = depthThreshold;
+        return setAntiAliasing(amountRaysAntiAliasing);
+    }
+
+    /** getter for pixels found on edges in last render with edge anti aliasing
+     * @return edge pixels [row][column], or null if edge anti aliasing was off in last render */
+    public boolean[][] getEdges() {
+        return edges;
+    }
+
     /**
      * setter for DOF improvement
      * @param amountRaysDOF amounts of rays of the DOF
@@ -154,11 +439,54 @@ public class Camera {
         return this;
     }
 
+    /** setter for denoising of the rendered image, guided by normal, depth and albedo of the geometries
+     * seen through pixel centers
+     * @param denoiser denoiser, null for no denoising
+     * @return Camera
+     */
+    public Camera setDenoiser(Denoiser denoiser) {
+        this.denoiser = denoiser;
+        return this;
+    }
+
+    /** setter for deterministic renders - the random numbers of sampling (jitter of beams of rays and russian
+     * roulette) of every pixel are drawn from a generator seeded by the seed and the position of the pixel, so
+     * renders with the same seed produce the same image whatever the amount of threads (every sample of a grid
+     * of a pixel has a generator of its own, so grids are split between threads as well)
+     * @param seed seed of the random numbers
+     * @return Camera
+     */
+    public Camera setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /** setter for a crash-safe checkpoint of the render - the image is rendered tile by tile, and every finished
+     * tile is saved to a memory-mapped file, so a render of the same scene and camera which was stopped continues
+     * from the tiles which were not finished (the file is kept after the render, and rendering again only copies
+     * the image from it).<br/>
+     * The render is identified by the settings of the camera and the ray tracer and by the content of the scene
+     * (see {@link RenderCheckpoint#fingerprint(scene.Scene)}) - a checkpoint of another render is cleared. Paged meshes
+     * are identified by the layout of their files only, so the file should be deleted if faces of a paged mesh
+     * were changed in place.
+     * @param file path of checkpoint file, null for no checkpoint
+     * @param tileSize side of a tile in pixels
+     * @throws IllegalArgumentException if tileSize <= 0
+     * @return Camera
+     */
+    public Camera setCheckpoint(Path file, int tileSize) {
+        if (tileSize <= 0) throw new IllegalArgumentException("tile size must be positive");
+        this.checkpointFile = file;
+        this.checkpointTileSize = tileSize;
+        return this;
+    }
+
     /** setter for image writer
-     * @param imageWriter image writer
+     * @param imageWriter image writer - an {@link ImageWriter}, or an image sink which does not keep the image in
+     *                    memory (such as {@link StreamingImageWriter})
      * @return Camera
      */
-    public Camera setImageWriter(ImageWriter imageWriter) {
+    public Camera setImageWriter(ImageSink imageWriter) {
         this.imageWriter = imageWriter;
         return this;
     }
@@ -209,37 +537,216 @@ public class Camera {
         return new Ray(this.location,vIJ);
     }
 
-    /** renders image
+    /** renders image, with an MBean of its progress registered in the platform MBean server while it runs
+     * (see {@link RenderMonitorMBean}), and reports its progress to the render listeners
      * @throws MissingResourceException if one or more of the fields of Camera were not initialized
+     * @throws IllegalStateException if a checkpoint is used with edge anti aliasing or denoising,
+     * or on I/O error of the checkpoint file
      * @return Camera */
     public Camera renderImage() {
         if (this.vUp == null || this.vTo == null || this.vRight == null || this.vpDistance == 0.0 || this.location == null || this.vpHeight == 0.0 || this.vpWidth == 0.0 || this.imageWriter == null || this.rayTracer == null)
             throw new MissingResourceException("one or more of the fields of Camera was not initialized", "", "");
+        if (checkpointFile != null && (edgeAntiAliasing || denoiser != null))
+            throw new IllegalStateException("checkpoint cannot be used with edge anti aliasing or denoising");
         final int nX = this.imageWriter.getNx(), nY = this.imageWriter.getNy();
-        pixelManager = new PixelManager(nY, nX, printInterval);
-        if (threadsCount == 0) {
+        monitor = new RenderMonitor(imageWriter.getImageName(), (long) nX * nY).register();
+        try {
+            for (RenderListener listener : listeners) listener.renderStarted(monitor.progress());
+            render(nX, nY);
+        } finally {
+            monitor.unregister();
+        }
+        for (RenderListener listener : listeners) listener.renderFinished(monitor.progress());
+        return this;
+    }
+
+    /** renders image in all passes, then denoises it
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param nY amount of pixels in a column (amount of rows in view plane)
+     */
+    private void render(int nX, int nY) {
+        RenderStatistics.Counters counters = RenderStatistics.ENABLED ? new RenderStatistics.Counters() : null;
+        rayTracer.setCounters(counters);
+        pixelCosts = costHeatmap ? new long[nY][nX] : null;
+        tileTrace = traceTiles ? new TileTrace(imageWriter.getImageName()) : null;
+        subdivisions = adaptive ? new int[nY][nX] : null;
+        if (denoiser != null) {
+            denoiseColors = new double[3 * nX * nY];
+            denoiseNormals = new double[3 * nX * nY];
+            denoiseDepths = new double[nX * nY];
+            denoiseAlbedos = new double[3 * nX * nY];
+        }
+        if (edgeAntiAliasing) {
+            prePassColors = new Color[nY][nX];
+            prePassDepths = new double[nY][nX];
+            prePassGeometries = new Geometry[nY][nX];
+            edges = new boolean[nY][nX];
+            renderPixels(nX, nY, this::castPrePassRay);
+            renderPixels(nX, nY, this::castEdgeBeam);
+            prePassColors = null;
+            prePassDepths = null;
+            prePassGeometries = null;
+        }
+        else if (checkpointFile != null) {
+            edges = null;
+            renderCheckpointed(nX, nY);
+        }
+        else {
+            edges = null;
+            renderPixels(nX, nY, denoiser == null ? rayCastFunc : this::castWithGuides);
+        }
+        if (denoiser != null) {
+            double[] colors = denoiser.denoise(denoiseColors, denoiseNormals, denoiseDepths, denoiseAlbedos, nX, nY, threadsCount);
+            denoiseColors = null;
             for (int i = 0; i < nY; ++i) {
                 for (int j = 0; j < nX; ++j) {
-                    rayCastFunc.accept(nX, nY, j, i);
+                    int p = 3 * (i * nX + j);
+                    imageWriter.writePixel(j, i, new Color(colors[p], colors[p + 1], colors[p + 2]));
                 }
             }
+            denoiseNormals = null;
+            denoiseDepths = null;
+            denoiseAlbedos = null;
         }
-        else {
-            var threads = new LinkedList<Thread>(); // list of threads
-            while (threadsCount-- > 0) // add appropriate number of threads
-                threads.add(new Thread(() -> { // add a thread with its code
-                    PixelManager.Pixel pixel; // current pixel(row,col)
-                    // allocate pixel(row,col) in loop until there are no more pixels
-                    while ((pixel = pixelManager.nextPixel()) != null)
-                        // cast ray through pixel (and color it – inside rayCastFunc)
-                        rayCastFunc.accept(nX, nY, pixel.col(), pixel.row());
-                }));
-            // start all the threads
-            for (var thread : threads) thread.start();
-            // wait until all the threads have finished
-            try { for (var thread : threads) thread.join(); } catch (InterruptedException ignore) {}
+        statistics = RenderStatistics.ENABLED ? counters.snapshot() : null;
+    }
+
+    /** renders image tile by tile with the checkpoint file, skipping the tiles which were finished by earlier renders
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param nY amount of pixels in a column (amount of rows in view plane)
+     * @throws IllegalStateException on I/O error of the checkpoint file
+     */
+    private void renderCheckpointed(int nX, int nY) {
+        long fingerprint = RenderCheckpoint.fingerprint(this.location, this.vTo, this.vUp, this.vpWidth, this.vpHeight,
+                this.vpDistance, amountRaysAntiAliasing, amountRaysDOF, focusDistance, apertureSize, adaptive,
+                contrastMetricName(), contrastThreshold, minDepth, maxDepth, edgeAntiAliasing, edgeColorThreshold,
+                edgeDepthThreshold, seed, rayTracer.getClass().getName(), rayTracer.settings(),
+                RenderCheckpoint.fingerprint(rayTracer.scene));
+        try (RenderCheckpoint renderCheckpoint = new RenderCheckpoint(checkpointFile, nX, nY, checkpointTileSize, fingerprint)) {
+            checkpoint = renderCheckpoint;
+            renderPixels(nX, nY, rayCastFunc);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in checkpoint file " + checkpointFile, e);
+        } finally {
+            checkpoint = null;
         }
-        return this;
+    }
+
+    /** name of the contrast metric of ASS, for the fingerprint of the checkpoint (a metric which is not one of the
+     * constants of {@link ContrastMetric} is named by its class)
+     * @return name of the metric */
+    private String contrastMetricName() {
+        if (contrastMetric == ContrastMetric.CHANNEL) return "CHANNEL";
+        if (contrastMetric == ContrastMetric.LUMINANCE) return "LUMINANCE";
+        if (contrastMetric == ContrastMetric.RELATIVE) return "RELATIVE";
+        return contrastMetric.getClass().getName();
+    }
+
+    /** casts ray(s) through every pixel of view plane, by all threads
+     * (tile by tile if there is a checkpoint)
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param nY amount of pixels in a column (amount of rows in view plane)
+     * @param castFunc ray(s) casting function
+     */
+    private void renderPixels(int nX, int nY, FourConsumer<Integer, Integer, Integer, Integer> castFunc) {
+        pixelManager = new PixelManager(nY, nX, printInterval, imageWriter.getImageName(), listeners);
+        monitor.startPass(pixelManager);
+        pixelManager.start();
+        tileEvents = new TileRenderEvent().isEnabled();
+        long passStart = tileTrace == null ? 0 : tileTrace.now();
+        // with a seed, the samples of every pixel are drawn from a generator seeded by the pixel
+        final Long renderSeed = seed;
+        FourConsumer<Integer, Integer, Integer, Integer> sampled = renderSeed == null ? castFunc : (x, y, j, i) -> {
+            SampleRandom.seed(renderSeed, j, i);
+            castFunc.accept(x, y, j, i);
+        };
+        // with a cost heatmap, the time of every pixel is added to its cost (a pixel may be cast in several passes)
+        FourConsumer<Integer, Integer, Integer, Integer> cast = pixelCosts == null ? sampled : (x, y, j, i) -> {
+            long start = System.nanoTime();
+            sampled.accept(x, y, j, i);
+            pixelCosts[i][j] += System.nanoTime() - start;
+        };
+        if (checkpoint != null) {
+            AtomicInteger nextTile = new AtomicInteger();
+            runThreads(() -> {
+                int tile;
+                while ((tile = nextTile.getAndIncrement()) < checkpoint.getAmountTiles())
+                    renderTile(nX, nY, tile, cast);
+            });
+        }
+        else if (threadsCount == 0) {
+            PixelBatch batch = tileEvents || tileTrace != null ? new PixelBatch(EVENT_BATCH_PIXELS) : null;
+            pixelManager.threadStarted();
+            for (int i = 0; i < nY; ++i) {
+                for (int j = 0; j < nX; ++j) {
+                    cast.accept(nX, nY, j, i);
+                    if (batch != null) batch.add(j, i);
+                }
+            }
+            if (batch != null) batch.commit();
+            pixelManager.threadFinished();
+        }
+        else
+            runThreads(() -> {
+                PixelBatch batch = tileEvents || tileTrace != null ? new PixelBatch(EVENT_BATCH_PIXELS) : null;
+                PixelManager.Pixel pixel; // current pixel(row,col)
+                // allocate pixel(row,col) in loop until there are no more pixels
+                while ((pixel = pixelManager.nextPixel()) != null) {
+                    // cast ray through pixel (and color it – inside castFunc)
+                    cast.accept(nX, nY, pixel.col(), pixel.row());
+                    if (batch != null) batch.add(pixel.col(), pixel.row());
+                }
+                if (batch != null) batch.commit();
+            });
+        if (tileTrace != null) tileTrace.addPass(monitor.getPass(), passStart);
+        if (renderSeed != null) SampleRandom.unseed();
+    }
+
+    /** runs the render loop in every thread, and waits until all the threads have finished
+     * @param renderLoop render loop of a thread
+     */
+    private void runThreads(Runnable renderLoop) {
+        Runnable counted = () -> {
+            pixelManager.threadStarted();
+            try { renderLoop.run(); } finally { pixelManager.threadFinished(); }
+        };
+        if (threadsCount == 0) {
+            counted.run();
+            return;
+        }
+        // threads of a fork/join pool, so that grids of a pixel can be split between idle threads
+        ForkJoinPool pool = new ForkJoinPool(threadsCount);
+        for (int t = 0; t < threadsCount; ++t) // add appropriate number of threads
+            pool.execute(counted);
+        // wait until all the threads have finished
+        pool.shutdown();
+        try { pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS); } catch (InterruptedException ignore) {}
+    }
+
+    /** casts ray(s) through every pixel of a checkpoint tile and marks it as finished,
+     * or copies the pixels of a tile which was finished by an earlier render
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param nY amount of pixels in a column (amount of rows in view plane)
+     * @param tile index of tile
+     * @param castFunc ray(s) casting function
+     */
+    private void renderTile(int nX, int nY, int tile, FourConsumer<Integer, Integer, Integer, Integer> castFunc) {
+        int fromX = checkpoint.getTileX(tile), fromY = checkpoint.getTileY(tile);
+        int toX = min(nX, fromX + checkpointTileSize), toY = min(nY, fromY + checkpointTileSize);
+        boolean done = checkpoint.isTileDone(tile);
+        PixelBatch batch = tileEvents || tileTrace != null ? new PixelBatch(Integer.MAX_VALUE) : null;
+        for (int i = fromY; i < toY; ++i) {
+            for (int j = fromX; j < toX; ++j) {
+                if (done) {
+                    imageWriter.writePixel(j, i, checkpoint.get(j, i));
+                    pixelManager.pixelDone();
+                }
+                else castFunc.accept(nX, nY, j, i);
+                if (batch != null) batch.add(j, i);
+            }
+        }
+        if (batch != null) batch.commit();
+        if (!done) checkpoint.tileDone(tile);
     }
 
     /** prints grid of squares with a certain color of lines between
@@ -269,6 +776,60 @@ public class Camera {
         this.imageWriter.writeToImage();
     }
 
+    /** produces a false color png image of the render costs of last render, named as the image with a "_cost"
+     * suffix - the costs are on a logarithmic scale from black (cheapest pixel) through blue, red and yellow
+     * to white (most expensive pixel)
+     *  @throws MissingResourceException if image writer field was not initialized
+     *  @throws IllegalStateException if costs were not recorded in last render */
+    public void writeCostHeatmap() {
+        if (imageWriter == null) throw new MissingResourceException("image writer field was not initialized", "ImageWriter", "imageWriter");
+        if (pixelCosts == null) throw new IllegalStateException("pixel costs were not recorded in last render");
+        int nY = pixelCosts.length, nX = pixelCosts[0].length;
+        long cheapest = Long.MAX_VALUE, costliest = 1;
+        for (long[] row : pixelCosts) {
+            for (long cost : row) {
+                cheapest = Math.min(cheapest, Math.max(cost, 1));
+                costliest = Math.max(costliest, cost);
+            }
+        }
+        double range = Math.log((double) costliest / cheapest);
+        ImageWriter heatmap = new ImageWriter(imageWriter.getImageName() + "_cost", nX, nY);
+        for (int i = 0; i < nY; ++i) {
+            for (int j = 0; j < nX; ++j) {
+                double t = isZero(range) ? 0 : Math.log((double) Math.max(pixelCosts[i][j], 1) / cheapest) / range;
+                heatmap.writePixel(j, i, heatColor(t));
+            }
+        }
+        heatmap.writeToImage();
+    }
+
+    /** maps a relative cost (or error, for error maps of {@link ImageMetrics}) to a false color - black, blue,
+     * red, yellow and white at equal intervals
+     * @param t relative cost, from 0 (cheapest) to 1 (most expensive)
+     * @return the color */
+    static Color heatColor(double t) {
+        double[][] stops = {{0, 0, 0}, {0, 0, 255}, {255, 0, 0}, {255, 255, 0}, {255, 255, 255}};
+        double position = Math.min(Math.max(t, 0), 1) * (stops.length - 1);
+        int stop = Math.min((int) position, stops.length - 2);
+        double f = position - stop;
+        double[] from = stops[stop], to = stops[stop + 1];
+        return new Color(from[0] + f * (to[0] - from[0]), from[1] + f * (to[1] - from[1]), from[2] + f * (to[2] - from[2]));
+    }
+
+    /** queues the image to be encoded to a file by an asynchronous encoder, so the camera may render
+     * the next image (into the same image writer as well) while the image is encoded
+     *  @param encoder asynchronous image encoder
+     *  @param format file format of the image
+     *  @throws MissingResourceException if image writer field was not initialized
+     *  @throws IllegalStateException if the image writer does not keep the image in memory (is not an
+     *  {@link ImageWriter}) */
+    public void writeToImage(AsyncImageEncoder encoder, ImageFormat format) {
+        if (imageWriter == null) throw new MissingResourceException("image writer field was not initialized", "ImageWriter", "imageWriter");
+        if (!(imageWriter instanceof ImageWriter writer))
+            throw new IllegalStateException("image writer does not keep the image in memory for encoding");
+        encoder.submit(writer, format);
+    }
+
     /** returns point in the middle of pixel i,j
      * @param nX amount of pixels in a row (amount of columns in view plane)
      * @param nY amount of pixels in a column (amount of rows in view plane)
@@ -285,6 +846,20 @@ public class Camera {
         return pIJ;
     }
 
+    /** traces a camera ray, counting it
+     * @param ray the ray
+     * @return color of the ray */
+    private Color traceCameraRay(Ray ray) {
+        countCameraRay();
+        return rayTracer.traceRay(ray);
+    }
+
+    /** counts a camera ray for the progress of the render, and for the tile render events of its thread */
+    private void countCameraRay() {
+        pixelManager.rayTraced();
+        if (tileEvents) ++CAMERA_RAYS.get()[0];
+    }
+
     /** casts a ray through a pixel and paints it with its color
      * @param nX amount of pixels in a row (amount of columns in view plane)
      * @param nY amount of pixels in a column (amount of rows in view plane)
@@ -292,7 +867,9 @@ public class Camera {
      * @param i row of pixel
      */
     private void castRay(int nX, int nY, int j, int i){
-        imageWriter.writePixel(j,i,rayColorFunc.apply(constructRay(nX, nY, j, i)));
+        AtomicInteger divisions = new AtomicInteger();
+        writePixel(nX, j, i, rayColorFunc.apply(constructRay(nX, nY, j, i), divisions));
+        if (subdivisions != null) subdivisions[i][j] = divisions.get();
         pixelManager.pixelDone();
     }
 
@@ -304,41 +881,194 @@ public class Camera {
      */
     private void castBeam(int nX, int nY, int j, int i){
         Blackboard ta = new Blackboard(getPij(nX,nY,j,i),this.vUp,this.vRight, min(this.vpWidth/nX,this.vpHeight/nY), amountRaysAntiAliasing);
-        imageWriter.writePixel(j,i, gridColor(this.location,ta,rayColorFunc,false));
+        AtomicInteger divisions = new AtomicInteger();
+        writePixel(nX, j, i, gridColor(this.location,ta,ray -> rayColorFunc.apply(ray, divisions),false, divisions));
+        if (subdivisions != null) subdivisions[i][j] = divisions.get();
+        pixelManager.pixelDone();
+    }
+
+    /** casts a single ray through a pixel for the pre-pass of edge anti aliasing,
+     * saving its color, depth and geometry
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param nY amount of pixels in a column (amount of rows in view plane)
+     * @param j column of pixel
+     * @param i row of pixel
+     */
+    private void castPrePassRay(int nX, int nY, int j, int i) {
+        Ray ray = constructRay(nX, nY, j, i);
+        GeoPoint gp = rayTracer.findClosestIntersection(ray);
+        prePassGeometries[i][j] = gp == null ? null : gp.geometry;
+        prePassDepths[i][j] = gp == null ? Double.POSITIVE_INFINITY : this.location.distance(gp.point);
+        if (amountRaysDOF == 0) countCameraRay();
+        prePassColors[i][j] = amountRaysDOF > 0 ? rayColorFunc.apply(ray, new AtomicInteger())
+                                                : rayTracer.traceRay(ray, gp);
+        if (denoiser != null) saveGuides(nX, j, i, gp);
         pixelManager.pixelDone();
     }
 
+    /** saves denoising guides of the geometry seen through the center of a pixel, then casts ray(s) through it
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param nY amount of pixels in a column (amount of rows in view plane)
+     * @param j column of pixel
+     * @param i row of pixel
+     */
+    private void castWithGuides(int nX, int nY, int j, int i) {
+        saveGuides(nX, j, i, rayTracer.findClosestIntersection(constructRay(nX, nY, j, i)));
+        rayCastFunc.accept(nX, nY, j, i);
+    }
+
+    /** saves normal, depth and albedo of a geometry seen through the center of a pixel to the denoising guides
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param j column of pixel
+     * @param i row of pixel
+     * @param gp the closest intersection of ray through center of pixel, null if there is none
+     */
+    private void saveGuides(int nX, int j, int i, GeoPoint gp) {
+        int p = i * nX + j;
+        if (gp == null) {
+            denoiseDepths[p] = Double.POSITIVE_INFINITY;
+            return;
+        }
+        Vector n = gp.geometry.getNormal(gp.point);
+        Color albedo = gp.geometry.getEmission();
+        denoiseDepths[p] = this.location.distance(gp.point);
+        denoiseNormals[3 * p] = n.getX();
+        denoiseNormals[3 * p + 1] = n.getY();
+        denoiseNormals[3 * p + 2] = n.getZ();
+        denoiseAlbedos[3 * p] = albedo.getRed();
+        denoiseAlbedos[3 * p + 1] = albedo.getGreen();
+        denoiseAlbedos[3 * p + 2] = albedo.getBlue();
+    }
+
+    /** paints a pixel with its final color, or saves the color for denoising
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param j column of pixel
+     * @param i row of pixel
+     * @param color color of pixel
+     */
+    private void writePixel(int nX, int j, int i, Color color) {
+        if (checkpoint != null) checkpoint.set(j, i, color);
+        if (denoiseColors == null) {
+            imageWriter.writePixel(j, i, color);
+            return;
+        }
+        int p = 3 * (i * nX + j);
+        denoiseColors[p] = color.getRed();
+        denoiseColors[p + 1] = color.getGreen();
+        denoiseColors[p + 2] = color.getBlue();
+    }
+
+    /** casts a beam of rays through a pixel on an edge and paints it with their average color,
+     * other pixels are painted with their pre-pass color
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param nY amount of pixels in a column (amount of rows in view plane)
+     * @param j column of pixel
+     * @param i row of pixel
+     */
+    private void castEdgeBeam(int nX, int nY, int j, int i) {
+        if (edges[i][j] = isEdge(nX, nY, j, i))
+            castBeam(nX, nY, j, i);
+        else {
+            writePixel(nX, j, i, prePassColors[i][j]);
+            pixelManager.pixelDone();
+        }
+    }
+
+    /** checks whether a pixel differs from one of its neighbours in the pre-pass in color, depth or geometry
+     * @param nX amount of pixels in a row (amount of columns in view plane)
+     * @param nY amount of pixels in a column (amount of rows in view plane)
+     * @param j column of pixel
+     * @param i row of pixel
+     * @return true if the pixel is on an edge
+     */
+    private boolean isEdge(int nX, int nY, int j, int i) {
+        for (int y = Math.max(0, i - 1); y <= Math.min(nY - 1, i + 1); ++y) {
+            for (int x = Math.max(0, j - 1); x <= Math.min(nX - 1, j + 1); ++x) {
+                if (!Objects.equals(prePassGeometries[y][x], prePassGeometries[i][j])
+                        || prePassColors[y][x].maxDifference(prePassColors[i][j]) > edgeColorThreshold
+                        || Math.abs(prePassDepths[y][x] - prePassDepths[i][j])
+                            > edgeDepthThreshold * Math.min(prePassDepths[y][x], prePassDepths[i][j]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
     /** calculates the average color of all rays in beam
      * @param beam beam of rays
      * @param func function to calculate ray color
+     * @param gridSeed seed of the samples of the beam (with a seed of the camera)
      * @return  the average color of all rays in beam */
-    private Color averageBeamColor(LinkedList<Ray> beam, Function<Ray,Color> func) {
+    private Color averageBeamColor(List<Ray> beam, Function<Ray,Color> func, long gridSeed) {
+        return sumBeamColor(new ArrayList<>(beam), 0, beam.size(), func, gridSeed).reduce(beam.size());
+    }
+
+    /** calculates the sum of colors of a range of rays in beam, splitting the range
+     * between render threads while some of them are idle
+     * @param beam beam of rays
+     * @param from index of first ray in range
+     * @param to index after last ray in range
+     * @param func function to calculate ray color
+     * @param gridSeed seed of the samples of the beam (with a seed of the camera)
+     * @return the sum of colors of rays in range */
+    private Color sumBeamColor(List<Ray> beam, int from, int to, Function<Ray,Color> func, long gridSeed) {
+        if (to - from >= MIN_FORK_BEAM && shouldFork()) {
+            int mid = (from + to) / 2;
+            ForkJoinTask<Color> second = ForkJoinTask.adapt(() -> sumBeamColor(beam, mid, to, func, gridSeed)).fork();
+            return sumBeamColor(beam, from, mid, func, gridSeed).add(second.join());
+        }
         Color color = Color.BLACK;
-        for (Ray ray: beam)
-            color = color.add(func.apply(ray));
-        return color.reduce(beam.size());
+        for (int k = from; k < to; ++k) {
+            seedSample(gridSeed, k, 0);
+            color = color.add(func.apply(beam.get(k)));
+        }
+        return color;
+    }
+
+    /** checks whether work of the current thread should be split into fork/join subtasks -
+     * the thread is a render pool thread and it has (almost) no queued tasks the idle threads can take
+     * @return true if the work should be split */
+    private boolean shouldFork() {
+        return ForkJoinTask.inForkJoinPool() && ForkJoinTask.getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS;
+    }
+
+    /** with a seed of the camera, seeds the generator of the current thread for a sample of a grid or a beam, so
+     * the sample depends neither on the thread which calculates it nor on the order of the samples
+     * @param gridSeed seed of the grid or the beam
+     * @param j column of sample in grid (index of ray in beam)
+     * @param i row of sample in grid */
+    private void seedSample(long gridSeed, int j, int i) {
+        if (seed != null) SampleRandom.seed(gridSeed, j, i);
     }
 
     /** calculates color of a point in view plane with DOF improvement
      * @param ray ray from camera to point at view plane
+     * @param divisions counter of ASS divisions
      * @return color of point with DOF improvement*/
-    private Color calcDOF(Ray ray) {
+    private Color calcDOF(Ray ray, AtomicInteger divisions) {
         Blackboard ta = new Blackboard(getPointHorizontalDistance(ray,this.vpDistance), this.vUp, this.vRight, apertureSize, amountRaysDOF);
-        return gridColor(getPointHorizontalDistance(ray,this.focusDistance),ta,ray1 -> rayTracer.traceRay(ray1),true);
+        return gridColor(getPointHorizontalDistance(ray,this.focusDistance),ta,this::traceCameraRay,true, divisions);
       }
 
     /**
      * calculates the color of our grid
+     * (with a seed of the camera, every sample of the grid is drawn from a generator of its own, seeded by a seed
+     * of the grid drawn from the generator of the pixel, so the grid may be split between threads)
      * @param point point to which/from which rays will be cast
      * @param bb target area to which/from which we cast rays
      * @param rayCalc function to calculate ray color
      * @param reverse weather the rays are cast from point to target area (reverse = false) or the other way around
+     * @param divisions counter of ASS divisions
      * @return color of grid
      */
-    private Color gridColor(Point point,Blackboard bb, Function<Ray,Color> rayCalc, boolean reverse){
-        return adaptive ?
-                adaptiveCalcHelp(point, bb, rayCalc,reverse) :
-                averageBeamColor(Ray.generateBeam(point,bb, reverse), rayCalc);
+    private Color gridColor(Point point,Blackboard bb, Function<Ray,Color> rayCalc, boolean reverse, AtomicInteger divisions){
+        long gridSeed = seed == null ? 0 : SampleRandom.nextLong();
+        Color color = adaptive ?
+                adaptiveCalcHelp(point, bb, rayCalc,reverse, gridSeed, divisions) :
+                averageBeamColor(Ray.generateBeam(point,bb, reverse), rayCalc, gridSeed);
+        // the pixel continues from a generator of the grid, whichever samples the current thread has calculated
+        seedSample(gridSeed, -1, -1);
+        return color;
     }
 
     /**
@@ -347,11 +1077,13 @@ public class Camera {
      * @param bb target area to which/from which we cast rays
      * @param calcRay function to calculate ray color
      * @param reverse weather the rays are cast from point to target area (reverse = false) or the other way around
+     * @param gridSeed seed of the samples of the grid (with a seed of the camera)
+     * @param divisions counter of ASS divisions
      * @return average color of grid with ASS
      */
-    private Color adaptiveCalcHelp(Point point, Blackboard bb, Function<Ray,Color> calcRay, boolean reverse) {
+    private Color adaptiveCalcHelp(Point point, Blackboard bb, Function<Ray,Color> calcRay, boolean reverse, long gridSeed, AtomicInteger divisions) {
         int n = bb.getN();
-        return adaptiveCalc(point,0,0,n-1,n-1,bb, new Color[n][n],calcRay,reverse);
+        return adaptiveCalc(point,0,0,n-1,n-1,bb, new AtomicReferenceArray<>(n * n),calcRay,reverse,gridSeed,0,divisions);
     }
 
     /** recursive function for ASS
@@ -361,64 +1093,80 @@ public class Camera {
      * @param maxX maximum x-axis coordinate on sub-grid
      * @param maxY maximum y-axis coordinate on sub-grid
      * @param bb target area to which/from which we cast rays
-     * @param colors colors for every coordinate on the target area, so we don't calculate a color twice
+     * @param colors colors for every coordinate on the target area (row by row), so we don't calculate a color
+     *               twice - shared by the sub-grids computed by different threads
      * @param reverse weather the rays are cast from point to target area (reverse = false) or the other way around
      * @param function function to calculate ray color
+     * @param gridSeed seed of the samples of the grid (with a seed of the camera)
+     * @param depth depth of division of the sub-grid
+     * @param divisions counter of ASS divisions
      * @return average color of sub-grid with ASS
      */
-    private Color adaptiveCalc(Point point, int minX, int minY, int maxX, int maxY, Blackboard bb, Color[][] colors, Function<Ray, Color> function, boolean reverse){
-        if (colors[minY][minX] == null) {
-            adaptiveAddColor(point,minX,minY,bb,colors,function,reverse);
-        }
-        if (colors[minY][maxX] == null)  {
-            adaptiveAddColor(point,maxX,minY,bb,colors,function,reverse);
-        }
-        if (colors[maxY][maxX] == null){
-            adaptiveAddColor(point,maxX,maxY,bb,colors,function,reverse);
-        }
-        if (colors[maxY][minX] == null){
-            adaptiveAddColor(point,minX,maxY,bb,colors,function,reverse);
-        }
-        if (colors[minY][minX].equals(colors[minY][maxX]) &&
-                colors[minY][minX].equals(colors[maxY][maxX]) &&
-                colors[minY][minX].equals(colors[maxY][minX]))
+    private Color adaptiveCalc(Point point, int minX, int minY, int maxX, int maxY, Blackboard bb, AtomicReferenceArray<Color> colors, Function<Ray, Color> function, boolean reverse, long gridSeed, int depth, AtomicInteger divisions){
+        Color topLeftColor = adaptiveColor(point,minX,minY,bb,colors,function,reverse,gridSeed);
+        Color topRightColor = adaptiveColor(point,maxX,minY,bb,colors,function,reverse,gridSeed);
+        Color bottomRightColor = adaptiveColor(point,maxX,maxY,bb,colors,function,reverse,gridSeed);
+        Color bottomLeftColor = adaptiveColor(point,minX,maxY,bb,colors,function,reverse,gridSeed);
+        if (depth >= minDepth &&
+                contrastMetric.contrast(topLeftColor, topRightColor) <= contrastThreshold &&
+                contrastMetric.contrast(topLeftColor, bottomRightColor) <= contrastThreshold &&
+                contrastMetric.contrast(topLeftColor, bottomLeftColor) <= contrastThreshold)
         {
-            return colors[minY][minX];
+            return topLeftColor;
+        }
+        if (minX >= maxX - 1 || depth >= maxDepth) {
+            return topLeftColor
+                    .add(topRightColor)
+                    .add(bottomLeftColor)
+                    .add(bottomRightColor)
+                    .reduce(4);
         }
-        if (minX == maxX - 1) {
-            return colors[minY][minX]
-                    .add(colors[minY][maxX])
-                    .add(colors[maxY][minX])
-                    .add(colors[maxY][maxX])
+        divisions.incrementAndGet();
+        int midX = (minX+maxX)/2, midY = (minY+maxY)/2;
+        if (maxX - minX >= MIN_FORK_GRID && shouldFork()) {
+            ForkJoinTask<Color> bottomLeft = ForkJoinTask.adapt(() -> adaptiveCalc(point,minX,midY,midX,maxY,bb,colors,function,reverse,gridSeed,depth+1,divisions)).fork();
+            ForkJoinTask<Color> topLeft = ForkJoinTask.adapt(() -> adaptiveCalc(point,minX,minY,midX,midY,bb,colors,function,reverse,gridSeed,depth+1,divisions)).fork();
+            ForkJoinTask<Color> topRight = ForkJoinTask.adapt(() -> adaptiveCalc(point,midX,minY,maxX,midY,bb,colors,function,reverse,gridSeed,depth+1,divisions)).fork();
+            return adaptiveCalc(point,midX,midY,maxX,maxY,bb,colors,function,reverse,gridSeed,depth+1,divisions) // bottom right
+                    .add(topRight.join(), topLeft.join(), bottomLeft.join())
                     .reduce(4);
         }
         else{
-            return (adaptiveCalc(point,(minX+maxX)/2, (minY+maxY)/2, maxX, maxY, bb, colors, function,reverse) // bottom right
-                    .add(adaptiveCalc(point,minX, (minY+maxY)/2,(minX+maxX)/2,maxY, bb, colors, function,reverse)) // bottom left
-                    .add(adaptiveCalc(point,minX, minY,(minX+maxX)/2,(minY+maxY)/2, bb, colors, function,reverse)) // top left
-                    .add(adaptiveCalc(point,(minX+maxX)/2,minY,maxX,(minY+maxY)/2,bb,colors, function,reverse))) // top right
+            return (adaptiveCalc(point,midX,midY,maxX,maxY,bb,colors,function,reverse,gridSeed,depth+1,divisions) // bottom right
+                    .add(adaptiveCalc(point,minX,midY,midX,maxY,bb,colors,function,reverse,gridSeed,depth+1,divisions)) // bottom left
+                    .add(adaptiveCalc(point,minX,minY,midX,midY,bb,colors,function,reverse,gridSeed,depth+1,divisions)) // top left
+                    .add(adaptiveCalc(point,midX,minY,maxX,midY,bb,colors,function,reverse,gridSeed,depth+1,divisions))) // top right
                     .reduce(4);
         }
     }
 
     /**
-     * a helper function to adaptiveCalc that calculate color of coordinate (j,i) on grid
+     * a helper function to adaptiveCalc that returns the color of coordinate (j,i) on grid, calculating it if it
+     * was not calculated yet - if sub-grids of different threads calculate a shared coordinate at the same time,
+     * the first color stored is used by both
      * @param point point to which/from which rays will be cast
      * @param j x-axis coordinate
      * @param i y-axis coordinate
      * @param bb target area to which/from which we cast rays
-     * @param colors colors for every coordinate on the target area, so we don't calculate a color twice
+     * @param colors colors for every coordinate on the target area (row by row), so we don't calculate a color twice
      * @param function function to calculate ray color
      * @param reverse weather the rays are cast from point to target area (reverse = false) or the other way around
+     * @param gridSeed seed of the samples of the grid (with a seed of the camera)
+     * @return color of coordinate
      */
-    private void adaptiveAddColor(Point point, int j, int i, Blackboard bb, Color[][] colors, Function<Ray, Color> function, boolean reverse) {
+    private Color adaptiveColor(Point point, int j, int i, Blackboard bb, AtomicReferenceArray<Color> colors, Function<Ray, Color> function, boolean reverse, long gridSeed) {
+        int index = i * bb.getN() + j;
+        Color color = colors.get(index);
+        if (color != null) return color;
+        seedSample(gridSeed, j, i);
         Point p = bb.generatePoint(j, i);
         if (!reverse) {
-            colors[i][j] = function.apply(new Ray(point, p.subtract(point)));
+            color = function.apply(new Ray(point, p.subtract(point)));
         }
         else {
-            colors[i][j] = function.apply(new Ray(p, point.subtract(p)));
+            color = function.apply(new Ray(p, point.subtract(p)));
         }
+        return colors.compareAndSet(index, null, color) ? color : colors.get(index);
     }
 
     /** calculates point on a certain horizontal distance from ray origin point (horizontal - on Vto axis)
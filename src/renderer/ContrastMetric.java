@@ -0,0 +1,32 @@
+package renderer;
+
+import primitives.Color;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+
+/** interface for measuring the perceived contrast between two colors,
+ * used by adaptive super sampling to decide whether a sub-grid should be divided
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+@FunctionalInterface
+public interface ContrastMetric {
+    /** largest difference of a single RGB component (the classic {@link Color#equals} test) */
+    ContrastMetric CHANNEL = Color::maxDifference;
+
+    /** absolute difference of luminance - hues the eye barely separates are treated as equal */
+    ContrastMetric LUMINANCE = (c1, c2) -> abs(c1.luminance() - c2.luminance());
+
+    /** difference of luminance relative to the brighter color (Weber contrast) -
+     * the same threshold works for dark and for bright areas of the scene */
+    ContrastMetric RELATIVE = (c1, c2) -> {
+        double l1 = c1.luminance(), l2 = c2.luminance();
+        return abs(l1 - l2) / max(1, max(l1, l2));
+    };
+
+    /** calculates the contrast between two colors
+     * @param c1 first color
+     * @param c2 second color
+     * @return non-negative contrast value, 0 for identical colors */
+    double contrast(Color c1, Color c2);
+}
@@ -0,0 +1,230 @@
+package renderer;
+
+import primitives.FourConsumer;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static java.lang.Math.*;
+
+/**
+ * Edge-avoiding à-trous wavelet filter for denoising an image rendered with few rays per pixel.<br/>
+ * Every iteration blurs the image with a 5x5 B3-spline kernel whose taps are spread 2^iteration pixels apart,
+ * where the weight of every tap is lowered by the difference of color, normal, depth and albedo between the taps,
+ * so edges of geometries and of colors are not blurred.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class Denoiser {
+    /** B3-spline kernel of a single axis */
+    private static final double[] KERNEL = {1d / 16, 1d / 4, 3d / 8, 1d / 4, 1d / 16};
+
+    /** amount of filter iterations */
+    private final int iterations;
+    /** color difference (in 0..255 units) of strong edge-stopping, halved every iteration */
+    private double colorSigma = 64;
+    /** normal difference of strong edge-stopping */
+    private double normalSigma = 0.3;
+    /** depth difference (relative to the nearer depth) of strong edge-stopping */
+    private double depthSigma = 0.1;
+    /** albedo difference (in 0..255 units) of strong edge-stopping */
+    private double albedoSigma = 16;
+    /** side of square tiles the image is divided to between threads */
+    private int tileSize = 64;
+
+    /** constructor for Denoiser
+     * @param iterations amount of filter iterations (the filter spreads over 4*2^iterations pixels)
+     * @throws IllegalArgumentException if iterations <= 0
+     */
+    public Denoiser(int iterations) {
+        if (iterations <= 0) throw new IllegalArgumentException("amount of denoising iterations must be bigger than 0");
+        this.iterations = iterations;
+    }
+
+    /** setter for color edge-stopping
+     * @param colorSigma color difference of strong edge-stopping
+     * @return this Denoiser object
+     * @throws IllegalArgumentException if colorSigma <= 0
+     */
+    public Denoiser setColorSigma(double colorSigma) {
+        if (colorSigma <= 0) throw new IllegalArgumentException("color sigma must be positive");
+        this.colorSigma = colorSigma;
+        return this;
+    }
+
+    /** setter for normal edge-stopping
+     * @param normalSigma normal difference of strong edge-stopping
+     * @return this Denoiser object
+     * @throws IllegalArgumentException if normalSigma <= 0
+     */
+    public Denoiser setNormalSigma(double normalSigma) {
+        if (normalSigma <= 0) throw new IllegalArgumentException("normal sigma must be positive");
+        this.normalSigma = normalSigma;
+        return this;
+    }
+
+    /** setter for depth edge-stopping
+     * @param depthSigma depth difference (relative to the nearer depth) of strong edge-stopping
+     * @return this Denoiser object
+     * @throws IllegalArgumentException if depthSigma <= 0
+     */
+    public Denoiser setDepthSigma(double depthSigma) {
+        if (depthSigma <= 0) throw new IllegalArgumentException("depth sigma must be positive");
+        this.depthSigma = depthSigma;
+        return this;
+    }
+
+    /** setter for albedo edge-stopping
+     * @param albedoSigma albedo difference of strong edge-stopping
+     * @return this Denoiser object
+     * @throws IllegalArgumentException if albedoSigma <= 0
+     */
+    public Denoiser setAlbedoSigma(double albedoSigma) {
+        if (albedoSigma <= 0) throw new IllegalArgumentException("albedo sigma must be positive");
+        this.albedoSigma = albedoSigma;
+        return this;
+    }
+
+    /** setter for tile size
+     * @param tileSize side of square tiles the image is divided to between threads
+     * @return this Denoiser object
+     * @throws IllegalArgumentException if tileSize <= 0
+     */
+    public Denoiser setTileSize(int tileSize) {
+        if (tileSize <= 0) throw new IllegalArgumentException("tile size must be positive");
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /** denoises an image according to its guide buffers. All buffers are row-major, 3 numbers per pixel
+     * except for depths
+     * @param colors colors of pixels (r,g,b)
+     * @param normals normals of geometries seen through pixels (x,y,z), zero for background
+     * @param depths distances of geometries seen through pixels, infinity for background
+     * @param albedos albedos of geometries seen through pixels (r,g,b)
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @param threadsCount amount of threads, 0 for filtering in the calling thread
+     * @return new buffer of denoised colors (r,g,b)
+     */
+    public double[] denoise(double[] colors, double[] normals, double[] depths, double[] albedos, int nX, int nY, int threadsCount) {
+        double[][] buffers = {new double[colors.length], iterations > 1 ? new double[colors.length] : null};
+        double[] src = colors;
+        for (int k = 0; k < iterations; ++k) {
+            final double[] in = src, out = buffers[k % 2];
+            final int step = 1 << k;
+            final double sigma = colorSigma / step;
+            forEachTile(nX, nY, threadsCount, (x0, y0, x1, y1) ->
+                    filterTile(in, out, normals, depths, albedos, nX, nY, step, sigma, x0, y0, x1, y1));
+            src = out;
+        }
+        return src;
+    }
+
+    /** runs a function on every tile of the image
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @param threadsCount amount of threads, 0 for running in the calling thread
+     * @param tileFunc function of tile (first column, first row, last column + 1, last row + 1)
+     */
+    private void forEachTile(int nX, int nY, int threadsCount, FourConsumer<Integer, Integer, Integer, Integer> tileFunc) {
+        List<ForkJoinTask<?>> tasks = new LinkedList<>();
+        for (int y = 0; y < nY; y += tileSize) {
+            for (int x = 0; x < nX; x += tileSize) {
+                final int x0 = x, y0 = y, x1 = min(x + tileSize, nX), y1 = min(y + tileSize, nY);
+                tasks.add(ForkJoinTask.adapt(() -> tileFunc.accept(x0, y0, x1, y1)));
+            }
+        }
+        if (threadsCount == 0) {
+            for (var task : tasks) task.invoke();
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threadsCount);
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** filters a single tile of the image in one iteration
+     * @param in colors before the iteration
+     * @param out colors after the iteration
+     * @param normals normals buffer
+     * @param depths depths buffer
+     * @param albedos albedos buffer
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @param step distance between taps of the kernel
+     * @param sigma color difference of strong edge-stopping in this iteration
+     * @param x0 first column of tile
+     * @param y0 first row of tile
+     * @param x1 last column of tile + 1
+     * @param y1 last row of tile + 1
+     */
+    private void filterTile(double[] in, double[] out, double[] normals, double[] depths, double[] albedos,
+                            int nX, int nY, int step, double sigma, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; ++y) {
+            for (int x = x0; x < x1; ++x) {
+                int p = y * nX + x;
+                double r = 0, g = 0, b = 0, sum = 0;
+                for (int dy = -2; dy <= 2; ++dy) {
+                    int yy = y + dy * step;
+                    if (yy < 0 || yy >= nY) continue;
+                    for (int dx = -2; dx <= 2; ++dx) {
+                        int xx = x + dx * step;
+                        if (xx < 0 || xx >= nX) continue;
+                        int q = yy * nX + xx;
+                        double w = KERNEL[dy + 2] * KERNEL[dx + 2] * weight(in, normals, depths, albedos, sigma, p, q);
+                        r += w * in[3 * q];
+                        g += w * in[3 * q + 1];
+                        b += w * in[3 * q + 2];
+                        sum += w;
+                    }
+                }
+                // the middle tap always has weight, so sum is positive
+                out[3 * p] = r / sum;
+                out[3 * p + 1] = g / sum;
+                out[3 * p + 2] = b / sum;
+            }
+        }
+    }
+
+    /** calculates the edge-stopping weight between two pixels
+     * @param colors colors buffer
+     * @param normals normals buffer
+     * @param depths depths buffer
+     * @param albedos albedos buffer
+     * @param sigma color difference of strong edge-stopping in this iteration
+     * @param p index of first pixel
+     * @param q index of second pixel
+     * @return weight in [0,1], 1 for identical pixels
+     */
+    private double weight(double[] colors, double[] normals, double[] depths, double[] albedos, double sigma, int p, int q) {
+        double dp = depths[p], dq = depths[q], depthDiff;
+        if (Double.isInfinite(dp) || Double.isInfinite(dq)) {
+            if (dp != dq) return 0; // geometry against background
+            depthDiff = 0;
+        }
+        else depthDiff = abs(dp - dq) / (depthSigma * max(min(dp, dq), Double.MIN_NORMAL));
+        return exp(-(distanceSquared(colors, p, q) / (sigma * sigma)
+                + distanceSquared(normals, p, q) / (normalSigma * normalSigma)
+                + distanceSquared(albedos, p, q) / (albedoSigma * albedoSigma)
+                + depthDiff));
+    }
+
+    /** calculates squared distance between the triads of two pixels in a buffer
+     * @param buffer buffer of 3 numbers per pixel
+     * @param p index of first pixel
+     * @param q index of second pixel
+     * @return squared distance
+     */
+    private static double distanceSquared(double[] buffer, int p, int q) {
+        double d1 = buffer[3 * p] - buffer[3 * q];
+        double d2 = buffer[3 * p + 1] - buffer[3 * q + 1];
+        double d3 = buffer[3 * p + 2] - buffer[3 * q + 2];
+        return d1 * d1 + d2 * d2 + d3 * d3;
+    }
+}
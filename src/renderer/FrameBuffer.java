@@ -0,0 +1,192 @@
+package renderer;
+
+import primitives.Color;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * High dynamic range frame buffer - a matrix of RGB pixel colors kept as 32-bit floats without an upper limit,
+ * so several passes or partial renders can be accumulated and normalized before the image is tone mapped
+ * and quantized.<br/>
+ * The buffer is not synchronized - every pixel should be written by a single thread at a time.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class FrameBuffer {
+    /** amount of pixels in a row */
+    private final int nX;
+    /** amount of pixels in a column */
+    private final int nY;
+    /** r,g,b components of pixels (0..255 for printed white), row by row */
+    private final float[] rgb;
+
+    /** constructor for an all black FrameBuffer
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @throws IllegalArgumentException if nX or nY are not positive
+     */
+    public FrameBuffer(int nX, int nY) {
+        if (nX <= 0 || nY <= 0) throw new IllegalArgumentException("frame buffer size must be positive");
+        this.nX = nX;
+        this.nY = nY;
+        this.rgb = new float[3 * nX * nY];
+    }
+
+    /** getter for amount of pixels in a row
+     * @return amount of pixels in a row */
+    public int getNx() {
+        return nX;
+    }
+
+    /** getter for amount of pixels in a column
+     * @return amount of pixels in a column */
+    public int getNy() {
+        return nY;
+    }
+
+    /** sets the color of a pixel
+     * @param x column of pixel
+     * @param y row of pixel
+     * @param color color of pixel */
+    public void set(int x, int y, Color color) {
+        int p = 3 * (y * nX + x);
+        rgb[p] = (float) color.getRed();
+        rgb[p + 1] = (float) color.getGreen();
+        rgb[p + 2] = (float) color.getBlue();
+    }
+
+    /** adds a color to the color of a pixel
+     * @param x column of pixel
+     * @param y row of pixel
+     * @param color color to add */
+    public void add(int x, int y, Color color) {
+        int p = 3 * (y * nX + x);
+        rgb[p] += (float) color.getRed();
+        rgb[p + 1] += (float) color.getGreen();
+        rgb[p + 2] += (float) color.getBlue();
+    }
+
+    /** gets the color of a pixel
+     * @param x column of pixel
+     * @param y row of pixel
+     * @return color of pixel */
+    public Color get(int x, int y) {
+        int p = 3 * (y * nX + x);
+        return new Color(rgb[p], rgb[p + 1], rgb[p + 2]);
+    }
+
+    /** adds the colors of all pixels of another frame buffer (e.g. another pass or a partial render)
+     * @param other frame buffer of the same size
+     * @return this FrameBuffer object
+     * @throws IllegalArgumentException if the frame buffers are not of the same size
+     */
+    public FrameBuffer accumulate(FrameBuffer other) {
+        if (other.nX != nX || other.nY != nY) throw new IllegalArgumentException("frame buffers must be of the same size");
+        for (int k = 0; k < rgb.length; ++k)
+            rgb[k] += other.rgb[k];
+        return this;
+    }
+
+    /** divides the colors of all pixels by the amount of accumulated passes
+     * @param passes amount of accumulated passes
+     * @return this FrameBuffer object
+     * @throws IllegalArgumentException if passes <= 0
+     */
+    public FrameBuffer normalize(double passes) {
+        if (passes <= 0) throw new IllegalArgumentException("amount of passes must be positive");
+        float factor = (float) (1 / passes);
+        for (int k = 0; k < rgb.length; ++k)
+            rgb[k] *= factor;
+        return this;
+    }
+
+    /** tone maps and quantizes all pixels into packed RGB colors (as in {@link Color#getRGB()})
+     * @param toneMapper tone mapper of color components
+     * @param rgbs array to fill with packed colors, row by row
+     */
+    public void toneMap(ToneMapper toneMapper, int[] rgbs) {
+        for (int k = 0, p = 0; k < rgbs.length; ++k, p += 3)
+            rgbs[k] = 0xFF000000
+                    | quantize(toneMapper.map(rgb[p])) << 16
+                    | quantize(toneMapper.map(rgb[p + 1])) << 8
+                    | quantize(toneMapper.map(rgb[p + 2]));
+    }
+
+    /** quantizes a color component to 8 bits
+     * @param component color component
+     * @return component in 0..255 */
+    private static int quantize(double component) {
+        int c = (int) component;
+        return c < 0 ? 0 : c > 255 ? 255 : c;
+    }
+
+    /** writes the frame buffer to a PFM (portable float map) file - raw little-endian 32-bit floats,
+     * bottom row first, with components scaled so 1.0 is printed white
+     * @param path path of the file
+     * @throws IOException if writing the file went wrong
+     */
+    public void writePFM(Path path) throws IOException {
+        byte[] header = ("PF\n" + nX + " " + nY + "\n-1.0\n").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer row = ByteBuffer.allocate(3 * nX * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(header));
+            for (int y = nY - 1; y >= 0; --y) {
+                row.clear();
+                for (int k = 3 * y * nX; k < 3 * (y + 1) * nX; ++k)
+                    row.putFloat(rgb[k] / 255);
+                row.flip();
+                while (row.hasRemaining()) channel.write(row);
+            }
+        }
+    }
+
+    /** reads a frame buffer from a PFM (portable float map) file written by {@link #writePFM(Path)}
+     * @param path path of the file
+     * @return the frame buffer
+     * @throws IOException if reading the file went wrong
+     * @throws IllegalArgumentException if the file is not an RGB PFM file
+     */
+    public static FrameBuffer readPFM(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (!"PF".equals(readToken(in))) throw new IllegalArgumentException("not an RGB PFM file");
+            int nX = Integer.parseInt(readToken(in)), nY = Integer.parseInt(readToken(in));
+            double scale = Double.parseDouble(readToken(in));
+            ByteOrder order = scale < 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            FrameBuffer frameBuffer = new FrameBuffer(nX, nY);
+            ByteBuffer row = ByteBuffer.allocate(3 * nX * Float.BYTES).order(order);
+            for (int y = nY - 1; y >= 0; --y) {
+                in.readFully(row.array());
+                row.rewind();
+                for (int k = 3 * y * nX; k < 3 * (y + 1) * nX; ++k)
+                    frameBuffer.rgb[k] = row.getFloat() * 255;
+            }
+            return frameBuffer;
+        }
+    }
+
+    /** reads a whitespace separated token of a PFM header (consuming the single whitespace after it)
+     * @param in input stream
+     * @return the token
+     * @throws IOException if reading went wrong
+     */
+    private static String readToken(InputStream in) throws IOException {
+        StringBuilder token = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (!Character.isWhitespace(c)) token.append((char) c);
+            else if (!token.isEmpty()) break;
+        }
+        return token.toString();
+    }
+}
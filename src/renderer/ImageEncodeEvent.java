@@ -0,0 +1,48 @@
+package renderer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of encoding an image to a file
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+@Name("raytracer.ImageEncode")
+@Label("Image Encode")
+@Category({"Ray Tracer", "Image"})
+@Description("Encoding of an image to a file")
+class ImageEncodeEvent extends Event {
+    /** path of image file */
+    @Label("File")
+    String file;
+
+    /** file format */
+    @Label("Format")
+    String format;
+
+    /** amount of pixels in a row */
+    @Label("Width")
+    int width;
+
+    /** amount of pixels in a column */
+    @Label("Height")
+    int height;
+
+    /** ends the event of an image which was encoded, and commits it if it is recorded
+     * @param file path of image file
+     * @param format file format
+     * @param width amount of pixels in a row
+     * @param height amount of pixels in a column */
+    void encoded(Object file, String format, int width, int height) {
+        if (!shouldCommit()) return;
+        this.file = file.toString();
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        commit();
+    }
+}
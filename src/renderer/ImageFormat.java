@@ -0,0 +1,109 @@
+package renderer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.ImageIO;
+
+/**
+ * File formats of produced images - compressed png, or uncompressed PPM and BMP which are written straight
+ * from the pixels through a file channel, with no encoding but packing of color bytes
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public enum ImageFormat {
+    /** png, compressed by ImageIO */
+    PNG("png") {
+        @Override
+        public void write(Path path, int nX, int nY, int[] rgbs) throws IOException {
+            BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            System.arraycopy(rgbs, 0, pixels, 0, pixels.length);
+            ImageIO.write(image, "png", path.toFile());
+        }
+    },
+    /** binary PPM (P6) - header and 3 bytes of every pixel, row by row */
+    PPM("ppm") {
+        @Override
+        public void write(Path path, int nX, int nY, int[] rgbs) throws IOException {
+            byte[] header = ("P6\n" + nX + " " + nY + "\n255\n").getBytes(StandardCharsets.US_ASCII);
+            writeRows(path, header, nX, nY, rgbs, 0, false);
+        }
+    },
+    /** 24-bit BMP - headers and 3 bytes (blue, green, red) of every pixel, bottom row first,
+     * every row padded to 4 bytes */
+    BMP("bmp") {
+        @Override
+        public void write(Path path, int nX, int nY, int[] rgbs) throws IOException {
+            int padding = (4 - 3 * nX % 4) % 4;
+            int imageSize = (3 * nX + padding) * nY;
+            ByteBuffer header = ByteBuffer.allocate(54).order(ByteOrder.LITTLE_ENDIAN);
+            header.put((byte) 'B').put((byte) 'M').putInt(54 + imageSize).putInt(0).putInt(54) // file header
+                    .putInt(40).putInt(nX).putInt(nY).putShort((short) 1).putShort((short) 24) // info header
+                    .putInt(0).putInt(imageSize).putInt(2835).putInt(2835).putInt(0).putInt(0);
+            writeRows(path, header.array(), nX, nY, rgbs, padding, true);
+        }
+    };
+
+    /** extension of image files */
+    public final String extension;
+
+    /** constructor for ImageFormat
+     * @param extension extension of image files */
+    ImageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /** writes an image to a file
+     * @param path path of the file
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @param rgbs packed RGB colors of pixels (as in {@link primitives.Color#getRGB()}), row by row
+     * @throws IOException if writing the file went wrong
+     */
+    public abstract void write(Path path, int nX, int nY, int[] rgbs) throws IOException;
+
+    /** size of the buffer of rows written at once */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /** writes a header and the pixels of an uncompressed image through a file channel, buffering many rows at once
+     * @param path path of the file
+     * @param header header of the file
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @param rgbs packed RGB colors of pixels, row by row
+     * @param padding amount of zero bytes after every row
+     * @param bmp whether rows are written as in BMP - bottom row first, color bytes in blue, green, red order
+     * @throws IOException if writing the file went wrong
+     */
+    private static void writeRows(Path path, byte[] header, int nX, int nY, int[] rgbs, int padding, boolean bmp)
+            throws IOException {
+        int rowSize = 3 * nX + padding;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(rowSize, BUFFER_SIZE / rowSize * rowSize));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(header));
+            for (int k = 0; k < nY; ++k) {
+                int row = (bmp ? nY - 1 - k : k) * nX;
+                for (int j = 0; j < nX; ++j) {
+                    int rgb = rgbs[row + j];
+                    if (bmp) buffer.put((byte) rgb).put((byte) (rgb >> 8)).put((byte) (rgb >> 16));
+                    else buffer.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+                }
+                for (int p = 0; p < padding; ++p) buffer.put((byte) 0);
+                if (buffer.remaining() < rowSize || k == nY - 1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package renderer;
+
+import primitives.Color;
+
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+import static java.lang.Math.*;
+
+/**
+ * Difference metrics of an image and a reference image of the same size - mean squared error, peak signal to noise
+ * ratio, structural similarity and a per-pixel error map - for judging whether a cheaper render configuration
+ * (e.g. fewer samples) is good enough, and for regression tests of images.<br/>
+ * Colors are in 0..255 units (the units of {@link Color}), as written by {@link ImageWriter} or kept by
+ * {@link FrameBuffer}.
+ * <ul>
+ * <li>MSE and PSNR are of the r,g,b components, PSNR relatively to a peak of 255</li>
+ * <li>SSIM is the mean structural similarity of the luminance, over gaussian windows (sigma 1.5, 11x11) around
+ * every pixel, with the edges of the images extended</li>
+ * <li>the error map is in the spirit of FLIP - the HyAB distance in CIELAB (difference of lightness plus euclidean
+ * distance of chromaticity) of every pixel, without the spatial filtering of FLIP</li>
+ * </ul>
+ * Rows of the images are processed in parallel (by the common fork/join pool), and partial sums are added in
+ * order, so the metrics do not depend on the amount of threads.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public final class ImageMetrics {
+    /** peak value of a color component */
+    public static final double PEAK = 255;
+    /** standard deviation of the gaussian window of SSIM (pixels) */
+    private static final double SSIM_SIGMA = 1.5;
+    /** radius of the gaussian window of SSIM (pixels) */
+    private static final int SSIM_RADIUS = 5;
+    /** stabilizing constant of the means of SSIM */
+    private static final double C1 = pow(0.01 * PEAK, 2);
+    /** stabilizing constant of the variances of SSIM */
+    private static final double C2 = pow(0.03 * PEAK, 2);
+    /** normalized weights of the gaussian window of SSIM along an axis */
+    private static final double[] WINDOW = new double[2 * SSIM_RADIUS + 1];
+
+    static {
+        double sum = 0;
+        for (int k = -SSIM_RADIUS; k <= SSIM_RADIUS; ++k) {
+            WINDOW[k + SSIM_RADIUS] = exp(-k * k / (2 * SSIM_SIGMA * SSIM_SIGMA));
+            sum += WINDOW[k + SSIM_RADIUS];
+        }
+        for (int k = 0; k < WINDOW.length; ++k) WINDOW[k] /= sum;
+    }
+
+    /** amount of pixels in a row */
+    private final int nX;
+    /** amount of pixels in a column */
+    private final int nY;
+    /** mean squared error of the components */
+    private final double mse;
+    /** mean structural similarity */
+    private final double ssim;
+    /** error of every pixel, row by row */
+    private final float[] errors;
+
+    /** constructor of the metrics of an image
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @param mse mean squared error
+     * @param ssim mean structural similarity
+     * @param errors error map */
+    private ImageMetrics(int nX, int nY, double mse, double ssim, float[] errors) {
+        this.nX = nX;
+        this.nY = nY;
+        this.mse = mse;
+        this.ssim = ssim;
+        this.errors = errors;
+    }
+
+    // ***************** Comparing ********************** //
+
+    /** compares the pixels of an image writer with a reference
+     * @param reference the reference image
+     * @param image the compared image
+     * @return the metrics
+     * @throws IllegalArgumentException if the images are not of the same size
+     */
+    public static ImageMetrics compare(ImageWriter reference, ImageWriter image) {
+        checkSize(reference.getNx(), reference.getNy(), image.getNx(), image.getNy());
+        int nX = reference.getNx(), nY = reference.getNy();
+        double[] expected = new double[3 * nX * nY], actual = new double[3 * nX * nY];
+        IntStream.range(0, nY).parallel().forEach(i -> {
+            for (int j = 0; j < nX; ++j) {
+                unpack(reference.getPixel(j, i), expected, 3 * (i * nX + j));
+                unpack(image.getPixel(j, i), actual, 3 * (i * nX + j));
+            }
+        });
+        return compare(expected, actual, nX, nY);
+    }
+
+    /** compares a frame buffer with a reference (components above 255 are compared as they are, except in the
+     * error map)
+     * @param reference the reference frame buffer
+     * @param image the compared frame buffer
+     * @return the metrics
+     * @throws IllegalArgumentException if the frame buffers are not of the same size
+     */
+    public static ImageMetrics compare(FrameBuffer reference, FrameBuffer image) {
+        checkSize(reference.getNx(), reference.getNy(), image.getNx(), image.getNy());
+        int nX = reference.getNx(), nY = reference.getNy();
+        double[] expected = new double[3 * nX * nY], actual = new double[3 * nX * nY];
+        IntStream.range(0, nY).parallel().forEach(i -> {
+            for (int j = 0; j < nX; ++j) {
+                int p = 3 * (i * nX + j);
+                Color e = reference.get(j, i), a = image.get(j, i);
+                expected[p] = e.getRed();
+                expected[p + 1] = e.getGreen();
+                expected[p + 2] = e.getBlue();
+                actual[p] = a.getRed();
+                actual[p + 1] = a.getGreen();
+                actual[p + 2] = a.getBlue();
+            }
+        });
+        return compare(expected, actual, nX, nY);
+    }
+
+    /** compares packed RGB colors (as of {@link ImageWriter#getPixel}) with a reference
+     * @param reference colors of the reference, row by row
+     * @param image colors of the compared image, row by row
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @return the metrics
+     * @throws IllegalArgumentException if the sizes of the arrays are not nX*nY
+     */
+    public static ImageMetrics compare(int[] reference, int[] image, int nX, int nY) {
+        if (nX <= 0 || nY <= 0 || reference.length != nX * nY || image.length != nX * nY)
+            throw new IllegalArgumentException("images must have nX*nY pixels");
+        double[] expected = new double[3 * nX * nY], actual = new double[3 * nX * nY];
+        IntStream.range(0, nX * nY).parallel().forEach(p -> {
+            unpack(reference[p], expected, 3 * p);
+            unpack(image[p], actual, 3 * p);
+        });
+        return compare(expected, actual, nX, nY);
+    }
+
+    /** calculates the metrics of r,g,b components
+     * @param expected components of the reference, row by row
+     * @param actual components of the compared image, row by row
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @return the metrics */
+    private static ImageMetrics compare(double[] expected, double[] actual, int nX, int nY) {
+        double[] rowErrors = new double[nY];
+        float[] errors = new float[nX * nY];
+        double[] lumX = new double[nX * nY], lumY = new double[nX * nY];
+        IntStream.range(0, nY).parallel().forEach(i -> {
+            double[] labX = new double[3], labY = new double[3];
+            double sum = 0;
+            for (int j = 0; j < nX; ++j) {
+                int pixel = i * nX + j, p = 3 * pixel;
+                for (int c = 0; c < 3; ++c) {
+                    double difference = expected[p + c] - actual[p + c];
+                    sum += difference * difference;
+                }
+                lumX[pixel] = luminance(expected, p);
+                lumY[pixel] = luminance(actual, p);
+                lab(expected, p, labX);
+                lab(actual, p, labY);
+                errors[pixel] = (float) (abs(labX[0] - labY[0]) + hypot(labX[1] - labY[1], labX[2] - labY[2]));
+            }
+            rowErrors[i] = sum;
+        });
+        double sum = 0;
+        for (double rowError : rowErrors) sum += rowError;
+        return new ImageMetrics(nX, nY, sum / expected.length, ssim(lumX, lumY, nX, nY), errors);
+    }
+
+    /** calculates the mean structural similarity of luminance, by gaussian blurs of the means, variances and
+     * covariance
+     * @param x luminance of the reference
+     * @param y luminance of the compared image
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @return mean SSIM */
+    private static double ssim(double[] x, double[] y, int nX, int nY) {
+        int n = nX * nY;
+        double[] xx = new double[n], yy = new double[n], xy = new double[n];
+        IntStream.range(0, n).parallel().forEach(p -> {
+            xx[p] = x[p] * x[p];
+            yy[p] = y[p] * y[p];
+            xy[p] = x[p] * y[p];
+        });
+        double[] meanX = blur(x, nX, nY), meanY = blur(y, nX, nY);
+        double[] meanXX = blur(xx, nX, nY), meanYY = blur(yy, nX, nY), meanXY = blur(xy, nX, nY);
+        double[] rows = new double[nY];
+        IntStream.range(0, nY).parallel().forEach(i -> {
+            double sum = 0;
+            for (int p = i * nX; p < (i + 1) * nX; ++p) {
+                double mx = meanX[p], my = meanY[p];
+                double varX = meanXX[p] - mx * mx, varY = meanYY[p] - my * my, covariance = meanXY[p] - mx * my;
+                sum += (2 * mx * my + C1) * (2 * covariance + C2) / ((mx * mx + my * my + C1) * (varX + varY + C2));
+            }
+            rows[i] = sum;
+        });
+        double sum = 0;
+        for (double row : rows) sum += row;
+        return sum / n;
+    }
+
+    /** blurs a channel by the gaussian window, separately by rows and by columns, extending the edges
+     * @param channel the channel, row by row
+     * @param nX amount of pixels in a row
+     * @param nY amount of pixels in a column
+     * @return the blurred channel */
+    private static double[] blur(double[] channel, int nX, int nY) {
+        double[] horizontal = new double[channel.length], blurred = new double[channel.length];
+        IntStream.range(0, nY).parallel().forEach(i -> {
+            for (int j = 0; j < nX; ++j) {
+                double sum = 0;
+                for (int k = -SSIM_RADIUS; k <= SSIM_RADIUS; ++k)
+                    sum += WINDOW[k + SSIM_RADIUS] * channel[i * nX + min(max(j + k, 0), nX - 1)];
+                horizontal[i * nX + j] = sum;
+            }
+        });
+        IntStream.range(0, nY).parallel().forEach(i -> {
+            for (int j = 0; j < nX; ++j) {
+                double sum = 0;
+                for (int k = -SSIM_RADIUS; k <= SSIM_RADIUS; ++k)
+                    sum += WINDOW[k + SSIM_RADIUS] * horizontal[min(max(i + k, 0), nY - 1) * nX + j];
+                blurred[i * nX + j] = sum;
+            }
+        });
+        return blurred;
+    }
+
+    /** checks that two images are of the same size
+     * @param nX1 amount of pixels in a row of first image
+     * @param nY1 amount of pixels in a column of first image
+     * @param nX2 amount of pixels in a row of second image
+     * @param nY2 amount of pixels in a column of second image
+     * @throws IllegalArgumentException if the sizes differ */
+    private static void checkSize(int nX1, int nY1, int nX2, int nY2) {
+        if (nX1 != nX2 || nY1 != nY2) throw new IllegalArgumentException("images must be of the same size");
+    }
+
+    /** unpacks a packed RGB color into components
+     * @param rgb the color
+     * @param components array of components
+     * @param p index of the red component */
+    private static void unpack(int rgb, double[] components, int p) {
+        components[p] = rgb >> 16 & 0xFF;
+        components[p + 1] = rgb >> 8 & 0xFF;
+        components[p + 2] = rgb & 0xFF;
+    }
+
+    /** calculates the luminance of a pixel (Rec. 709 weights, as {@link Color#luminance()})
+     * @param components r,g,b components
+     * @param p index of the red component of the pixel
+     * @return luminance, in 0..255 units */
+    private static double luminance(double[] components, int p) {
+        return 0.2126 * components[p] + 0.7152 * components[p + 1] + 0.0722 * components[p + 2];
+    }
+
+    /** converts an sRGB pixel (clamped to 0..255) to CIELAB, under the D65 white point
+     * @param components r,g,b components
+     * @param p index of the red component of the pixel
+     * @param lab L, a, b of the pixel (output) */
+    private static void lab(double[] components, int p, double[] lab) {
+        double r = linear(components[p]), g = linear(components[p + 1]), b = linear(components[p + 2]);
+        double fx = labCurve((0.4124 * r + 0.3576 * g + 0.1805 * b) / 0.95047);
+        double fy = labCurve(0.2126 * r + 0.7152 * g + 0.0722 * b);
+        double fz = labCurve((0.0193 * r + 0.1192 * g + 0.9505 * b) / 1.08883);
+        lab[0] = 116 * fy - 16;
+        lab[1] = 500 * (fx - fy);
+        lab[2] = 200 * (fy - fz);
+    }
+
+    /** converts an sRGB component to linear light
+     * @param component the component, in 0..255 units
+     * @return linear component, 0..1 */
+    private static double linear(double component) {
+        double c = min(max(component / PEAK, 0), 1);
+        return c <= 0.04045 ? c / 12.92 : pow((c + 0.055) / 1.055, 2.4);
+    }
+
+    /** the nonlinear curve of CIELAB
+     * @param t relative tristimulus value
+     * @return the curved value */
+    private static double labCurve(double t) {
+        return t > 216d / 24389 ? cbrt(t) : (24389d / 27 * t + 16) / 116;
+    }
+
+    // ***************** Getters ********************** //
+
+    /** getter for the mean squared error of the r,g,b components
+     * @return MSE, in squared 0..255 units */
+    public double getMse() {
+        return mse;
+    }
+
+    /** getter for the peak signal to noise ratio
+     * @return PSNR in dB, infinity for identical images */
+    public double getPsnr() {
+        return mse == 0 ? Double.POSITIVE_INFINITY : 10 * log10(PEAK * PEAK / mse);
+    }
+
+    /** getter for the mean structural similarity of the luminance
+     * @return SSIM, 1 for identical images */
+    public double getSsim() {
+        return ssim;
+    }
+
+    /** getter for the error map - the HyAB distance in CIELAB of every pixel
+     * @return errors of the pixels, row by row (a new array) */
+    public float[] getErrorMap() {
+        return errors.clone();
+    }
+
+    /** getter for the error of a pixel
+     * @param x column of pixel
+     * @param y row of pixel
+     * @return HyAB distance in CIELAB of the pixel, 0 for identical colors */
+    public double getError(int x, int y) {
+        return errors[y * nX + x];
+    }
+
+    /** getter for the mean error of the pixels
+     * @return mean HyAB distance */
+    public double getMeanError() {
+        double sum = 0;
+        for (float error : errors) sum += error;
+        return sum / errors.length;
+    }
+
+    /** getter for the largest error of a pixel
+     * @return largest HyAB distance */
+    public double getMaxError() {
+        double largest = 0;
+        for (float error : errors) largest = max(largest, error);
+        return largest;
+    }
+
+    /** produces a false color png image of the error map, from black (no error) through blue, red and yellow
+     * to white (the largest error)
+     * @param imageName name of the image file
+     */
+    public void writeErrorMap(String imageName) {
+        ImageWriter map = new ImageWriter(imageName, nX, nY);
+        double largest = getMaxError();
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j)
+                map.writePixel(j, i, Camera.heatColor(largest == 0 ? 0 : errors[i * nX + j] / largest));
+        map.writeToImage();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "ImageMetrics{mse=%.4f, psnr=%.2f, ssim=%.5f, meanError=%.4f}",
+                mse, getPsnr(), ssim, getMeanError());
+    }
+}
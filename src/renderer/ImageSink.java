@@ -0,0 +1,43 @@
+package renderer;
+
+import primitives.Color;
+
+/**
+ * Destination of the pixels of a render - an {@link ImageWriter}, which keeps the whole image in memory, or a
+ * {@link StreamingImageWriter}, which writes the image to its file while it is rendered.<br/>
+ * The camera renders into any image sink; operations on the whole image in memory (reading pixels, HDR,
+ * asynchronous encoding, other file formats) are of {@link ImageWriter} only.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public interface ImageSink {
+    /** View Plane X axis resolution
+     * @return the amount of horizontal pixels */
+    int getNx();
+
+    /** View Plane Y axis resolution
+     * @return the amount of vertical pixels */
+    int getNy();
+
+    /** Name of produced image file
+     * @return the name of image file (without extension) */
+    String getImageName();
+
+    /** writes a color of a specific pixel
+     * @param xIndex X-axis index of the pixel
+     * @param yIndex Y-axis index of the pixel
+     * @param color  final color of the pixel */
+    void writePixel(int xIndex, int yIndex, Color color);
+
+    /** writes packed RGB colors of a rectangular tile of pixels
+     * @param xIndex X-axis index of the tile's top left pixel
+     * @param yIndex Y-axis index of the tile's top left pixel
+     * @param width  amount of pixels in a row of the tile
+     * @param height amount of pixels in a column of the tile
+     * @param rgbs   packed RGB colors of the tile's pixels (as in {@link Color#getRGB()}), row by row
+     * @throws IllegalArgumentException if the tile exceeds the image or there are not enough colors */
+    void writeTile(int xIndex, int yIndex, int width, int height, int[] rgbs);
+
+    /** produces the png file of the image in the images directory of the project */
+    void writeToImage();
+}
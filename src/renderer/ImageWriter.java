@@ -2,8 +2,10 @@ package renderer;
 
 import primitives.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,15 +19,24 @@ import javax.imageio.*;
  * 
  * @author Dan
  */
-public class ImageWriter {
+public class ImageWriter implements ImageSink {
 	private int nX;
 	private int nY;
 
-	private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+	/** folder of produced images */
+	static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
 	private BufferedImage image;
+	/** pixels of image (packed RGB, row by row) - the backing array of image's raster */
+	private int[] pixels;
+	/** high dynamic range pixel colors, null if HDR is off */
+	private FrameBuffer frameBuffer;
+	/** tone mapper of HDR pixel colors into printed image */
+	private ToneMapper toneMapper = ToneMapper.CLAMP;
+	/** name of produced image file (without extension) */
 	private String imageName;
 	
+	/** logger of I/O errors */
 	private Logger logger = Logger.getLogger("ImageWriter");
 
 	// ***************** Constructors ********************** //
@@ -41,6 +52,7 @@ public class ImageWriter {
 		this.nY = nY;
 
 		image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
 	}
 
 	// ***************** Getters/Setters ********************** //
@@ -62,6 +74,38 @@ public class ImageWriter {
 		return nX;
 	}
 
+	/**
+	 * Name of produced image file
+	 * 
+	 * @return the name of image file (without extension)
+	 */
+	public String getImageName() {
+		return imageName;
+	}
+
+	/**
+	 * Turns on high dynamic range - pixel colors are kept in a float frame buffer
+	 * without upper limit, and are tone mapped into the printed image only when
+	 * the image is produced
+	 * 
+	 * @param toneMapper tone mapper of HDR colors into printed colors
+	 * @return the image writer
+	 */
+	public ImageWriter setHDR(ToneMapper toneMapper) {
+		if (frameBuffer == null) frameBuffer = new FrameBuffer(nX, nY);
+		this.toneMapper = toneMapper;
+		return this;
+	}
+
+	/**
+	 * HDR frame buffer of the image - for accumulating passes or partial renders
+	 * 
+	 * @return the HDR frame buffer, null if HDR is off
+	 */
+	public FrameBuffer getFrameBuffer() {
+		return frameBuffer;
+	}
+
 	// ***************** Operations ******************** //
 
 	/**
@@ -69,9 +113,70 @@ public class ImageWriter {
 	 * pixel color matrix in the directory of the project
 	 */
 	public void writeToImage() {
+		if (frameBuffer != null) frameBuffer.toneMap(toneMapper, pixels);
+		ImageEncodeEvent event = new ImageEncodeEvent();
+		event.begin();
 		try {
 			File file = new File(FOLDER_PATH + '/' + imageName + ".png");
 			ImageIO.write(image, "png", file);
+			event.encoded(file, "png", nX, nY);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "I/O error", e);
+			throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+		}
+	}
+
+	/**
+	 * Function writeToImage produces an image file of the pixel color matrix in the
+	 * directory of the project, in a given file format
+	 * 
+	 * @param format file format of the image
+	 */
+	public void writeToImage(ImageFormat format) {
+		if (frameBuffer != null) frameBuffer.toneMap(toneMapper, pixels);
+		ImageEncodeEvent event = new ImageEncodeEvent();
+		event.begin();
+		try {
+			format.write(getFile(format), nX, nY, pixels);
+			event.encoded(getFile(format), format.extension, nX, nY);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "I/O error", e);
+			throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+		}
+	}
+
+	/**
+	 * Path of the image file in a given file format
+	 * 
+	 * @param format file format of the image
+	 * @return path of the image file
+	 */
+	Path getFile(ImageFormat format) {
+		return Path.of(FOLDER_PATH, imageName + '.' + format.extension);
+	}
+
+	/**
+	 * Copy of the printed pixel colors (tone mapped if HDR is on), so the image
+	 * can be encoded while the image writer is written again
+	 * 
+	 * @return packed RGB colors of pixels (as in {@link Color#getRGB()}), row by
+	 *         row
+	 */
+	int[] snapshot() {
+		if (frameBuffer != null) frameBuffer.toneMap(toneMapper, pixels);
+		return pixels.clone();
+	}
+
+	/**
+	 * Function writeToPFM produces a PFM (portable float map) file of the HDR
+	 * frame buffer in the directory of the project, keeping the colors unclamped
+	 * 
+	 * @throws IllegalStateException if HDR is off
+	 */
+	public void writeToPFM() {
+		if (frameBuffer == null) throw new IllegalStateException("HDR frame buffer is off");
+		try {
+			frameBuffer.writePFM(Path.of(FOLDER_PATH, imageName + ".pfm"));
 		} catch (IOException e) {
 			logger.log(Level.SEVERE, "I/O error", e);
 			throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
@@ -80,14 +185,73 @@ public class ImageWriter {
 
 	/**
 	 * The function writePixel writes a color of a specific pixel into pixel color
-	 * matrix
+	 * matrix (into the HDR frame buffer if HDR is on)
 	 * 
 	 * @param xIndex X-axis index of the pixel
 	 * @param yIndex Y-axis index of the pixel
 	 * @param color  final color of the pixel
 	 */
 	public void writePixel(int xIndex, int yIndex, Color color) {
-		image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+		if (frameBuffer != null) frameBuffer.set(xIndex, yIndex, color);
+		else pixels[yIndex * nX + xIndex] = color.getRGB();
+	}
+
+	/**
+	 * The function accumulatePixel adds a color to a specific pixel in the HDR
+	 * frame buffer
+	 * 
+	 * @param xIndex X-axis index of the pixel
+	 * @param yIndex Y-axis index of the pixel
+	 * @param color  color to add to the pixel
+	 * @throws IllegalStateException if HDR is off
+	 */
+	public void accumulatePixel(int xIndex, int yIndex, Color color) {
+		if (frameBuffer == null) throw new IllegalStateException("HDR frame buffer is off");
+		frameBuffer.add(xIndex, yIndex, color);
+	}
+
+	/**
+	 * The function writeTile writes packed RGB colors of a rectangular tile of
+	 * pixels into pixel color matrix (into the HDR frame buffer if HDR is on, so
+	 * the tile is tone mapped with the other pixels)
+	 * 
+	 * @param xIndex X-axis index of the tile's top left pixel
+	 * @param yIndex Y-axis index of the tile's top left pixel
+	 * @param width  amount of pixels in a row of the tile
+	 * @param height amount of pixels in a column of the tile
+	 * @param rgbs   packed RGB colors of the tile's pixels (as in
+	 *               {@link Color#getRGB()}), row by row
+	 * @throws IllegalArgumentException if the tile exceeds the image or there are
+	 *                                  not enough colors
+	 */
+	public void writeTile(int xIndex, int yIndex, int width, int height, int[] rgbs) {
+		if (xIndex < 0 || yIndex < 0 || xIndex + width > nX || yIndex + height > nY)
+			throw new IllegalArgumentException("tile exceeds the image");
+		if (rgbs.length < width * height)
+			throw new IllegalArgumentException("not enough colors for the tile");
+		if (frameBuffer != null) {
+			for (int i = 0; i < height; ++i)
+				for (int j = 0; j < width; ++j) {
+					int rgb = rgbs[i * width + j];
+					frameBuffer.set(xIndex + j, yIndex + i,
+							new Color((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF));
+				}
+			return;
+		}
+		for (int i = 0; i < height; ++i)
+			System.arraycopy(rgbs, i * width, pixels, (yIndex + i) * nX + xIndex, width);
+	}
+
+	/**
+	 * The function getPixel reads the color of a specific pixel from pixel color
+	 * matrix (if HDR is on - as tone mapped by the last image production)
+	 * 
+	 * @param xIndex X-axis index of the pixel
+	 * @param yIndex Y-axis index of the pixel
+	 * @return packed RGB color of the pixel (as in {@link Color#getRGB()})
+	 */
+	public int getPixel(int xIndex, int yIndex) {
+		return 0xFF000000 | pixels[yIndex * nX + xIndex];
 	}
 
 }
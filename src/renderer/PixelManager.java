@@ -1,10 +1,22 @@
 package renderer;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
 /** PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
  * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
+ * each thread.<br/>
+ * The shared data is updated by atomic operations only, so that no thread is
+ * blocked on the per-pixel path. Progress is reported to the render listeners
+ * by the single thread which reserves a reporting step; reports are delivered
+ * one at a time and in increasing order, by the thread which holds the delivery
+ * - a thread which finds it held leaves its report to the holder instead of
+ * waiting. The completion of the last pixel is always reported.
  * @author Dan Zilberstein */
 class PixelManager {
     /** Immutable class for object containing allocated pixel (with its row and
@@ -12,83 +24,129 @@ class PixelManager {
     record Pixel(int col, int row) {
     }
 
-    /** Maximum rows of pixels */
-    private int                 maxRows       = 0;
+    /** Name of the rendered image */
+    private final String        image;
     /** Maximum columns of pixels */
-    private int                 maxCols       = 0;
+    private final int           maxCols;
     /** Total amount of pixels in the generated image */
-    private long                totalPixels   = 0l;
+    private final long          totalPixels;
+    /** Start time of the processing (nanoseconds) */
+    private final long          start         = System.nanoTime();
 
-    /** Currently processed row of pixels */
-    private volatile int        cRow          = 0;
-    /** Currently processed column of pixels */
-    private volatile int        cCol          = -1;
+    /** Index of the next pixel to allocate (row by row) */
+    private final AtomicLong    next          = new AtomicLong();
     /** Amount of pixels that have been processed */
-    private volatile long       pixels        = 0l;
-    /** Last printed progress update percentage */
-    private volatile int        lastPrinted   = 0;
+    private final AtomicLong    pixels        = new AtomicLong();
+    /** Amount of camera rays that have been traced */
+    private final LongAdder     rays          = new LongAdder();
+    /** Amount of threads which are processing pixels */
+    private final AtomicInteger activeThreads = new AtomicInteger();
+    /** Last reserved progress update percentage (in tenths of percent) */
+    private final AtomicInteger lastReported  = new AtomicInteger();
+    /** Amount of processed pixels of the latest reserved report */
+    private final AtomicLong    lastPending   = new AtomicLong(-1);
+    /** Amount of processed pixels of the last delivered report */
+    private final AtomicLong    lastDelivered = new AtomicLong(-1);
+    /** Lock of delivery of progress reports, which is only tried */
+    private final ReentrantLock delivery      = new ReentrantLock();
 
-    /** Flag of debug printing of progress percentage */
-    private boolean             print         = false;
-    /** Progress percentage printing interval */
-    private long                printInterval = 100l;
-    /** Printing format */
-    private static final String PRINT_FORMAT  = "%5.1f%%\n";
-    /** Mutual exclusion object for synchronizing next pixel allocation between
-     * threads */
-    private Object              mutexNext     = new Object();
-    /** Mutual exclusion object for printing progress percentage in console window
-     * by different threads */
-    private Object              mutexPixels   = new Object();
+    /** Flag of progress reporting */
+    private final boolean       report;
+    /** Progress reporting interval (in tenths of percent) */
+    private final long          reportInterval;
+    /** Listeners of progress reports */
+    private final List<RenderListener> listeners;
 
     /** Initialize pixel manager data for multi-threading
-     * @param maxRows  the amount of pixel rows
-     * @param maxCols  the amount of pixel columns
-     * @param interval print time interval in seconds, 0 if printing is not
-     *                 required */
-    PixelManager(int maxRows, int maxCols, double interval) {
-        this.maxRows  = maxRows;
-        this.maxCols  = maxCols;
-        totalPixels   = (long) maxRows * maxCols;
-        printInterval = (int) (interval * 10);
-        if (print = printInterval != 0) System.out.printf(PRINT_FORMAT, 0d);
+     * @param maxRows   the amount of pixel rows
+     * @param maxCols   the amount of pixel columns
+     * @param interval  progress reporting interval in percents, 0 if reporting is not
+     *                  required
+     * @param image     name of the rendered image
+     * @param listeners listeners of progress reports */
+    PixelManager(int maxRows, int maxCols, double interval, String image, List<RenderListener> listeners) {
+        this.image     = image;
+        this.maxCols   = maxCols;
+        this.listeners = listeners;
+        totalPixels    = (long) maxRows * maxCols;
+        reportInterval = (long) (interval * 10);
+        report         = reportInterval != 0;
     }
 
-    /** Function for thread-safe manipulating of main follow up Pixel object - this
-     * function is critical section for all the threads, and the pixel manager data
-     * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
-     * @return true if next pixel is allocated, false if there are no more pixels */
-    Pixel nextPixel() {
-        synchronized (mutexNext) {
-            if (cRow == maxRows) return null;
+    /** Reports the start of the processing (progress of 0) */
+    void start() {
+        if (report) report(pixels.get());
+    }
 
-            ++cCol;
-            if (cCol < maxCols)
-                return new Pixel(cRow, cCol);
+    /** Function for thread-safe allocation of pixels - every call provides the next
+     * available pixel, by an atomic increment of the pixel index.
+     * @return next allocated pixel, null if there are no more pixels */
+    Pixel nextPixel() {
+        long index = next.getAndIncrement();
+        return index < totalPixels ? new Pixel((int) (index % maxCols), (int) (index / maxCols)) : null;
+    }
 
-            cCol = 0;
-            ++cRow;
-            if (cRow < maxRows)
-                return new Pixel(cRow, cCol);
+    /** Finish pixel processing by updating and reporting of progress percentage */
+    void pixelDone() {
+        long done = pixels.incrementAndGet();
+        if (!report) return;
+        // the last pixel reports the completion regardless of the reporting steps
+        if (done == totalPixels) {
+            report(done);
+            return;
+        }
+        int percentage = (int) (1000l * done / totalPixels);
+        int last       = lastReported.get();
+        // a thread which loses the race retries, unless the winner reserved its step or a later one
+        while (percentage - last >= reportInterval) {
+            if (lastReported.compareAndSet(last, percentage)) {
+                report(done);
+                return;
+            }
+            last = lastReported.get();
         }
-        return null;
     }
 
-    /** Finish pixel processing by updating and printing of progress percentage */
-    void pixelDone() {
-        boolean flag       = false;
-        int     percentage = 0;
-        synchronized (mutexPixels) {
-            ++pixels;
-            if (print) {
-                percentage = (int) (1000l * pixels / totalPixels);
-                if (percentage - lastPrinted >= printInterval) {
-                    lastPrinted = percentage;
-                    flag        = true;
-                }
+    /** Counts a traced camera ray */
+    void rayTraced() {
+        rays.increment();
+    }
+
+    /** Marks a thread as starting to process pixels */
+    void threadStarted() {
+        activeThreads.incrementAndGet();
+    }
+
+    /** Marks a thread as finished processing pixels */
+    void threadFinished() {
+        activeThreads.decrementAndGet();
+    }
+
+    /** Takes a snapshot of the progress of the processing
+     * @return current progress */
+    RenderProgress progress() {
+        return new RenderProgress(image, pixels.get(), totalPixels, rays.sum(), System.nanoTime() - start,
+                activeThreads.get());
+    }
+
+    /** Reports progress to all the listeners, unless a later progress was already
+     * reported. A thread which finds another thread delivering leaves its report
+     * to it - the delivering thread checks for a later report after it finishes
+     * - so no thread waits, and the latest report is never lost
+     * @param done amount of processed pixels to report */
+    private void report(long done) {
+        lastPending.accumulateAndGet(done, Math::max);
+        while (lastPending.get() > lastDelivered.get() && delivery.tryLock()) {
+            try {
+                long latest = lastPending.get();
+                if (latest <= lastDelivered.get()) continue;
+                lastDelivered.set(latest);
+                RenderProgress progress = new RenderProgress(image, latest, totalPixels, rays.sum(),
+                        System.nanoTime() - start, activeThreads.get());
+                for (RenderListener listener : listeners) listener.progress(progress);
+            } finally {
+                delivery.unlock();
             }
-            if (flag) System.out.printf(PRINT_FORMAT, percentage / 10d);
         }
     }
-}
\ No newline at end of file
+}
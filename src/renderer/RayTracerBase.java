@@ -1,7 +1,9 @@
 package renderer;
 
+import geometries.Intersectable.GeoPoint;
 import primitives.Color;
 import primitives.Ray;
+import primitives.RenderStatistics;
 import scene.Scene;
 
 /** base class for ray tracer
@@ -9,6 +11,9 @@ import scene.Scene;
 public abstract class RayTracerBase {
     /** scene */
     protected Scene scene;
+    /** statistics counters of the render the tracer traces rays of, set by its camera for every render
+     * (null if statistics are off) - a tracer traces the rays of a single render at a time */
+    protected RenderStatistics.Counters counters;
 
     /** constructor to RayTracerBase
      * @param scene scene */
@@ -16,6 +21,34 @@ public abstract class RayTracerBase {
         this.scene = scene;
     }
 
+    /** settings of the tracer which change the image (other than the scene), for identifying a render by the
+     * fingerprint of its checkpoint
+     * @return string form of the settings, empty if there are none */
+    String settings() {
+        return "";
+    }
+
+    /** setter for the statistics counters of the render the tracer traces rays of
+     * @param counters counters of the render, null if statistics are off */
+    void setCounters(RenderStatistics.Counters counters) {
+        this.counters = counters;
+    }
+
     /** returns color of the closest geometry to base point of ray that ray intersects */
     public abstract Color traceRay(Ray ray);
+
+    /** returns color of a ray of which the closest intersection was already found
+     * @param ray the ray
+     * @param closestPoint the closest intersection GeoPoint of ray, or null if ray intersects nothing
+     * @return color of the ray */
+    public abstract Color traceRay(Ray ray, GeoPoint closestPoint);
+
+    /**
+     * finds the closest intersection GeoPoint between ray and the geometries in scene
+     * @param ray the ray
+     * @return the closest intersection GeoPoint between ray and the geometries in scene
+     */
+    public GeoPoint findClosestIntersection(Ray ray) {
+        return ray.findClosestGeoPoint(this.scene.geometries.findGeoIntersections(ray, Double.POSITIVE_INFINITY, counters));
+    }
 }
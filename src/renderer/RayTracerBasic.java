@@ -23,6 +23,15 @@ public class RayTracerBasic extends RayTracerBase {
     /** initial value of parameter k for recursion */
     private static final Double3 INITIAL_K = new Double3(1);
 
+    /** is recursion terminated by russian roulette */
+    private boolean russianRoulette = false;
+
+    /** amount of reflection/refraction levels traced before russian roulette starts */
+    private int rouletteDepth;
+
+    /** minimum probability of a reflected/refracted ray to survive russian roulette */
+    private double minSurvival;
+
     /**
      * constructor to RayTracerBasic
      * @param scene scene
@@ -31,9 +40,38 @@ public class RayTracerBasic extends RayTracerBase {
         super(scene);
     }
 
+    /**
+     * setter for russian roulette termination of reflection and refraction recursion - from a certain level,
+     * a ray survives with probability of its accumulated attenuation coefficient, and the color of a surviving
+     * ray is divided by that probability, so the expected color is unchanged
+     * @param rouletteDepth amount of reflection/refraction levels traced before russian roulette starts
+     * @param minSurvival minimum probability of a ray to survive russian roulette
+     * @return this RayTracerBasic object
+     * @throws IllegalArgumentException if rouletteDepth < 0
+     * @throws IllegalArgumentException if minSurvival is not in (0,1]
+     */
+    public RayTracerBasic setRussianRoulette(int rouletteDepth, double minSurvival) {
+        if (rouletteDepth < 0) throw new IllegalArgumentException("russian roulette depth cannot be less than 0");
+        if (minSurvival <= 0 || minSurvival > 1) throw new IllegalArgumentException("minimum survival probability must be in (0,1]");
+        this.russianRoulette = true;
+        this.rouletteDepth = rouletteDepth;
+        this.minSurvival = minSurvival;
+        return this;
+    }
+
+    @Override
+    String settings() {
+        return russianRoulette ? "russian roulette " + rouletteDepth + " " + minSurvival : "";
+    }
+
     @Override
     public Color traceRay(Ray ray) {
-        GeoPoint closestPoint = findClosestIntersection(ray);
+        return traceRay(ray, findClosestIntersection(ray));
+    }
+
+    @Override
+    public Color traceRay(Ray ray, GeoPoint closestPoint) {
+        if (RenderStatistics.ENABLED && counters != null) counters.primaryRay();
         return closestPoint == null ? scene.background
                                     : calcColor(closestPoint, ray);
     }
@@ -75,8 +113,8 @@ public class RayTracerBasic extends RayTracerBase {
         Vector v = ray.getDir();
         Vector n = gp.geometry.getNormal(gp.point);
         Material material = gp.geometry.getMaterial();
-        return calcColorGlobalEffect(constructReflectedRay(gp, v, n),level, k, material.kR)
-                .add(calcColorGlobalEffect(constructRefractedRay(gp, v, n),level, k, material.kT));
+        return calcColorGlobalEffect(constructReflectedRay(gp, v, n),level, k, material.kR, true)
+                .add(calcColorGlobalEffect(constructRefractedRay(gp, v, n),level, k, material.kT, false));
     }
 
     /**
@@ -106,17 +144,35 @@ public class RayTracerBasic extends RayTracerBase {
      * @param level level of recursion
      * @param k accumulating attenuation coefficient
      * @param kx attenuation coefficient of the certain effect
+     * @param reflected true for a reflected ray, false for a refracted ray (for render statistics)
      * @return calculation of a certain global effect of intersection between ray and geometry
      */
-    private Color calcColorGlobalEffect(Ray ray, int level, Double3 k, Double3 kx) {
+    private Color calcColorGlobalEffect(Ray ray, int level, Double3 k, Double3 kx, boolean reflected) {
         Double3 kkx = k.product(kx);
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
+        double survival = survivalProbability(level, kkx);
+        if (survival < 1) {
+            if (SampleRandom.nextDouble() >= survival) return Color.BLACK;
+            kx = kx.scale(1 / survival);
+        }
+        if (RenderStatistics.ENABLED && counters != null) counters.secondaryRay(reflected, MAX_CALC_COLOR_LEVEL - level + 1);
         GeoPoint gp = findClosestIntersection(ray);
         if (gp == null) return scene.background.scale(kx);
         return isZero(gp.geometry.getNormal(gp.point).dotProduct(ray.getDir()))? Color.BLACK
                 : calcColor(gp, ray, level - 1, kkx).scale(kx);
     }
 
+    /**
+     * calculates the probability of a reflected/refracted ray to survive russian roulette
+     * @param level level of recursion of the ray's origin
+     * @param kkx accumulated attenuation coefficient of the ray
+     * @return probability of the ray to be traced (1 if russian roulette is off or hasn't started yet)
+     */
+    private double survivalProbability(int level, Double3 kkx) {
+        if (!russianRoulette || MAX_CALC_COLOR_LEVEL - level < rouletteDepth) return 1;
+        return Math.min(1, Math.max(minSurvival, kkx.max()));
+    }
+
     /**
      * calculates local effects of intersection between ray and geometry
      * @param gp  GeoPoint (point and geometry)
@@ -185,7 +241,8 @@ public class RayTracerBasic extends RayTracerBase {
     private Double3 transparency(GeoPoint gp, LightSource light, Vector l, Vector n) {
         Vector lightDirection = l.scale(-1); // from point to light source
         Ray lightRay = new Ray(gp.point, lightDirection, n);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay, light.getDistance(gp.point));
+        if (RenderStatistics.ENABLED && counters != null) counters.shadowRay();
+        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay, light.getDistance(gp.point), counters);
         if (intersections == null) return Double3.ONE;
         Double3 ktr = Double3.ONE;
         for (GeoPoint intersection: intersections) {
@@ -194,14 +251,4 @@ public class RayTracerBasic extends RayTracerBase {
         }
         return ktr;
     }
-
-    /**
-     * finds the closest intersection GeoPoint between ray and the geometries in scene
-     * @param ray the ray
-     * @return the closest intersection GeoPoint between ray and the geometries in scene
-     */
-    private GeoPoint findClosestIntersection(Ray ray) {
-        List<GeoPoint> intersections = this.scene.geometries.findGeoIntersections(ray);
-        return ray.findClosestGeoPoint(intersections);
-    }
 }
\ No newline at end of file
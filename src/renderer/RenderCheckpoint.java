@@ -0,0 +1,271 @@
+package renderer;
+
+import geometries.*;
+import lighting.*;
+import primitives.Color;
+import primitives.Material;
+import scene.Scene;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Crash-safe checkpoint of a render - a memory-mapped file holding a float frame buffer and a bitmap of the
+ * completed tiles of the image.<br/>
+ * The pixels of every tile are kept together in the file, so a finished tile is forced to the disk before its bit
+ * is set, and a bit that is set always means the colors of its tile are on the disk. Opening the file again with
+ * the same image size, tile size and fingerprint (of scene and camera) keeps the completed tiles, otherwise the
+ * file is cleared.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class RenderCheckpoint implements AutoCloseable {
+    /** identifier of a checkpoint file */
+    private static final int MAGIC = 0x5254434B; // "RTCK"
+    /** version of file format */
+    private static final int VERSION = 1;
+    /** size of file header in bytes */
+    private static final int HEADER_SIZE = 32;
+    /** size of a pixel in bytes */
+    private static final int PIXEL_SIZE = 3 * Float.BYTES;
+
+    /** file of checkpoint */
+    private final FileChannel channel;
+    /** memory mapping of the file */
+    private final MappedByteBuffer map;
+    /** amount of pixels in a row */
+    private final int nX;
+    /** amount of pixels in a column */
+    private final int nY;
+    /** side of a tile in pixels */
+    private final int tileSize;
+    /** amount of tiles in a row */
+    private final int tilesX;
+    /** amount of tiles in the image */
+    private final int amountTiles;
+    /** offset of the pixels in the file */
+    private final int pixelsOffset;
+    /** amount of tiles which were completed when the file was opened */
+    private final int resumedTiles;
+
+    /**
+     * Opens a checkpoint file, or creates it if it does not exist or belongs to another render
+     * @param path        path of the file
+     * @param nX          amount of pixels in a row
+     * @param nY          amount of pixels in a column
+     * @param tileSize    side of a tile in pixels
+     * @param fingerprint fingerprint of scene and camera (see {@link #fingerprint(Object...)})
+     * @throws IllegalArgumentException if the sizes are not positive or the file would exceed 2GB
+     * @throws IOException if opening or mapping the file went wrong
+     */
+    public RenderCheckpoint(Path path, int nX, int nY, int tileSize, long fingerprint) throws IOException {
+        if (nX <= 0 || nY <= 0 || tileSize <= 0) throw new IllegalArgumentException("sizes must be positive");
+        this.nX = nX;
+        this.nY = nY;
+        this.tileSize = tileSize;
+        tilesX = (nX + tileSize - 1) / tileSize;
+        amountTiles = tilesX * ((nY + tileSize - 1) / tileSize);
+        pixelsOffset = HEADER_SIZE + (amountTiles + 7) / 8;
+        long size = pixelsOffset + (long) amountTiles * tileSize * tileSize * PIXEL_SIZE;
+        if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("checkpoint file cannot exceed 2GB");
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean valid = channel.size() == size;
+        if (!valid) channel.truncate(0);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        valid = valid && map.getInt(0) == MAGIC && map.getInt(4) == VERSION && map.getInt(8) == nX
+                && map.getInt(12) == nY && map.getInt(16) == tileSize && map.getLong(20) == fingerprint;
+        if (!valid) {
+            for (int k = HEADER_SIZE; k < pixelsOffset; ++k) map.put(k, (byte) 0);
+            map.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, nX).putInt(12, nY).putInt(16, tileSize)
+                    .putLong(20, fingerprint);
+            map.force();
+        }
+        int completed = 0;
+        for (int tile = 0; tile < amountTiles; ++tile)
+            if (isTileDone(tile)) ++completed;
+        resumedTiles = completed;
+    }
+
+    /**
+     * Calculates a 64-bit fingerprint (FNV-1a hash) of the string forms of a render's parameters
+     * @param parts parameters of scene and camera
+     * @return fingerprint
+     */
+    public static long fingerprint(Object... parts) {
+        long hash = 0xCBF29CE484222325L;
+        for (Object part : parts) {
+            String s = String.valueOf(part) + '\n';
+            for (int k = 0; k < s.length(); ++k) {
+                hash ^= s.charAt(k);
+                hash *= 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Calculates a fingerprint of the content of a scene - its name, background, ambient light, lights, and the
+     * shapes, emissions and materials of all its geometries (meshes by all their vertices and faces, paged meshes
+     * by the layout of their files). Lights and geometries of kinds it does not know are identified by their
+     * objects, so a checkpoint of a scene with them is never resumed by another run.
+     * @param scene the scene
+     * @return fingerprint
+     */
+    public static long fingerprint(Scene scene) {
+        List<Object> parts = new ArrayList<>();
+        Collections.addAll(parts, scene.name, scene.background, scene.ambientLight.getIntensity());
+        for (LightSource light : scene.lights) addLight(parts, light);
+        addGeometries(parts, scene.geometries);
+        return fingerprint(parts.toArray());
+    }
+
+    /** adds the parameters of a light to the parts of a fingerprint
+     * @param parts parts of fingerprint
+     * @param light the light */
+    private static void addLight(List<Object> parts, LightSource light) {
+        parts.add(light.getClass().getName());
+        if (light instanceof DirectionalLight directional)
+            Collections.addAll(parts, directional.getIntensity(), directional.getDir());
+        else if (light instanceof PointLight point) {
+            Collections.addAll(parts, point.getIntensity(), point.getPosition(), point.getKc(), point.getKl(),
+                    point.getKq());
+            if (point instanceof SpotLight spot) Collections.addAll(parts, spot.getDir(), spot.getNarrowness());
+        } else parts.add(System.identityHashCode(light));
+    }
+
+    /** adds the geometries of a composite to the parts of a fingerprint, recursively
+     * @param parts parts of fingerprint
+     * @param geometries composite of geometries */
+    private static void addGeometries(List<Object> parts, Geometries geometries) {
+        for (Intersectable intersectable : geometries.getGeometries()) {
+            parts.add(intersectable.getClass().getName());
+            if (intersectable instanceof Geometries composite) {
+                addGeometries(parts, composite);
+                continue;
+            }
+            if (!(intersectable instanceof Geometry geometry)) {
+                parts.add(System.identityHashCode(intersectable));
+                continue;
+            }
+            Material material = geometry.getMaterial();
+            Collections.addAll(parts, geometry.getEmission(), material.kD, material.kS, material.kT, material.kR,
+                    material.nShininess);
+            if (geometry instanceof Sphere sphere) Collections.addAll(parts, sphere.getCenter(), sphere.getRadius());
+            else if (geometry instanceof Plane plane) Collections.addAll(parts, plane.getQ0(), plane.getNormal());
+            else if (geometry instanceof Polygon polygon) parts.addAll(polygon.getVertices());
+            else if (geometry instanceof Tube tube) {
+                Collections.addAll(parts, tube.getAxisRay(), tube.getRadius());
+                if (tube instanceof Cylinder cylinder) parts.add(cylinder.getHeight());
+            } else if (geometry instanceof Mesh mesh)
+                Collections.addAll(parts, mesh.getVertices().length, Arrays.hashCode(mesh.getVertices()),
+                        mesh.getIndices().length, Arrays.hashCode(mesh.getIndices()));
+            else if (geometry instanceof PagedMesh paged) parts.add(paged.getLayoutHash());
+            else parts.add(System.identityHashCode(geometry));
+        }
+    }
+
+    /** getter for side of a tile
+     * @return side of a tile in pixels */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /** getter for amount of tiles
+     * @return amount of tiles in the image */
+    public int getAmountTiles() {
+        return amountTiles;
+    }
+
+    /** getter for amount of tiles which were completed by earlier renders
+     * @return amount of tiles which were completed when the file was opened */
+    public int getResumedTiles() {
+        return resumedTiles;
+    }
+
+    /** getter for column of the first pixel of a tile
+     * @param tile index of tile
+     * @return column of the tile's top left pixel */
+    public int getTileX(int tile) {
+        return tile % tilesX * tileSize;
+    }
+
+    /** getter for row of the first pixel of a tile
+     * @param tile index of tile
+     * @return row of the tile's top left pixel */
+    public int getTileY(int tile) {
+        return tile / tilesX * tileSize;
+    }
+
+    /** checks whether a tile was completed
+     * @param tile index of tile
+     * @return true if all pixels of the tile are in the file */
+    public boolean isTileDone(int tile) {
+        return (map.get(HEADER_SIZE + tile / 8) & 1 << tile % 8) != 0;
+    }
+
+    /** checks whether all tiles were completed
+     * @return true if the whole image is in the file */
+    public boolean isComplete() {
+        for (int tile = 0; tile < amountTiles; ++tile)
+            if (!isTileDone(tile)) return false;
+        return true;
+    }
+
+    /** marks a tile as completed, after forcing its pixels to the disk
+     * @param tile index of tile */
+    public void tileDone(int tile) {
+        int tileLength = tileSize * tileSize * PIXEL_SIZE;
+        map.force(pixelsOffset + tile * tileLength, tileLength);
+        synchronized (this) { // bits of several tiles share a byte
+            int index = HEADER_SIZE + tile / 8;
+            map.put(index, (byte) (map.get(index) | 1 << tile % 8));
+            map.force(index, 1);
+        }
+    }
+
+    /** saves the color of a pixel
+     * @param x column of pixel
+     * @param y row of pixel
+     * @param color color of pixel */
+    public void set(int x, int y, Color color) {
+        int p = pixelIndex(x, y);
+        map.putFloat(p, (float) color.getRed());
+        map.putFloat(p + Float.BYTES, (float) color.getGreen());
+        map.putFloat(p + 2 * Float.BYTES, (float) color.getBlue());
+    }
+
+    /** gets the saved color of a pixel
+     * @param x column of pixel
+     * @param y row of pixel
+     * @return color of pixel */
+    public Color get(int x, int y) {
+        int p = pixelIndex(x, y);
+        return new Color(map.getFloat(p), map.getFloat(p + Float.BYTES), map.getFloat(p + 2 * Float.BYTES));
+    }
+
+    /** calculates the offset of a pixel in the file - pixels of a tile are kept row by row, tile after tile
+     * @param x column of pixel
+     * @param y row of pixel
+     * @return offset of pixel */
+    private int pixelIndex(int x, int y) {
+        if (x < 0 || y < 0 || x >= nX || y >= nY) throw new IllegalArgumentException("pixel is out of the image");
+        int tile = y / tileSize * tilesX + x / tileSize;
+        return pixelsOffset + ((tile * tileSize + y % tileSize) * tileSize + x % tileSize) * PIXEL_SIZE;
+    }
+
+    /** forces the whole file to the disk and closes it
+     * @throws IOException if closing the file went wrong */
+    @Override
+    public void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+}
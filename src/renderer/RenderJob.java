@@ -0,0 +1,76 @@
+package renderer;
+
+import scene.Scene;
+
+/**
+ * A ready to render job - a scene, a camera looking at it and the image writer and file format of the produced
+ * image, as loaded together from a single configuration file
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class RenderJob {
+    /** scene to render */
+    private final Scene scene;
+    /** camera of the render, set with image writer and a ray tracer of the scene */
+    private final Camera camera;
+    /** image writer of the render */
+    private final ImageWriter imageWriter;
+    /** file format of the produced image */
+    private final ImageFormat format;
+
+    /**
+     * Constructor for RenderJob, sets the image writer and a basic ray tracer of the scene to the camera
+     * @param scene       scene to render
+     * @param camera      camera of the render
+     * @param imageWriter image writer of the render
+     * @param format      file format of the produced image
+     */
+    public RenderJob(Scene scene, Camera camera, ImageWriter imageWriter, ImageFormat format) {
+        this.scene = scene;
+        this.imageWriter = imageWriter;
+        this.format = format;
+        this.camera = camera.setImageWriter(imageWriter).setRayTracer(new RayTracerBasic(scene));
+    }
+
+    /** getter for scene
+     * @return scene to render */
+    public Scene getScene() {
+        return scene;
+    }
+
+    /** getter for camera
+     * @return camera of the render */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /** getter for image writer
+     * @return image writer of the render */
+    public ImageWriter getImageWriter() {
+        return imageWriter;
+    }
+
+    /** getter for file format
+     * @return file format of the produced image */
+    public ImageFormat getFormat() {
+        return format;
+    }
+
+    /** renders the image
+     * @return this RenderJob object */
+    public RenderJob render() {
+        camera.renderImage();
+        return this;
+    }
+
+    /** produces the image file in the job's file format */
+    public void writeToImage() {
+        imageWriter.writeToImage(format);
+    }
+
+    /** queues the image to be encoded to a file in the job's file format by an asynchronous encoder
+     * @param encoder asynchronous image encoder */
+    public void writeToImage(AsyncImageEncoder encoder) {
+        encoder.submit(imageWriter, format);
+    }
+}
@@ -0,0 +1,26 @@
+package renderer;
+
+/** listener of the progress of renders of a camera.<br/>
+ * Progress is reported in steps of the print interval of the camera (see {@link Camera#setMultiThreading}),
+ * by the rendering thread whose pixel completes a step, so listeners should return quickly and be thread safe.
+ * @author Yoav Babayoff and Avishai Shachor */
+@FunctionalInterface
+public interface RenderListener {
+    /** prints the percentage of completion to the console (registered in every camera by default) */
+    RenderListener CONSOLE = progress ->
+            System.out.printf("%5.1f%%\n", (int) (1000l * progress.pixelsDone() / progress.totalPixels()) / 10d);
+
+    /** called on every step of progress of a render pass (and at its start)
+     * @param progress the progress of the pass */
+    void progress(RenderProgress progress);
+
+    /** called before a render starts
+     * @param progress the (empty) progress of the render */
+    default void renderStarted(RenderProgress progress) {
+    }
+
+    /** called after a render has finished
+     * @param progress the progress of the last pass of the render */
+    default void renderFinished(RenderProgress progress) {
+    }
+}
@@ -0,0 +1,130 @@
+package renderer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** MBean of the progress of a render of a camera. It reads the atomic counters of the pixel manager of the
+ * current pass, so reading it never blocks the rendering threads.
+ * @author Yoav Babayoff and Avishai Shachor */
+class RenderMonitor implements RenderMonitorMBean {
+    /** domain of the object names of the MBeans */
+    static final String DOMAIN = "raytracer";
+    /** counter of renders, for unique object names */
+    private static final AtomicLong RENDERS = new AtomicLong();
+
+    /** name of the rendered image */
+    private final String image;
+    /** amount of pixels of the image */
+    private final long totalPixels;
+    /** object name of the MBean */
+    private final ObjectName name;
+    /** pixel manager of the current pass, null before the first pass */
+    private volatile PixelManager pixelManager;
+    /** number of the current pass */
+    private volatile int pass;
+
+    /** constructor of the monitor of a render
+     * @param image name of the rendered image
+     * @param totalPixels amount of pixels of the image
+     * @throws IllegalStateException if the object name is malformed */
+    RenderMonitor(String image, long totalPixels) {
+        this.image = image;
+        this.totalPixels = totalPixels;
+        try {
+            name = new ObjectName(DOMAIN + ":type=Render,name=" + ObjectName.quote(image)
+                    + ",id=" + RENDERS.incrementAndGet());
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot name the render monitor of " + image, e);
+        }
+    }
+
+    /** registers the MBean in the platform MBean server
+     * @return the monitor itself
+     * @throws IllegalStateException if the MBean cannot be registered */
+    RenderMonitor register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register the render monitor of " + image, e);
+        }
+        return this;
+    }
+
+    /** unregisters the MBean from the platform MBean server (if it is registered) */
+    void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException ignore) {
+            // it was unregistered meanwhile
+        }
+    }
+
+    /** starts monitoring a pass of the render
+     * @param pixelManager pixel manager of the pass */
+    void startPass(PixelManager pixelManager) {
+        this.pixelManager = pixelManager;
+        ++pass;
+    }
+
+    /** takes a snapshot of the progress of the current pass
+     * @return the progress, empty before the first pass */
+    RenderProgress progress() {
+        PixelManager manager = pixelManager;
+        return manager == null ? new RenderProgress(image, 0, totalPixels, 0, 0, 0) : manager.progress();
+    }
+
+    /** getter for object name of the MBean
+     * @return object name */
+    ObjectName getName() {
+        return name;
+    }
+
+    @Override
+    public String getImageName() {
+        return image;
+    }
+
+    @Override
+    public int getPass() {
+        return pass;
+    }
+
+    @Override
+    public double getProgress() {
+        return progress().percentage();
+    }
+
+    @Override
+    public long getPixelsDone() {
+        return progress().pixelsDone();
+    }
+
+    @Override
+    public long getTotalPixels() {
+        return totalPixels;
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        return progress().elapsedSeconds();
+    }
+
+    @Override
+    public double getEtaSeconds() {
+        return progress().etaSeconds();
+    }
+
+    @Override
+    public double getRaysPerSecond() {
+        return progress().raysPerSecond();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return progress().activeThreads();
+    }
+}
@@ -0,0 +1,42 @@
+package renderer;
+
+/** management interface of the progress of a render, registered in the platform MBean server
+ * (as {@code raytracer:type=Render,...}) while {@link Camera#renderImage()} runs
+ * @author Yoav Babayoff and Avishai Shachor */
+public interface RenderMonitorMBean {
+    /** getter for name of the rendered image
+     * @return name of image */
+    String getImageName();
+
+    /** getter for the current pass of the render (edge anti aliasing renders in two passes)
+     * @return number of pass, from 1 */
+    int getPass();
+
+    /** getter for percentage of completion of the current pass
+     * @return percentage, between 0 and 100 */
+    double getProgress();
+
+    /** getter for amount of rendered pixels of the current pass
+     * @return amount of pixels */
+    long getPixelsDone();
+
+    /** getter for amount of pixels of the image
+     * @return amount of pixels */
+    long getTotalPixels();
+
+    /** getter for time since the start of the current pass
+     * @return elapsed time (seconds) */
+    double getElapsedSeconds();
+
+    /** getter for estimated time to completion of the current pass
+     * @return remaining time (seconds), NaN if no pixel has been rendered yet */
+    double getEtaSeconds();
+
+    /** getter for rate of tracing of camera rays in the current pass
+     * @return camera rays per second */
+    double getRaysPerSecond();
+
+    /** getter for amount of threads which are rendering pixels
+     * @return amount of threads */
+    int getActiveThreads();
+}
@@ -0,0 +1,36 @@
+package renderer;
+
+/** snapshot of the progress of a render (of its current pass, for renders of several passes)
+ * @param image name of the rendered image
+ * @param pixelsDone amount of pixels which have been rendered
+ * @param totalPixels amount of pixels of the image
+ * @param rays amount of camera rays which have been traced
+ * @param elapsedNanos time since the start of the pass (nanoseconds)
+ * @param activeThreads amount of threads which are rendering pixels
+ * @author Yoav Babayoff and Avishai Shachor */
+public record RenderProgress(String image, long pixelsDone, long totalPixels, long rays, long elapsedNanos,
+                             int activeThreads) {
+    /** percentage of completion
+     * @return percentage of rendered pixels, between 0 and 100 */
+    public double percentage() {
+        return totalPixels == 0 ? 100 : 100d * pixelsDone / totalPixels;
+    }
+
+    /** time since the start of the pass
+     * @return elapsed time (seconds) */
+    public double elapsedSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    /** rate of tracing of camera rays
+     * @return camera rays per second, 0 if no time has elapsed */
+    public double raysPerSecond() {
+        return elapsedNanos == 0 ? 0 : rays / elapsedSeconds();
+    }
+
+    /** estimated time to completion, by the average rate of rendering of pixels so far
+     * @return estimated remaining time (seconds), NaN if no pixel has been rendered yet */
+    public double etaSeconds() {
+        return pixelsDone == 0 ? Double.NaN : elapsedSeconds() * (totalPixels - pixelsDone) / pixelsDone;
+    }
+}
@@ -0,0 +1,52 @@
+package renderer;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Source of the random numbers of sampling - the jitter of beams of rays and the russian roulette.<br/>
+ * By default renders are not deterministic: every thread draws from its {@link ThreadLocalRandom}. A camera with
+ * a seed ({@link Camera#setSeed(long)}) reseeds the generator of the rendering thread at every pixel by the seed
+ * and the position of the pixel, and at every sample of a grid of rays by a seed of the grid and the position of
+ * the sample, so the samples of a pixel depend neither on the threads which render it nor on the order of the
+ * pixels and samples.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+final class SampleRandom {
+    /** seeded generator of every thread, null while the thread renders without a seed */
+    private static final ThreadLocal<Random> SEEDED = new ThreadLocal<>();
+
+    /** no instances */
+    private SampleRandom() {
+    }
+
+    /** seeds the generator of the current thread for a pixel
+     * @param seed seed of the render
+     * @param j column of pixel
+     * @param i row of pixel */
+    static void seed(long seed, int j, int i) {
+        Random random = SEEDED.get();
+        if (random == null) SEEDED.set(random = new Random());
+        random.setSeed(seed ^ j * 0x9E3779B97F4A7C15L ^ i * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    /** returns the current thread to drawing without a seed */
+    static void unseed() {
+        SEEDED.remove();
+    }
+
+    /** draws a random number
+     * @return uniformly distributed number between 0 (inclusive) and 1 (exclusive) */
+    static double nextDouble() {
+        Random random = SEEDED.get();
+        return random == null ? ThreadLocalRandom.current().nextDouble() : random.nextDouble();
+    }
+
+    /** draws a random seed (of the samples of a grid)
+     * @return uniformly distributed long */
+    static long nextLong() {
+        Random random = SEEDED.get();
+        return random == null ? ThreadLocalRandom.current().nextLong() : random.nextLong();
+    }
+}
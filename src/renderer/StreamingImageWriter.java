@@ -0,0 +1,291 @@
+package renderer;
+
+import primitives.Color;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Image writer for very large images, which never keeps the whole pixel color matrix in memory.<br/>
+ * The image is divided to bands of rows. A band is kept in memory only from the first write of one of its pixels
+ * until all of its pixels are written, and then it is encoded and written to the png file - in row order,
+ * so a band which is finished before the bands above it waits for them.<br/>
+ * Every pixel must be written exactly once (so a grid cannot be printed over the image), and writing is finished
+ * by {@link #writeToImage()}. After an I/O error the file is closed, and the writer rejects any further writing.<br/>
+ * The image is not kept in memory, so it is an {@link ImageSink} of a render and not an {@link ImageWriter} - it
+ * cannot be read back, tone mapped from HDR, encoded asynchronously or written in other formats.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class StreamingImageWriter implements ImageSink {
+    /** png file signature */
+    private static final byte[] PNG_SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    /** size of compressed data buffer (and maximal IDAT chunk) */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /** amount of pixels in a row */
+    private final int nX;
+    /** amount of pixels in a column */
+    private final int nY;
+    /** name of produced image file (without extension) */
+    private final String imageName;
+    /** logger of I/O errors */
+    private final Logger logger = Logger.getLogger("ImageWriter");
+    /** amount of rows in a band */
+    private final int bandHeight;
+    /** bands which are being written (index of band -> band) */
+    private final Map<Integer, Band> bands = new ConcurrentHashMap<>();
+    /** index of the next band to be encoded */
+    private volatile int nextBand = 0;
+    /** compressor of encoded rows */
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    /** compressed data buffer */
+    private final byte[] compressed = new byte[CHUNK_SIZE];
+    /** png file output, opened when the first band is encoded */
+    private DataOutputStream out;
+    /** I/O error which closed the png file, null while the file may be written */
+    private volatile IOException failure;
+
+    /** a band of rows which is being written */
+    private class Band {
+        /** packed RGB colors of the band's pixels, row by row */
+        final int[] rgbs;
+        /** amount of pixels which were not written yet */
+        final AtomicInteger remaining;
+
+        /** constructor for Band
+         * @param index index of band */
+        Band(int index) {
+            int rows = Math.min(bandHeight, nY - index * bandHeight);
+            rgbs = new int[rows * nX];
+            remaining = new AtomicInteger(rgbs.length);
+        }
+    }
+
+    /**
+     * Streaming image writer constructor
+     * @param imageName  the name of png file
+     * @param nX         amount of pixels by Width
+     * @param nY         amount of pixels by height
+     * @param bandHeight amount of rows encoded together
+     * @throws IllegalArgumentException if bandHeight <= 0
+     */
+    public StreamingImageWriter(String imageName, int nX, int nY, int bandHeight) {
+        if (bandHeight <= 0) throw new IllegalArgumentException("band height must be positive");
+        this.imageName = imageName;
+        this.nX = nX;
+        this.nY = nY;
+        this.bandHeight = bandHeight;
+    }
+
+    @Override
+    public int getNx() {
+        return nX;
+    }
+
+    @Override
+    public int getNy() {
+        return nY;
+    }
+
+    @Override
+    public String getImageName() {
+        return imageName;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException if the band of the pixel was already written to the file, or the file was
+     *                               closed by an I/O error
+     */
+    @Override
+    public void writePixel(int xIndex, int yIndex, Color color) {
+        writeRGB(xIndex, yIndex, color.getRGB());
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException if the band of a pixel was already written to the file, or the file was
+     *                               closed by an I/O error
+     */
+    @Override
+    public void writeTile(int xIndex, int yIndex, int width, int height, int[] rgbs) {
+        if (xIndex < 0 || yIndex < 0 || xIndex + width > nX || yIndex + height > nY)
+            throw new IllegalArgumentException("tile exceeds the image");
+        if (rgbs.length < width * height)
+            throw new IllegalArgumentException("not enough colors for the tile");
+        for (int i = 0; i < height; ++i)
+            for (int j = 0; j < width; ++j)
+                writeRGB(xIndex + j, yIndex + i, rgbs[i * width + j]);
+    }
+
+    /** writes a packed color of a pixel to its band, and encodes the band if it is finished
+     * @param xIndex X-axis index of the pixel
+     * @param yIndex Y-axis index of the pixel
+     * @param rgb packed RGB color of the pixel
+     * @throws IllegalStateException if the band of the pixel was already written to the file, or the file was
+     *                               closed by an I/O error
+     */
+    private void writeRGB(int xIndex, int yIndex, int rgb) {
+        checkOpen();
+        int index = yIndex / bandHeight;
+        if (index < nextBand) throw new IllegalStateException("pixel was already written to the image file");
+        Band band = bands.computeIfAbsent(index, Band::new);
+        band.rgbs[(yIndex - index * bandHeight) * nX + xIndex] = rgb;
+        if (band.remaining.decrementAndGet() == 0) encodeBands();
+    }
+
+    /**
+     * Finishes the png file of the image
+     * @throws IllegalStateException if not all the pixels were written, or on I/O error (now or while the bands
+     *                               were written)
+     */
+    @Override
+    public synchronized void writeToImage() {
+        checkOpen();
+        int amountBands = (nY + bandHeight - 1) / bandHeight;
+        if (nextBand < amountBands) throw new IllegalStateException("not all the pixels of the image were written");
+        if (out == null) return; // already finished
+        try {
+            deflater.finish();
+            while (!deflater.finished()) writeCompressed(Deflater.NO_FLUSH);
+            writeChunk("IEND", new byte[0], 0);
+            out.close();
+            out = null;
+            deflater.end();
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /** checks that the png file was not closed by an I/O error
+     * @throws IllegalStateException if the file was closed by an I/O error */
+    private void checkOpen() {
+        if (failure != null)
+            throw new IllegalStateException("image file was closed by an I/O error", failure);
+    }
+
+    /** closes the png file after an I/O error, so the writer rejects any further writing
+     * @param e the I/O error
+     * @return exception to throw */
+    private IllegalStateException fail(IOException e) {
+        logger.log(Level.SEVERE, "I/O error", e);
+        failure = e;
+        bands.clear();
+        deflater.end();
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException closing) {
+                e.addSuppressed(closing);
+            }
+            out = null;
+        }
+        return new IllegalStateException("I/O error - may be missing directory " + ImageWriter.FOLDER_PATH, e);
+    }
+
+    /** encodes all the finished bands which have no unfinished band above them
+     * @throws IllegalStateException on I/O error */
+    private synchronized void encodeBands() {
+        checkOpen();
+        try {
+            Band band;
+            while ((band = bands.get(nextBand)) != null && band.remaining.get() == 0) {
+                if (out == null) openFile();
+                encodeBand(band);
+                bands.remove(nextBand++);
+            }
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /** opens the png file and writes its header
+     * @throws IOException on I/O error */
+    private void openFile() throws IOException {
+        OutputStream file = Files.newOutputStream(Path.of(ImageWriter.FOLDER_PATH, imageName + ".png"));
+        out = new DataOutputStream(new BufferedOutputStream(file, CHUNK_SIZE));
+        out.write(PNG_SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, nX);
+        putInt(header, 4, nY);
+        header[8] = 8; // bit depth
+        header[9] = 2; // color type - RGB
+        writeChunk("IHDR", header, header.length);
+    }
+
+    /** filters and compresses the rows of a band
+     * @param band the band
+     * @throws IOException on I/O error */
+    private void encodeBand(Band band) throws IOException {
+        byte[] row = new byte[1 + 3 * nX];
+        row[0] = 1; // "sub" filter - every byte minus the same byte of the pixel to the left
+        for (int k = 0; k < band.rgbs.length; k += nX) {
+            int left = 0;
+            for (int j = 0; j < nX; ++j) {
+                int rgb = band.rgbs[k + j];
+                row[1 + 3 * j] = (byte) ((rgb >> 16) - (left >> 16));
+                row[2 + 3 * j] = (byte) ((rgb >> 8) - (left >> 8));
+                row[3 + 3 * j] = (byte) (rgb - left);
+                left = rgb;
+            }
+            deflater.setInput(row);
+            while (!deflater.needsInput()) writeCompressed(Deflater.NO_FLUSH);
+        }
+        // push the whole band to the file, so it is not lost if the render crashes
+        int length;
+        do {
+            length = writeCompressed(Deflater.SYNC_FLUSH);
+        } while (length == compressed.length);
+        out.flush();
+    }
+
+    /** writes the data compressed so far in an IDAT chunk
+     * @param flush flush mode of deflater
+     * @return length of written data
+     * @throws IOException on I/O error */
+    private int writeCompressed(int flush) throws IOException {
+        int length = deflater.deflate(compressed, 0, compressed.length, flush);
+        if (length > 0) writeChunk("IDAT", compressed, length);
+        return length;
+    }
+
+    /** writes a png chunk
+     * @param type type of chunk
+     * @param data data of chunk
+     * @param length length of data
+     * @throws IOException on I/O error */
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /** puts a big-endian int in a byte array
+     * @param array the array
+     * @param offset offset of int in array
+     * @param value the int */
+    private static void putInt(byte[] array, int offset, int value) {
+        array[offset] = (byte) (value >> 24);
+        array[offset + 1] = (byte) (value >> 16);
+        array[offset + 2] = (byte) (value >> 8);
+        array[offset + 3] = (byte) value;
+    }
+}
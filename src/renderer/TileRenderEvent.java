@@ -0,0 +1,47 @@
+package renderer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of rendering a tile or a batch of pixels by a thread - the bounds of the pixels
+ * relate the event (its thread and duration) to a region of the image
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+@Name("raytracer.TileRender")
+@Label("Tile Render")
+@Category({"Ray Tracer", "Render"})
+@Description("Rendering of a tile or a batch of pixels by a thread")
+class TileRenderEvent extends Event {
+    /** name of image */
+    @Label("Image")
+    String image;
+
+    /** lowest column of the pixels */
+    @Label("First Column")
+    int firstColumn;
+
+    /** lowest row of the pixels */
+    @Label("First Row")
+    int firstRow;
+
+    /** highest column of the pixels */
+    @Label("Last Column")
+    int lastColumn;
+
+    /** highest row of the pixels */
+    @Label("Last Row")
+    int lastRow;
+
+    /** amount of rendered pixels */
+    @Label("Pixels")
+    int pixels;
+
+    /** amount of camera rays traced by the thread */
+    @Label("Rays")
+    long rays;
+}
@@ -0,0 +1,170 @@
+package renderer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Timeline of the tiles (or batches of pixels) rendered by every thread during a render, and of the render
+ * passes, for diagnosing load imbalance - idle gaps between tiles, straggler tiles at the end of a pass and the
+ * overhead of scheduling.<br/>
+ * The timeline is exported in the Chrome trace-event JSON format (see {@link #writeJson(Path)}), which is opened
+ * by trace viewers such as chrome://tracing or Perfetto: every thread is a track of its tiles, and the passes are
+ * a separate track.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public final class TileTrace {
+    /** id of the track of the passes (ids of threads are positive) */
+    private static final long PASS_TRACK = 0;
+
+    /** span of time of rendering a tile by a thread
+     * @param thread name of thread
+     * @param threadId id of thread
+     * @param pass number of render pass, from 1
+     * @param firstColumn lowest column of the pixels of the tile
+     * @param firstRow lowest row of the pixels of the tile
+     * @param lastColumn highest column of the pixels of the tile
+     * @param lastRow highest row of the pixels of the tile
+     * @param pixels amount of pixels of the tile
+     * @param startNanos start of the tile, since the start of the render (nanoseconds)
+     * @param endNanos end of the tile, since the start of the render (nanoseconds) */
+    public record Span(String thread, long threadId, int pass, int firstColumn, int firstRow, int lastColumn,
+                       int lastRow, int pixels, long startNanos, long endNanos) {
+    }
+
+    /** span of time of a render pass
+     * @param pass number of render pass, from 1
+     * @param startNanos start of the pass, since the start of the render (nanoseconds)
+     * @param endNanos end of the pass, since the start of the render (nanoseconds) */
+    public record Pass(int pass, long startNanos, long endNanos) {
+    }
+
+    /** name of the rendered image */
+    private final String image;
+    /** start of the render (nanoseconds) */
+    private final long origin = System.nanoTime();
+    /** spans of the tiles, added by all threads */
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    /** spans of the passes */
+    private final Queue<Pass> passes = new ConcurrentLinkedQueue<>();
+
+    /** constructor for the trace of a render, which starts now
+     * @param image name of the rendered image */
+    TileTrace(String image) {
+        this.image = image;
+    }
+
+    /** getter for the current time of the trace
+     * @return nanoseconds since the start of the render */
+    long now() {
+        return System.nanoTime() - origin;
+    }
+
+    /** adds a tile rendered by the current thread
+     * @param pass number of render pass
+     * @param firstColumn lowest column of the pixels
+     * @param firstRow lowest row of the pixels
+     * @param lastColumn highest column of the pixels
+     * @param lastRow highest row of the pixels
+     * @param pixels amount of pixels
+     * @param startNanos start of the tile (by {@link #now()}) */
+    void addTile(int pass, int firstColumn, int firstRow, int lastColumn, int lastRow, int pixels, long startNanos) {
+        Thread thread = Thread.currentThread();
+        spans.add(new Span(thread.getName(), thread.getId(), pass, firstColumn, firstRow, lastColumn, lastRow,
+                pixels, startNanos, now()));
+    }
+
+    /** adds a render pass which ends now
+     * @param pass number of render pass
+     * @param startNanos start of the pass (by {@link #now()}) */
+    void addPass(int pass, long startNanos) {
+        passes.add(new Pass(pass, startNanos, now()));
+    }
+
+    /** getter for name of the rendered image
+     * @return name of image */
+    public String getImageName() {
+        return image;
+    }
+
+    /** getter for the tiles of the render, by their start time
+     * @return spans of the tiles */
+    public List<Span> getSpans() {
+        List<Span> sorted = new ArrayList<>(spans);
+        sorted.sort(Comparator.comparingLong(Span::startNanos));
+        return sorted;
+    }
+
+    /** getter for the passes of the render, by their order
+     * @return spans of the passes */
+    public List<Pass> getPasses() {
+        List<Pass> sorted = new ArrayList<>(passes);
+        sorted.sort(Comparator.comparingInt(Pass::pass));
+        return sorted;
+    }
+
+    /** writes the timeline in the Chrome trace-event JSON format - a complete event ("X") of every tile on the
+     * track of its thread with its bounds and pixels as arguments, a complete event of every pass on a track of
+     * passes, and metadata events ("M") of the names of the tracks
+     * @param file the JSON file
+     * @throws IOException on I/O error */
+    public void writeJson(Path file) throws IOException {
+        List<Span> tiles = getSpans();
+        Map<Long, String> threads = new LinkedHashMap<>();
+        for (Span span : tiles) threads.putIfAbsent(span.threadId(), span.thread());
+        try (Writer out = Files.newBufferedWriter(file)) {
+            out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+            out.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + PASS_TRACK
+                    + ",\"args\":{\"name\":" + quote("render " + image) + "}},\n");
+            out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + PASS_TRACK
+                    + ",\"args\":{\"name\":\"passes\"}}");
+            for (Map.Entry<Long, String> thread : threads.entrySet())
+                out.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey()
+                        + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+            for (Pass pass : getPasses())
+                out.write(",\n" + complete("pass " + pass.pass(), "pass", PASS_TRACK, pass.startNanos(),
+                        pass.endNanos()) + "}");
+            for (Span span : tiles)
+                out.write(",\n" + complete("tile", "tile", span.threadId(), span.startNanos(), span.endNanos())
+                        + ",\"args\":{\"pass\":" + span.pass() + ",\"firstColumn\":" + span.firstColumn()
+                        + ",\"firstRow\":" + span.firstRow() + ",\"lastColumn\":" + span.lastColumn()
+                        + ",\"lastRow\":" + span.lastRow() + ",\"pixels\":" + span.pixels() + "}}");
+            out.write("\n]}\n");
+        }
+    }
+
+    /** formats the beginning of a complete event (without its closing brace)
+     * @param name name of event
+     * @param category category of event
+     * @param track id of track of event
+     * @param startNanos start of event (nanoseconds)
+     * @param endNanos end of event (nanoseconds)
+     * @return JSON of the event */
+    private static String complete(String name, String category, long track, long startNanos, long endNanos) {
+        return String.format(Locale.ROOT, "{\"name\":\"%s\",\"cat\":\"%s\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,"
+                + "\"ts\":%.3f,\"dur\":%.3f", name, category, track, startNanos / 1e3, (endNanos - startNanos) / 1e3);
+    }
+
+    /** quotes a string for JSON
+     * @param text the string
+     * @return JSON string literal */
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') quoted.append('\\').append(c);
+            else if (c < ' ') quoted.append(String.format("\\u%04x", (int) c));
+            else quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,30 @@
+package renderer;
+
+/** interface for mapping a high dynamic range color component to the printable range
+ * (both in 0..255 units, the result is clamped to 255 when quantized)
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+@FunctionalInterface
+public interface ToneMapper {
+    /** no mapping - components above 255 are clamped */
+    ToneMapper CLAMP = component -> component;
+
+    /** creates an extended Reinhard tone mapper, compressing bright components smoothly instead of clamping them
+     * @param white the component value mapped to 255 (white)
+     * @return Reinhard tone mapper
+     * @throws IllegalArgumentException if white <= 0
+     */
+    static ToneMapper reinhard(double white) {
+        if (white <= 0) throw new IllegalArgumentException("white point must be positive");
+        double w = white / 255;
+        return component -> {
+            double l = component / 255;
+            return 255 * l * (1 + l / (w * w)) / (1 + l);
+        };
+    }
+
+    /** maps a color component
+     * @param component high dynamic range component
+     * @return mapped component */
+    double map(double component);
+}
@@ -0,0 +1,1163 @@
+package scene;
+
+import geometries.Mesh;
+import geometries.PagedMesh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Importer of triangle meshes from Wavefront OBJ files and binary PLY files into a compact {@link Mesh},
+ * which may be added to the geometries of a scene.<br/>
+ * The file is memory-mapped and divided to chunks which are parsed by several threads - OBJ chunks are split at
+ * line ends (first counting the vertices of every chunk, so relative indices can be resolved), and PLY vertex and
+ * triangle records are split at record boundaries. Only vertex positions and faces are read - faces of more than
+ * 3 vertices are divided to triangles as a fan, and all other data (normals, texture coordinates, colors,
+ * groups, materials) is skipped.<br/>
+ * A mesh larger than the heap is imported into a paged mesh file by {@link #importPaged} - its vertices are
+ * written to a temporary memory-mapped file, and its faces are streamed with the coordinates of their vertices
+ * to a {@link PagedMesh.Writer}, which builds the hierarchy out of core.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class MeshImporter {
+    /** maximum size of a memory-mapped chunk */
+    private static final int MAX_CHUNK = 1 << 28;
+    /** minimum size of a chunk (smaller files are not divided) */
+    private static final int MIN_CHUNK = 1 << 20;
+    /** size of the buffer of the sequential PLY reader */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** maximum size of a PLY header */
+    private static final int MAX_HEADER = 1 << 16;
+    /** largest amount of significant digits of a number which is parsed exactly without Float.parseFloat */
+    private static final int MAX_EXACT_DIGITS = 15;
+    /** amount of vertices or faces which a thread streaming a mesh keeps on the heap */
+    private static final int BATCH = 1 << 14;
+    /** powers of 10 which are exact doubles */
+    private static final double[] POWERS_OF_10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /** no instances */
+    private MeshImporter() {
+    }
+
+    /**
+     * Imports a mesh from an OBJ or binary PLY file, by the file extension
+     * @param path         path of the file
+     * @param threadsCount amount of threads parsing the file, 0 for parsing by the calling thread
+     * @return the mesh
+     * @throws IOException              if reading the file went wrong
+     * @throws IllegalArgumentException if the file is not a supported mesh file or is malformed
+     */
+    public static Mesh importMesh(Path path, int threadsCount) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".obj")) return importOBJ(path, threadsCount);
+        if (name.endsWith(".ply")) return importPLY(path, threadsCount);
+        throw new IllegalArgumentException("unsupported mesh file " + path);
+    }
+
+    /**
+     * Imports a mesh from an OBJ or binary PLY file (by the file extension) into a paged mesh file, without
+     * keeping the mesh on the heap
+     * @param path         path of the mesh file
+     * @param file         path of the paged mesh file
+     * @param blockFaces   maximum amount of faces in a block of the paged mesh
+     * @param threadsCount amount of threads parsing the file, 0 for parsing by the calling thread
+     * @throws IOException              if reading the file or writing the paged mesh file went wrong
+     * @throws IllegalArgumentException if the file is not a supported mesh file, is malformed or has no faces
+     */
+    public static void importPaged(Path path, Path file, int blockFaces, int threadsCount) throws IOException {
+        if (threadsCount < 0) throw new IllegalArgumentException("thread amount cannot be less than 0 threads");
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean obj = name.endsWith(".obj");
+        if (!obj && !name.endsWith(".ply")) throw new IllegalArgumentException("unsupported mesh file " + path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             VertexFile vertices = new VertexFile(file.toAbsolutePath().getParent());
+             PagedMesh.Writer writer = new PagedMesh.Writer(file, blockFaces)) {
+            if (obj) streamOBJ(channel, vertices, writer, threadsCount);
+            else streamPLY(channel, vertices, writer, threadsCount);
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // ***************** OBJ ********************** //
+
+    /**
+     * Imports a mesh from a Wavefront OBJ file
+     * @param path         path of the file
+     * @param threadsCount amount of threads parsing the file, 0 for parsing by the calling thread
+     * @return the mesh
+     * @throws IOException              if reading the file went wrong
+     * @throws IllegalArgumentException if the file is malformed or has no faces
+     */
+    public static Mesh importOBJ(Path path, int threadsCount) throws IOException {
+        if (threadsCount < 0) throw new IllegalArgumentException("thread amount cannot be less than 0 threads");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<ObjChunk> chunks = objChunks(channel, threadsCount);
+            run(threadsCount, chunks.stream().map(chunk -> (Runnable) chunk::countVertices).toList());
+            int base = 0;
+            for (ObjChunk chunk : chunks) {
+                chunk.base = base;
+                base += chunk.amountVertices;
+            }
+            run(threadsCount, chunks.stream().map(chunk -> (Runnable) chunk::parse).toList());
+            FloatArray vertices = new FloatArray(3 * base);
+            IntArray indices = new IntArray(chunks.stream().mapToInt(chunk -> chunk.indices.size).sum());
+            for (ObjChunk chunk : chunks) {
+                vertices.addAll(chunk.vertices);
+                indices.addAll(chunk.indices);
+            }
+            return new Mesh(vertices.toArray(), indices.toArray());
+        }
+    }
+
+    /** streams the faces of an OBJ file - the vertices are written to the vertex file first, and then the faces
+     * are parsed and streamed with the coordinates of their vertices
+     * @param channel file channel
+     * @param vertices the vertex file
+     * @param writer writer of the paged mesh
+     * @param threadsCount amount of threads
+     * @throws IOException if reading the file went wrong */
+    private static void streamOBJ(FileChannel channel, VertexFile vertices, PagedMesh.Writer writer, int threadsCount)
+            throws IOException {
+        List<ObjChunk> chunks = objChunks(channel, threadsCount);
+        run(threadsCount, chunks.stream().map(chunk -> (Runnable) chunk::countVertices).toList());
+        int base = 0;
+        for (ObjChunk chunk : chunks) {
+            chunk.base = base;
+            chunk.vertexFile = vertices;
+            base += chunk.amountVertices;
+        }
+        run(threadsCount, chunks.stream().map(chunk -> (Runnable) () -> chunk.parse(true, false)).toList());
+        vertices.map(base);
+        run(threadsCount, chunks.stream().map(chunk -> (Runnable) () -> {
+            FaceStream faces = new FaceStream(vertices, writer);
+            chunk.triangles = faces;
+            chunk.parse(false, true);
+            faces.flush();
+        }).toList());
+    }
+
+    /** divides an OBJ file to chunks which start at line starts
+     * @param channel file channel
+     * @param threadsCount amount of threads
+     * @return chunks of the file
+     * @throws IOException if reading the file went wrong */
+    private static List<ObjChunk> objChunks(FileChannel channel, int threadsCount) throws IOException {
+        long size = channel.size();
+        int amount = (int) Math.max(Math.min(4L * Math.max(threadsCount, 1), size / MIN_CHUNK), 1);
+        amount = (int) Math.max(amount, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+        List<ObjChunk> chunks = new ArrayList<>(amount);
+        long start = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int k = 1; k <= amount && start < size; ++k) {
+            long end = k == amount ? size : Math.max(start, size * k / amount);
+            // move the end of chunk to after the end of its last line
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; ++i)
+                    if (probe.get(i) == '\n') newline = i;
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            if (end > start) chunks.add(new ObjChunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /** a chunk of whole lines of an OBJ file */
+    private static class ObjChunk {
+        /** mapped bytes of chunk */
+        private final MappedByteBuffer buffer;
+        /** amount of vertices in chunk */
+        int amountVertices;
+        /** amount of vertices in former chunks */
+        int base;
+        /** coordinates of vertices of chunk */
+        final FloatArray vertices = new FloatArray(1024);
+        /** vertex indices of triangles of chunk */
+        final IntArray indices = new IntArray(1024);
+        /** receiver of the triangles of chunk - its vertex indices by default */
+        TriangleSink triangles = (a, b, c) -> {
+            indices.add(a);
+            indices.add(b);
+            indices.add(c);
+        };
+        /** file of vertices, to which the vertices are written in batches instead of being kept, null to keep them */
+        VertexFile vertexFile;
+        /** amount of vertex lines parsed so far */
+        private int parsedVertices;
+        /** position of next byte to parse */
+        private int position;
+
+        /** constructor for ObjChunk
+         * @param buffer mapped bytes of chunk */
+        ObjChunk(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /** counts the vertex lines of the chunk */
+        void countVertices() {
+            int limit = buffer.limit();
+            for (position = 0; position < limit; skipLine()) {
+                skipSpaces();
+                if (isKeyword('v')) ++amountVertices;
+            }
+        }
+
+        /** parses the vertex and face lines of the chunk
+         * @throws IllegalArgumentException if a line is malformed */
+        void parse() {
+            parse(true, true);
+        }
+
+        /** parses the lines of the chunk
+         * @param readVertices whether the vertex lines are parsed (otherwise they are only counted)
+         * @param readFaces whether the face lines are parsed
+         * @throws IllegalArgumentException if a line is malformed */
+        void parse(boolean readVertices, boolean readFaces) {
+            int limit = buffer.limit();
+            parsedVertices = 0;
+            for (position = 0; position < limit; skipLine()) {
+                skipSpaces();
+                if (isKeyword('v')) {
+                    ++parsedVertices;
+                    if (!readVertices) continue;
+                    ++position;
+                    for (int k = 0; k < 3; ++k) vertices.add(nextNumber());
+                    if (vertexFile != null && vertices.size >= 3 * BATCH) writeVertices();
+                } else if (readFaces && isKeyword('f')) {
+                    ++position;
+                    parseFace();
+                }
+            }
+            if (vertexFile != null && readVertices) writeVertices();
+        }
+
+        /** writes the kept vertices to the vertex file */
+        private void writeVertices() {
+            vertexFile.write(base + parsedVertices - vertices.size / 3, vertices.items, vertices.size);
+            vertices.size = 0;
+        }
+
+        /** parses the vertex indices of a face line and adds its triangles (as a fan)
+         * @throws IllegalArgumentException if the face has less than 3 vertices or an index is 0 */
+        private void parseFace() {
+            int first = -1, previous = -1, count = 0;
+            while (true) {
+                skipSpaces();
+                if (position >= buffer.limit() || !isIndexStart(buffer.get(position))) break;
+                int index = nextIndex();
+                // skip texture and normal indices
+                while (position < buffer.limit() && !isSpace(buffer.get(position)) && !isLineEnd(buffer.get(position)))
+                    ++position;
+                if (count == 0) first = index;
+                else if (count >= 2) triangles.triangle(first, previous, index);
+                previous = index;
+                ++count;
+            }
+            if (count < 3) throw new IllegalArgumentException("a face must have at least 3 vertices");
+        }
+
+        /** parses a vertex index, 1-based or negative relative to the last vertex
+         * @return 0-based index of vertex in the mesh
+         * @throws IllegalArgumentException if the index is 0 */
+        private int nextIndex() {
+            boolean negative = buffer.get(position) == '-';
+            if (negative) ++position;
+            int index = 0;
+            byte c;
+            while (position < buffer.limit() && (c = buffer.get(position)) >= '0' && c <= '9') {
+                index = index * 10 + (c - '0');
+                ++position;
+            }
+            if (index == 0) throw new IllegalArgumentException("vertex index cannot be 0");
+            return negative ? base + parsedVertices - index : index - 1;
+        }
+
+        /** parses the next number of a line
+         * @return the number
+         * @throws IllegalArgumentException if the next part of the line is not a number */
+        private float nextNumber() {
+            skipSpaces();
+            int start = position, limit = buffer.limit();
+            byte c = position < limit ? buffer.get(position) : 0;
+            boolean negative = c == '-';
+            if (negative || c == '+') ++position;
+            long mantissa = 0;
+            int significant = 0, exponent = 0;
+            boolean digits = false, point = false;
+            for (; position < limit; ++position) {
+                c = buffer.get(position);
+                if (c == '.' && !point) {
+                    point = true;
+                    continue;
+                }
+                if (c < '0' || c > '9') break;
+                digits = true;
+                if (mantissa == 0 && c == '0') {
+                    if (point) --exponent;
+                    continue;
+                }
+                if (++significant <= MAX_EXACT_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (point) --exponent;
+                } else if (!point) ++exponent;
+            }
+            if (!digits) throw new IllegalArgumentException("not a number in OBJ file");
+            if (position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+                ++position;
+                boolean negativeExponent = position < limit && buffer.get(position) == '-';
+                if (negativeExponent || position < limit && buffer.get(position) == '+') ++position;
+                int e = 0;
+                boolean exponentDigits = false;
+                for (; position < limit && (c = buffer.get(position)) >= '0' && c <= '9'; ++position) {
+                    exponentDigits = true;
+                    if (e < 1000) e = e * 10 + (c - '0');
+                }
+                if (!exponentDigits) throw new IllegalArgumentException("not a number in OBJ file");
+                exponent += negativeExponent ? -e : e;
+            }
+            if (exponent < -22 || exponent > 22) {
+                byte[] bytes = new byte[position - start];
+                buffer.get(start, bytes);
+                return Float.parseFloat(new String(bytes, StandardCharsets.US_ASCII));
+            }
+            double number = exponent < 0 ? mantissa / POWERS_OF_10[-exponent] : mantissa * POWERS_OF_10[exponent];
+            return (float) (negative ? -number : number);
+        }
+
+        /** checks whether a line starts with a single letter keyword followed by a space
+         * @param keyword the keyword
+         * @return true if the line is of the keyword */
+        private boolean isKeyword(char keyword) {
+            return position + 1 < buffer.limit() && buffer.get(position) == keyword && isSpace(buffer.get(position + 1));
+        }
+
+        /** skips spaces and tabs */
+        private void skipSpaces() {
+            while (position < buffer.limit() && isSpace(buffer.get(position))) ++position;
+        }
+
+        /** moves to the start of next line */
+        private void skipLine() {
+            while (position < buffer.limit() && buffer.get(position) != '\n') ++position;
+            ++position;
+        }
+
+        /** checks whether a byte is a space or a tab
+         * @param c the byte
+         * @return true if it is a space or a tab */
+        private static boolean isSpace(byte c) {
+            return c == ' ' || c == '\t';
+        }
+
+        /** checks whether a byte ends a line
+         * @param c the byte
+         * @return true if it is a line end */
+        private static boolean isLineEnd(byte c) {
+            return c == '\n' || c == '\r';
+        }
+
+        /** checks whether a byte may start a vertex index
+         * @param c the byte
+         * @return true if it is a digit or a minus */
+        private static boolean isIndexStart(byte c) {
+            return c == '-' || c >= '0' && c <= '9';
+        }
+    }
+
+    // ***************** PLY ********************** //
+
+    /**
+     * Imports a mesh from a binary (little or big endian) PLY file
+     * @param path         path of the file
+     * @param threadsCount amount of threads parsing the file, 0 for parsing by the calling thread
+     * @return the mesh
+     * @throws IOException              if reading the file went wrong
+     * @throws IllegalArgumentException if the file is not a binary PLY file, is malformed or has no faces
+     */
+    public static Mesh importPLY(Path path, int threadsCount) throws IOException {
+        if (threadsCount < 0) throw new IllegalArgumentException("thread amount cannot be less than 0 threads");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            PlyHeader header = new PlyHeader(channel);
+            PlyReader reader = new PlyReader(channel, header.dataOffset, header.order);
+            float[] vertices = null;
+            int[] indices = null;
+            for (PlyElement element : header.elements) {
+                switch (element.name) {
+                    case "vertex" -> {
+                        vertices = readVertices(channel, header.order, reader.position(), element, threadsCount);
+                        reader.seek(reader.position() + (long) element.count * element.stride());
+                    }
+                    case "face" -> {
+                        indices = readTriangles(channel, header.order, reader.position(), element, threadsCount);
+                        if (indices != null) reader.seek(reader.position() + (long) element.count * element.triangleStride());
+                        else {
+                            IntArray faces = new IntArray(3 * element.count);
+                            readFaces(reader, element, (a, b, c) -> {
+                                faces.add(a);
+                                faces.add(b);
+                                faces.add(c);
+                            });
+                            indices = faces.toArray();
+                        }
+                    }
+                    default -> reader.skip(element);
+                }
+                if (vertices != null && indices != null) break;
+            }
+            if (vertices == null || indices == null) throw new IllegalArgumentException("PLY file must have vertices and faces");
+            return new Mesh(vertices, indices);
+        }
+    }
+
+    /** reads vertex positions of a PLY file, chunks of records in parallel
+     * @param channel file channel
+     * @param order byte order
+     * @param offset offset of first vertex record in file
+     * @param element vertex element
+     * @param threadsCount amount of threads
+     * @return x,y,z coordinates of vertices
+     * @throws IOException if reading the file went wrong */
+    private static float[] readVertices(FileChannel channel, ByteOrder order, long offset, PlyElement element,
+                                        int threadsCount) throws IOException {
+        int stride = element.stride();
+        int px = element.offsetOf("x"), py = element.offsetOf("y"), pz = element.offsetOf("z");
+        PlyProperty x = element.property("x"), y = element.property("y"), z = element.property("z");
+        float[] vertices = new float[3 * element.count];
+        List<Runnable> tasks = new ArrayList<>();
+        for (Range range : ranges(element.count, stride, threadsCount)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    offset + (long) range.from * stride, (long) (range.to - range.from) * stride);
+            buffer.order(order);
+            tasks.add(() -> {
+                for (int v = range.from, p = 0; v < range.to; ++v, p += stride) {
+                    vertices[3 * v] = (float) x.type.read(buffer, p + px);
+                    vertices[3 * v + 1] = (float) y.type.read(buffer, p + py);
+                    vertices[3 * v + 2] = (float) z.type.read(buffer, p + pz);
+                }
+            });
+        }
+        run(threadsCount, tasks);
+        return vertices;
+    }
+
+    /** reads the faces of a PLY file in parallel, if they are all triangles of fixed size records
+     * @param channel file channel
+     * @param order byte order
+     * @param offset offset of first face record in file
+     * @param element face element
+     * @param threadsCount amount of threads
+     * @return 3 vertex indices of every face, null if there is a face which is not a triangle
+     * @throws IOException if reading the file went wrong */
+    private static int[] readTriangles(FileChannel channel, ByteOrder order, long offset, PlyElement element,
+                                       int threadsCount) throws IOException {
+        int stride = element.triangleStride();
+        if (stride < 0 || offset + (long) element.count * stride > channel.size()) return null;
+        PlyProperty list = element.properties.get(element.listIndex());
+        int listOffset = element.triangleOffsetOfList();
+        int[] indices = new int[3 * element.count];
+        boolean[] triangles = {true};
+        List<Runnable> tasks = new ArrayList<>();
+        for (Range range : ranges(element.count, stride, threadsCount)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    offset + (long) range.from * stride, (long) (range.to - range.from) * stride);
+            buffer.order(order);
+            tasks.add(() -> {
+                for (int f = range.from, p = listOffset; f < range.to; ++f, p += stride) {
+                    if (list.countType.read(buffer, p) != 3) {
+                        triangles[0] = false;
+                        return;
+                    }
+                    for (int k = 0, q = p + list.countType.size; k < 3; ++k, q += list.type.size)
+                        indices[3 * f + k] = (int) list.type.read(buffer, q);
+                }
+            });
+        }
+        run(threadsCount, tasks);
+        return triangles[0] ? indices : null;
+    }
+
+    /** reads the faces of a PLY file sequentially, dividing polygons to triangles as a fan
+     * @param reader sequential reader at the first face record
+     * @param element face element
+     * @param triangles receiver of the triangles
+     * @throws IOException if reading the file went wrong */
+    private static void readFaces(PlyReader reader, PlyElement element, TriangleSink triangles) throws IOException {
+        int listIndex = element.listIndex();
+        for (int f = 0; f < element.count; ++f) {
+            for (int k = 0; k < element.properties.size(); ++k) {
+                PlyProperty property = element.properties.get(k);
+                if (k != listIndex) {
+                    reader.skip(property);
+                    continue;
+                }
+                int count = (int) reader.read(property.countType);
+                if (count < 3) throw new IllegalArgumentException("a face must have at least 3 vertices");
+                int first = (int) reader.read(property.type), previous = (int) reader.read(property.type);
+                for (int v = 2; v < count; ++v) {
+                    int index = (int) reader.read(property.type);
+                    triangles.triangle(first, previous, index);
+                    previous = index;
+                }
+            }
+        }
+    }
+
+    /** streams the faces of a binary PLY file - the vertices are written to the vertex file first, and then the
+     * faces are read and streamed with the coordinates of their vertices
+     * @param channel file channel
+     * @param vertices the vertex file
+     * @param writer writer of the paged mesh
+     * @param threadsCount amount of threads
+     * @throws IOException if reading the file went wrong */
+    private static void streamPLY(FileChannel channel, VertexFile vertices, PagedMesh.Writer writer, int threadsCount)
+            throws IOException {
+        PlyHeader header = new PlyHeader(channel);
+        PlyReader reader = new PlyReader(channel, header.dataOffset, header.order);
+        PlyElement vertexElement = null, faceElement = null;
+        long vertexOffset = 0, faceOffset = 0;
+        for (PlyElement element : header.elements) {
+            if (element.name.equals("vertex")) {
+                vertexElement = element;
+                vertexOffset = reader.position();
+            } else if (element.name.equals("face")) {
+                faceElement = element;
+                faceOffset = reader.position();
+            }
+            if (vertexElement != null && faceElement != null) break;
+            reader.skip(element);
+        }
+        if (vertexElement == null || faceElement == null)
+            throw new IllegalArgumentException("PLY file must have vertices and faces");
+        writeVertices(channel, header.order, vertexOffset, vertexElement, threadsCount, vertices);
+        vertices.map(vertexElement.count);
+        if (streamTriangles(channel, header.order, faceOffset, faceElement, threadsCount, vertices, writer)) return;
+        reader.seek(faceOffset);
+        FaceStream faces = new FaceStream(vertices, writer);
+        readFaces(reader, faceElement, faces);
+        faces.flush();
+    }
+
+    /** writes the vertex positions of a PLY file to the vertex file, chunks of records in parallel
+     * @param channel file channel
+     * @param order byte order
+     * @param offset offset of first vertex record in file
+     * @param element vertex element
+     * @param threadsCount amount of threads
+     * @param vertices the vertex file
+     * @throws IOException if reading the file went wrong */
+    private static void writeVertices(FileChannel channel, ByteOrder order, long offset, PlyElement element,
+                                      int threadsCount, VertexFile vertices) throws IOException {
+        int stride = element.stride();
+        int px = element.offsetOf("x"), py = element.offsetOf("y"), pz = element.offsetOf("z");
+        PlyProperty x = element.property("x"), y = element.property("y"), z = element.property("z");
+        List<Runnable> tasks = new ArrayList<>();
+        for (Range range : ranges(element.count, stride, threadsCount)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    offset + (long) range.from * stride, (long) (range.to - range.from) * stride);
+            buffer.order(order);
+            tasks.add(() -> {
+                float[] batch = new float[3 * BATCH];
+                for (int first = range.from; first < range.to; first += BATCH) {
+                    int amount = Math.min(range.to - first, BATCH);
+                    for (int v = 0, p = (first - range.from) * stride; v < amount; ++v, p += stride) {
+                        batch[3 * v] = (float) x.type.read(buffer, p + px);
+                        batch[3 * v + 1] = (float) y.type.read(buffer, p + py);
+                        batch[3 * v + 2] = (float) z.type.read(buffer, p + pz);
+                    }
+                    vertices.write(first, batch, 3 * amount);
+                }
+            });
+        }
+        run(threadsCount, tasks);
+    }
+
+    /** streams the faces of a PLY file in parallel, if they are all triangles of fixed size records - the records
+     * are checked before any face is streamed
+     * @param channel file channel
+     * @param order byte order
+     * @param offset offset of first face record in file
+     * @param element face element
+     * @param threadsCount amount of threads
+     * @param vertices the vertex file
+     * @param writer writer of the paged mesh
+     * @return true if the faces were streamed, false if there is a face which is not a triangle
+     * @throws IOException if reading the file went wrong */
+    private static boolean streamTriangles(FileChannel channel, ByteOrder order, long offset, PlyElement element,
+                                           int threadsCount, VertexFile vertices, PagedMesh.Writer writer)
+            throws IOException {
+        int stride = element.triangleStride();
+        if (stride < 0 || offset + (long) element.count * stride > channel.size()) return false;
+        PlyProperty list = element.properties.get(element.listIndex());
+        int listOffset = element.triangleOffsetOfList();
+        List<Range> ranges = ranges(element.count, stride, threadsCount);
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (Range range : ranges)
+            buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, offset + (long) range.from * stride,
+                    (long) (range.to - range.from) * stride).order(order));
+        boolean[] triangles = {true};
+        List<Runnable> checks = new ArrayList<>(), streams = new ArrayList<>();
+        for (int r = 0; r < ranges.size(); ++r) {
+            Range range = ranges.get(r);
+            ByteBuffer buffer = buffers.get(r);
+            checks.add(() -> {
+                for (int f = range.from, p = listOffset; f < range.to; ++f, p += stride)
+                    if (list.countType.read(buffer, p) != 3) {
+                        triangles[0] = false;
+                        return;
+                    }
+            });
+            streams.add(() -> {
+                FaceStream faces = new FaceStream(vertices, writer);
+                for (int f = range.from, p = listOffset + list.countType.size; f < range.to; ++f, p += stride)
+                    faces.triangle((int) list.type.read(buffer, p), (int) list.type.read(buffer, p + list.type.size),
+                            (int) list.type.read(buffer, p + 2 * list.type.size));
+                faces.flush();
+            });
+        }
+        run(threadsCount, checks);
+        if (!triangles[0]) return false;
+        run(threadsCount, streams);
+        return true;
+    }
+
+    /** a range of records
+     * @param from index of first record
+     * @param to index after last record */
+    private record Range(int from, int to) {
+    }
+
+    /** divides records to ranges, each of at most MAX_CHUNK bytes
+     * @param count amount of records
+     * @param stride size of a record
+     * @param threadsCount amount of threads
+     * @return ranges of records */
+    private static List<Range> ranges(int count, int stride, int threadsCount) {
+        long size = (long) count * stride;
+        long amount = Math.max(Math.min(4L * Math.max(threadsCount, 1), size / MIN_CHUNK), 1);
+        amount = Math.max(amount, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+        List<Range> ranges = new ArrayList<>();
+        for (long k = 0; k < amount; ++k) {
+            int from = (int) (count * k / amount), to = (int) (count * (k + 1) / amount);
+            if (to > from) ranges.add(new Range(from, to));
+        }
+        return ranges;
+    }
+
+    /** scalar types of PLY properties */
+    private enum PlyType {
+        /** signed byte */
+        CHAR(1), /** unsigned byte */ UCHAR(1), /** signed short */ SHORT(2), /** unsigned short */ USHORT(2),
+        /** signed int */ INT(4), /** unsigned int */ UINT(4), /** float */ FLOAT(4), /** double */ DOUBLE(8);
+
+        /** size in bytes */
+        final int size;
+
+        /** constructor for PlyType
+         * @param size size in bytes */
+        PlyType(int size) {
+            this.size = size;
+        }
+
+        /** finds a type by its name in a PLY header
+         * @param name name of type
+         * @return the type
+         * @throws IllegalArgumentException if there is no such type */
+        static PlyType of(String name) {
+            return switch (name) {
+                case "char", "int8" -> CHAR;
+                case "uchar", "uint8" -> UCHAR;
+                case "short", "int16" -> SHORT;
+                case "ushort", "uint16" -> USHORT;
+                case "int", "int32" -> INT;
+                case "uint", "uint32" -> UINT;
+                case "float", "float32" -> FLOAT;
+                case "double", "float64" -> DOUBLE;
+                default -> throw new IllegalArgumentException("unknown PLY type " + name);
+            };
+        }
+
+        /** reads a value of the type
+         * @param buffer buffer of data
+         * @param index index of value in buffer
+         * @return the value */
+        double read(ByteBuffer buffer, int index) {
+            return switch (this) {
+                case CHAR -> buffer.get(index);
+                case UCHAR -> buffer.get(index) & 0xFF;
+                case SHORT -> buffer.getShort(index);
+                case USHORT -> buffer.getShort(index) & 0xFFFF;
+                case INT -> buffer.getInt(index);
+                case UINT -> buffer.getInt(index) & 0xFFFFFFFFL;
+                case FLOAT -> buffer.getFloat(index);
+                case DOUBLE -> buffer.getDouble(index);
+            };
+        }
+    }
+
+    /** a property of a PLY element - a scalar, or a list of scalars with a count
+     * @param name name of property
+     * @param type type of scalar (of list items)
+     * @param countType type of list count, null for a scalar */
+    private record PlyProperty(String name, PlyType type, PlyType countType) {
+    }
+
+    /** an element of a PLY file (e.g. vertex or face) */
+    private static class PlyElement {
+        /** name of element */
+        final String name;
+        /** amount of records */
+        final int count;
+        /** properties of a record */
+        final List<PlyProperty> properties = new ArrayList<>();
+
+        /** constructor for PlyElement
+         * @param name name of element
+         * @param count amount of records */
+        PlyElement(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        /** size of a record of scalar properties
+         * @return size in bytes, -1 if there is a list property */
+        int stride() {
+            int stride = 0;
+            for (PlyProperty property : properties) {
+                if (property.countType != null) return -1;
+                stride += property.type.size;
+            }
+            return stride;
+        }
+
+        /** size of a record if its list property has 3 items
+         * @return size in bytes, -1 if there is not exactly one list property */
+        int triangleStride() {
+            int listIndex = listIndex();
+            if (listIndex < 0) return -1;
+            int stride = 0;
+            for (PlyProperty property : properties)
+                stride += property.countType == null ? property.type.size : property.countType.size + 3 * property.type.size;
+            return stride;
+        }
+
+        /** offset of list property in a record of a triangle
+         * @return offset in bytes */
+        int triangleOffsetOfList() {
+            int offset = 0;
+            for (PlyProperty property : properties) {
+                if (property.countType != null) return offset;
+                offset += property.type.size;
+            }
+            return offset;
+        }
+
+        /** index of the single list property
+         * @return index of property, -1 if there is not exactly one list property */
+        int listIndex() {
+            int index = -1;
+            for (int k = 0; k < properties.size(); ++k) {
+                if (properties.get(k).countType != null) {
+                    if (index >= 0) return -1;
+                    index = k;
+                }
+            }
+            return index;
+        }
+
+        /** finds a scalar property
+         * @param name name of property
+         * @return the property
+         * @throws IllegalArgumentException if there is no such scalar property */
+        PlyProperty property(String name) {
+            for (PlyProperty property : properties)
+                if (property.name.equals(name) && property.countType == null) return property;
+            throw new IllegalArgumentException("PLY " + this.name + " element has no property " + name);
+        }
+
+        /** offset of a scalar property in a record of scalar properties
+         * @param name name of property
+         * @return offset in bytes
+         * @throws IllegalArgumentException if there is no such property or the record has a list property */
+        int offsetOf(String name) {
+            if (stride() < 0) throw new IllegalArgumentException("PLY " + this.name + " element cannot have a list");
+            int offset = 0;
+            for (PlyProperty property : properties) {
+                if (property.name.equals(name)) return offset;
+                offset += property.type.size;
+            }
+            throw new IllegalArgumentException("PLY " + this.name + " element has no property " + name);
+        }
+    }
+
+    /** header of a binary PLY file */
+    private static class PlyHeader {
+        /** byte order of data */
+        final ByteOrder order;
+        /** offset of data in file */
+        final long dataOffset;
+        /** elements of file, in order */
+        final List<PlyElement> elements = new ArrayList<>();
+
+        /** reads the header of a PLY file
+         * @param channel file channel
+         * @throws IOException if reading the file went wrong
+         * @throws IllegalArgumentException if the file is not a binary PLY file */
+        PlyHeader(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(MAX_HEADER, channel.size()));
+            channel.read(buffer, 0);
+            String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+            int end = text.indexOf("end_header");
+            if (!text.startsWith("ply") || end < 0) throw new IllegalArgumentException("not a PLY file");
+            int newline = text.indexOf('\n', end);
+            if (newline < 0) throw new IllegalArgumentException("not a PLY file");
+            dataOffset = newline + 1;
+            ByteOrder byteOrder = null;
+            for (String line : text.substring(0, end).split("\r?\n")) {
+                String[] words = line.trim().split("\\s+");
+                switch (words[0]) {
+                    case "format" -> byteOrder = switch (words[1]) {
+                        case "binary_little_endian" -> ByteOrder.LITTLE_ENDIAN;
+                        case "binary_big_endian" -> ByteOrder.BIG_ENDIAN;
+                        default -> throw new IllegalArgumentException("only binary PLY files are supported");
+                    };
+                    case "element" -> elements.add(new PlyElement(words[1], Integer.parseInt(words[2])));
+                    case "property" -> {
+                        if (elements.isEmpty()) throw new IllegalArgumentException("PLY property out of element");
+                        elements.get(elements.size() - 1).properties.add(words[1].equals("list")
+                                ? new PlyProperty(words[4], PlyType.of(words[3]), PlyType.of(words[2]))
+                                : new PlyProperty(words[2], PlyType.of(words[1]), null));
+                    }
+                    default -> {}
+                }
+            }
+            if (byteOrder == null) throw new IllegalArgumentException("PLY file has no format");
+            order = byteOrder;
+        }
+    }
+
+    /** sequential reader of PLY data through a buffer */
+    private static class PlyReader {
+        /** file channel */
+        private final FileChannel channel;
+        /** buffer of data */
+        private final ByteBuffer buffer;
+        /** offset in file of the start of buffer */
+        private long bufferOffset;
+
+        /** constructor for PlyReader
+         * @param channel file channel
+         * @param offset offset of data in file
+         * @param order byte order of data */
+        PlyReader(FileChannel channel, long offset, ByteOrder order) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(order);
+            this.bufferOffset = offset;
+            buffer.limit(0);
+        }
+
+        /** offset in file of next byte
+         * @return offset of next byte */
+        long position() {
+            return bufferOffset + buffer.position();
+        }
+
+        /** moves to an offset in file
+         * @param offset offset of next byte */
+        void seek(long offset) {
+            bufferOffset = offset;
+            buffer.clear().limit(0);
+        }
+
+        /** makes sure a given amount of bytes is in the buffer
+         * @param amount amount of bytes
+         * @throws IOException if the file ended or reading went wrong */
+        private void ensure(int amount) throws IOException {
+            if (buffer.remaining() >= amount) return;
+            bufferOffset += buffer.position();
+            buffer.compact();
+            while (buffer.position() < amount) {
+                int read = channel.read(buffer, bufferOffset + buffer.position());
+                if (read < 0) throw new IOException("PLY file ended unexpectedly");
+            }
+            buffer.flip();
+        }
+
+        /** reads a scalar
+         * @param type type of scalar
+         * @return the value
+         * @throws IOException if the file ended or reading went wrong */
+        double read(PlyType type) throws IOException {
+            ensure(type.size);
+            double value = type.read(buffer, buffer.position());
+            buffer.position(buffer.position() + type.size);
+            return value;
+        }
+
+        /** skips a property of a record
+         * @param property the property
+         * @throws IOException if the file ended or reading went wrong */
+        void skip(PlyProperty property) throws IOException {
+            int items = property.countType == null ? 1 : (int) read(property.countType);
+            for (int k = 0; k < items; ++k) read(property.type);
+        }
+
+        /** skips all records of an element
+         * @param element the element
+         * @throws IOException if the file ended or reading went wrong */
+        void skip(PlyElement element) throws IOException {
+            int stride = element.stride();
+            if (stride >= 0) {
+                seek(position() + (long) element.count * stride);
+                return;
+            }
+            for (int r = 0; r < element.count; ++r)
+                for (PlyProperty property : element.properties) skip(property);
+        }
+    }
+
+    // ***************** Streaming ********************** //
+
+    /** receiver of the triangles of a mesh file */
+    @FunctionalInterface
+    private interface TriangleSink {
+        /** receives a triangle
+         * @param a index of first vertex
+         * @param b index of second vertex
+         * @param c index of third vertex */
+        void triangle(int a, int b, int c);
+    }
+
+    /** temporary file of vertex positions of a streamed mesh, memory-mapped for reading after it is written -
+     * the vertices of the faces are found in it out of the heap, and it is deleted when it is closed */
+    private static class VertexFile implements AutoCloseable {
+        /** amount of vertices in a mapped segment */
+        private static final int SEGMENT_VERTICES = 1 << 26;
+        /** byte order of the file */
+        private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+        /** channel of the file */
+        private final FileChannel channel;
+        /** mapped segments of the file */
+        private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+        /** amount of vertices */
+        private int amountVertices;
+
+        /** constructor for VertexFile, creates the temporary file
+         * @param directory directory of the file
+         * @throws IOException if creating the file went wrong */
+        VertexFile(Path directory) throws IOException {
+            channel = FileChannel.open(Files.createTempFile(directory, "vertices", ".tmp"), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        /** writes coordinates of vertices
+         * @param first index of first vertex
+         * @param coordinates x,y,z coordinates of vertices
+         * @param size amount of coordinates
+         * @throws UncheckedIOException if writing the file went wrong */
+        void write(int first, float[] coordinates, int size) {
+            ByteBuffer buffer = ByteBuffer.allocate(4 * size).order(ORDER);
+            buffer.asFloatBuffer().put(coordinates, 0, size);
+            try {
+                for (long position = 12L * first; buffer.hasRemaining(); ) position += channel.write(buffer, position);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** maps the written file for reading
+         * @param amount amount of vertices
+         * @throws IOException if mapping the file went wrong */
+        void map(int amount) throws IOException {
+            amountVertices = amount;
+            segments = new MappedByteBuffer[(amount + SEGMENT_VERTICES - 1) / SEGMENT_VERTICES];
+            for (int s = 0; s < segments.length; ++s) {
+                long first = (long) s * SEGMENT_VERTICES;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, 12 * first,
+                        12 * Math.min(SEGMENT_VERTICES, amount - first));
+                segments[s].order(ORDER);
+            }
+        }
+
+        /** reads the coordinates of a vertex
+         * @param vertex index of vertex
+         * @param target array of coordinates
+         * @param offset index of x of the vertex in the array
+         * @throws IllegalArgumentException if the vertex index is out of range */
+        void get(int vertex, float[] target, int offset) {
+            if (vertex < 0 || vertex >= amountVertices) throw new IllegalArgumentException("vertex index out of range");
+            MappedByteBuffer segment = segments[vertex / SEGMENT_VERTICES];
+            int index = 12 * (vertex % SEGMENT_VERTICES);
+            target[offset] = segment.getFloat(index);
+            target[offset + 1] = segment.getFloat(index + 4);
+            target[offset + 2] = segment.getFloat(index + 8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /** stream of the faces of a thread to a paged mesh writer, in batches of the coordinates of their vertices */
+    private static class FaceStream implements TriangleSink {
+        /** the vertex file */
+        private final VertexFile vertices;
+        /** writer of the paged mesh */
+        private final PagedMesh.Writer writer;
+        /** x,y,z coordinates of the 3 vertices of every face of the batch */
+        private final float[] coordinates = new float[9 * BATCH];
+        /** amount of faces in the batch */
+        private int size;
+
+        /** constructor for FaceStream
+         * @param vertices the vertex file
+         * @param writer writer of the paged mesh */
+        FaceStream(VertexFile vertices, PagedMesh.Writer writer) {
+            this.vertices = vertices;
+            this.writer = writer;
+        }
+
+        @Override
+        public void triangle(int a, int b, int c) {
+            vertices.get(a, coordinates, 9 * size);
+            vertices.get(b, coordinates, 9 * size + 3);
+            vertices.get(c, coordinates, 9 * size + 6);
+            if (++size == BATCH) flush();
+        }
+
+        /** adds the faces of the batch to the writer
+         * @throws UncheckedIOException if writing went wrong */
+        void flush() {
+            try {
+                writer.add(coordinates, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            size = 0;
+        }
+    }
+
+    // ***************** Helpers ********************** //
+
+    /** runs tasks by a pool of threads, or by the calling thread
+     * @param threadsCount amount of threads, 0 for the calling thread
+     * @param tasks the tasks
+     * @throws IllegalArgumentException thrown by a task
+     * @throws IllegalStateException if a task failed otherwise */
+    private static void run(int threadsCount, List<Runnable> tasks) {
+        if (threadsCount == 0 || tasks.size() == 1) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threadsCount);
+        try {
+            List<Future<?>> futures = tasks.stream().<Future<?>>map(pool::submit).toList();
+            for (Future<?> future : futures) future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("mesh import failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while importing mesh", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** growable array of floats */
+    private static class FloatArray {
+        /** items */
+        float[] items;
+        /** amount of items */
+        int size;
+
+        /** constructor for FloatArray
+         * @param capacity initial capacity */
+        FloatArray(int capacity) {
+            items = new float[Math.max(capacity, 16)];
+        }
+
+        /** adds an item
+         * @param item the item */
+        void add(float item) {
+            if (size == items.length) items = Arrays.copyOf(items, items.length * 2);
+            items[size++] = item;
+        }
+
+        /** adds all items of another array
+         * @param other the other array */
+        void addAll(FloatArray other) {
+            if (size + other.size > items.length) items = Arrays.copyOf(items, size + other.size);
+            System.arraycopy(other.items, 0, items, size, other.size);
+            size += other.size;
+        }
+
+        /** array of the items
+         * @return the items, trimmed */
+        float[] toArray() {
+            return size == items.length ? items : Arrays.copyOf(items, size);
+        }
+    }
+
+    /** growable array of ints */
+    private static class IntArray {
+        /** items */
+        int[] items;
+        /** amount of items */
+        int size;
+
+        /** constructor for IntArray
+         * @param capacity initial capacity */
+        IntArray(int capacity) {
+            items = new int[Math.max(capacity, 16)];
+        }
+
+        /** adds an item
+         * @param item the item */
+        void add(int item) {
+            if (size == items.length) items = Arrays.copyOf(items, items.length * 2);
+            items[size++] = item;
+        }
+
+        /** adds all items of another array
+         * @param other the other array */
+        void addAll(IntArray other) {
+            if (size + other.size > items.length) items = Arrays.copyOf(items, size + other.size);
+            System.arraycopy(other.items, 0, items, size, other.size);
+            size += other.size;
+        }
+
+        /** array of the items
+         * @return the items, trimmed */
+        int[] toArray() {
+            return size == items.length ? items : Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package scene;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary cache of a compiled scene, so a large scene is parsed once and later runs only memory-map it.<br/>
+ * The file holds the scene background, ambient light, lights, the distinct appearances (emission and material)
+ * of its geometries, the few analytic geometries (spheres, planes, polygons, tubes and cylinders) and every mesh
+ * with its built hierarchy as flat arrays. Triangles of the same appearance are compiled to a single {@link Mesh},
+ * so loading constructs no object per triangle.<br/>
+ * The header holds a hash of the source file - a cache of another version of the format or of another source is
+ * not read.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class SceneCache {
+    /** magic number of a scene cache file ("RSCN") */
+    private static final int MAGIC = 0x5253434E;
+    /** version of the file format */
+    private static final int VERSION = 1;
+    /** size of file header: magic, version, source hash and length of scalar section */
+    private static final int HEADER_SIZE = 24;
+    /** byte order of file */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    /** maximum amount of array items which are mapped at once */
+    private static final int MAX_MAPPED_ITEMS = 1 << 28;
+    /** size of the buffer of array writing */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /** kinds of lights */
+    private static final byte DIRECTIONAL = 0, POINT = 1, SPOT = 2;
+    /** kinds of analytic geometries */
+    private static final byte SPHERE = 0, PLANE = 1, POLYGON = 2, TUBE = 3, CYLINDER = 4;
+
+    /** no instances */
+    private SceneCache() {
+    }
+
+    /**
+     * Calculates the hash of a source file (64 bit FNV-1a of its bytes)
+     * @param source path of source file
+     * @return hash of the file
+     * @throws IOException if reading the file went wrong
+     */
+    public static long hash(Path source) throws IOException {
+        long hash = 0xcbf29ce484222325L;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += MAX_MAPPED_ITEMS) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(MAX_MAPPED_ITEMS, size - offset));
+                for (int i = 0, limit = buffer.limit(); i < limit; ++i)
+                    hash = (hash ^ (buffer.get(i) & 0xFF)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Reads a cached scene into a scene, if the cache is of the current format and of the given source hash
+     * @param cache      path of cache file
+     * @param sourceHash hash of the source of the scene
+     * @param scene      scene to fill - name, background, ambient light, geometries and lights are replaced
+     * @return true if the scene was read, false if there is no cache, or it is of another format or source
+     * @throws IOException              if reading the file went wrong
+     * @throws IllegalArgumentException if the cache file is corrupt
+     */
+    public static boolean read(Path cache, long sourceHash, Scene scene) throws IOException {
+        if (!Files.isRegularFile(cache) || Files.size(cache) < HEADER_SIZE) return false;
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ORDER);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getLong(8) != sourceHash)
+                return false;
+            int scalarLength = header.getInt(16);
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, scalarLength).order(ORDER);
+
+            scene.name = readString(in);
+            scene.setBackground(readColor(in));
+            scene.setAmbientLight(new AmbientLight(readColor(in), 1));
+
+            Color[] emissions = new Color[in.getInt()];
+            Material[] materials = new Material[emissions.length];
+            for (int a = 0; a < emissions.length; ++a) {
+                emissions[a] = readColor(in);
+                materials[a] = new Material().setKd(readDouble3(in)).setKs(readDouble3(in))
+                        .setKt(readDouble3(in)).setKr(readDouble3(in)).setShininess(in.getInt());
+            }
+
+            List<LightSource> lights = new LinkedList<>();
+            for (int l = in.getInt(); l > 0; --l) lights.add(readLight(in));
+            scene.setLights(lights);
+
+            Geometries geometries = new Geometries();
+            for (int g = in.getInt(); g > 0; --g) {
+                byte kind = in.get();
+                int appearance = in.getInt();
+                geometries.add(readGeometry(in, kind).setEmission(emissions[appearance]).setMaterial(materials[appearance]));
+            }
+            long offset = align(HEADER_SIZE + scalarLength);
+            for (int m = in.getInt(); m > 0; --m) {
+                int appearance = in.getInt();
+                float[] vertices = new float[in.getInt()];
+                int[] indices = new int[in.getInt()];
+                float[] bounds = new float[in.getInt()];
+                int[] nodes = new int[in.getInt()];
+                offset = readFloats(channel, offset, vertices);
+                offset = readInts(channel, offset, indices);
+                offset = readFloats(channel, offset, bounds);
+                offset = readInts(channel, offset, nodes);
+                geometries.add(new Mesh(vertices, indices, bounds, nodes)
+                        .setEmission(emissions[appearance]).setMaterial(materials[appearance]));
+            }
+            scene.setGeometries(geometries);
+            return true;
+        } catch (java.nio.BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("corrupt scene cache " + cache, e);
+        }
+    }
+
+    /**
+     * Compiles a scene and writes it to a cache file. The file is written aside and then moved over the former
+     * cache, so a cache is never left partly written.
+     * @param scene      the scene
+     * @param sourceHash hash of the source of the scene
+     * @param cache      path of cache file
+     * @throws IOException              if writing the file went wrong
+     * @throws IllegalArgumentException if the scene has a geometry or a light which cannot be cached
+     */
+    public static void write(Scene scene, long sourceHash, Path cache) throws IOException {
+        // distinct appearances, analytic geometries, and triangles grouped by appearance
+        Map<List<Double>, Integer> appearances = new LinkedHashMap<>();
+        List<Geometry> analytic = new ArrayList<>();
+        List<Mesh> meshes = new ArrayList<>();
+        Map<Integer, List<Triangle>> triangles = new LinkedHashMap<>();
+        collect(scene.geometries, appearances, analytic, meshes, triangles);
+
+        Output out = new Output();
+        out.putString(scene.name == null ? "" : scene.name);
+        out.putColor(scene.background);
+        out.putColor(scene.ambientLight.getIntensity());
+
+        out.putInt(appearances.size());
+        for (List<Double> appearance : appearances.keySet()) {
+            for (int k = 0; k < appearance.size() - 1; ++k) out.putDouble(appearance.get(k));
+            out.putInt(appearance.get(appearance.size() - 1).intValue());
+        }
+
+        out.putInt(scene.lights.size());
+        for (LightSource light : scene.lights) writeLight(out, light);
+
+        out.putInt(analytic.size());
+        for (Geometry geometry : analytic) writeGeometry(out, geometry, appearances.get(appearance(geometry)));
+
+        List<Mesh> compiled = new ArrayList<>(meshes);
+        List<Integer> meshAppearances = new ArrayList<>();
+        for (Mesh mesh : meshes) meshAppearances.add(appearances.get(appearance(mesh)));
+        triangles.forEach((appearance, list) -> {
+            compiled.add(compile(list));
+            meshAppearances.add(appearance);
+        });
+        out.putInt(compiled.size());
+        for (int m = 0; m < compiled.size(); ++m) {
+            Mesh mesh = compiled.get(m);
+            out.putInt(meshAppearances.get(m));
+            out.putInt(mesh.getVertices().length);
+            out.putInt(mesh.getIndices().length);
+            out.putInt(mesh.getBounds().length);
+            out.putInt(mesh.getNodes().length);
+        }
+
+        Path temp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer scalars = out.buffer.flip();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER)
+                    .putInt(MAGIC).putInt(VERSION).putLong(sourceHash).putInt(scalars.limit()).putInt(0).flip();
+            writeFully(channel, header, 0);
+            writeFully(channel, scalars, HEADER_SIZE);
+            long offset = align(HEADER_SIZE + scalars.limit());
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ORDER);
+            for (Mesh mesh : compiled) {
+                offset = writeFloats(channel, buffer, offset, mesh.getVertices());
+                offset = writeInts(channel, buffer, offset, mesh.getIndices());
+                offset = writeFloats(channel, buffer, offset, mesh.getBounds());
+                offset = writeInts(channel, buffer, offset, mesh.getNodes());
+            }
+            channel.force(false);
+        }
+        try {
+            Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ***************** Compiling ********************** //
+
+    /** collects the geometries of a composite, recursively
+     * @param intersectables composite of geometries
+     * @param appearances distinct appearances, with their indices
+     * @param analytic geometries which are cached by their parameters
+     * @param meshes meshes of the scene
+     * @param triangles triangles by the indices of their appearances
+     * @throws IllegalArgumentException if there is a geometry which cannot be cached */
+    private static void collect(Geometries intersectables, Map<List<Double>, Integer> appearances,
+                                List<Geometry> analytic, List<Mesh> meshes, Map<Integer, List<Triangle>> triangles) {
+        for (Intersectable intersectable : intersectables.getGeometries()) {
+            if (intersectable instanceof Geometries composite) {
+                collect(composite, appearances, analytic, meshes, triangles);
+                continue;
+            }
+            if (!(intersectable instanceof Geometry geometry))
+                throw new IllegalArgumentException("cannot cache " + intersectable.getClass().getSimpleName());
+            int index = appearances.computeIfAbsent(appearance(geometry), key -> appearances.size());
+            if (geometry instanceof Triangle triangle)
+                triangles.computeIfAbsent(index, key -> new ArrayList<>()).add(triangle);
+            else if (geometry instanceof Mesh mesh) meshes.add(mesh);
+            else analytic.add(geometry);
+        }
+    }
+
+    /** key of the appearance of a geometry - emission, material coefficients and shininess
+     * @param geometry the geometry
+     * @return list of appearance values */
+    private static List<Double> appearance(Geometry geometry) {
+        Color emission = geometry.getEmission();
+        Material material = geometry.getMaterial();
+        List<Double> key = new ArrayList<>(16);
+        Collections.addAll(key, emission.getRed(), emission.getGreen(), emission.getBlue());
+        for (Double3 k : new Double3[]{material.kD, material.kS, material.kT, material.kR})
+            Collections.addAll(key, k.getD1(), k.getD2(), k.getD3());
+        key.add((double) material.nShininess);
+        return key;
+    }
+
+    /** compiles triangles to a mesh - vertices are ordered so the face normals are the triangle normals
+     * @param triangles the triangles
+     * @return mesh of the triangles */
+    private static Mesh compile(List<Triangle> triangles) {
+        float[] vertices = new float[9 * triangles.size()];
+        int[] indices = new int[3 * triangles.size()];
+        int face = 0;
+        for (Triangle triangle : triangles) {
+            List<Point> points = triangle.getVertices();
+            // a triangle normal is (p1-p0)x(p1-p2), the normal of a mesh face (a,b,c) is (b-a)x(c-a)
+            int[] order = {0, 2, 1};
+            for (int k = 0; k < 3; ++k) {
+                Point point = points.get(order[k]);
+                vertices[9 * face + 3 * k] = (float) point.getX();
+                vertices[9 * face + 3 * k + 1] = (float) point.getY();
+                vertices[9 * face + 3 * k + 2] = (float) point.getZ();
+                indices[3 * face + k] = 3 * face + k;
+            }
+            ++face;
+        }
+        return new Mesh(vertices, indices);
+    }
+
+    // ***************** Geometries and lights ********************** //
+
+    /** writes an analytic geometry
+     * @param out scalar section
+     * @param geometry the geometry
+     * @param appearance index of appearance of geometry */
+    private static void writeGeometry(Output out, Geometry geometry, int appearance) {
+        if (geometry instanceof Sphere sphere) {
+            out.put(SPHERE).putInt(appearance).putPoint(sphere.getCenter()).putDouble(sphere.getRadius());
+        } else if (geometry instanceof Plane plane) {
+            out.put(PLANE).putInt(appearance).putPoint(plane.getQ0()).putVector(plane.getNormal());
+        } else if (geometry instanceof Polygon polygon) {
+            out.put(POLYGON).putInt(appearance).putInt(polygon.getVertices().size());
+            for (Point point : polygon.getVertices()) out.putPoint(point);
+        } else if (geometry instanceof Tube tube) {
+            out.put(tube instanceof Cylinder ? CYLINDER : TUBE).putInt(appearance)
+                    .putPoint(tube.getAxisRay().getP0()).putVector(tube.getAxisRay().getDir())
+                    .putDouble(tube.getRadius());
+            if (tube instanceof Cylinder cylinder) out.putDouble(cylinder.getHeight());
+        } else
+            throw new IllegalArgumentException("cannot cache " + geometry.getClass().getSimpleName());
+    }
+
+    /** reads an analytic geometry
+     * @param in scalar section
+     * @param kind kind of geometry
+     * @return the geometry
+     * @throws IllegalArgumentException if the kind is unknown */
+    private static Geometry readGeometry(ByteBuffer in, byte kind) {
+        return switch (kind) {
+            case SPHERE -> new Sphere(readPoint(in), in.getDouble());
+            case PLANE -> new Plane(readPoint(in), readVector(in));
+            case POLYGON -> {
+                Point[] points = new Point[in.getInt()];
+                for (int k = 0; k < points.length; ++k) points[k] = readPoint(in);
+                yield new Polygon(points);
+            }
+            case TUBE -> new Tube(new Ray(readPoint(in), readVector(in)), in.getDouble());
+            case CYLINDER -> new Cylinder(new Ray(readPoint(in), readVector(in)), in.getDouble(), in.getDouble());
+            default -> throw new IllegalArgumentException("unknown geometry kind " + kind);
+        };
+    }
+
+    /** writes a light
+     * @param out scalar section
+     * @param light the light
+     * @throws IllegalArgumentException if the light cannot be cached */
+    private static void writeLight(Output out, LightSource light) {
+        if (light instanceof DirectionalLight directional) {
+            out.put(DIRECTIONAL).putColor(directional.getIntensity()).putVector(directional.getDir());
+        } else if (light instanceof PointLight point) {
+            out.put(point instanceof SpotLight ? SPOT : POINT).putColor(point.getIntensity())
+                    .putPoint(point.getPosition()).putDouble(point.getKc()).putDouble(point.getKl()).putDouble(point.getKq());
+            if (point instanceof SpotLight spot) out.putVector(spot.getDir()).putDouble(spot.getNarrowness());
+        } else
+            throw new IllegalArgumentException("cannot cache " + light.getClass().getSimpleName());
+    }
+
+    /** reads a light
+     * @param in scalar section
+     * @return the light
+     * @throws IllegalArgumentException if the kind of light is unknown */
+    private static LightSource readLight(ByteBuffer in) {
+        byte kind = in.get();
+        if (kind == DIRECTIONAL) return new DirectionalLight(readColor(in), readVector(in));
+        if (kind != POINT && kind != SPOT) throw new IllegalArgumentException("unknown light kind " + kind);
+        Color intensity = readColor(in);
+        Point position = readPoint(in);
+        double kC = in.getDouble(), kL = in.getDouble(), kQ = in.getDouble();
+        PointLight light = kind == POINT ? new PointLight(intensity, position)
+                : new SpotLight(intensity, position, readVector(in)).setNarrowBeam((int) in.getDouble());
+        return light.setKc(kC).setKl(kL).setKq(kQ);
+    }
+
+    // ***************** Scalar values ********************** //
+
+    /** growable buffer of the scalar section */
+    private static class Output {
+        /** buffer of section */
+        ByteBuffer buffer = ByteBuffer.allocate(4096).order(ORDER);
+
+        /** makes sure there is room for more bytes
+         * @param amount amount of bytes
+         * @return the buffer */
+        private ByteBuffer room(int amount) {
+            if (buffer.remaining() < amount) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + amount)).order(ORDER);
+                buffer = larger.put(buffer.flip());
+            }
+            return buffer;
+        }
+
+        /** puts a byte
+         * @param value the byte
+         * @return this Output object */
+        Output put(byte value) {
+            room(1).put(value);
+            return this;
+        }
+
+        /** puts an int
+         * @param value the int
+         * @return this Output object */
+        Output putInt(int value) {
+            room(4).putInt(value);
+            return this;
+        }
+
+        /** puts a double
+         * @param value the double
+         * @return this Output object */
+        Output putDouble(double value) {
+            room(8).putDouble(value);
+            return this;
+        }
+
+        /** puts a string, as UTF-8 bytes after their amount
+         * @param value the string
+         * @return this Output object */
+        Output putString(String value) {
+            byte[] bytes = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            room(bytes.length).put(bytes);
+            return this;
+        }
+
+        /** puts a color
+         * @param color the color
+         * @return this Output object */
+        Output putColor(Color color) {
+            return putDouble(color.getRed()).putDouble(color.getGreen()).putDouble(color.getBlue());
+        }
+
+        /** puts a point
+         * @param point the point
+         * @return this Output object */
+        Output putPoint(Point point) {
+            return putDouble(point.getX()).putDouble(point.getY()).putDouble(point.getZ());
+        }
+
+        /** puts a vector
+         * @param vector the vector
+         * @return this Output object */
+        Output putVector(Vector vector) {
+            return putPoint(vector);
+        }
+    }
+
+    /** reads a string from UTF-8 bytes after their amount
+     * @param in scalar section
+     * @return the string */
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /** reads a color
+     * @param in scalar section
+     * @return the color */
+    private static Color readColor(ByteBuffer in) {
+        return new Color(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /** reads a triad of numbers
+     * @param in scalar section
+     * @return the triad */
+    private static Double3 readDouble3(ByteBuffer in) {
+        return new Double3(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /** reads a point
+     * @param in scalar section
+     * @return the point */
+    private static Point readPoint(ByteBuffer in) {
+        return new Point(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    /** reads a vector
+     * @param in scalar section
+     * @return the vector */
+    private static Vector readVector(ByteBuffer in) {
+        return new Vector(in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    // ***************** Arrays ********************** //
+
+    /** aligns an offset of an array to 8 bytes
+     * @param offset offset in file
+     * @return aligned offset */
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /** reads a float array by memory-mapping
+     * @param channel file channel
+     * @param offset offset of array in file
+     * @param array array to fill
+     * @return offset after the array, aligned
+     * @throws IOException if reading the file went wrong */
+    private static long readFloats(FileChannel channel, long offset, float[] array) throws IOException {
+        for (int from = 0; from < array.length; from += MAX_MAPPED_ITEMS) {
+            int amount = Math.min(MAX_MAPPED_ITEMS, array.length - from);
+            channel.map(FileChannel.MapMode.READ_ONLY, offset + 4L * from, 4L * amount).order(ORDER)
+                    .asFloatBuffer().get(array, from, amount);
+        }
+        return align(offset + 4L * array.length);
+    }
+
+    /** reads an int array by memory-mapping
+     * @param channel file channel
+     * @param offset offset of array in file
+     * @param array array to fill
+     * @return offset after the array, aligned
+     * @throws IOException if reading the file went wrong */
+    private static long readInts(FileChannel channel, long offset, int[] array) throws IOException {
+        for (int from = 0; from < array.length; from += MAX_MAPPED_ITEMS) {
+            int amount = Math.min(MAX_MAPPED_ITEMS, array.length - from);
+            channel.map(FileChannel.MapMode.READ_ONLY, offset + 4L * from, 4L * amount).order(ORDER)
+                    .asIntBuffer().get(array, from, amount);
+        }
+        return align(offset + 4L * array.length);
+    }
+
+    /** writes a float array
+     * @param channel file channel
+     * @param buffer buffer of writing
+     * @param offset offset of array in file
+     * @param array the array
+     * @return offset after the array, aligned
+     * @throws IOException if writing the file went wrong */
+    private static long writeFloats(FileChannel channel, ByteBuffer buffer, long offset, float[] array) throws IOException {
+        for (int from = 0; from < array.length; ) {
+            int amount = Math.min(BUFFER_SIZE / 4, array.length - from);
+            buffer.clear();
+            buffer.asFloatBuffer().put(array, from, amount);
+            buffer.limit(4 * amount);
+            writeFully(channel, buffer, offset + 4L * from);
+            from += amount;
+        }
+        return align(offset + 4L * array.length);
+    }
+
+    /** writes an int array
+     * @param channel file channel
+     * @param buffer buffer of writing
+     * @param offset offset of array in file
+     * @param array the array
+     * @return offset after the array, aligned
+     * @throws IOException if writing the file went wrong */
+    private static long writeInts(FileChannel channel, ByteBuffer buffer, long offset, int[] array) throws IOException {
+        for (int from = 0; from < array.length; ) {
+            int amount = Math.min(BUFFER_SIZE / 4, array.length - from);
+            buffer.clear();
+            buffer.asIntBuffer().put(array, from, amount);
+            buffer.limit(4 * amount);
+            writeFully(channel, buffer, offset + 4L * from);
+            from += amount;
+        }
+        return align(offset + 4L * array.length);
+    }
+
+    /** writes all the remaining bytes of a buffer
+     * @param channel file channel
+     * @param buffer the bytes
+     * @param offset offset in file
+     * @throws IOException if writing the file went wrong */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) offset += channel.write(buffer, offset);
+    }
+}
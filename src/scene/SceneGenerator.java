@@ -0,0 +1,409 @@
+package scene;
+
+import geometries.Geometry;
+import geometries.Polygon;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.DirectionalLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import lighting.SpotLight;
+import primitives.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of synthetic stress scenes for scaling tests - random spheres, random triangles, a grid of polygons,
+ * a deep reflection stack and many lights, in a cube of a given size around the origin.<br/>
+ * The scene is determined by the seed and the parameters only, so the same scene is generated for every run of a
+ * benchmark or test. It may be built in memory ({@link #generate}), or streamed to a scene file in the format of
+ * {@link xml.XMLParser} ({@link #writeXML}) without holding its geometries, so files of millions of primitives can
+ * be written. The file also holds a camera and an image writer which look at the cube, so it is a render job of
+ * {@link xml.StaxSceneParser#parseXMLJob} as well. The sizes of spheres and triangles shrink with their amount, so
+ * the density of the scene stays about the same from 10 to 10M primitives.<br/>
+ * Geometries are generated in the order the parsers read them (spheres, triangles, polygons), so a parsed file
+ * holds the geometries of the generated scene in the same order.
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class SceneGenerator {
+    /** background color of scenes */
+    private static final Color BACKGROUND = new Color(10, 10, 20);
+    /** intensity of ambient light of scenes */
+    private static final Color AMBIENT_COLOR = new Color(30, 30, 30);
+    /** attenuation of ambient light of scenes */
+    private static final double AMBIENT_KA = 0.2;
+    /** total intensity of all lights (of every color component) */
+    private static final double TOTAL_LIGHT = 600;
+    /** default size of the cube of the scene */
+    public static final double DEFAULT_SIZE = 100;
+
+    /** seed of random numbers */
+    private final long seed;
+    /** size of edge of the cube of the scene */
+    private double size = DEFAULT_SIZE;
+    /** amount of random spheres */
+    private int spheres = 0;
+    /** amount of random triangles */
+    private int triangles = 0;
+    /** amount of rows of the polygon grid */
+    private int gridRows = 0;
+    /** amount of columns of the polygon grid */
+    private int gridColumns = 0;
+    /** amount of shells of the reflection stack */
+    private int stackDepth = 0;
+    /** amount of lights */
+    private int lights = 1;
+
+    /** receiver of the generated geometries and lights */
+    private interface Sink {
+        /** receives a geometry
+         * @param geometry the geometry
+         * @throws IOException if writing the geometry went wrong */
+        void geometry(Geometry geometry) throws IOException;
+
+        /** receives a light
+         * @param light the light
+         * @throws IOException if writing the light went wrong */
+        void light(LightSource light) throws IOException;
+    }
+
+    /** constructor for SceneGenerator
+     * @param seed seed of random numbers */
+    public SceneGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** setter for size of the scene
+     * @param size length of edge of the cube of the scene
+     * @return scene generator
+     * @throws IllegalArgumentException if the size is not positive */
+    public SceneGenerator setSize(double size) {
+        if (!(size > 0)) throw new IllegalArgumentException("size of scene must be positive");
+        this.size = size;
+        return this;
+    }
+
+    /** setter for amount of random spheres
+     * @param amount amount of spheres
+     * @return scene generator
+     * @throws IllegalArgumentException if the amount is negative */
+    public SceneGenerator setSpheres(int amount) {
+        this.spheres = checkAmount(amount);
+        return this;
+    }
+
+    /** setter for amount of random triangles
+     * @param amount amount of triangles
+     * @return scene generator
+     * @throws IllegalArgumentException if the amount is negative */
+    public SceneGenerator setTriangles(int amount) {
+        this.triangles = checkAmount(amount);
+        return this;
+    }
+
+    /** setter for the grid of polygons - squares of a checkerboard on the floor of the cube
+     * @param rows amount of rows
+     * @param columns amount of columns
+     * @return scene generator
+     * @throws IllegalArgumentException if an amount is negative */
+    public SceneGenerator setPolygonGrid(int rows, int columns) {
+        this.gridRows = checkAmount(rows);
+        this.gridColumns = checkAmount(columns);
+        return this;
+    }
+
+    /** setter for the reflection stack - concentric reflecting and transparent sphere shells in the middle of the
+     * cube, between two facing mirrors, so rays are reflected and refracted as deep as the ray tracer allows
+     * @param depth amount of shells (no shells and no mirrors if 0)
+     * @return scene generator
+     * @throws IllegalArgumentException if the depth is negative */
+    public SceneGenerator setReflectionStack(int depth) {
+        this.stackDepth = checkAmount(depth);
+        return this;
+    }
+
+    /** setter for amount of lights - point lights, spot lights and directional lights in turn, whose total
+     * intensity does not depend on their amount
+     * @param amount amount of lights
+     * @return scene generator
+     * @throws IllegalArgumentException if the amount is negative */
+    public SceneGenerator setLights(int amount) {
+        this.lights = checkAmount(amount);
+        return this;
+    }
+
+    /** getter for total amount of geometries of generated scenes
+     * @return amount of geometries */
+    public long getAmountGeometries() {
+        return (long) spheres + triangles + (long) gridRows * gridColumns + (stackDepth == 0 ? 0 : stackDepth + 2);
+    }
+
+    /**
+     * Generates the scene in memory
+     * @param name name of scene
+     * @return the scene
+     */
+    public Scene generate(String name) {
+        Scene scene = new Scene(name).setBackground(BACKGROUND).setAmbientLight(new AmbientLight(AMBIENT_COLOR, AMBIENT_KA));
+        try {
+            generate(new Sink() {
+                @Override
+                public void geometry(Geometry geometry) {
+                    scene.geometries.add(geometry);
+                }
+
+                @Override
+                public void light(LightSource light) {
+                    scene.lights.add(light);
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("scene in memory cannot fail writing", e);
+        }
+        return scene;
+    }
+
+    /**
+     * Writes the scene to a scene file, with a camera and an image writer, without holding its geometries
+     * @param file path of file
+     * @param name name of scene and image
+     * @param width amount of pixels in a row (and a column) of the image
+     * @throws IOException if writing the file went wrong
+     * @throws IllegalArgumentException if the width is not positive
+     */
+    public void writeXML(Path file, String name, int width) throws IOException {
+        if (width <= 0) throw new IllegalArgumentException("width of image must be positive");
+        String escaped = name.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<scene name=\"" + escaped + "\" background-color=\"" + color(BACKGROUND) + "\">\n");
+            out.write("    <camera location=\"0 0 " + 3 * size + "\" to=\"0 0 -1\" up=\"0 1 0\" vp-size=\"" + size + " "
+                    + size + "\" vp-distance=\"" + 1.5 * size + "\"/>\n");
+            out.write("    <imageWriter name=\"" + escaped + "\" Nx=\"" + width + "\" Ny=\"" + width + "\"/>\n");
+            out.write("    <ambient-light color=\"" + color(AMBIENT_COLOR) + "\" Ka=\"" + AMBIENT_KA + "\"/>\n");
+            StringBuilder lightElements = new StringBuilder();
+            out.write("    <geometries>\n");
+            generate(new Sink() {
+                @Override
+                public void geometry(Geometry geometry) throws IOException {
+                    out.write(element(geometry));
+                }
+
+                @Override
+                public void light(LightSource light) {
+                    lightElements.append(element(light));
+                }
+            });
+            out.write("    </geometries>\n");
+            out.write("    <lights>\n");
+            out.write(lightElements.toString());
+            out.write("    </lights>\n");
+            out.write("</scene>\n");
+        }
+    }
+
+    /**
+     * Generates the geometries (in the order the parsers read them) and the lights of the scene
+     * @param sink receiver of the geometries and lights
+     * @throws IOException if the receiver went wrong
+     */
+    private void generate(Sink sink) throws IOException {
+        Random random = new Random(seed);
+        double half = size / 2;
+
+        // reflection stack - concentric shells, the outer ones mostly reflecting and the inner ones transparent
+        for (int k = stackDepth; k > 0; --k) {
+            double ratio = (double) k / stackDepth;
+            sink.geometry(new Sphere(Point.ZERO, size / 4 * ratio)
+                    .setMaterial(new Material().setKd(0.1).setKs(0.3).setShininess(60)
+                            .setKr(0.2 + 0.5 * ratio).setKt(0.7 - 0.5 * ratio))
+                    .setEmission(new Color(5, 5, 10)));
+        }
+
+        // random spheres, of radius inversely proportional to the cube root of their amount
+        double radius = size / (4 * Math.cbrt(Math.max(1, spheres)));
+        for (int k = 0; k < spheres; ++k)
+            sink.geometry(new Sphere(randomPoint(random, half), radius * (0.5 + random.nextDouble()))
+                    .setMaterial(randomMaterial(random)).setEmission(randomColor(random, 100)));
+
+        // random triangles around random centers, of edges inversely proportional to the cube root of their amount
+        double edge = size / (2 * Math.cbrt(Math.max(1, triangles)));
+        for (int k = 0; k < triangles; ++k) {
+            Point center = randomPoint(random, half);
+            Triangle triangle = null;
+            while (triangle == null) {
+                try {
+                    triangle = new Triangle(center.add(randomVector(random, edge)), center.add(randomVector(random, edge)),
+                            center.add(randomVector(random, edge)));
+                } catch (IllegalArgumentException ignored) {
+                    // degenerate triangle - sample again
+                }
+            }
+            sink.geometry(triangle.setMaterial(randomMaterial(random)).setEmission(randomColor(random, 100)));
+        }
+
+        // checkerboard grid on the floor, below the cube
+        double cellWidth = 2 * size / Math.max(1, gridColumns), cellDepth = 2 * size / Math.max(1, gridRows);
+        double floor = -0.6 * size;
+        Material dark = new Material().setKd(0.5).setKs(0.2).setShininess(20);
+        Material light = new Material().setKd(0.8).setKs(0.2).setShininess(20).setKr(0.2);
+        for (int row = 0; row < gridRows; ++row)
+            for (int column = 0; column < gridColumns; ++column) {
+                double x = -size + column * cellWidth, z = -size + row * cellDepth;
+                boolean even = (row + column) % 2 == 0;
+                sink.geometry(new Polygon(new Point(x, floor, z), new Point(x, floor, z + cellDepth),
+                        new Point(x + cellWidth, floor, z + cellDepth), new Point(x + cellWidth, floor, z))
+                        .setMaterial(even ? light : dark)
+                        .setEmission(even ? new Color(60, 60, 60) : new Color(15, 15, 15)));
+            }
+
+        // facing mirrors at both sides of the reflection stack
+        if (stackDepth > 0) {
+            Material mirror = new Material().setKd(0.05).setKs(0.1).setShininess(100).setKr(0.9);
+            for (double x : new double[]{-0.75 * size, 0.75 * size})
+                sink.geometry(new Polygon(new Point(x, -half, -half), new Point(x, -half, half),
+                        new Point(x, half, half), new Point(x, half, -half))
+                        .setMaterial(mirror).setEmission(Color.BLACK));
+        }
+
+        // lights above the cube, of intensity divided between them
+        double intensity = TOTAL_LIGHT / Math.max(1, lights);
+        for (int k = 0; k < lights; ++k) {
+            Color color = randomColor(random, intensity);
+            Point position = new Point((random.nextDouble() * 2 - 1) * size, half + random.nextDouble() * size,
+                    (random.nextDouble() * 2 - 1) * size + size);
+            switch (k % 3) {
+                case 0 -> sink.light(new PointLight(color, position).setKl(1 / size).setKq(0));
+                case 1 -> sink.light(new SpotLight(color, position, Point.ZERO.subtract(position)).setKl(1 / size).setKq(0));
+                default -> sink.light(new DirectionalLight(color, randomVector(random, 1).add(new Vector(0, -2, 0))));
+            }
+        }
+    }
+
+    /** checks an amount of primitives
+     * @param amount the amount
+     * @return the amount
+     * @throws IllegalArgumentException if the amount is negative */
+    private static int checkAmount(int amount) {
+        if (amount < 0) throw new IllegalArgumentException("amount cannot be negative");
+        return amount;
+    }
+
+    /** samples a random point in a cube around the origin
+     * @param random random numbers generator
+     * @param half half of edge of cube
+     * @return the point */
+    private static Point randomPoint(Random random, double half) {
+        return new Point((random.nextDouble() * 2 - 1) * half, (random.nextDouble() * 2 - 1) * half,
+                (random.nextDouble() * 2 - 1) * half);
+    }
+
+    /** samples a random vector in a cube around the origin, which is not the zero vector
+     * @param random random numbers generator
+     * @param length half of edge of cube
+     * @return the vector */
+    private static Vector randomVector(Random random, double length) {
+        while (true) {
+            try {
+                return new Vector((random.nextDouble() * 2 - 1) * length, (random.nextDouble() * 2 - 1) * length,
+                        (random.nextDouble() * 2 - 1) * length);
+            } catch (IllegalArgumentException ignored) {
+                // zero vector - sample again
+            }
+        }
+    }
+
+    /** samples a random color
+     * @param random random numbers generator
+     * @param maximum maximum of every component
+     * @return the color */
+    private static Color randomColor(Random random, double maximum) {
+        return new Color(random.nextDouble() * maximum, random.nextDouble() * maximum, random.nextDouble() * maximum);
+    }
+
+    /** samples a random material - diffusive and specular, and sometimes reflecting or transparent
+     * @param random random numbers generator
+     * @return the material */
+    private static Material randomMaterial(Random random) {
+        Material material = new Material().setKd(0.2 + 0.6 * random.nextDouble()).setKs(0.2 + 0.3 * random.nextDouble())
+                .setShininess(10 + random.nextInt(90));
+        double kind = random.nextDouble();
+        if (kind < 0.1) material.setKr(0.5);
+        else if (kind < 0.2) material.setKt(0.5);
+        return material;
+    }
+
+    // ***************** XML elements ********************** //
+
+    /** creates the element of a geometry
+     * @param geometry the geometry - a sphere or a polygon
+     * @return the element, in a line */
+    private static String element(Geometry geometry) {
+        StringBuilder element = new StringBuilder("        <");
+        if (geometry instanceof Sphere sphere)
+            element.append("sphere center=\"").append(point(sphere.getCenter()))
+                    .append("\" radius=\"").append(sphere.getRadius()).append('"');
+        else {
+            List<Point> vertices = ((Polygon) geometry).getVertices();
+            boolean triangle = geometry instanceof Triangle;
+            element.append(triangle ? "triangle" : "polygon");
+            for (int k = 0; k < vertices.size(); ++k)
+                element.append(triangle ? " p" : " s").append(k).append("=\"").append(point(vertices.get(k))).append('"');
+        }
+        Material material = geometry.getMaterial();
+        return element.append(" emission-light=\"").append(color(geometry.getEmission()))
+                .append("\" Kd=\"").append(double3(material.kD)).append("\" Ks=\"").append(double3(material.kS))
+                .append("\" Kr=\"").append(double3(material.kR)).append("\" Kt=\"").append(double3(material.kT))
+                .append("\" shininess=\"").append(material.nShininess).append("\"/>\n").toString();
+    }
+
+    /** creates the element of a light
+     * @param light the light - a point light, spot light or directional light
+     * @return the element, in a line */
+    private static String element(LightSource light) {
+        if (light instanceof DirectionalLight directional)
+            return "        <directional-light intensity=\"" + color(directional.getIntensity()) + "\" direction=\""
+                    + vector(directional.getDir()) + "\"/>\n";
+        PointLight point = (PointLight) light;
+        return "        <" + (point instanceof SpotLight ? "spot-light" : "point-light") + " intensity=\""
+                + color(point.getIntensity()) + "\" position=\"" + point(point.getPosition()) + "\""
+                + (point instanceof SpotLight spot ? " direction=\"" + vector(spot.getDir()) + "\"" : "")
+                + " Kc=\"" + point.getKc() + "\" Kl=\"" + point.getKl() + "\" Kq=\"" + point.getKq() + "\"/>\n";
+    }
+
+    /** formats a point (exactly, so a parsed point equals it)
+     * @param point the point
+     * @return coordinates separated by spaces */
+    private static String point(Point point) {
+        return point.getX() + " " + point.getY() + " " + point.getZ();
+    }
+
+    /** formats a vector
+     * @param vector the vector
+     * @return coordinates separated by spaces */
+    private static String vector(Vector vector) {
+        return point(vector);
+    }
+
+    /** formats a color
+     * @param color the color
+     * @return components separated by spaces */
+    private static String color(Color color) {
+        return color.getRed() + " " + color.getGreen() + " " + color.getBlue();
+    }
+
+    /** formats a triad of numbers
+     * @param triad the numbers
+     * @return numbers separated by spaces */
+    private static String double3(Double3 triad) {
+        return triad.getD1() + " " + triad.getD2() + " " + triad.getD3();
+    }
+}
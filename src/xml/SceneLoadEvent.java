@@ -0,0 +1,34 @@
+package xml;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of loading a scene from an xml file
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+@Name("raytracer.SceneLoad")
+@Label("Scene Load")
+@Category({"Ray Tracer", "Scene"})
+@Description("Parsing of a scene from an xml file")
+class SceneLoadEvent extends Event {
+    /** path of xml file */
+    @Label("File")
+    String file;
+
+    /** parser of the file */
+    @Label("Parser")
+    String parser;
+
+    /** amount of geometries of the scene after loading */
+    @Label("Geometries")
+    int geometries;
+
+    /** amount of lights of the scene after loading */
+    @Label("Lights")
+    int lights;
+}
@@ -0,0 +1,447 @@
+package xml;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageFormat;
+import renderer.ImageWriter;
+import renderer.RenderJob;
+import scene.Scene;
+import scene.SceneCache;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+
+/**
+ * Streaming (StAX) parser of scene xml files in the format of {@link XMLParser}, for very large scenes.<br/>
+ * The file is read once, element by element, without building a document tree - every geometry is added to the
+ * scene as soon as its element is read, so memory is proportional to the scene and not to the file.
+ * Numeric attributes are scanned in place instead of being split by a regular expression, and geometries with
+ * the same material (or emission) attributes share one Material (or Color) object.<br/>
+ * Besides the scene, a file may configure a camera and an image writer, which are read in the same pass into a
+ * ready to render job:
+ * <pre>
+ * &lt;camera location="0 0 1000" to="0 0 -1" up="0 1 0" vp-size="200 200" vp-distance="1000"
+ *         anti-aliasing="81" adaptive="true" dof="81 950 5" threads="3" print-interval="1"/&gt;
+ * &lt;imageWriter name="image" Nx="500" Ny="500" format="png"/&gt;
+ * </pre>
+ *
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+public class StaxSceneParser {
+    /** size of file input buffer */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** largest amount of significant digits of a number which is parsed exactly without Double.parseDouble */
+    private static final int MAX_EXACT_DIGITS = 15;
+    /** powers of 10 which are exact doubles */
+    private static final double[] POWERS_OF_10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    /** names of material attributes */
+    private static final String[] MATERIAL_ATTRIBUTES = {"Kd", "Ks", "Kr", "Kt", "shininess"};
+
+    /** reader of xml file */
+    private final XMLStreamReader reader;
+    /** scene to initialize */
+    private final Scene scene;
+    /** materials which were created, by their attributes */
+    private final Map<String, Material> materials = new HashMap<>();
+    /** emission colors which were created, by their attribute */
+    private final Map<String, Color> emissions = new HashMap<>();
+    /** camera configured by the file, null if there is none */
+    private Camera camera;
+    /** image writer configured by the file, null if there is none */
+    private ImageWriter imageWriter;
+    /** file format of the produced image */
+    private ImageFormat format = ImageFormat.PNG;
+    /** attribute value which is being scanned */
+    private String value;
+    /** index of next character to scan in value */
+    private int index;
+
+    /** constructor for StaxSceneParser
+     * @param reader reader of xml file
+     * @param scene scene to initialize */
+    private StaxSceneParser(XMLStreamReader reader, Scene scene) {
+        this.reader = reader;
+        this.scene = scene;
+    }
+
+    /**
+     * parses scene from xml file
+     *
+     * @param filename xml file path
+     * @param scene    scene object to initialize
+     * @throws IOException              if reading xml file went wrong
+     * @throws XMLStreamException       if parsing xml file went wrong
+     * @throws IllegalArgumentException if an attribute has a wrong amount of numbers
+     */
+    public static void parseXMLScene(String filename, Scene scene) throws IOException, XMLStreamException {
+        read(filename, scene);
+    }
+
+    /**
+     * parses scene from xml file through a compiled scene cache - if the cache was compiled from the same file
+     * it is loaded instead of parsing, otherwise the file is parsed and compiled to the cache, and the scene is
+     * loaded from the new cache (so it is the same in both cases)
+     *
+     * @param filename xml file path
+     * @param scene    scene object to initialize
+     * @param cache    path of compiled scene cache file
+     * @throws IOException              if reading xml file or reading or writing the cache went wrong
+     * @throws XMLStreamException       if parsing xml file went wrong
+     * @throws IllegalArgumentException if an attribute has a wrong amount of numbers
+     * @see SceneCache
+     */
+    public static void parseXMLScene(String filename, Scene scene, Path cache) throws IOException, XMLStreamException {
+        long hash = SceneCache.hash(Path.of(filename));
+        if (SceneCache.read(cache, hash, scene)) return;
+        Scene parsed = new Scene(scene.name);
+        read(filename, parsed);
+        SceneCache.write(parsed, hash, cache);
+        SceneCache.read(cache, hash, scene);
+    }
+
+    /**
+     * parses a render job - scene, camera, image writer and image file format - from xml file, in a single pass
+     *
+     * @param filename xml file path
+     * @return the render job, ready to render
+     * @throws IOException              if reading xml file went wrong
+     * @throws XMLStreamException       if parsing xml file went wrong
+     * @throws IllegalArgumentException if an attribute has a wrong value
+     * @throws MissingResourceException if the file does not configure a camera or an image writer
+     */
+    public static RenderJob parseXMLJob(String filename) throws IOException, XMLStreamException {
+        Scene scene = new Scene(Path.of(filename).getFileName().toString());
+        StaxSceneParser parser = read(filename, scene);
+        if (parser.camera == null) throw new MissingResourceException("camera is not configured", "Camera", "camera");
+        if (parser.imageWriter == null)
+            throw new MissingResourceException("image writer is not configured", "ImageWriter", "imageWriter");
+        return new RenderJob(scene, parser.camera, parser.imageWriter, parser.format);
+    }
+
+    /** reads all the elements of xml file
+     * @param filename xml file path
+     * @param scene scene object to initialize
+     * @return the parser, holding the camera and image writer which were read
+     * @throws IOException if reading xml file went wrong
+     * @throws XMLStreamException if parsing xml file went wrong */
+    private static StaxSceneParser read(String filename, Scene scene) throws IOException, XMLStreamException {
+        SceneLoadEvent event = new SceneLoadEvent();
+        event.begin();
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(filename)), BUFFER_SIZE)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                StaxSceneParser parser = new StaxSceneParser(reader, scene);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) parser.parseElement(reader.getLocalName());
+                }
+                if (event.shouldCommit()) {
+                    event.file = filename;
+                    event.parser = "StAX";
+                    event.geometries = scene.geometries.getGeometries().size();
+                    event.lights = scene.lights.size();
+                    event.commit();
+                }
+                return parser;
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /** parses an element which was just started (elements of other names are ignored)
+     * @param name name of element */
+    private void parseElement(String name) {
+        switch (name) {
+            case "scene" -> {
+                if (attribute("name") != null) scene.name = attribute("name");
+                if (attribute("background-color") != null) scene.setBackground(color("background-color"));
+            }
+            case "ambient-light" -> scene.setAmbientLight(ambientLight());
+            case "sphere" -> addGeometry(new Sphere(point("center"), number("radius")));
+            case "triangle" -> {
+                try {
+                    addGeometry(new Triangle(point("p0"), point("p1"), point("p2")));
+                } catch (IllegalArgumentException ignored) {} // degenerate triangles are skipped
+            }
+            case "plane" -> addGeometry(attribute("p") != null
+                    ? new Plane(point("p"), vector("normal"))
+                    : new Plane(point("p0"), point("p1"), point("p2")));
+            case "cylinder" -> addGeometry(new Cylinder(ray("axis-ray"), number("radius"), number("height")));
+            case "tube" -> addGeometry(new Tube(ray("axis-ray"), number("radius")));
+            case "polygon" -> {
+                List<Point> vertices = new ArrayList<>();
+                for (int k = 0; attribute("s" + k) != null; ++k) vertices.add(point("s" + k));
+                addGeometry(new Polygon(vertices.toArray(new Point[0])));
+            }
+            case "directional-light" ->
+                    scene.lights.add(new DirectionalLight(color("intensity"), vector("direction")));
+            case "point-light" ->
+                    scene.lights.add(attenuation(new PointLight(color("intensity"), point("position"))));
+            case "spot-light" -> scene.lights.add(attenuation(
+                    new SpotLight(color("intensity"), point("position"), vector("direction"))));
+            case "camera" -> camera = camera();
+            case "imageWriter" -> {
+                imageWriter = new ImageWriter(attribute("name"), integer("Nx"), integer("Ny"));
+                if (attribute("format") != null)
+                    format = ImageFormat.valueOf(attribute("format").trim().toUpperCase(Locale.ROOT));
+            }
+            default -> {}
+        }
+    }
+
+    /** parses the camera of current element
+     * @return the camera
+     * @throws IllegalArgumentException if an attribute has a wrong value */
+    private Camera camera() {
+        Camera camera = new Camera(point("location"), vector("to"), vector("up"));
+        scan("vp-size");
+        double width = nextNumber(), height = nextNumber();
+        end();
+        camera.setVPSize(width, height).setVPDistance(number("vp-distance"));
+        if (attribute("anti-aliasing") != null) camera.setAntiAliasing(integer("anti-aliasing"));
+        if (Boolean.parseBoolean(attribute("adaptive"))) camera.setASS();
+        if (attribute("dof") != null) {
+            scan("dof");
+            double amount = nextNumber(), focusDistance = nextNumber(), apertureSize = nextNumber();
+            end();
+            if (amount != (int) amount) throw new IllegalArgumentException("amount of DOF rays must be an integer");
+            camera.setDOF((int) amount, focusDistance, apertureSize);
+        }
+        if (attribute("threads") != null)
+            camera.setMultiThreading(integer("threads"),
+                    attribute("print-interval") == null ? 1 : integer("print-interval"));
+        return camera;
+    }
+
+    /** parses an attribute of a single integer
+     * @param name name of attribute
+     * @return the integer
+     * @throws IllegalArgumentException if the attribute is missing or is not an integer */
+    private int integer(String name) {
+        String attribute = attribute(name);
+        if (attribute == null) throw new IllegalArgumentException("missing attribute " + name);
+        return Integer.parseInt(attribute.trim());
+    }
+
+    /** sets material and emission of a geometry from the attributes of its element, and adds it to the scene
+     * @param geometry the geometry */
+    private void addGeometry(Geometry geometry) {
+        geometry.setMaterial(material());
+        String emission = attribute("emission-light");
+        if (emission != null) geometry.setEmission(emissions.computeIfAbsent(emission, e -> color("emission-light")));
+        scene.geometries.add(geometry);
+    }
+
+    /** gets the material of current element, shared with former elements of the same material attributes
+     * @return material of element
+     * @throws IllegalArgumentException if an attenuation coefficient does not have 1 or 3 numbers */
+    private Material material() {
+        StringBuilder key = new StringBuilder();
+        for (String name : MATERIAL_ATTRIBUTES) {
+            String attribute = attribute(name);
+            if (attribute != null) key.append(name).append('=').append(attribute).append(';');
+        }
+        Material material = materials.get(key.toString());
+        if (material != null) return material;
+        material = new Material();
+        if (attribute("Kd") != null) material.setKd(coefficients("Kd"));
+        if (attribute("Ks") != null) material.setKs(coefficients("Ks"));
+        if (attribute("Kr") != null) material.setKr(coefficients("Kr"));
+        if (attribute("Kt") != null) material.setKt(coefficients("Kt"));
+        if (attribute("shininess") != null) material.setShininess(Integer.parseInt(attribute("shininess").trim()));
+        materials.put(key.toString(), material);
+        return material;
+    }
+
+    /** parses the ambient light of current element
+     * @return ambient light
+     * @throws IllegalArgumentException if Ka does not have 1 or 3 numbers */
+    private AmbientLight ambientLight() {
+        return new AmbientLight(color("color"), attribute("Ka") == null ? new Double3(1) : coefficients("Ka"));
+    }
+
+    /** sets the attenuation coefficients of a light from the attributes of current element
+     * @param light point light or spot light
+     * @return the light */
+    private PointLight attenuation(PointLight light) {
+        if (attribute("Kc") != null) light.setKc(number("Kc"));
+        if (attribute("Kl") != null) light.setKl(number("Kl"));
+        if (attribute("Kq") != null) light.setKq(number("Kq"));
+        return light;
+    }
+
+    /** gets an attribute of current element
+     * @param name name of attribute
+     * @return value of attribute, null if there is none */
+    private String attribute(String name) {
+        return reader.getAttributeValue(null, name);
+    }
+
+    /** starts scanning an attribute of current element
+     * @param name name of attribute
+     * @throws IllegalArgumentException if there is no such attribute */
+    private void scan(String name) {
+        value = attribute(name);
+        if (value == null) throw new IllegalArgumentException("missing attribute " + name);
+        index = 0;
+    }
+
+    /** parses an attribute of a single number
+     * @param name name of attribute
+     * @return the number
+     * @throws IllegalArgumentException if the attribute is not a single number */
+    private double number(String name) {
+        scan(name);
+        double number = nextNumber();
+        end();
+        return number;
+    }
+
+    /** parses an attribute of attenuation coefficients - 1 number for all colors, or 3 numbers
+     * @param name name of attribute
+     * @return the coefficients
+     * @throws IllegalArgumentException if the attribute does not have 1 or 3 numbers */
+    private Double3 coefficients(String name) {
+        scan(name);
+        double d1 = nextNumber();
+        if (!hasNext()) return new Double3(d1);
+        double d2 = nextNumber(), d3 = nextNumber();
+        end();
+        return new Double3(d1, d2, d3);
+    }
+
+    /** parses an attribute of a color
+     * @param name name of attribute
+     * @return the color
+     * @throws IllegalArgumentException if the attribute does not have exactly 3 numbers */
+    private Color color(String name) {
+        scan(name);
+        Color color = new Color(nextNumber(), nextNumber(), nextNumber());
+        end();
+        return color;
+    }
+
+    /** parses an attribute of a point
+     * @param name name of attribute
+     * @return the point
+     * @throws IllegalArgumentException if the attribute does not have exactly 3 numbers */
+    private Point point(String name) {
+        scan(name);
+        Point point = new Point(nextNumber(), nextNumber(), nextNumber());
+        end();
+        return point;
+    }
+
+    /** parses an attribute of a vector
+     * @param name name of attribute
+     * @return the vector
+     * @throws IllegalArgumentException if the attribute does not have exactly 3 numbers */
+    private Vector vector(String name) {
+        scan(name);
+        Vector vector = new Vector(nextNumber(), nextNumber(), nextNumber());
+        end();
+        return vector;
+    }
+
+    /** parses an attribute of a ray - a label and 3 numbers of its head, and a label and 3 numbers of its direction
+     * @param name name of attribute
+     * @return the ray
+     * @throws IllegalArgumentException if the attribute does not have exactly 8 parts */
+    private Ray ray(String name) {
+        scan(name);
+        skipToken();
+        Point head = new Point(nextNumber(), nextNumber(), nextNumber());
+        skipToken();
+        Ray ray = new Ray(head, new Vector(nextNumber(), nextNumber(), nextNumber()));
+        end();
+        return ray;
+    }
+
+    /** skips whitespace in the scanned attribute
+     * @return whether there are more characters */
+    private boolean hasNext() {
+        while (index < value.length() && Character.isWhitespace(value.charAt(index))) ++index;
+        return index < value.length();
+    }
+
+    /** checks that the scanned attribute has no more parts
+     * @throws IllegalArgumentException if there are more parts */
+    private void end() {
+        if (hasNext()) throw new IllegalArgumentException("too many numbers in \"" + value + "\"");
+    }
+
+    /** skips a whitespace separated part of the scanned attribute
+     * @throws IllegalArgumentException if there are no more parts */
+    private void skipToken() {
+        if (!hasNext()) throw new IllegalArgumentException("missing part in \"" + value + "\"");
+        while (index < value.length() && !Character.isWhitespace(value.charAt(index))) ++index;
+    }
+
+    /** parses the next number of the scanned attribute - numbers of up to 15 significant digits and small exponents
+     * are calculated exactly from their digits, other numbers are parsed by Double.parseDouble
+     * @return the number
+     * @throws IllegalArgumentException if there are no more parts or the next part is not a number */
+    private double nextNumber() {
+        if (!hasNext()) throw new IllegalArgumentException("missing number in \"" + value + "\"");
+        int start = index, length = value.length();
+        char c = value.charAt(index);
+        boolean negative = c == '-';
+        if (negative || c == '+') ++index;
+        long mantissa = 0;
+        int significant = 0, exponent = 0;
+        boolean digits = false, point = false;
+        for (; index < length; ++index) {
+            c = value.charAt(index);
+            if (c == '.' && !point) {
+                point = true;
+                continue;
+            }
+            if (c < '0' || c > '9') break;
+            digits = true;
+            if (mantissa == 0 && c == '0') {
+                if (point) --exponent;
+                continue;
+            }
+            if (++significant <= MAX_EXACT_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) --exponent;
+            }
+        }
+        if (!digits) throw new IllegalArgumentException("not a number in \"" + value + "\"");
+        if (index < length && (value.charAt(index) == 'e' || value.charAt(index) == 'E')) {
+            int exponentStart = ++index;
+            if (index < length && (value.charAt(index) == '-' || value.charAt(index) == '+')) ++index;
+            int e = 0;
+            for (; index < length && (c = value.charAt(index)) >= '0' && c <= '9'; ++index)
+                if (e < 1000) e = e * 10 + (c - '0');
+            if (index == exponentStart || !Character.isDigit(value.charAt(index - 1)))
+                throw new IllegalArgumentException("not a number in \"" + value + "\"");
+            exponent += value.charAt(exponentStart) == '-' ? -e : e;
+        }
+        if (index < length && !Character.isWhitespace(value.charAt(index)))
+            throw new IllegalArgumentException("not a number in \"" + value + "\"");
+        if (significant > MAX_EXACT_DIGITS || exponent < -22 || exponent > 22)
+            return Double.parseDouble(value.substring(start, index));
+        double number = exponent < 0 ? mantissa / POWERS_OF_10[-exponent] : mantissa * POWERS_OF_10[exponent];
+        return negative ? -number : number;
+    }
+}
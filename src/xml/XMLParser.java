@@ -31,6 +31,8 @@ public interface XMLParser {
      * @throws SAXException                 if parsing xml file went wrong
      */
     public static void parseXMLScene(String filename, Scene scene) throws ParserConfigurationException, IOException, SAXException {
+        SceneLoadEvent event = new SceneLoadEvent();
+        event.begin();
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
         Document document = builder.parse(filename);
@@ -96,7 +98,10 @@ public interface XMLParser {
             for (int i = 0; i < geometryNodes.getLength(); i++) {
                 geometry = (Element) geometryNodes.item(i);
                 if (geometry.hasAttribute("p")) {
-                    scene.geometries.add(new Plane(getPoint(geometry, "p"), getVector(geometry, "normal")));
+                    scene.geometries.add(new Plane(getPoint(geometry, "p"), getVector(geometry, "normal"))
+                            .setMaterial(getMaterial(geometry))
+                            .setEmission(getEmission(geometry))
+                    );
                 } else {
                     scene.geometries.add(new Plane(
                             getPoint(geometry, "p0"),
@@ -157,10 +162,11 @@ public interface XMLParser {
             geometryNodes = geometries.getElementsByTagName("polygon");
             for (int i = 0; i < geometryNodes.getLength(); i++) {
                 geometry = (Element) geometryNodes.item(i);
-                String count = "0";
+                int count = 0;
                 LinkedList<Point> points = new LinkedList<>();
                 while (geometry.hasAttribute("s" + count)) {
                     points.add(getPoint(geometry, "s" + count));
+                    count++;
                 }
                 Point[] array = points.toArray(new Point[0]);
                 scene.geometries.add(new Polygon(array)
@@ -171,9 +177,9 @@ public interface XMLParser {
         }
 
         // lights
-        if (sceneElement.hasAttribute("lights")) {
+        Element lights = (Element) sceneElement.getElementsByTagName("lights").item(0);
+        if (lights != null) {
             String tagName;
-            Element lights = (Element) sceneElement.getElementsByTagName("lights");
             NodeList lightNodes = lights.getElementsByTagName("*");
             for (int i = 0; i < lightNodes.getLength(); i++) {
                 Element light = (Element) lightNodes.item(i);
@@ -195,6 +201,13 @@ public interface XMLParser {
                 }
             }
         }
+        if (event.shouldCommit()) {
+            event.file = filename;
+            event.parser = "DOM";
+            event.geometries = scene.geometries.getGeometries().size();
+            event.lights = scene.lights.size();
+            event.commit();
+        }
     }
 
     /**
@@ -0,0 +1,296 @@
+package geometriesTests;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Mesh;
+import geometries.PagedMesh;
+import geometries.Triangle;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import scene.MeshImporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.Mesh class and scene.MeshImporter class
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+class MeshTest {
+    /** a unit square of 2 triangles at z=0 */
+    private final Mesh square = new Mesh(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0}, new int[]{0, 1, 2, 0, 2, 3});
+
+    /**
+     * Test method for {@link geometries.Mesh#Mesh(float[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        // TC01: correct mesh
+        assertEquals(4, square.getAmountVertices(), "wrong amount of vertices");
+        assertEquals(2, square.getAmountFaces(), "wrong amount of faces");
+        // TC02: amount of indices is not a multiple of 3
+        assertThrows(IllegalArgumentException.class, () -> new Mesh(new float[9], new int[]{0, 1}),
+                "constructed a mesh with a partial face");
+        // TC03: index out of vertices
+        assertThrows(IllegalArgumentException.class, () -> new Mesh(new float[9], new int[]{0, 1, 3}),
+                "constructed a mesh with an index out of vertices");
+        // TC04: no faces
+        assertThrows(IllegalArgumentException.class, () -> new Mesh(new float[9], new int[0]),
+                "constructed a mesh without faces");
+    }
+
+    /**
+     * Test method for {@link geometries.Mesh#getNormal(primitives.Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // a floor square at z=0 and a wall square at x=1
+        Mesh tent = new Mesh(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 1, 0, 1, 1, 1, 1},
+                new int[]{0, 1, 2, 0, 2, 3, 1, 4, 5, 1, 5, 2});
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: point on the floor
+        assertEquals(new Vector(0, 0, 1), tent.getNormal(new Point(0.25, 0.75, 0)), "wrong normal of floor");
+        // TC02: point on the wall
+        assertEquals(new Vector(-1, 0, 0), tent.getNormal(new Point(1, 0.3, 0.6)), "wrong normal of wall");
+        // TC03: normal of an intersection point is the normal of its face
+        GeoPoint hit = tent.findGeoIntersections(new Ray(new Point(0, 0.4, 0.7), new Vector(1, 0.1, -0.2))).get(0);
+        assertEquals(hit.geometry.getNormal(hit.point), tent.getNormal(hit.point), "wrong normal of intersection");
+        // TC04: point not on the mesh
+        assertThrows(IllegalArgumentException.class, () -> tent.getNormal(new Point(0.5, 0.5, 0.5)),
+                "normal of a point off the mesh");
+        // =============== Boundary Values Tests ==================
+        // TC10: point on the edge between the floor and the wall
+        Vector edge = tent.getNormal(new Point(1, 0.5, 0));
+        assertTrue(edge.equals(new Vector(0, 0, 1)) || edge.equals(new Vector(-1, 0, 0)),
+                "normal of edge is not of one of its faces");
+        // TC11: point on a vertex
+        assertEquals(new Vector(0, 0, 1), tent.getNormal(new Point(0, 1, 0)), "wrong normal of vertex");
+    }
+
+    /**
+     * Test method for {@link geometries.Mesh#findGeoIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // TC01: ray through a face
+        List<GeoPoint> result = square.findGeoIntersections(new Ray(new Point(0.25, 0.75, 1), new Vector(0, 0, -1)));
+        assertNotNull(result, "ray through the mesh has no intersection");
+        assertEquals(1, result.size(), "wrong amount of intersections");
+        assertEquals(new Point(0.25, 0.75, 0), result.get(0).point, "wrong intersection point");
+        assertEquals(new Vector(0, 0, 1), result.get(0).geometry.getNormal(result.get(0).point), "wrong normal");
+        // TC02: ray outside of mesh
+        assertNull(square.findGeoIntersections(new Ray(new Point(2, 2, 1), new Vector(0, 0, -1))),
+                "ray outside of the mesh has intersections");
+        // TC03: ray starts after the mesh
+        assertNull(square.findGeoIntersections(new Ray(new Point(0.5, 0.5, 1), new Vector(0, 0, 1))),
+                "ray going away from the mesh has intersections");
+        // TC04: mesh is farther than max distance
+        assertNull(square.findGeoIntersections(new Ray(new Point(0.25, 0.75, 1), new Vector(0, 0, -1)), 0.5),
+                "intersection farther than max distance");
+        // TC05: faces of the same intersection are equal
+        assertEquals(result.get(0).geometry,
+                square.findGeoIntersections(new Ray(new Point(0.2, 0.7, 1), new Vector(0, 0, -1))).get(0).geometry,
+                "faces of the same index are not equal");
+    }
+
+    /**
+     * Test method for the hierarchy of {@link geometries.Mesh} - intersections of random rays are the same as of
+     * separate triangles
+     */
+    @Test
+    void testHierarchy() {
+        Random random = new Random(7);
+        int amount = 5000;
+        float[] vertices = new float[9 * amount];
+        int[] indices = new int[3 * amount];
+        Triangle[] triangles = new Triangle[amount];
+        for (int face = 0; face < amount; ++face) {
+            double x = random.nextDouble() * 100, y = random.nextDouble() * 100, z = random.nextDouble() * 100;
+            for (int k = 0; k < 9; ++k)
+                vertices[9 * face + k] = (float) ((k % 3 == 0 ? x : k % 3 == 1 ? y : z) + random.nextDouble() * 4);
+            Point[] points = new Point[3];
+            for (int k = 0; k < 3; ++k) {
+                indices[3 * face + k] = 3 * face + k;
+                points[k] = new Point(vertices[9 * face + 3 * k], vertices[9 * face + 3 * k + 1], vertices[9 * face + 3 * k + 2]);
+            }
+            triangles[face] = new Triangle(points[0], points[1], points[2]);
+        }
+        Mesh mesh = new Mesh(vertices, indices);
+        for (int r = 0; r < 300; ++r) {
+            Ray ray = new Ray(new Point(-10, random.nextDouble() * 100, random.nextDouble() * 100),
+                    new Vector(1, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            int expected = 0;
+            for (Triangle triangle : triangles) {
+                List<Point> points = triangle.findIntersections(ray);
+                if (points != null) expected += points.size();
+            }
+            List<GeoPoint> result = mesh.findGeoIntersections(ray);
+            assertEquals(expected, result == null ? 0 : result.size(), "hierarchy missed or added intersections");
+        }
+    }
+
+    /**
+     * Test method for {@link scene.MeshImporter#importOBJ(java.nio.file.Path, int)}.
+     * @throws IOException if the temporary file could not be written
+     */
+    @Test
+    void testImportOBJ() throws IOException {
+        Path file = Files.createTempFile("mesh", ".obj");
+        try {
+            Files.writeString(file, """
+                    # a square and a triangle
+                    v 0 0 0
+                    v 1.0 0 0
+                    vt 0.5 0.5
+                    v 1 1e0 0
+                    v 0 1 -0.0
+                    f 1/1/1 2/1/1 3/1/1 4/1/1
+                    g second
+                    v 0 0 2\r
+                    v 1 0 2
+                    v 0 1 2
+                    f -3//1 -2//1 -1//1
+                    """);
+            for (int threads : new int[]{0, 3}) {
+                // TC01: polygon divided to triangles, relative indices, texture and normal indices
+                Mesh mesh = MeshImporter.importMesh(file, threads);
+                assertEquals(7, mesh.getAmountVertices(), "wrong amount of vertices");
+                assertEquals(3, mesh.getAmountFaces(), "wrong amount of faces");
+                assertEquals(new Point(1, 1, 0), mesh.getVertex(2), "wrong vertex");
+                List<GeoPoint> result = mesh.findGeoIntersections(new Ray(new Point(0.2, 0.3, 5), new Vector(0, 0, -1)));
+                assertEquals(2, result.size(), "wrong amount of intersections");
+            }
+            // TC02: index out of vertices
+            Files.writeString(file, "v 0 0 0\nv 1 0 0\nv 0 1 0\nf 1 2 4\n");
+            assertThrows(IllegalArgumentException.class, () -> MeshImporter.importOBJ(file, 0),
+                    "imported a face with a missing vertex");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test method for {@link scene.MeshImporter#importPLY(java.nio.file.Path, int)}.
+     * @throws IOException if the temporary file could not be written
+     */
+    @Test
+    void testImportPLY() throws IOException {
+        Path file = Files.createTempFile("mesh", ".ply");
+        try {
+            // TC01: triangles, little endian, extra properties
+            writePLY(file, ByteOrder.LITTLE_ENDIAN, false);
+            for (int threads : new int[]{0, 3}) {
+                Mesh mesh = MeshImporter.importMesh(file, threads);
+                assertEquals(4, mesh.getAmountVertices(), "wrong amount of vertices");
+                assertEquals(2, mesh.getAmountFaces(), "wrong amount of faces");
+                assertEquals(new Point(1, 1, 0), mesh.getVertex(2), "wrong vertex");
+            }
+            // TC02: a quad, big endian
+            writePLY(file, ByteOrder.BIG_ENDIAN, true);
+            Mesh mesh = MeshImporter.importPLY(file, 2);
+            assertEquals(2, mesh.getAmountFaces(), "quad was not divided to triangles");
+            assertNotNull(mesh.findGeoIntersections(new Ray(new Point(0.25, 0.75, 1), new Vector(0, 0, -1))),
+                    "ray through the mesh has no intersection");
+            // TC03: ascii PLY
+            Files.writeString(file, "ply\nformat ascii 1.0\nelement vertex 0\nend_header\n");
+            assertThrows(IllegalArgumentException.class, () -> MeshImporter.importPLY(file, 0),
+                    "imported an ascii PLY file");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test method for {@link scene.MeshImporter#importPaged(java.nio.file.Path, java.nio.file.Path, int, int)}.
+     * @throws IOException if the temporary files could not be written
+     */
+    @Test
+    void testImportPaged() throws IOException {
+        Path directory = Files.createTempDirectory("mesh"), paged = directory.resolve("mesh.pmesh");
+        Path obj = directory.resolve("mesh.obj"), ply = directory.resolve("mesh.ply");
+        try {
+            // random small triangles - every other one by relative indices, a file of several chunks
+            Random random = new Random(3);
+            StringBuilder text = new StringBuilder();
+            for (int face = 0; face < 30000; ++face) {
+                double x = random.nextDouble() * 100, y = random.nextDouble() * 100, z = random.nextDouble() * 100;
+                for (int k = 0; k < 3; ++k)
+                    text.append(String.format(Locale.ROOT, "v %.4f %.4f %.4f%n", x + random.nextDouble() * 4,
+                            y + random.nextDouble() * 4, z + random.nextDouble() * 4));
+                text.append(face % 2 == 0 ? "f -3 -2 -1\n"
+                        : String.format("f %d %d %d%n", 3 * face + 1, 3 * face + 2, 3 * face + 3));
+            }
+            Files.writeString(obj, text);
+            Mesh mesh = MeshImporter.importMesh(obj, 0);
+            for (int threads : new int[]{0, 4}) {
+                // TC01: OBJ file, the same faces as of the imported mesh
+                MeshImporter.importPaged(obj, paged, 64, threads);
+                PagedMesh result = new PagedMesh(paged, 16);
+                assertEquals(30000, result.getAmountFaces(), "wrong amount of faces");
+                for (int r = 0; r < 200; ++r) {
+                    Ray ray = new Ray(new Point(-10, random.nextDouble() * 100, random.nextDouble() * 100),
+                            new Vector(1, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+                    List<GeoPoint> expected = mesh.findGeoIntersections(ray), found = result.findGeoIntersections(ray);
+                    assertEquals(expected == null ? 0 : expected.size(), found == null ? 0 : found.size(),
+                            "paged mesh missed or added intersections");
+                }
+            }
+            // TC02: PLY files of triangles and of a quad
+            for (boolean quad : new boolean[]{false, true}) {
+                writePLY(ply, ByteOrder.LITTLE_ENDIAN, quad);
+                MeshImporter.importPaged(ply, paged, PagedMesh.DEFAULT_BLOCK_FACES, 2);
+                PagedMesh result = new PagedMesh(paged, 1);
+                assertEquals(2, result.getAmountFaces(), "wrong amount of faces");
+                assertEquals(new Vector(0, 0, 1), result.getNormal(new Point(0.25, 0.75, 0)), "wrong normal");
+            }
+            // TC03: index out of vertices, and only the paged mesh file is left
+            Files.writeString(obj, "v 0 0 0\nv 1 0 0\nv 0 1 0\nf 1 2 4\n");
+            assertThrows(IllegalArgumentException.class, () -> MeshImporter.importPaged(obj, paged, 64, 0),
+                    "imported a face with a missing vertex");
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(Set.of(obj, ply, paged), files.collect(Collectors.toSet()), "temporary files were left");
+            }
+        } finally {
+            for (Path file : new Path[]{obj, ply, paged}) Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    /** writes a binary PLY file of a unit square
+     * @param file path of file
+     * @param order byte order of data
+     * @param quad true for a single quad face, false for 2 triangles
+     * @throws IOException if the file could not be written */
+    private static void writePLY(Path file, ByteOrder order, boolean quad) throws IOException {
+        String header = "ply\nformat binary_" + (order == ByteOrder.LITTLE_ENDIAN ? "little" : "big") + "_endian 1.0\n"
+                + "comment test\nelement vertex 4\nproperty float x\nproperty float y\nproperty float z\n"
+                + "property uchar red\nelement face " + (quad ? 1 : 2) + "\n"
+                + "property list uchar int vertex_indices\nproperty float quality\nend_header\n";
+        ByteBuffer data = ByteBuffer.allocate(200).order(order);
+        float[] vertices = {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0};
+        for (int v = 0; v < 4; ++v)
+            data.putFloat(vertices[3 * v]).putFloat(vertices[3 * v + 1]).putFloat(vertices[3 * v + 2]).put((byte) 255);
+        if (quad) data.put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3).putFloat(1);
+        else {
+            data.put((byte) 3).putInt(0).putInt(1).putInt(2).putFloat(1);
+            data.put((byte) 3).putInt(0).putInt(2).putInt(3).putFloat(1);
+        }
+        byte[] bytes = header.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer content = ByteBuffer.allocate(bytes.length + data.position());
+        content.put(bytes).put(data.array(), 0, data.position());
+        Files.write(file, content.array());
+    }
+}
@@ -0,0 +1,218 @@
+package geometriesTests;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Mesh;
+import geometries.PagedMesh;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.PagedMesh class
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+class PagedMeshTest {
+    /** creates a mesh of random small triangles in a box of 100
+     * @param random random numbers generator
+     * @param amount amount of triangles
+     * @return the mesh */
+    private static Mesh randomMesh(Random random, int amount) {
+        float[] vertices = new float[9 * amount];
+        int[] indices = new int[3 * amount];
+        for (int face = 0; face < amount; ++face) {
+            double x = random.nextDouble() * 100, y = random.nextDouble() * 100, z = random.nextDouble() * 100;
+            for (int k = 0; k < 9; ++k)
+                vertices[9 * face + k] = (float) ((k % 3 == 0 ? x : k % 3 == 1 ? y : z) + random.nextDouble() * 4);
+            for (int k = 0; k < 3; ++k) indices[3 * face + k] = 3 * face + k;
+        }
+        return new Mesh(vertices, indices);
+    }
+
+    /** finds the closest intersection
+     * @param intersections intersections of a ray
+     * @param ray the ray
+     * @return closest intersection, null if there are none */
+    private static GeoPoint closest(List<GeoPoint> intersections, Ray ray) {
+        return intersections == null ? null
+                : intersections.stream().min(Comparator.comparingDouble(gp -> gp.point.distance(ray.getP0()))).orElse(null);
+    }
+
+    /**
+     * Test method for {@link geometries.PagedMesh#findGeoIntersections(primitives.Ray)}.
+     * @throws IOException if the temporary file could not be written
+     */
+    @Test
+    void testFindIntersections() throws IOException {
+        Random random = new Random(11);
+        Mesh mesh = randomMesh(random, 5000);
+        Path file = Files.createTempFile("paged_mesh", ".pmesh");
+        try {
+            PagedMesh.write(mesh, file, 64);
+            PagedMesh paged = new PagedMesh(file, 8);
+            // TC01: blocks of the file
+            assertEquals(5000, paged.getAmountFaces(), "wrong amount of faces");
+            assertTrue(paged.getAmountBlocks() > 8, "hierarchy was not cut into blocks");
+
+            // TC02: same intersections as of the mesh, with only a few resident blocks
+            for (int r = 0; r < 300; ++r) {
+                Ray ray = new Ray(new Point(-10, random.nextDouble() * 100, random.nextDouble() * 100),
+                        new Vector(1, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+                List<GeoPoint> expected = mesh.findGeoIntersections(ray), result = paged.findGeoIntersections(ray);
+                assertEquals(expected == null ? 0 : expected.size(), result == null ? 0 : result.size(),
+                        "paged mesh missed or added intersections");
+                if (expected == null) continue;
+                GeoPoint e = closest(expected, ray), p = closest(result, ray);
+                assertEquals(e.point, p.point, "wrong closest intersection");
+                assertEquals(e.geometry.getNormal(e.point), p.geometry.getNormal(p.point), "wrong normal");
+                // TC03: an intersected face is intersected again by itself
+                assertNotNull(p.geometry.findGeoIntersections(ray), "face is not intersected by its ray");
+            }
+
+            // TC04: resident blocks are bounded, and the counters count every access
+            assertTrue(paged.getResidentBlocks() <= 8, "too many resident blocks");
+            assertTrue(paged.getMisses() > 8 && paged.getHits() > 0, "wrong hit and miss counters");
+            assertEquals(paged.getMisses() - paged.getResidentBlocks(), paged.getEvictions(), "wrong eviction counter");
+
+            // TC05: all blocks fit - every block is loaded once
+            PagedMesh whole = new PagedMesh(file, paged.getAmountBlocks());
+            for (int r = 0; r < 100; ++r)
+                whole.findGeoIntersections(new Ray(new Point(-10, random.nextDouble() * 100, random.nextDouble() * 100),
+                        new Vector(1, random.nextDouble() - 0.5, random.nextDouble() - 0.5)));
+            assertEquals(0, whole.getEvictions(), "blocks were evicted though all fit");
+            assertEquals(whole.getResidentBlocks(), whole.getMisses(), "a block was loaded more than once");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.PagedMesh.Writer} - the hierarchy built out of core.
+     * @throws IOException if the temporary file could not be written
+     */
+    @Test
+    void testWriter() throws IOException {
+        Random random = new Random(17);
+        // more faces than an I/O buffer of the writer, so ranges are read and partitioned in several buffers
+        Mesh mesh = randomMesh(random, 40000);
+        float[] vertices = mesh.getVertices();
+        int[] indices = mesh.getIndices();
+        float[] coordinates = new float[9 * mesh.getAmountFaces()];
+        for (int i = 0; i < indices.length; ++i)
+            System.arraycopy(vertices, 3 * indices[i], coordinates, 3 * i, 3);
+        Path directory = Files.createTempDirectory("paged_mesh"), file = directory.resolve("mesh.pmesh");
+        try {
+            try (PagedMesh.Writer writer = new PagedMesh.Writer(file, 64)) {
+                // TC01: no faces
+                assertThrows(IllegalArgumentException.class, writer::finish, "wrote a mesh without faces");
+                // TC02: faces added in parts
+                writer.add(coordinates, 1000);
+                writer.add(Arrays.copyOfRange(coordinates, 9000, coordinates.length), 39000);
+                assertEquals(40000, writer.getAmountFaces(), "wrong amount of added faces");
+                writer.finish();
+                // TC03: no faces are added after writing
+                assertThrows(IllegalStateException.class, () -> writer.add(coordinates, 1), "added a face after writing");
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(List.of(file), files.toList(), "temporary files were not deleted");
+            }
+            PagedMesh paged = new PagedMesh(file, 16);
+            // TC04: blocks of the file
+            assertEquals(40000, paged.getAmountFaces(), "wrong amount of faces");
+            assertTrue(paged.getAmountBlocks() >= 40000 / 64, "faces were not cut into blocks");
+
+            // TC05: same intersections as of the mesh
+            for (int r = 0; r < 300; ++r) {
+                Ray ray = new Ray(new Point(-10, random.nextDouble() * 100, random.nextDouble() * 100),
+                        new Vector(1, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+                List<GeoPoint> expected = mesh.findGeoIntersections(ray), result = paged.findGeoIntersections(ray);
+                assertEquals(expected == null ? 0 : expected.size(), result == null ? 0 : result.size(),
+                        "paged mesh missed or added intersections");
+                if (expected == null) continue;
+                GeoPoint e = closest(expected, ray), p = closest(result, ray);
+                assertEquals(e.point, p.point, "wrong closest intersection");
+                assertEquals(e.geometry.getNormal(e.point), p.geometry.getNormal(p.point), "wrong normal");
+            }
+
+            // TC06: faces of the same centroid are divided into halves
+            try (PagedMesh.Writer writer = new PagedMesh.Writer(file, Mesh.LEAF_SIZE)) {
+                for (int face = 0; face < 1000; ++face) writer.add(coordinates, 1);
+                writer.finish();
+            }
+            PagedMesh same = new PagedMesh(file, 4);
+            assertTrue(same.getAmountBlocks() >= 1000 / Mesh.LEAF_SIZE, "faces were not divided into halves");
+            // a ray through the centroid of the face intersects all its copies
+            Ray ray = new Ray(new Point((coordinates[0] + coordinates[3] + coordinates[6]) / 3,
+                    (coordinates[1] + coordinates[4] + coordinates[7]) / 3, -50), new Vector(0, 0, 1));
+            List<GeoPoint> result = same.findGeoIntersections(ray);
+            assertEquals(1000, result == null ? 0 : result.size(), "wrong amount of intersections");
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.PagedMesh#getNormal(primitives.Point)}.
+     * @throws IOException if the temporary file could not be written
+     */
+    @Test
+    void testGetNormal() throws IOException {
+        Random random = new Random(13);
+        Mesh mesh = randomMesh(random, 2000);
+        Path file = Files.createTempFile("paged_mesh", ".pmesh");
+        try {
+            PagedMesh.write(mesh, file, 64);
+            PagedMesh paged = new PagedMesh(file, 4);
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: normal of an intersection point is the normal of its face
+            int checked = 0;
+            for (int r = 0; r < 200; ++r) {
+                Ray ray = new Ray(new Point(-10, random.nextDouble() * 100, random.nextDouble() * 100),
+                        new Vector(1, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+                GeoPoint hit = closest(paged.findGeoIntersections(ray), ray);
+                if (hit == null) continue;
+                assertEquals(hit.geometry.getNormal(hit.point), paged.getNormal(hit.point), "wrong normal");
+                ++checked;
+            }
+            assertTrue(checked > 0, "no ray hit the mesh");
+            // TC02: point not on the mesh
+            assertThrows(IllegalArgumentException.class, () -> paged.getNormal(new Point(-50, -50, -50)),
+                    "normal of a point off the mesh");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.PagedMesh#PagedMesh(java.nio.file.Path, int)}.
+     * @throws IOException if the temporary file could not be written
+     */
+    @Test
+    void testConstructor() throws IOException {
+        Path file = Files.createTempFile("paged_mesh", ".pmesh");
+        try {
+            // TC01: not a paged mesh file
+            Files.writeString(file, "this is not a paged mesh file at all");
+            assertThrows(IllegalArgumentException.class, () -> new PagedMesh(file, 4), "opened a wrong file");
+            // TC02: no resident blocks
+            PagedMesh.write(randomMesh(new Random(1), 10), file, PagedMesh.DEFAULT_BLOCK_FACES);
+            assertThrows(IllegalArgumentException.class, () -> new PagedMesh(file, 0), "opened with no resident blocks");
+            // TC03: a single block
+            assertEquals(1, new PagedMesh(file, 4).getAmountBlocks(), "small mesh should be a single block");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
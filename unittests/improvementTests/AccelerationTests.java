@@ -9,12 +9,14 @@ import primitives.Material;
 import primitives.Point;
 import primitives.Vector;
 import renderer.Camera;
+import renderer.ContrastMetric;
 import renderer.ImageWriter;
 import renderer.RayTracerBasic;
 import scene.Scene;
 
 import static java.awt.Color.*;
 import static java.awt.Color.RED;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class AccelerationTests {
     /** test for adaptive super-sampling */
@@ -248,4 +250,121 @@ public class AccelerationTests {
                 .renderImage()
                 .writeToImage();
     }
+
+    /** test for the stopping criterion of adaptive super-sampling */
+    @Test
+    public void testASSContrast() {
+        Scene scene = new Scene("ASS contrast scene").setBackground(new Color(WHITE));
+        Camera camera = new Camera(
+                new Point(500,0,0),
+                new Vector(-1,0,0),
+                new Vector(0,0,1))
+                .setVPSize(200,200)
+                .setVPDistance(200)
+                .setAntiAliasing(17*17)
+                .setRayTracer(new RayTracerBasic(scene));
+
+        // TC01: uniform background is never divided
+        camera.setImageWriter(new ImageWriter("ASS contrast empty", 10, 10))
+                .setASS(ContrastMetric.LUMINANCE, 1, 0, 4)
+                .renderImage();
+        for (int[] row : camera.getSubdivisions())
+            for (int divisions : row)
+                assertEquals(0, divisions, "uniform pixel should not be divided");
+
+        // TC02: minimum depth forces divisions even of a uniform pixel (1 + 4)
+        camera.setASS(ContrastMetric.LUMINANCE, 1, 2, 4).renderImage();
+        for (int[] row : camera.getSubdivisions())
+            for (int divisions : row)
+                assertEquals(5, divisions, "wrong amount of forced divisions");
+
+        // TC03: illegal depths
+        assertThrows(IllegalArgumentException.class, () -> camera.setASS(ContrastMetric.RELATIVE, 0.1, 3, 2),
+                "maximum depth lower than minimum depth should throw");
+
+        // TC04: divisions are limited by the maximum depth (1 + 4 + 16)
+        scene.geometries.add(new Sphere(new Point(0,0,0), 30).setEmission(new Color(BLUE)));
+        camera.setImageWriter(new ImageWriter("ASS contrast sphere", 100, 100))
+                .setASS(ContrastMetric.RELATIVE, 0.05, 0, 2)
+                .renderImage()
+                .writeToImage();
+        int max = 0;
+        for (int[] row : camera.getSubdivisions())
+            for (int divisions : row)
+                max = Math.max(max, divisions);
+        assertTrue(max > 0 && max <= 21, "divisions of sphere edge pixels must be within depth limits");
+    }
+
+    /** test for splitting grids of a pixel between threads */
+    @Test
+    public void testASSParallel() {
+        Scene scene = new Scene("ASS parallel scene").setBackground(new Color(WHITE));
+        Camera camera = new Camera(
+                new Point(500,0,0),
+                new Vector(-1,0,0),
+                new Vector(0,0,1))
+                .setVPSize(200,200)
+                .setVPDistance(200)
+                .setAntiAliasing(17*17)
+                .setASS(ContrastMetric.CHANNEL, 2, 2, 4)
+                .setMultiThreading(4,1)
+                .setImageWriter(new ImageWriter("ASS parallel", 20, 20))
+                .setRayTracer(new RayTracerBasic(scene))
+                .renderImage();
+
+        // TC01: divisions made by different threads are all counted for their pixel (1 + 4)
+        for (int[] row : camera.getSubdivisions())
+            for (int divisions : row)
+                assertEquals(5, divisions, "wrong amount of divisions of pixel split between threads");
+
+        // TC02: with a seed, grids of edge pixels split between threads give the image of a render by one thread
+        scene.geometries.add(new Sphere(new Point(0,0,0), 30).setEmission(new Color(BLUE))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point(100, 40, 40), new Vector(-1, -0.4, -0.4)));
+        ImageWriter serial = new ImageWriter("ASS serial", 40, 40);
+        ImageWriter parallel = new ImageWriter("ASS parallel edges", 40, 40);
+        camera.setASS(ContrastMetric.CHANNEL, 2, 0, 4).setSeed(31)
+                .setMultiThreading(0, 1).setImageWriter(serial).renderImage();
+        int[][] serialDivisions = camera.getSubdivisions();
+        camera.setMultiThreading(4, 1).setImageWriter(parallel).renderImage();
+        int[][] parallelDivisions = camera.getSubdivisions();
+        int split = 0;
+        for (int i = 0; i < 40; ++i)
+            for (int j = 0; j < 40; ++j) {
+                assertEquals(serial.getPixel(j, i), parallel.getPixel(j, i),
+                        "parallel grid of pixel (" + j + "," + i + ") differs from serial grid");
+                assertEquals(serialDivisions[i][j], parallelDivisions[i][j], "wrong amount of divisions of pixel");
+                if (parallelDivisions[i][j] > 1) ++split;
+            }
+        assertTrue(split > 0, "edge pixels should be subdivided");
+    }
+
+    /** test for anti aliasing of edge pixels only */
+    @Test
+    public void testEdgeAntiAliasing() {
+        Scene scene = new Scene("edge AA scene").setBackground(new Color(WHITE));
+        scene.geometries.add(new Sphere(new Point(0,0,0), 30).setEmission(new Color(BLUE)));
+        Camera camera = new Camera(
+                new Point(500,0,0),
+                new Vector(-1,0,0),
+                new Vector(0,0,1))
+                .setVPSize(200,200)
+                .setVPDistance(200)
+                .setEdgeAntiAliasing(9*9, 2, 0.05)
+                .setImageWriter(new ImageWriter("edge AA", 100, 100))
+                .setRayTracer(new RayTracerBasic(scene))
+                .renderImage();
+        camera.writeToImage();
+
+        boolean[][] edges = camera.getEdges();
+        int count = 0;
+        for (boolean[] row : edges)
+            for (boolean edge : row)
+                if (edge) ++count;
+        // TC01: flat background and flat sphere are not supersampled
+        assertFalse(edges[0][0], "background pixel should not be on an edge");
+        assertFalse(edges[50][50], "middle of sphere should not be on an edge");
+        // TC02: only the silhouette of the sphere is supersampled
+        assertTrue(count > 0 && count < 100 * 100 / 10, "wrong amount of edge pixels");
+    }
 }
@@ -0,0 +1,106 @@
+package rendererTest;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import renderer.AsyncImageEncoder;
+import renderer.ImageFormat;
+import renderer.ImageWriter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Testing AsyncImageEncoder and ImageFormat
+ * @author Yoav Babayoff and Avishai Shachor */
+public class AsyncImageEncoderTest {
+    /** image width (not a multiple of 4, so BMP rows are padded) */
+    private static final int NX = 21;
+    /** image height */
+    private static final int NY = 10;
+    /** folder of produced images */
+    private static final Path FOLDER = Path.of(System.getProperty("user.dir"), "images");
+
+    /** paints a frame of the test animation
+     * @param imageWriter image writer
+     * @param frame index of frame */
+    private static void paint(ImageWriter imageWriter, int frame) {
+        for (int i = 0; i < NY; ++i)
+            for (int j = 0; j < NX; ++j)
+                imageWriter.writePixel(j, i, colorOf(j, i, frame));
+    }
+
+    /** color of a pixel in a frame of the test animation
+     * @param x column of pixel
+     * @param y row of pixel
+     * @param frame index of frame
+     * @return color of pixel */
+    private static Color colorOf(int x, int y, int frame) {
+        return new Color(x * 10, y * 20, frame * 50);
+    }
+
+    /** Test method for {@link renderer.AsyncImageEncoder#submit(ImageWriter, ImageFormat)} */
+    @Test
+    void testEncode() throws IOException {
+        // TC01: frames of the same image writer in all formats
+        ImageWriter imageWriter = new ImageWriter("async_encoder_test", NX, NY);
+        try (AsyncImageEncoder encoder = new AsyncImageEncoder(1)) {
+            for (ImageFormat format : ImageFormat.values()) {
+                paint(imageWriter, format.ordinal());
+                encoder.submit(imageWriter, format);
+            }
+        }
+        for (ImageFormat format : new ImageFormat[]{ImageFormat.PNG, ImageFormat.BMP}) {
+            BufferedImage image = ImageIO.read(FOLDER.resolve("async_encoder_test." + format.extension).toFile());
+            for (int i = 0; i < NY; ++i)
+                for (int j = 0; j < NX; ++j)
+                    assertEquals(colorOf(j, i, format.ordinal()).getRGB(), image.getRGB(j, i),
+                            "wrong color of pixel in " + format);
+        }
+
+        byte[] ppm = Files.readAllBytes(FOLDER.resolve("async_encoder_test.ppm"));
+        byte[] header = ("P6\n" + NX + " " + NY + "\n255\n").getBytes(StandardCharsets.US_ASCII);
+        assertEquals(header.length + 3 * NX * NY, ppm.length, "wrong PPM file size");
+        int p = header.length + 3 * (4 * NX + 7);
+        assertEquals(colorOf(7, 4, ImageFormat.PPM.ordinal()).getRGB(),
+                0xFF000000 | (ppm[p] & 0xFF) << 16 | (ppm[p + 1] & 0xFF) << 8 | ppm[p + 2] & 0xFF,
+                "wrong color of pixel in PPM");
+    }
+
+    /** Test method for {@link renderer.AsyncImageEncoder#close()} */
+    @Test
+    void testError() {
+        // TC01: encoding error is thrown when closing
+        AsyncImageEncoder encoder = new AsyncImageEncoder(2);
+        encoder.submit(new ImageWriter("no_such_folder/async_encoder_error", 4, 4), ImageFormat.PPM);
+        assertThrows(IllegalStateException.class, encoder::close, "encoding error should be thrown");
+
+        // TC02: submitting to a closed encoder
+        assertThrows(IllegalStateException.class,
+                () -> encoder.submit(new ImageWriter("async_encoder_closed", 4, 4), ImageFormat.PPM),
+                "submitting to a closed encoder should throw");
+
+        // TC03: runtime exception of a frame (fewer pixels than its size) does not stop the encoder thread, and
+        // is thrown by a later submit while the later frames are not blocked
+        AsyncImageEncoder failing = new AsyncImageEncoder(1);
+        ImageWriter broken = new ImageWriter("async_encoder_broken", 4, 4) {
+            @Override
+            public int getNx() {
+                return 5;
+            }
+        };
+        failing.submit(broken, ImageFormat.PPM);
+        ImageWriter imageWriter = new ImageWriter("async_encoder_after_error", 4, 4);
+        assertThrows(IllegalStateException.class, () -> {
+            for (int frame = 0; frame < 100; ++frame) {
+                failing.submit(imageWriter, ImageFormat.PPM);
+                Thread.sleep(10);
+            }
+        }, "runtime exception of an earlier frame should be thrown by submit");
+        assertThrows(IllegalStateException.class, failing::close, "runtime exception should be thrown when closing");
+    }
+}
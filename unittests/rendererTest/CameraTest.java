@@ -6,6 +6,15 @@ import org.junit.jupiter.api.Test;
 
 import primitives.*;
 import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+import scene.Scene;
+import scene.SceneGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Testing Camera Class
@@ -58,4 +67,43 @@ class CameraTest {
 
 }
 
+	/**
+	 * Test method for {@link renderer.Camera#getMostExpensivePixels(int)} and
+	 * {@link renderer.Camera#writeCostHeatmap()}.
+	 */
+	@Test
+	void testCostHeatmap() {
+		Scene scene = new SceneGenerator(5).setSpheres(5).setReflectionStack(4).setLights(2).generate("cost");
+		Camera camera = new Camera(new Point(0, 0, 300), new Vector(0, 0, -1), new Vector(0, 1, 0))
+				.setVPSize(100, 100).setVPDistance(150)
+				.setImageWriter(new ImageWriter("cost heatmap test", 30, 20))
+				.setRayTracer(new RayTracerBasic(scene));
+
+		// TC01: no costs without the heatmap mode
+		assertThrows(IllegalStateException.class, () -> camera.renderImage().getMostExpensivePixels(1),
+				"costs should not be recorded without the heatmap mode");
+
+		// TC02: a cost of every pixel
+		long[][] costs = camera.setCostHeatmap(true).setMultiThreading(2, Long.MAX_VALUE).renderImage().getPixelCosts();
+		assertEquals(20, costs.length, "wrong amount of rows of costs");
+		assertEquals(30, costs[0].length, "wrong amount of columns of costs");
+		assertTrue(Arrays.stream(costs).flatMapToLong(Arrays::stream).allMatch(cost -> cost > 0), "pixel without cost");
+
+		// TC03: the most expensive pixels, from the most expensive one
+		List<Camera.PixelCost> top = camera.getMostExpensivePixels(10);
+		assertEquals(10, top.size(), "wrong amount of expensive pixels");
+		assertEquals(Arrays.stream(costs).flatMapToLong(Arrays::stream).max().getAsLong(), top.get(0).nanoseconds(),
+				"most expensive pixel was not found");
+		for (int k = 1; k < top.size(); ++k)
+			assertTrue(top.get(k - 1).nanoseconds() >= top.get(k).nanoseconds(), "pixels are not sorted by cost");
+		Camera.PixelCost last = top.get(top.size() - 1);
+		assertEquals(costs[last.row()][last.column()], last.nanoseconds(), "wrong pixel of cost");
+		assertEquals(600, camera.getMostExpensivePixels(1000).size(), "more pixels than the image");
+
+		// TC04: the heatmap is written beside the image
+		camera.writeCostHeatmap();
+		assertTrue(Files.exists(Path.of(System.getProperty("user.dir"), "images", "cost heatmap test_cost.png")),
+				"heatmap was not written");
+	}
+
 }
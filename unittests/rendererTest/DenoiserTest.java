@@ -0,0 +1,64 @@
+package rendererTest;
+
+import org.junit.jupiter.api.Test;
+import renderer.Denoiser;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Testing Denoiser
+ * @author Yoav Babayoff and Avishai Shachor */
+public class DenoiserTest {
+    /** image width */
+    private static final int NX = 40;
+    /** image height */
+    private static final int NY = 20;
+
+    /** Test method for {@link renderer.Denoiser#denoise(double[], double[], double[], double[], int, int, int)} */
+    @Test
+    void testDenoise() {
+        // left half of image is a plane facing the camera, right half a plane facing sideways
+        double[] colors = new double[3 * NX * NY], normals = new double[3 * NX * NY],
+                depths = new double[NX * NY], albedos = new double[3 * NX * NY];
+        Random random = new Random(0);
+        for (int i = 0; i < NY; ++i) {
+            for (int j = 0; j < NX; ++j) {
+                int p = i * NX + j;
+                boolean left = j < NX / 2;
+                double noise = random.nextDouble() * 20 - 10;
+                colors[3 * p] = colors[3 * p + 1] = colors[3 * p + 2] = (left ? 50 : 200) + noise;
+                normals[3 * p + (left ? 2 : 0)] = 1;
+                depths[p] = 100;
+            }
+        }
+        double[] result = new Denoiser(3).denoise(colors, normals, depths, albedos, NX, NY, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: noise of a flat area is reduced
+        double before = 0, after = 0;
+        for (int i = 0; i < NY; ++i) {
+            for (int j = 0; j < NX / 2; ++j) {
+                int p = 3 * (i * NX + j);
+                before += Math.abs(colors[p] - 50);
+                after += Math.abs(result[p] - 50);
+            }
+        }
+        assertTrue(after < before / 2, "denoising should reduce noise of a flat area");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: edge between geometries of different normals is not blurred
+        for (int i = 0; i < NY; ++i) {
+            assertEquals(50, result[3 * (i * NX + NX / 2 - 1)], 10, "left side of edge was blurred");
+            assertEquals(200, result[3 * (i * NX + NX / 2)], 10, "right side of edge was blurred");
+        }
+
+        // TC11: input buffer is not changed and single thread gives the same result
+        double[] copy = colors.clone();
+        assertArrayEquals(result, new Denoiser(3).denoise(colors, normals, depths, albedos, NX, NY, 0), 1e-9,
+                "single thread should give the same result");
+        assertArrayEquals(copy, colors, "input buffer was changed");
+
+        assertThrows(IllegalArgumentException.class, () -> new Denoiser(0), "0 iterations should throw");
+    }
+}
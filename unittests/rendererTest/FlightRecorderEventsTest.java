@@ -0,0 +1,98 @@
+package rendererTest;
+
+import geometries.Mesh;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+import scene.Scene;
+import scene.SceneGenerator;
+import xml.XMLParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the flight recorder events of scene load, acceleration build, tile render and image encode
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+class FlightRecorderEventsTest {
+    /** names of the events */
+    private static final String[] EVENTS = {"raytracer.SceneLoad", "raytracer.AccelerationBuild",
+            "raytracer.TileRender", "raytracer.ImageEncode"};
+
+    /**
+     * finds the recorded events of a name
+     * @param events all recorded events
+     * @param name   name of event
+     * @return the events of the name
+     */
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+    }
+
+    /** Test method for the events of a render */
+    @Test
+    void testEvents() throws Exception {
+        Path xml = Files.createTempFile("flight_recorder_test", ".xml"),
+                recordingFile = Files.createTempFile("flight_recorder_test", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : EVENTS) recording.enable(name).withThreshold(Duration.ZERO);
+            recording.start();
+            new SceneGenerator(9).setSpheres(20).setLights(2).writeXML(xml, "events", 40);
+            Scene scene = new Scene("events");
+            XMLParser.parseXMLScene(xml.toString(), scene);
+            scene.geometries.add(new Mesh(new float[]{0, 0, -200, 10, 0, -200, 0, 10, -200}, new int[]{0, 1, 2}));
+            Camera camera = new Camera(new Point(0, 0, 300), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                    .setVPSize(100, 100).setVPDistance(150)
+                    .setImageWriter(new ImageWriter("flight recorder test", 40, 30))
+                    .setRayTracer(new RayTracerBasic(scene))
+                    .setAntiAliasing(4)
+                    .setMultiThreading(2, Long.MAX_VALUE);
+            camera.renderImage().writeToImage();
+            recording.stop();
+            recording.dump(recordingFile);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+            // TC01: the scene was loaded
+            List<RecordedEvent> loads = events(events, EVENTS[0]);
+            assertEquals(1, loads.size(), "wrong amount of scene load events");
+            assertEquals(xml.toString(), loads.get(0).getString("file"), "wrong file of scene load");
+            assertEquals(20, loads.get(0).getInt("geometries"), "wrong amount of loaded geometries");
+
+            // TC02: the hierarchy of the mesh was built
+            List<RecordedEvent> builds = events(events, EVENTS[1]);
+            assertEquals(1, builds.size(), "wrong amount of acceleration build events");
+            assertEquals(1, builds.get(0).getInt("faces"), "wrong amount of faces of acceleration build");
+
+            // TC03: tiles cover the image, and count the camera rays
+            List<RecordedEvent> tiles = events(events, EVENTS[2]);
+            assertFalse(tiles.isEmpty(), "no tile render events");
+            assertEquals(1200, tiles.stream().mapToInt(e -> e.getInt("pixels")).sum(), "tiles do not cover the image");
+            // a beam of 4 rays is a 2x2 grid and the center of the pixel
+            assertEquals(1200 * 5, tiles.stream().mapToLong(e -> e.getLong("rays")).sum(), "wrong amount of rays");
+            for (RecordedEvent tile : tiles) {
+                assertTrue(tile.getInt("firstColumn") >= 0 && tile.getInt("lastColumn") < 40
+                        && tile.getInt("firstRow") >= 0 && tile.getInt("lastRow") < 30, "tile out of image");
+                assertNotNull(tile.getThread(), "tile without thread");
+            }
+
+            // TC04: the image was encoded
+            List<RecordedEvent> encodes = events(events, EVENTS[3]);
+            assertEquals(1, encodes.size(), "wrong amount of image encode events");
+            assertEquals(40, encodes.get(0).getInt("width"), "wrong width of encoded image");
+            assertTrue(encodes.get(0).getString("file").endsWith("flight recorder test.png"), "wrong encoded file");
+        } finally {
+            Files.delete(xml);
+            Files.delete(recordingFile);
+        }
+    }
+}
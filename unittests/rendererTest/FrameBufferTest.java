@@ -0,0 +1,89 @@
+package rendererTest;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import renderer.FrameBuffer;
+import renderer.ImageWriter;
+import renderer.ToneMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Testing FrameBuffer
+ * @author Yoav Babayoff and Avishai Shachor */
+public class FrameBufferTest {
+    /** Test method for {@link renderer.FrameBuffer#accumulate(FrameBuffer)} and {@link renderer.FrameBuffer#normalize(double)} */
+    @Test
+    void testAccumulate() {
+        FrameBuffer pass1 = new FrameBuffer(4, 3), pass2 = new FrameBuffer(4, 3);
+        pass1.set(1, 2, new Color(300, 20, 0));
+        pass2.set(1, 2, new Color(100, 40, 0));
+        pass2.add(1, 2, new Color(0, 0, 6));
+
+        // TC01: partial renders are merged without clamping
+        pass1.accumulate(pass2).normalize(2);
+        assertEquals(new Color(200, 30, 3), pass1.get(1, 2), "wrong accumulated color");
+        assertEquals(Color.BLACK, pass1.get(0, 0), "untouched pixel should stay black");
+
+        // TC02: frame buffers of different sizes
+        assertThrows(IllegalArgumentException.class, () -> pass1.accumulate(new FrameBuffer(3, 4)),
+                "accumulating frame buffers of different sizes should throw");
+    }
+
+    /** Test method for {@link renderer.FrameBuffer#toneMap(ToneMapper, int[])} */
+    @Test
+    void testToneMap() {
+        FrameBuffer frameBuffer = new FrameBuffer(2, 1);
+        frameBuffer.set(0, 0, new Color(510, 100, 0));
+        frameBuffer.set(1, 0, new Color(255, 255, 255));
+        int[] rgbs = new int[2];
+
+        // TC01: clamping
+        frameBuffer.toneMap(ToneMapper.CLAMP, rgbs);
+        assertEquals(new Color(255, 100, 0).getRGB(), rgbs[0], "wrong clamped color");
+
+        // TC02: white point is mapped to white, lower components are compressed
+        frameBuffer.toneMap(ToneMapper.reinhard(510), rgbs);
+        assertEquals(0xFFFF0000, rgbs[0] & 0xFFFF0000, "white point should be mapped to 255");
+        assertTrue((rgbs[1] & 0xFF) < 255, "components below white point should be lower than 255");
+    }
+
+    /** Test method for {@link renderer.FrameBuffer#writePFM(Path)} and {@link renderer.FrameBuffer#readPFM(Path)} */
+    @Test
+    void testPFM() throws IOException {
+        FrameBuffer frameBuffer = new FrameBuffer(3, 2);
+        frameBuffer.set(0, 0, new Color(1000, 0.5, 7));
+        frameBuffer.set(2, 1, new Color(1, 2, 3));
+        Path file = Files.createTempFile("frame_buffer_test", ".pfm");
+        try {
+            frameBuffer.writePFM(file);
+            assertEquals(("PF\n3 2\n-1.0\n").length() + 3 * 3 * 2 * Float.BYTES, Files.size(file), "wrong PFM file size");
+            FrameBuffer read = FrameBuffer.readPFM(file);
+            assertEquals(3, read.getNx(), "wrong width");
+            assertEquals(2, read.getNy(), "wrong height");
+            assertEquals(frameBuffer.get(0, 0), read.get(0, 0), "wrong color of first pixel");
+            assertEquals(frameBuffer.get(2, 1), read.get(2, 1), "wrong color of last pixel");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Test method for HDR mode of {@link renderer.ImageWriter} */
+    @Test
+    void testImageWriterHDR() {
+        ImageWriter imageWriter = new ImageWriter("hdr_test", 10, 10).setHDR(ToneMapper.CLAMP);
+        imageWriter.writePixel(5, 5, new Color(400, 0, 0));
+        imageWriter.accumulatePixel(5, 5, new Color(0, 0, 100));
+        imageWriter.getFrameBuffer().normalize(2);
+        imageWriter.writeToImage();
+        assertEquals(new Color(200, 0, 50).getRGB(), imageWriter.getPixel(5, 5), "wrong tone mapped pixel");
+        imageWriter.writeToPFM();
+
+        assertThrows(IllegalStateException.class,
+                () -> new ImageWriter("no_hdr_test", 10, 10).accumulatePixel(0, 0, Color.BLACK),
+                "accumulating without HDR should throw");
+    }
+}
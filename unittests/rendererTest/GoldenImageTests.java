@@ -0,0 +1,354 @@
+package rendererTest;
+
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Golden image regression harness - renders the scenes of the render, shadow, reflection/refraction and lights
+ * tests at low resolution with a fixed seed, and compares every image with its reference image (by PSNR and SSIM
+ * of {@link ImageMetrics}), and optionally its render time with its timing baseline. A test fails if its image
+ * changed beyond the tolerance (writing its error map to the images folder) or, when timed, it became slower than
+ * its baseline beyond the tolerance.<br/>
+ * The scenes are copies of the setups of the tests, so that changing a test does not invalidate its reference.
+ * References and baselines are in unittests/golden, and are recorded by running with {@code -Dgolden.update=true}
+ * (baselines are of the machine they were recorded on).<br/>
+ * Tolerances: {@code -Dgolden.psnr} (minimum PSNR in dB, 40 by default), {@code -Dgolden.ssim} (minimum SSIM,
+ * 0.98 by default), {@code -Dgolden.time} (maximum ratio of render time to baseline, e.g. 2). Timing is off by
+ * default, since the baselines are absolute times of one machine - it is meant for the machine which recorded
+ * them, and catches gross slowdowns of the renders; finer measurements are done by the benchmarks.
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+class GoldenImageTests {
+    /** folder of reference images and timing baselines */
+    private static final Path GOLDEN = Path.of(System.getProperty("user.dir"), "unittests", "golden");
+    /** file of timing baselines (best render time in seconds of every scene) */
+    private static final Path BASELINES = GOLDEN.resolve("baselines.properties");
+    /** are references and baselines recorded instead of compared */
+    private static final boolean UPDATE = Boolean.getBoolean("golden.update");
+    /** minimum PSNR of an image (dB) */
+    private static final double MIN_PSNR = Double.parseDouble(System.getProperty("golden.psnr", "40"));
+    /** minimum SSIM of an image */
+    private static final double MIN_SSIM = Double.parseDouble(System.getProperty("golden.ssim", "0.98"));
+    /** maximum ratio of render time to its baseline, 0 (the default) for no timing */
+    private static final double MAX_TIME_RATIO = Double.parseDouble(System.getProperty("golden.time", "0"));
+    /** time added to the limit of render time, for the noise of short renders (seconds) */
+    private static final double TIME_SLACK = 0.02;
+    /** seed of the renders */
+    private static final long SEED = 5783;
+    /** side of the images in pixels */
+    private static final int SIZE = 128;
+    /** minimum time of the untimed renders before timing, so the JIT compiler has finished with the scene
+     * (nanoseconds) */
+    private static final long WARMUP = 1_000_000_000L;
+    /** amount of timed renders (the best time is compared, as it is the least disturbed by other processes) */
+    private static final int RUNS = 7;
+
+    /** Golden image of the basic two colors render */
+    @Test
+    void renderTwoColors() throws IOException {
+        Scene scene = new Scene("golden two colors")
+                .setAmbientLight(new AmbientLight(new Color(255, 191, 191), new Double3(1, 1, 1)))
+                .setBackground(new Color(75, 127, 90));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d),
+                new Triangle(new Point(-100, 0, -100), new Point(0, 100, -100), new Point(-100, 100, -100)),
+                new Triangle(new Point(-100, 0, -100), new Point(0, -100, -100), new Point(-100, -100, -100)),
+                new Triangle(new Point(100, 0, -100), new Point(0, -100, -100), new Point(100, -100, -100)));
+        check("renderTwoColors", new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPDistance(100).setVPSize(500, 500).setRayTracer(new RayTracerBasic(scene)));
+    }
+
+    /** Golden image of the basic multi color render */
+    @Test
+    void renderMultiColor() throws IOException {
+        Scene scene = new Scene("golden multi color").setAmbientLight(new AmbientLight(new Color(WHITE), new Double3(0.2)));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50),
+                new Triangle(new Point(-100, 0, -100), new Point(0, 100, -100), new Point(-100, 100, -100))
+                        .setEmission(new Color(GREEN)),
+                new Triangle(new Point(-100, 0, -100), new Point(0, -100, -100), new Point(-100, -100, -100))
+                        .setEmission(new Color(RED)),
+                new Triangle(new Point(100, 0, -100), new Point(0, -100, -100), new Point(100, -100, -100))
+                        .setEmission(new Color(BLUE)));
+        check("renderMultiColor", new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPDistance(100).setVPSize(500, 500).setRayTracer(new RayTracerBasic(scene)));
+    }
+
+    /** Golden image of the shadow of a sphere on a triangle by a close spot light */
+    @Test
+    void shadowSphereTriangleSpot() throws IOException {
+        Scene scene = new Scene("golden sphere triangle");
+        Material material = new Material().setKd(0.5).setKs(0.5).setShininess(30);
+        scene.geometries.add(new Sphere(new Point(0, 0, -200), 60d).setEmission(new Color(BLUE)).setMaterial(material),
+                new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4))
+                        .setEmission(new Color(BLUE)).setMaterial(material));
+        scene.lights.add(new SpotLight(new Color(400, 240, 0), new Point(-85, -85, 110), new Vector(1, 1, -3))
+                .setKl(1E-5).setKq(1.5E-7));
+        check("shadowSphereTriangleSpot", new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000).setRayTracer(new RayTracerBasic(scene)));
+    }
+
+    /** Golden image of the shadow of a sphere on two triangles */
+    @Test
+    void shadowTrianglesSphere() throws IOException {
+        Scene scene = new Scene("golden triangles sphere").setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+        scene.geometries.add(
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKs(0.8).setShininess(60)),
+                new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKs(0.8).setShininess(60)),
+                new Sphere(new Point(0, 0, -11), 30d).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point(40, 40, 115), new Vector(-1, -1, -4))
+                .setKl(4E-4).setKq(2E-5));
+        check("shadowTrianglesSphere", new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000).setRayTracer(new RayTracerBasic(scene)));
+    }
+
+    /** Golden image of a sphere refracted through a transparent sphere */
+    @Test
+    void refractionTwoSpheres() throws IOException {
+        Scene scene = new Scene("golden two spheres");
+        scene.geometries.add(new Sphere(new Point(0, 0, -50), 50d).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKd(0.4).setKs(0.3).setShininess(100).setKt(0.3)),
+                new Sphere(new Point(0, 0, -50), 25d).setEmission(new Color(RED))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(100)));
+        scene.lights.add(new SpotLight(new Color(1000, 600, 0), new Point(-100, -100, 500), new Vector(-1, -1, -2))
+                .setKl(0.0004).setKq(0.0000006));
+        check("refractionTwoSpheres", new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(150, 150).setVPDistance(1000).setRayTracer(new RayTracerBasic(scene)));
+    }
+
+    /** Golden image of spheres reflected by two mirrors */
+    @Test
+    void reflectionTwoSpheresMirrored() throws IOException {
+        Scene scene = new Scene("golden mirrors").setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.geometries.add(new Sphere(new Point(-950, -900, -1000), 400d).setEmission(new Color(0, 50, 100))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20).setKt(new Double3(0.5, 0, 0))),
+                new Sphere(new Point(-950, -900, -1000), 200d).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500), new Point(670, 670, 3000))
+                        .setEmission(new Color(20, 20, 20)).setMaterial(new Material().setKr(1)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500), new Point(-1500, -1500, -2000))
+                        .setEmission(new Color(20, 20, 20)).setMaterial(new Material().setKr(new Double3(0.5, 0, 0.4))));
+        scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4))
+                .setKl(0.00001).setKq(0.000005));
+        check("reflectionTwoSpheresMirrored", new Camera(new Point(0, 0, 10000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(2500, 2500).setVPDistance(10000).setRayTracer(new RayTracerBasic(scene)));
+    }
+
+    /**
+     * creates the camera of the partial shadow of a transparent sphere, with anti aliasing and russian roulette
+     * (the random numbers of both are drawn by the seed)
+     * @return the camera
+     */
+    private static Camera transparentSphereCamera() {
+        Scene scene = new Scene("golden transparent sphere").setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+        scene.geometries.add(
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(60)),
+                new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(60)),
+                new Sphere(new Point(60, 50, -50), 30d).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKd(0.2).setKs(0.2).setShininess(30).setKt(0.6)));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point(60, 50, 0), new Vector(0, 0, -1))
+                .setKl(4E-5).setKq(2E-7));
+        return new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000).setAntiAliasing(4)
+                .setRayTracer(new RayTracerBasic(scene).setRussianRoulette(0, 0.2));
+    }
+
+    /** Golden image of the partial shadow of a transparent sphere, anti aliased, rendered by one thread and by
+     * several threads */
+    @Test
+    void refractionShadowSampled() throws IOException {
+        check("refractionShadowSampled", transparentSphereCamera());
+        // the seed makes the image independent of the threads
+        if (UPDATE) return;
+        int[] threaded = render(transparentSphereCamera().setSeed(SEED).setMultiThreading(3, Long.MAX_VALUE)
+                .removeRenderListener(RenderListener.CONSOLE));
+        assertArrayEquals(pixels(ImageIO.read(GOLDEN.resolve("refractionShadowSampled.png").toFile())), threaded,
+                "seeded render by several threads differs from the reference");
+    }
+
+    /** Golden image of a sphere lighted by all kinds of lights */
+    @Test
+    void lightSphereAll() throws IOException {
+        Scene scene = new Scene("golden sphere lights").setAmbientLight(new AmbientLight(new Color(WHITE), new Double3(0.15)));
+        scene.geometries.add(new Sphere(new Point(0, 0, -50), 50d).setEmission(new Color(BLUE).reduce(2))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(301)));
+        scene.lights.add(new PointLight(new Color(1260, 1000, 0), new Point(20, 50, 70)).setKl(0.0001).setKq(0.0005));
+        scene.lights.add(new DirectionalLight(new Color(200, 600, 0), new Vector(-1, -1, 0)));
+        scene.lights.add(new SpotLight(new Color(1020, 0, 0), new Point(-70, -70, -10), new Vector(1, 1, 0))
+                .setKl(0.0005).setKq(0.00007));
+        check("lightSphereAll", new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000).setRayTracer(new RayTracerBasic(scene)));
+    }
+
+    /** Golden image of two triangles lighted by all kinds of lights */
+    @Test
+    void lightTrianglesAll() throws IOException {
+        Scene scene = new Scene("golden triangles lights").setAmbientLight(new AmbientLight(new Color(WHITE), new Double3(0.15)));
+        Material material = new Material().setKd(new Double3(0.2, 0.6, 0.4)).setKs(new Double3(0.2, 0.4, 0.3)).setShininess(301);
+        Point[] vertices = {new Point(-110, -110, -150), new Point(95, 100, -150), new Point(110, -110, -150),
+                new Point(-75, 78, 100)};
+        scene.geometries.add(new Triangle(vertices[0], vertices[1], vertices[2]).setMaterial(material),
+                new Triangle(vertices[0], vertices[1], vertices[3]).setMaterial(material));
+        scene.lights.add(new PointLight(new Color(255, 250, 0), new Point(50, 30, -80)).setKl(0.001).setKq(0.00005));
+        scene.lights.add(new DirectionalLight(new Color(0, 0, 400), new Vector(0, 10, -40)));
+        scene.lights.add(new SpotLight(new Color(1020, 204, 612), new Point(0, 10, -100), new Vector(0, 0, -2))
+                .setKl(0.0005).setKq(0.00007));
+        check("lightTrianglesAll", new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000).setRayTracer(new RayTracerBasic(scene)));
+    }
+
+    // ***************** Harness ********************** //
+
+    /**
+     * renders a scene twice (several times if timed), then compares its image with the reference and its best
+     * render time with the baseline (or records them in update mode)
+     * @param name name of the reference image and the baseline
+     * @param camera camera of the scene (without image writer)
+     * @throws IOException on I/O error of the reference or the baselines
+     */
+    private static void check(String name, Camera camera) throws IOException {
+        camera.setSeed(SEED);
+        int[] image = render(camera);
+        if (!UPDATE && MAX_TIME_RATIO == 0) {
+            assertArrayEquals(image, render(camera), name + ": renders with the same seed differ");
+            compare(name, image);
+            return;
+        }
+        for (long start = System.nanoTime(); System.nanoTime() - start < WARMUP; ) render(camera);
+        double time = time(name, camera, image);
+
+        if (UPDATE) {
+            Path reference = GOLDEN.resolve(name + ".png");
+            Files.createDirectories(GOLDEN);
+            BufferedImage written = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+            written.setRGB(0, 0, SIZE, SIZE, image, 0, SIZE);
+            ImageIO.write(written, "png", reference.toFile());
+            updateBaseline(name, time);
+            return;
+        }
+
+        compare(name, image);
+        String baseline = loadBaselines().getProperty(name);
+        assertNotNull(baseline, name + ": no timing baseline (record it with -Dgolden.update=true)");
+        double limit = Double.parseDouble(baseline) * MAX_TIME_RATIO + TIME_SLACK;
+        // a slow measurement is repeated, so that a regression is not reported by a disturbance of other processes
+        if (time > limit) time = Math.min(time, time(name, camera, image));
+        assertTrue(time <= limit, String.format(Locale.ROOT,
+                "%s: render became slower - %.4f s, baseline %s s (limit %.4f s)", name, time, baseline, limit));
+    }
+
+    /**
+     * compares the image of a scene with its reference
+     * @param name name of the reference image
+     * @param image pixels of the image
+     * @throws IOException on I/O error of the reference
+     */
+    private static void compare(String name, int[] image) throws IOException {
+        Path reference = GOLDEN.resolve(name + ".png");
+        assertTrue(Files.exists(reference), name + ": no reference image (record it with -Dgolden.update=true)");
+        ImageMetrics metrics = ImageMetrics.compare(pixels(ImageIO.read(reference.toFile())), image, SIZE, SIZE);
+        boolean similar = metrics.getPsnr() >= MIN_PSNR && metrics.getSsim() >= MIN_SSIM;
+        // the error map shows where the image changed
+        if (!similar) metrics.writeErrorMap("golden_" + name + "_error");
+        assertTrue(similar, String.format(Locale.ROOT,
+                "%s: image differs from reference - PSNR %.2f dB (minimum %.2f), SSIM %.4f (minimum %.4f)",
+                name, metrics.getPsnr(), MIN_PSNR, metrics.getSsim(), MIN_SSIM));
+    }
+
+    /**
+     * times the renders of a scene, checking that they render the same image
+     * @param name name of scene
+     * @param camera camera of the scene
+     * @param image pixels of the first render
+     * @return best render time in seconds
+     */
+    private static double time(String name, Camera camera, int[] image) {
+        double[] times = new double[RUNS];
+        for (int k = 0; k < RUNS; ++k) {
+            long start = System.nanoTime();
+            int[] again = render(camera);
+            times[k] = (System.nanoTime() - start) / 1e9;
+            assertArrayEquals(image, again, name + ": renders with the same seed differ");
+        }
+        return Arrays.stream(times).min().orElseThrow();
+    }
+
+    /**
+     * renders the scene of a camera at the resolution of the harness
+     * @param camera the camera
+     * @return packed RGB colors of the pixels, row by row
+     */
+    private static int[] render(Camera camera) {
+        ImageWriter imageWriter = new ImageWriter("golden", SIZE, SIZE);
+        camera.setImageWriter(imageWriter).renderImage();
+        int[] rgbs = new int[SIZE * SIZE];
+        for (int i = 0; i < SIZE; ++i)
+            for (int j = 0; j < SIZE; ++j)
+                rgbs[i * SIZE + j] = imageWriter.getPixel(j, i);
+        return rgbs;
+    }
+
+    /**
+     * reads the pixels of an image
+     * @param image the image
+     * @return packed RGB colors of the pixels, row by row
+     */
+    private static int[] pixels(BufferedImage image) {
+        assertEquals(SIZE, image.getWidth(), "wrong width of reference image");
+        assertEquals(SIZE, image.getHeight(), "wrong height of reference image");
+        return image.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+    }
+
+    /**
+     * loads the timing baselines
+     * @return baselines by scene name, empty if there are none
+     * @throws IOException on I/O error
+     */
+    private static Properties loadBaselines() throws IOException {
+        Properties baselines = new Properties();
+        if (Files.exists(BASELINES))
+            try (Reader reader = Files.newBufferedReader(BASELINES)) {
+                baselines.load(reader);
+            }
+        return baselines;
+    }
+
+    /**
+     * records the timing baseline of a scene, keeping the others
+     * @param name name of scene
+     * @param time best render time in seconds
+     * @throws IOException on I/O error
+     */
+    private static synchronized void updateBaseline(String name, double time) throws IOException {
+        TreeMap<String, String> sorted = new TreeMap<>();
+        loadBaselines().forEach((key, value) -> sorted.put((String) key, (String) value));
+        sorted.put(name, String.format(Locale.ROOT, "%.5f", time));
+        try (Writer writer = Files.newBufferedWriter(BASELINES)) {
+            writer.write("# best render time in seconds of the golden image scenes, recorded by -Dgolden.update=true\n");
+            for (var entry : sorted.entrySet()) writer.write(entry.getKey() + '=' + entry.getValue() + '\n');
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package rendererTest;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import renderer.FrameBuffer;
+import renderer.ImageMetrics;
+import renderer.ImageWriter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.ImageMetrics
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+class ImageMetricsTest {
+    /** side of the tested images */
+    private static final int SIZE = 64;
+
+    /**
+     * creates an image of random colored squares
+     * @param seed seed of the colors
+     * @return packed RGB colors of the pixels, row by row
+     */
+    private static int[] squares(long seed) {
+        Random random = new Random(seed);
+        int[] rgbs = new int[SIZE * SIZE];
+        int[] colors = new int[64];
+        for (int k = 0; k < colors.length; ++k) colors[k] = random.nextInt(0x1000000);
+        for (int i = 0; i < SIZE; ++i)
+            for (int j = 0; j < SIZE; ++j)
+                rgbs[i * SIZE + j] = colors[(i / 8) * 8 + j / 8];
+        return rgbs;
+    }
+
+    /** Test method for {@link renderer.ImageMetrics#compare(int[], int[], int, int)}. */
+    @Test
+    void testCompare() {
+        int[] image = squares(1);
+
+        // TC01: identical images
+        ImageMetrics same = ImageMetrics.compare(image, image.clone(), SIZE, SIZE);
+        assertEquals(0, same.getMse(), "MSE of identical images");
+        assertEquals(Double.POSITIVE_INFINITY, same.getPsnr(), "PSNR of identical images");
+        assertEquals(1, same.getSsim(), 1e-12, "SSIM of identical images");
+        assertEquals(0, same.getMaxError(), "error of identical images");
+
+        // TC02: gray brighter by 10 in all components - MSE of 100
+        int[] gray = new int[SIZE * SIZE], grayBrighter = new int[SIZE * SIZE];
+        Arrays.fill(gray, 0x646464);
+        Arrays.fill(grayBrighter, 0x6E6E6E);
+        ImageMetrics shifted = ImageMetrics.compare(gray, grayBrighter, SIZE, SIZE);
+        assertEquals(100, shifted.getMse(), 1e-9, "wrong MSE");
+        assertEquals(10 * Math.log10(255 * 255 / 100d), shifted.getPsnr(), 1e-9, "wrong PSNR");
+        assertTrue(shifted.getSsim() > 0.99, "a small shift of brightness should keep the structure");
+
+        // TC03: an image of other squares has lower similarity than a brighter one
+        int[] brighter = image.clone();
+        for (int p = 0; p < brighter.length; ++p) {
+            int r = Math.min(255, (brighter[p] >> 16 & 0xFF) + 10), g = Math.min(255, (brighter[p] >> 8 & 0xFF) + 10),
+                    b = Math.min(255, (brighter[p] & 0xFF) + 10);
+            brighter[p] = r << 16 | g << 8 | b;
+        }
+        ImageMetrics other = ImageMetrics.compare(image, squares(2), SIZE, SIZE);
+        ImageMetrics bright = ImageMetrics.compare(image, brighter, SIZE, SIZE);
+        assertTrue(other.getSsim() < bright.getSsim() && other.getPsnr() < bright.getPsnr(),
+                "other image is not less similar than a brighter one");
+        assertTrue(other.getSsim() < 0.5, "other image is too similar");
+
+        // TC04: the error map is of the changed pixel only
+        int[] dot = image.clone();
+        dot[10 * SIZE + 20] ^= 0xFFFFFF;
+        ImageMetrics dotted = ImageMetrics.compare(image, dot, SIZE, SIZE);
+        assertTrue(dotted.getError(20, 10) > 0, "no error at the changed pixel");
+        assertEquals(dotted.getError(20, 10), dotted.getMaxError(), 1e-6, "largest error is not at the changed pixel");
+        assertEquals(dotted.getMaxError() / (SIZE * SIZE), dotted.getMeanError(), 1e-6, "error outside the changed pixel");
+
+        // TC05: images of different sizes
+        assertThrows(IllegalArgumentException.class, () -> ImageMetrics.compare(image, new int[10], SIZE, SIZE),
+                "images of different sizes");
+    }
+
+    /** Test method for {@link renderer.ImageMetrics#compare(ImageWriter, ImageWriter)} and
+     * {@link renderer.ImageMetrics#compare(FrameBuffer, FrameBuffer)}. */
+    @Test
+    void testCompareImages() throws Exception {
+        int[] first = squares(3), second = squares(4);
+        ImageWriter firstWriter = new ImageWriter("metrics first", SIZE, SIZE),
+                secondWriter = new ImageWriter("metrics second", SIZE, SIZE);
+        FrameBuffer firstBuffer = new FrameBuffer(SIZE, SIZE), secondBuffer = new FrameBuffer(SIZE, SIZE);
+        for (int i = 0; i < SIZE; ++i) {
+            for (int j = 0; j < SIZE; ++j) {
+                Color a = new Color(new java.awt.Color(first[i * SIZE + j])), b = new Color(new java.awt.Color(second[i * SIZE + j]));
+                firstWriter.writePixel(j, i, a);
+                secondWriter.writePixel(j, i, b);
+                firstBuffer.set(j, i, a);
+                secondBuffer.set(j, i, b);
+            }
+        }
+
+        // TC01: image writers, frame buffers and packed colors have the same metrics
+        ImageMetrics packed = ImageMetrics.compare(first, second, SIZE, SIZE);
+        for (ImageMetrics metrics : new ImageMetrics[]{ImageMetrics.compare(firstWriter, secondWriter),
+                ImageMetrics.compare(firstBuffer, secondBuffer)}) {
+            assertEquals(packed.getMse(), metrics.getMse(), 1e-9, "wrong MSE");
+            assertEquals(packed.getSsim(), metrics.getSsim(), 1e-9, "wrong SSIM");
+            assertEquals(packed.getMeanError(), metrics.getMeanError(), 1e-4, "wrong error map");
+            assertEquals(packed.getMaxError(), metrics.getMaxError(), 1e-4, "wrong error map");
+        }
+
+        // TC02: the error map image
+        packed.writeErrorMap("metrics error map test");
+        assertTrue(Files.exists(Path.of(System.getProperty("user.dir"), "images", "metrics error map test.png")),
+                "error map was not written");
+
+        // TC03: images of different sizes
+        assertThrows(IllegalArgumentException.class,
+                () -> ImageMetrics.compare(firstBuffer, new FrameBuffer(SIZE, SIZE + 1)), "frame buffers of different sizes");
+    }
+}
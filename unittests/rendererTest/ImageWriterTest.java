@@ -3,6 +3,9 @@ package rendererTest;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 import renderer.ImageWriter;
+import renderer.ToneMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /** Testing image writer
  * @author Avishai Sachor and Yoav Babayoff */
@@ -28,4 +31,38 @@ public class ImageWriterTest {
         }
         imageWriter.writeToImage();
     }
+
+    @Test
+    void writeTileTest() {
+        ImageWriter imageWriter = new ImageWriter("tile_writing_test", 100, 50);
+        // TC01: packed color is the same as of java.awt.Color, clamped to 255
+        Color color = new Color(300, 128.7, 0);
+        assertEquals(color.getColor().getRGB(), color.getRGB(), "wrong packed color");
+
+        // TC02: tile is written row by row to its place in the image
+        int[] tile = new int[10 * 5];
+        for (int k = 0; k < tile.length; ++k) tile[k] = new Color(k, 0, 255 - k).getRGB();
+        imageWriter.writePixel(0, 0, color);
+        imageWriter.writeTile(90, 45, 10, 5, tile);
+        assertEquals(color.getRGB(), imageWriter.getPixel(0, 0), "wrong pixel color");
+        assertEquals(tile[0], imageWriter.getPixel(90, 45), "wrong color of tile's first pixel");
+        assertEquals(tile[13], imageWriter.getPixel(93, 46), "wrong color of tile's pixel");
+        assertEquals(tile[49], imageWriter.getPixel(99, 49), "wrong color of tile's last pixel");
+
+        // TC03: tile exceeding the image
+        assertThrows(IllegalArgumentException.class, () -> imageWriter.writeTile(91, 45, 10, 5, tile),
+                "tile exceeding the image should throw");
+        imageWriter.writeToImage();
+
+        // TC04: with HDR, tile is written into the frame buffer and kept when the image is tone mapped
+        ImageWriter hdrWriter = new ImageWriter("tile_writing_hdr_test", 100, 50).setHDR(ToneMapper.CLAMP);
+        hdrWriter.writePixel(0, 0, color);
+        hdrWriter.writeTile(90, 45, 10, 5, tile);
+        assertEquals(13, hdrWriter.getFrameBuffer().get(93, 46).getRed(), 1e-6, "wrong HDR color of tile's pixel");
+        hdrWriter.writeToImage();
+        assertEquals(color.getRGB(), hdrWriter.getPixel(0, 0), "wrong pixel color");
+        assertEquals(tile[0], hdrWriter.getPixel(90, 45), "wrong color of tile's first pixel");
+        assertEquals(tile[13], hdrWriter.getPixel(93, 46), "wrong color of tile's pixel");
+        assertEquals(tile[49], hdrWriter.getPixel(99, 49), "wrong color of tile's last pixel");
+    }
 }
@@ -1,6 +1,7 @@
 package rendererTest;
 
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 import geometries.Plane;
 import org.junit.jupiter.api.Test;
@@ -188,4 +189,27 @@ public class ReflectionRefractionTests {
               .renderImage()
               .writeToImage();
    }
+
+   /** Test that russian roulette termination keeps the expected color of a ray bouncing between two mirrors */
+   @Test
+   public void russianRouletteMirrors() {
+      scene.geometries.add( //
+                           new Plane(new Point(0, 0, -100), new Vector(0, 0, 1)).setEmission(new Color(20, 10, 5)) //
+                              .setMaterial(new Material().setKr(0.9)),
+                           new Plane(new Point(0, 0, 100), new Vector(0, 0, -1)).setEmission(new Color(20, 10, 5)) //
+                              .setMaterial(new Material().setKr(0.9)));
+      Ray ray = new Ray(Point.ZERO, new Vector(0.1, 0, -1));
+      Color expected = new RayTracerBasic(scene).traceRay(ray);
+
+      RayTracerBasic rayTracer = new RayTracerBasic(scene).setRussianRoulette(1, 0.05);
+      final int samples = 20000;
+      Color sum = Color.BLACK;
+      for (int i = 0; i < samples; ++i)
+         sum = sum.add(rayTracer.traceRay(ray));
+      assertTrue(sum.reduce(samples).maxDifference(expected) < 2,
+                 "russian roulette should not change the expected color");
+
+      assertThrows(IllegalArgumentException.class, () -> rayTracer.setRussianRoulette(1, 0),
+                   "survival probability of 0 should throw");
+   }
 }
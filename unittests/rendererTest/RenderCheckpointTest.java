@@ -0,0 +1,164 @@
+package rendererTest;
+
+import geometries.Geometry;
+import geometries.Sphere;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+import renderer.RenderCheckpoint;
+import scene.Scene;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Testing RenderCheckpoint
+ * @author Yoav Babayoff and Avishai Shachor */
+public class RenderCheckpointTest {
+    /** image size */
+    private static final int SIZE = 50;
+
+    /** ray tracer counting the traced rays, which fails after a given amount of rays as if the render crashed */
+    private static class CountingRayTracer extends RayTracerBasic {
+        /** amount of traced rays */
+        final AtomicInteger rays = new AtomicInteger();
+        /** amount of rays after which tracing fails */
+        final int limit;
+
+        /** constructor for CountingRayTracer
+         * @param scene scene
+         * @param limit amount of rays after which tracing fails */
+        CountingRayTracer(Scene scene, int limit) {
+            super(scene);
+            this.limit = limit;
+        }
+
+        @Override
+        public Color traceRay(Ray ray) {
+            if (rays.incrementAndGet() > limit) throw new IllegalStateException("render crashed");
+            return super.traceRay(ray);
+        }
+    }
+
+    /** creates the scene of the tests
+     * @return scene with a lit sphere */
+    private static Scene createScene() {
+        Scene scene = new Scene("checkpoint scene");
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d).setEmission(new Color(30, 60, 90))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, 50, 50)));
+        return scene;
+    }
+
+    /** renders the scene
+     * @param imageWriter image writer
+     * @param rayTracer ray tracer
+     * @param checkpoint checkpoint file
+     * @param threads amount of threads */
+    private static void render(ImageWriter imageWriter, RayTracerBasic rayTracer, Path checkpoint, int threads) {
+        Camera camera = new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(150, 150).setVPDistance(1000)
+                .setCheckpoint(checkpoint, 16)
+                .setImageWriter(imageWriter)
+                .setRayTracer(rayTracer);
+        if (threads > 0) camera.setMultiThreading(threads, 1);
+        camera.renderImage();
+    }
+
+    /** Test method for {@link renderer.Camera#setCheckpoint(Path, int)} */
+    @Test
+    void testResume() throws IOException {
+        Scene scene = createScene();
+        Path file = Files.createTempFile("render_checkpoint_test", ".bin");
+        try {
+            ImageWriter expected = new ImageWriter("checkpoint_expected", SIZE, SIZE);
+            new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                    .setVPSize(150, 150).setVPDistance(1000)
+                    .setImageWriter(expected)
+                    .setRayTracer(new RayTracerBasic(scene))
+                    .renderImage();
+
+            // TC01: render crashes in the middle
+            CountingRayTracer crashing = new CountingRayTracer(scene, 1000);
+            assertThrows(IllegalStateException.class,
+                    () -> render(new ImageWriter("checkpoint_crashed", SIZE, SIZE), crashing, file, 0),
+                    "crashing ray tracer should stop the render");
+
+            // TC02: render continues from the finished tiles
+            CountingRayTracer resumed = new CountingRayTracer(scene, Integer.MAX_VALUE);
+            ImageWriter imageWriter = new ImageWriter("checkpoint_resumed", SIZE, SIZE);
+            render(imageWriter, resumed, file, 3);
+            assertTrue(resumed.rays.get() < SIZE * SIZE, "finished tiles should not be rendered again");
+            assertTrue(resumed.rays.get() >= SIZE * SIZE - 1000, "unfinished tiles should be rendered");
+            for (int i = 0; i < SIZE; ++i)
+                for (int j = 0; j < SIZE; ++j)
+                    assertEquals(expected.getPixel(j, i), imageWriter.getPixel(j, i), "wrong color of resumed pixel");
+
+            // TC03: finished render is only copied
+            CountingRayTracer copied = new CountingRayTracer(scene, 0);
+            render(new ImageWriter("checkpoint_copied", SIZE, SIZE), copied, file, 0);
+
+            // TC04: another scene is rendered from the beginning
+            scene.lights.add(new PointLight(new Color(100, 100, 100), new Point(50, 50, 50)));
+            CountingRayTracer other = new CountingRayTracer(scene, Integer.MAX_VALUE);
+            render(new ImageWriter("checkpoint_other", SIZE, SIZE), other, file, 0);
+            assertEquals(SIZE * SIZE, other.rays.get(), "checkpoint of another scene should not be used");
+
+            // TC05: scene of the same name, lights and background with a moved geometry is rendered from the beginning
+            Geometry moved = new Sphere(new Point(10, 0, -100), 50d).setEmission(new Color(30, 60, 90))
+                    .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30));
+            scene.geometries.setGeometries(new LinkedList<>(List.of(moved)));
+            CountingRayTracer edited = new CountingRayTracer(scene, Integer.MAX_VALUE);
+            render(new ImageWriter("checkpoint_edited", SIZE, SIZE), edited, file, 0);
+            assertEquals(SIZE * SIZE, edited.rays.get(), "checkpoint of a scene with another geometry should not be used");
+
+            // TC06: scene with another material of a geometry is rendered from the beginning
+            moved.setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(60));
+            CountingRayTracer material = new CountingRayTracer(scene, Integer.MAX_VALUE);
+            render(new ImageWriter("checkpoint_material", SIZE, SIZE), material, file, 0);
+            assertEquals(SIZE * SIZE, material.rays.get(), "checkpoint of a scene with another material should not be used");
+
+            // TC07: unchanged scene is identified again
+            CountingRayTracer unchanged = new CountingRayTracer(scene, 0);
+            render(new ImageWriter("checkpoint_unchanged", SIZE, SIZE), unchanged, file, 0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Test method for {@link renderer.RenderCheckpoint#tileDone(int)} */
+    @Test
+    void testCheckpointFile() throws IOException {
+        Path file = Files.createTempFile("render_checkpoint_file_test", ".bin");
+        try {
+            try (RenderCheckpoint checkpoint = new RenderCheckpoint(file, 30, 20, 8, 7)) {
+                assertEquals(12, checkpoint.getAmountTiles(), "wrong amount of tiles");
+                assertEquals(24, checkpoint.getTileX(11), "wrong column of tile");
+                assertEquals(16, checkpoint.getTileY(11), "wrong row of tile");
+                checkpoint.set(29, 19, new Color(1000, 2, 3));
+                checkpoint.tileDone(11);
+            }
+            // TC01: reopened with the same fingerprint
+            try (RenderCheckpoint checkpoint = new RenderCheckpoint(file, 30, 20, 8, 7)) {
+                assertEquals(1, checkpoint.getResumedTiles(), "wrong amount of resumed tiles");
+                assertTrue(checkpoint.isTileDone(11), "finished tile was lost");
+                assertFalse(checkpoint.isTileDone(10), "unfinished tile is marked as finished");
+                assertEquals(new Color(1000, 2, 3), checkpoint.get(29, 19), "wrong saved color");
+            }
+            // TC02: reopened with another fingerprint
+            try (RenderCheckpoint checkpoint = new RenderCheckpoint(file, 30, 20, 8, 8)) {
+                assertEquals(0, checkpoint.getResumedTiles(), "checkpoint of another render should be cleared");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package rendererTest;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+import scene.SceneGenerator;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the render listeners and the render MBean of Camera
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+class RenderMonitorTest {
+    /** Test method for {@link renderer.Camera#addRenderListener(RenderListener)} and the render MBean */
+    @Test
+    void testMonitor() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName query = new ObjectName("raytracer:type=Render,name=" + ObjectName.quote("monitor test") + ",*");
+        List<RenderProgress> reports = new CopyOnWriteArrayList<>(), ends = new CopyOnWriteArrayList<>();
+        Map<String, Object> attributes = new ConcurrentHashMap<>();
+        RenderListener listener = new RenderListener() {
+            @Override
+            public void progress(RenderProgress progress) {
+                reports.add(progress);
+                // read the MBean while the render runs
+                Set<ObjectName> names = server.queryNames(query, null);
+                if (names.size() != 1 || !attributes.isEmpty()) return;
+                try {
+                    ObjectName name = names.iterator().next();
+                    for (String attribute : new String[]{"ImageName", "TotalPixels", "Pass", "ActiveThreads", "Progress"})
+                        attributes.put(attribute, server.getAttribute(name, attribute));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public void renderStarted(RenderProgress progress) {
+                ends.add(progress);
+            }
+
+            @Override
+            public void renderFinished(RenderProgress progress) {
+                ends.add(progress);
+            }
+        };
+        Camera camera = new Camera(new Point(0, 0, 300), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(100, 100).setVPDistance(150)
+                .setImageWriter(new ImageWriter("monitor test", 40, 30))
+                .setRayTracer(new RayTracerBasic(new SceneGenerator(5).setSpheres(20).setLights(2).generate("monitor")))
+                .setMultiThreading(2, 10)
+                .removeRenderListener(RenderListener.CONSOLE)
+                .addRenderListener(listener);
+        camera.renderImage();
+
+        // TC01: progress is reported at the start and in steps of 10 percents
+        assertTrue(reports.size() >= 2 && reports.size() <= 11, "wrong amount of progress reports");
+        assertEquals(0, reports.get(0).pixelsDone(), "first report is not of the start");
+        for (RenderProgress progress : reports) {
+            assertEquals("monitor test", progress.image(), "wrong image of progress");
+            assertEquals(1200, progress.totalPixels(), "wrong amount of pixels of progress");
+        }
+
+        // TC02: the MBean was registered while rendering
+        assertEquals("monitor test", attributes.get("ImageName"), "wrong image name of MBean");
+        assertEquals(1200L, attributes.get("TotalPixels"), "wrong amount of pixels of MBean");
+        assertEquals(1, attributes.get("Pass"), "wrong pass of MBean");
+        assertTrue((Integer) attributes.get("ActiveThreads") <= 2, "too many active threads");
+        assertTrue((Double) attributes.get("Progress") <= 100, "wrong progress of MBean");
+
+        // TC03: start and end of the render, with all pixels and a ray per pixel, and the MBean is unregistered
+        assertEquals(2, ends.size(), "render was not started and finished once");
+        assertEquals(0, ends.get(0).pixelsDone(), "wrong start of render");
+        RenderProgress end = ends.get(1);
+        assertEquals(1200, end.pixelsDone(), "not all pixels were rendered");
+        assertEquals(1200, end.rays(), "wrong amount of camera rays");
+        assertEquals(0, end.activeThreads(), "threads are active after the render");
+        assertEquals(0, end.etaSeconds(), "remaining time after the render");
+        assertTrue(server.queryNames(query, null).isEmpty(), "MBean was not unregistered");
+
+        // TC04: without listeners nothing is reported
+        reports.clear();
+        camera.removeRenderListener(listener).renderImage();
+        assertTrue(reports.isEmpty(), "removed listener was notified");
+    }
+
+    /** Test method for the progress reports of {@link renderer.Camera#renderImage()} by many threads */
+    @Test
+    void testProgressOrder() {
+        List<RenderProgress> reports = new CopyOnWriteArrayList<>();
+        RenderListener listener = progress -> {
+            // a slow listener, so reports of several threads overlap
+            Thread.yield();
+            reports.add(progress);
+        };
+        Camera camera = new Camera(new Point(0, 0, 300), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(100, 100).setVPDistance(150)
+                .setImageWriter(new ImageWriter("progress order test", 100, 100))
+                .setRayTracer(new RayTracerBasic(new Scene("empty")))
+                .setMultiThreading(16, 1)
+                .removeRenderListener(RenderListener.CONSOLE)
+                .addRenderListener(listener);
+        for (int render = 0; render < 20; ++render) {
+            reports.clear();
+            camera.renderImage();
+            // TC01: reports are in increasing order, apart by at least the reporting interval
+            for (int i = 1; i < reports.size(); ++i) {
+                RenderProgress previous = reports.get(i - 1), progress = reports.get(i);
+                assertTrue(progress.pixelsDone() > previous.pixelsDone(), "progress reports are out of order");
+                if (i < reports.size() - 1)
+                    assertTrue(progress.pixelsDone() / 100 - previous.pixelsDone() / 100 >= 1,
+                            "progress reports are too close");
+            }
+            // TC02: the completion is always reported
+            assertEquals(10000, reports.get(reports.size() - 1).pixelsDone(), "completion was not reported");
+        }
+    }
+}
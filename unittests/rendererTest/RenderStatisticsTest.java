@@ -0,0 +1,97 @@
+package rendererTest;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+import scene.Scene;
+import scene.SceneGenerator;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for primitives.RenderStatistics and the statistics of renders of Camera
+ * (the counting part is checked when the tests run with -Draytracer.statistics=true)
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+class RenderStatisticsTest {
+    /** Test method for {@link renderer.Camera#getStatistics()}. */
+    @Test
+    void testGetStatistics() {
+        Scene scene = new SceneGenerator(3).setSpheres(10).setTriangles(10).setReflectionStack(3).setLights(3)
+                .generate("statistics");
+        Camera camera = new Camera(new Point(0, 0, 300), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(100, 100).setVPDistance(150)
+                .setImageWriter(new ImageWriter("statistics", 20, 20))
+                .setRayTracer(new RayTracerBasic(scene))
+                .setMultiThreading(2, Long.MAX_VALUE);
+        RenderStatistics statistics = camera.renderImage().getStatistics();
+
+        // TC01: no statistics when counting is off
+        if (!RenderStatistics.ENABLED) {
+            assertNull(statistics, "statistics were counted though counting is off");
+            return;
+        }
+        // TC02: a primary ray per pixel, of depth 0
+        assertEquals(400, statistics.getPrimaryRays(), "wrong amount of primary rays");
+        long[] depths = statistics.getDepthHistogram();
+        assertEquals(400, depths[0], "primary rays should be of depth 0");
+        // TC03: secondary rays are the rays deeper than 0, and the stack is reflecting and refracting
+        assertEquals(statistics.getReflectionRays() + statistics.getRefractionRays(),
+                Arrays.stream(depths).sum() - depths[0], "wrong depths of secondary rays");
+        assertTrue(statistics.getReflectionRays() > 0 && statistics.getRefractionRays() > 0, "no secondary rays");
+        assertTrue(depths[2] > 0, "no rays of recursion depth 2");
+        // TC04: every traced ray tests all geometries of the scene, and some of them hit
+        assertTrue(statistics.getShadowRays() > 0, "no shadow rays");
+        assertEquals(statistics.getTotalRays() * scene.geometries.getGeometries().size(), statistics.getPrimitiveTests(),
+                "wrong amount of primitive tests");
+        assertTrue(statistics.getHits() > 0 && statistics.getHits() < statistics.getPrimitiveTests(),
+                "wrong amount of hits");
+
+        // TC05: statistics are of a single render
+        RenderStatistics again = camera.renderImage().getStatistics();
+        assertEquals(statistics.getPrimaryRays(), again.getPrimaryRays(), "statistics were not reset between renders");
+        assertEquals(statistics.getPrimitiveTests(), again.getPrimitiveTests(), "statistics were not reset between renders");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#getStatistics()} of renders running at the same time.
+     * @throws InterruptedException if the test was interrupted while waiting for a render
+     */
+    @Test
+    void testConcurrentStatistics() throws InterruptedException {
+        Scene spheres = new SceneGenerator(5).setSpheres(20).setLights(2).generate("spheres");
+        Scene triangles = new SceneGenerator(7).setTriangles(30).setReflectionStack(2).setLights(1).generate("triangles");
+        Camera first = new Camera(new Point(0, 0, 300), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(100, 100).setVPDistance(150)
+                .setImageWriter(new ImageWriter("spheres", 40, 40))
+                .setRayTracer(new RayTracerBasic(spheres))
+                .setMultiThreading(2, Long.MAX_VALUE);
+        Camera second = new Camera(new Point(0, 0, 300), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(100, 100).setVPDistance(150)
+                .setImageWriter(new ImageWriter("triangles", 30, 30))
+                .setRayTracer(new RayTracerBasic(triangles))
+                .setMultiThreading(2, Long.MAX_VALUE);
+        RenderStatistics firstAlone = first.renderImage().getStatistics();
+        RenderStatistics secondAlone = second.renderImage().getStatistics();
+        if (!RenderStatistics.ENABLED) return;
+
+        // TC01: every render counts only its own rays and tests while the other runs
+        for (int r = 0; r < 5; ++r) {
+            Thread thread = new Thread(second::renderImage);
+            thread.start();
+            RenderStatistics firstTogether = first.renderImage().getStatistics();
+            thread.join();
+            RenderStatistics secondTogether = second.getStatistics();
+            assertEquals(firstAlone.getTotalRays(), firstTogether.getTotalRays(), "rays of another render were counted");
+            assertEquals(firstAlone.getPrimitiveTests(), firstTogether.getPrimitiveTests(),
+                    "tests of another render were counted");
+            assertEquals(secondAlone.getTotalRays(), secondTogether.getTotalRays(), "rays of another render were counted");
+            assertEquals(secondAlone.getPrimitiveTests(), secondTogether.getPrimitiveTests(),
+                    "tests of another render were counted");
+        }
+    }
+}
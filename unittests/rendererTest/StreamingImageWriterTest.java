@@ -0,0 +1,88 @@
+package rendererTest;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import renderer.StreamingImageWriter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Testing StreamingImageWriter
+ * @author Yoav Babayoff and Avishai Shachor */
+public class StreamingImageWriterTest {
+    /** image width */
+    private static final int NX = 100;
+    /** image height */
+    private static final int NY = 37;
+
+    /** color of a pixel in the test image
+     * @param x column of pixel
+     * @param y row of pixel
+     * @return color of pixel */
+    private static Color colorOf(int x, int y) {
+        return new Color(x * 2, y * 6, (x * y) % 256);
+    }
+
+    /** Test method for {@link renderer.StreamingImageWriter#writeToImage()} */
+    @Test
+    void testStreaming() throws IOException {
+        StreamingImageWriter imageWriter = new StreamingImageWriter("streaming_test", NX, NY, 8);
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < NY; ++i) rows.add(i);
+        Collections.shuffle(rows, new Random(0));
+
+        // TC01: rows are written by several threads in random order
+        rows.parallelStream().forEach(i -> IntStream.range(0, NX).forEach(j -> imageWriter.writePixel(j, i, colorOf(j, i))));
+        imageWriter.writeToImage();
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/streaming_test.png"));
+        assertEquals(NX, image.getWidth(), "wrong image width");
+        assertEquals(NY, image.getHeight(), "wrong image height");
+        for (int i = 0; i < NY; ++i)
+            for (int j = 0; j < NX; ++j)
+                assertEquals(colorOf(j, i).getRGB(), image.getRGB(j, i), "wrong color of pixel");
+
+        // TC02: a pixel of an encoded band cannot be written again
+        assertThrows(IllegalStateException.class, () -> imageWriter.writePixel(0, 0, Color.BLACK),
+                "writing an encoded pixel should throw");
+    }
+
+    /** Test method for {@link renderer.StreamingImageWriter#writeTile(int, int, int, int, int[])} */
+    @Test
+    void testUnfinished() {
+        StreamingImageWriter imageWriter = new StreamingImageWriter("streaming_unfinished_test", 10, 10, 4);
+        imageWriter.writeTile(0, 0, 10, 5, new int[50]);
+
+        // TC01: image is not finished while there are unwritten pixels
+        assertThrows(IllegalStateException.class, imageWriter::writeToImage,
+                "finishing an image with unwritten pixels should throw");
+
+        // TC02: illegal band height
+        assertThrows(IllegalArgumentException.class, () -> new StreamingImageWriter("bad", 10, 10, 0),
+                "band height 0 should throw");
+    }
+
+    /** Test method for an I/O error of {@link renderer.StreamingImageWriter} */
+    @Test
+    void testFailure() {
+        StreamingImageWriter imageWriter = new StreamingImageWriter("missing_folder/streaming_failure_test", 10, 10, 4);
+
+        // TC01: I/O error while a finished band is written
+        assertThrows(IllegalStateException.class, () -> imageWriter.writeTile(0, 0, 10, 4, new int[40]),
+                "writing a band to a missing folder should throw");
+
+        // TC02: writer rejects writing after an I/O error, also of bands which were not written yet
+        assertThrows(IllegalStateException.class, () -> imageWriter.writePixel(0, 9, Color.BLACK),
+                "writing after an I/O error should throw");
+        assertThrows(IllegalStateException.class, imageWriter::writeToImage,
+                "finishing after an I/O error should throw");
+    }
+}
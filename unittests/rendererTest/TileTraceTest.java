@@ -0,0 +1,91 @@
+package rendererTest;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.*;
+import scene.SceneGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the tile trace of renders of Camera
+ * @author Yoav Babayoff and Avishai Shachor
+ */
+class TileTraceTest {
+    /**
+     * creates a camera of a generated scene
+     * @return the camera
+     */
+    private static Camera camera() {
+        return new Camera(new Point(0, 0, 300), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(100, 100).setVPDistance(150)
+                .setImageWriter(new ImageWriter("tile trace test", 80, 60))
+                .setRayTracer(new RayTracerBasic(new SceneGenerator(4).setSpheres(20).setLights(2).generate("trace")))
+                .setMultiThreading(3, Long.MAX_VALUE)
+                .removeRenderListener(RenderListener.CONSOLE);
+    }
+
+    /** Test method for {@link renderer.Camera#setTileTrace(boolean)} */
+    @Test
+    void testTileTrace() throws Exception {
+        // TC01: no trace by default
+        assertNull(camera().renderImage().getTileTrace(), "tiles were traced though tracing is off");
+
+        // TC02: the tiles of the threads cover the image, inside the pass
+        TileTrace trace = camera().setTileTrace(true).renderImage().getTileTrace();
+        List<TileTrace.Span> spans = trace.getSpans();
+        assertEquals(4800, spans.stream().mapToInt(TileTrace.Span::pixels).sum(), "tiles do not cover the image");
+        assertTrue(spans.stream().mapToLong(TileTrace.Span::threadId).distinct().count() <= 3, "too many threads");
+        assertEquals(1, trace.getPasses().size(), "wrong amount of passes");
+        TileTrace.Pass pass = trace.getPasses().get(0);
+        for (TileTrace.Span span : spans) {
+            assertTrue(span.startNanos() >= pass.startNanos() && span.endNanos() <= pass.endNanos()
+                    && span.startNanos() <= span.endNanos(), "tile out of pass");
+            assertTrue(span.firstColumn() <= span.lastColumn() && span.lastColumn() < 80
+                    && span.firstRow() <= span.lastRow() && span.lastRow() < 60, "tile out of image");
+        }
+
+        // TC03: tiles of a checkpoint are the checkpoint tiles
+        Path checkpoint = Files.createTempFile("tile_trace_test", ".ckpt"),
+                json = Files.createTempFile("tile_trace_test", ".json");
+        Files.delete(checkpoint);
+        try {
+            trace = camera().setTileTrace(true).setCheckpoint(checkpoint, 20).renderImage().getTileTrace();
+            assertEquals(12, trace.getSpans().size(), "wrong amount of checkpoint tiles");
+            for (TileTrace.Span span : trace.getSpans())
+                assertEquals(400, span.pixels(), "wrong amount of pixels of checkpoint tile");
+
+            // TC04: Chrome trace events - metadata of the tracks, a complete event of the pass and of every tile
+            trace.writeJson(json);
+            String text = Files.readString(json);
+            assertTrue(text.startsWith("{") && text.contains("\"traceEvents\":["), "not a trace event file");
+            assertEquals(12, count(text, "\"cat\":\"tile\",\"ph\":\"X\""), "wrong amount of tile events");
+            assertEquals(1, count(text, "\"cat\":\"pass\",\"ph\":\"X\""), "wrong amount of pass events");
+            long threads = trace.getSpans().stream().mapToLong(TileTrace.Span::threadId).distinct().count();
+            assertEquals(threads + 1, count(text, "\"name\":\"thread_name\""), "wrong amount of tracks");
+            assertTrue(text.contains("\"name\":\"render tile trace test\""), "wrong name of process");
+        } finally {
+            Files.deleteIfExists(checkpoint);
+            Files.delete(json);
+        }
+    }
+
+    /**
+     * counts the occurrences of a text
+     * @param text the text
+     * @param part the counted part
+     * @return amount of occurrences
+     */
+    private static int count(String text, String part) {
+        Matcher matcher = Pattern.compile(Pattern.quote(part)).matcher(text);
+        int count = 0;
+        while (matcher.find()) ++count;
+        return count;
+    }
+}
@@ -0,0 +1,122 @@
+package xmlTests;
+
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import geometries.Mesh;
+import lighting.LightSource;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+import scene.SceneCache;
+import xml.StaxSceneParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Testing SceneCache
+ * @author Yoav Babayoff and Avishai Shachor */
+public class SceneCacheTest {
+    /** scene file with all kinds of cached geometries and lights */
+    private static final String SCENE_XML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <scene name="cached" background-color="43 44.5 90">
+                <ambient-light color="30 30 30" Ka="0.3"/>
+                <lights>
+                    <point-light intensity="255 0 0" position="2.6 60.6 22.5" Kl="0.001" Kq="2e-5"/>
+                    <spot-light direction="0 1 0" position="8 45.5 5.5" intensity="255 255 224"/>
+                    <directional-light intensity="0 0 250" direction="0.3 1 0.3"/>
+                </lights>
+                <geometries>
+                    <sphere center="0 0 -100" radius="50" emission-light="10 20 30" Kd="0.5" Ks="0.5 0.25 1" shininess="30"/>
+                    <triangle p0="-20 -20 0" p1="20 -20 0" p2="0 20 0" emission-light="90 90 90" Kd="0.2" Kr="0.4" shininess="4"/>
+                    <triangle p0="-20 -20 10" p1="0 20 10" p2="20 -20 10" emission-light="90 90 90" Kd="0.2" Kr="0.4" shininess="4"/>
+                    <triangle p0="-20 -20 20" p1="20 -20 20" p2="0 20 20" Kt="0.8"/>
+                    <plane p0="0 0 -300" p1="1 0 -300" p2="0 1 -300" Kd="0.1"/>
+                    <polygon s0="0 0 30" s1="1 0 30" s2="1 1 30" s3="0 1 30"/>
+                    <cylinder axis-ray="p 0 0 0 v 0 1 0" radius="2" height="3" Kt="0.8"/>
+                </geometries>
+            </scene>
+            """;
+
+    /** Test method for {@link xml.StaxSceneParser#parseXMLScene(String, Scene, Path)} */
+    @Test
+    void testCache() throws Exception {
+        Path file = Files.createTempFile("scene_cache_test", ".xml");
+        Path cache = Files.createTempFile("scene_cache_test", ".scene");
+        try {
+            Files.writeString(file, SCENE_XML);
+            Files.delete(cache);
+            Scene parsed = new Scene("parsed"), compiled = new Scene("compiled"), loaded = new Scene("loaded");
+            StaxSceneParser.parseXMLScene(file.toString(), parsed);
+            StaxSceneParser.parseXMLScene(file.toString(), compiled, cache);
+            assertTrue(Files.exists(cache), "cache was not written");
+
+            // TC01: scene attributes and lights
+            assertEquals("cached", compiled.name, "wrong scene name");
+            assertEquals(parsed.background, compiled.background, "wrong background color");
+            assertEquals(parsed.ambientLight.getIntensity(), compiled.ambientLight.getIntensity(), "wrong ambient light");
+            assertEquals(3, compiled.lights.size(), "wrong amount of lights");
+            Point point = new Point(1, 2, 3);
+            for (int k = 0; k < 3; ++k) {
+                LightSource p = parsed.lights.get(k), c = compiled.lights.get(k);
+                assertEquals(p.getClass(), c.getClass(), "wrong type of light");
+                assertEquals(p.getIntensity(point), c.getIntensity(point), "wrong intensity of light");
+                assertEquals(p.getL(point), c.getL(point), "wrong direction of light");
+            }
+
+            // TC02: triangles of the same appearance are compiled to one mesh
+            List<Intersectable> geometries = compiled.geometries.getGeometries();
+            assertEquals(6, geometries.size(), "wrong amount of geometries");
+            assertEquals(2, geometries.stream().filter(g -> g instanceof Mesh).count(), "wrong amount of meshes");
+
+            // TC03: closest intersections, emissions, materials and normals are as of the parsed scene
+            Random random = new Random(3);
+            for (int r = 0; r < 200; ++r) {
+                Ray ray = new Ray(new Point(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, 100),
+                        new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+                GeoPoint p = closest(parsed, ray), c = closest(compiled, ray);
+                assertEquals(p == null, c == null, "missed or added intersection");
+                if (p == null) continue;
+                assertEquals(p.point.distance(ray.getP0()), c.point.distance(ray.getP0()), 1e-4, "wrong intersection");
+                assertEquals(p.geometry.getEmission(), c.geometry.getEmission(), "wrong emission");
+                Material pm = p.geometry.getMaterial(), cm = c.geometry.getMaterial();
+                assertTrue(pm.kD.equals(cm.kD) && pm.kS.equals(cm.kS) && pm.kR.equals(cm.kR) && pm.kT.equals(cm.kT)
+                        && pm.nShininess == cm.nShininess, "wrong material");
+                assertEquals(1, p.geometry.getNormal(p.point).dotProduct(c.geometry.getNormal(c.point)), 1e-6,
+                        "wrong normal");
+            }
+
+            // TC04: cache of the same source is loaded and not written again
+            long modified = Files.getLastModifiedTime(cache).toMillis();
+            Thread.sleep(20);
+            StaxSceneParser.parseXMLScene(file.toString(), loaded, cache);
+            assertEquals(modified, Files.getLastModifiedTime(cache).toMillis(), "cache was written again");
+            assertEquals(6, loaded.geometries.getGeometries().size(), "wrong amount of loaded geometries");
+
+            // TC05: a changed source invalidates the cache
+            long hash = SceneCache.hash(file);
+            Files.writeString(file, SCENE_XML.replace("radius=\"50\"", "radius=\"60\""));
+            assertFalse(SceneCache.read(cache, SceneCache.hash(file), new Scene("stale")), "stale cache was read");
+            assertTrue(SceneCache.read(cache, hash, new Scene("fresh")), "cache was not read");
+        } finally {
+            Files.delete(file);
+            Files.deleteIfExists(cache);
+        }
+    }
+
+    /** finds the closest intersection of a ray with the geometries of a scene
+     * @param scene the scene
+     * @param ray the ray
+     * @return closest intersection, null if there is none */
+    private static GeoPoint closest(Scene scene, Ray ray) {
+        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray);
+        return intersections == null ? null
+                : intersections.stream().min(Comparator.comparingDouble(gp -> gp.point.distance(ray.getP0()))).orElse(null);
+    }
+}
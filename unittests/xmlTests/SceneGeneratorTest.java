@@ -0,0 +1,98 @@
+package xmlTests;
+
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import geometries.Polygon;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.RenderJob;
+import scene.Scene;
+import scene.SceneGenerator;
+import xml.StaxSceneParser;
+import xml.XMLParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Testing SceneGenerator
+ * @author Yoav Babayoff and Avishai Shachor */
+public class SceneGeneratorTest {
+    /** creates a generator of all kinds of primitives
+     * @param seed seed of random numbers
+     * @return the generator */
+    private static SceneGenerator generator(long seed) {
+        return new SceneGenerator(seed).setSpheres(40).setTriangles(60).setPolygonGrid(3, 4).setReflectionStack(3)
+                .setLights(5);
+    }
+
+    /** Test method for {@link scene.SceneGenerator#generate(String)} */
+    @Test
+    void testGenerate() {
+        // TC01: amounts of geometries and lights
+        Scene scene = generator(7).generate("stress");
+        assertEquals(40 + 60 + 12 + 3 + 2, scene.geometries.getGeometries().size(), "wrong amount of geometries");
+        assertEquals(generator(7).getAmountGeometries(), scene.geometries.getGeometries().size(),
+                "amount of geometries differs from the generated one");
+        assertEquals(5, scene.lights.size(), "wrong amount of lights");
+
+        // TC02: the same seed generates the same scene, another seed another scene
+        Ray ray = new Ray(new Point(0, 0, 300), new Vector(0.01, 0.02, -1));
+        assertEquals(scene.geometries.findGeoIntersections(ray).size(),
+                generator(7).generate("again").geometries.findGeoIntersections(ray).size(), "same seed, other scene");
+        Sphere first = (Sphere) scene.geometries.getGeometries().get(3);
+        assertEquals(first.getCenter(), ((Sphere) generator(7).generate("again").geometries.getGeometries().get(3)).getCenter(),
+                "same seed, other sphere");
+        assertNotEquals(first.getCenter(), ((Sphere) generator(8).generate("other").geometries.getGeometries().get(3)).getCenter(),
+                "other seed, same sphere");
+
+        // TC03: negative amounts
+        assertThrows(IllegalArgumentException.class, () -> new SceneGenerator(1).setSpheres(-1), "negative amount");
+        assertThrows(IllegalArgumentException.class, () -> new SceneGenerator(1).setSize(0), "size of zero");
+    }
+
+    /** Test method for {@link scene.SceneGenerator#writeXML(Path, String, int)} */
+    @Test
+    void testWriteXML() throws Exception {
+        Path file = Files.createTempFile("scene_generator_test", ".xml"),
+                other = Files.createTempFile("scene_generator_test", ".xml");
+        try {
+            // TC01: the same seed writes the same file
+            generator(7).writeXML(file, "stress", 50);
+            generator(7).writeXML(other, "stress", 50);
+            assertEquals(-1, Files.mismatch(file, other), "same seed wrote another file");
+
+            // TC02: both parsers read the generated scene - same geometries, in the same order, and lights
+            Scene generated = generator(7).generate("stress"), dom = new Scene("dom");
+            XMLParser.parseXMLScene(file.toString(), dom);
+            RenderJob job = StaxSceneParser.parseXMLJob(file.toString());
+            assertEquals(50, job.getImageWriter().getNx(), "wrong width of image");
+            assertEquals(generated.lights.size(), dom.lights.size(), "wrong amount of lights read by DOM parser");
+            assertEquals(generated.lights.size(), job.getScene().lights.size(), "wrong amount of lights read by StAX parser");
+            for (Scene parsed : new Scene[]{dom, job.getScene()}) {
+                List<Intersectable> expected = generated.geometries.getGeometries(), result = parsed.geometries.getGeometries();
+                assertEquals(expected.size(), result.size(), "wrong amount of geometries");
+                for (int k = 0; k < expected.size(); ++k) {
+                    Geometry e = (Geometry) expected.get(k), r = (Geometry) result.get(k);
+                    assertEquals(e.getClass(), r.getClass(), "wrong type of geometry");
+                    assertEquals(e.getEmission(), r.getEmission(), "wrong emission");
+                    assertTrue(e.getMaterial().kD.equals(r.getMaterial().kD) && e.getMaterial().kT.equals(r.getMaterial().kT)
+                            && e.getMaterial().nShininess == r.getMaterial().nShininess, "wrong material");
+                    Point center = e instanceof Sphere sphere ? sphere.getCenter()
+                            : ((Polygon) e).getVertices().get(0);
+                    Ray ray = new Ray(new Point(0.5, 0.25, 300), center.subtract(new Point(0.5, 0.25, 300)));
+                    List<GeoPoint> ei = e.findGeoIntersections(ray), ri = r.findGeoIntersections(ray);
+                    assertEquals(ei == null ? null : ei.get(0).point, ri == null ? null : ri.get(0).point,
+                            "wrong intersection");
+                }
+            }
+        } finally {
+            Files.delete(file);
+            Files.delete(other);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package xmlTests;
+
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import geometries.Plane;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.ImageFormat;
+import renderer.RenderJob;
+import scene.Scene;
+import xml.StaxSceneParser;
+import xml.XMLParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.MissingResourceException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Testing StaxSceneParser
+ * @author Yoav Babayoff and Avishai Shachor */
+public class StaxSceneParserTest {
+    /** scene file with geometries which are read by both parsers */
+    private static final String GEOMETRIES_XML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <scene background-color="43 44.5 90">
+                <ambient-light color="30 30 30" Ka="0.3"/>
+                <geometries>
+                    /// <remarks> comment </remarks>
+                    <sphere center="0 0 -100" radius="5e1" emission-light="10 20 30" Kd="0.5" Ks="0.5 0.25 1" shininess="30"/>
+                    <triangle p0="-16.500402450561523 56.525657653808594 20.49852752685547" p1="3.528651237487793 77.62552642822266 -7.260552406311035" p2="12.581119537353516 57.646446228027344 17.7217960357666" emission-light="90 90 90" Kd="0.2" Ks="0.4" Kr="0.4" shininess="4"/>
+                    <triangle p0="-0.0025 +1 .5" p1="1E2 0 0" p2="0 -1e-3 7" emission-light="90 90 90" Kd="0.2" Ks="0.4" Kr="0.4" shininess="4"/>
+                    <triangle p0="0 0 0" p1="0 0 0" p2="1 1 1"/>
+                    <cylinder axis-ray="p 0 0 0 v 0 1 0" radius="2" height="3" Kt="0.8"/>
+                </geometries>
+            </scene>
+            """;
+
+    /** Test method for {@link xml.StaxSceneParser#parseXMLScene(String, Scene)} */
+    @Test
+    void testSameAsDOM() throws Exception {
+        Path file = Files.createTempFile("stax_scene_test", ".xml");
+        try {
+            Files.writeString(file, GEOMETRIES_XML);
+            Scene stax = new Scene("stax"), dom = new Scene("dom");
+            StaxSceneParser.parseXMLScene(file.toString(), stax);
+            XMLParser.parseXMLScene(file.toString(), dom);
+
+            // TC01: scene attributes
+            assertEquals(new Color(43, 44.5, 90), stax.background, "wrong background color");
+            assertEquals(dom.ambientLight.getIntensity(), stax.ambientLight.getIntensity(), "wrong ambient light");
+
+            // TC02: same geometries as the DOM parser (degenerate triangle is skipped), exact numbers
+            List<Intersectable> staxGeometries = stax.geometries.getGeometries();
+            List<Intersectable> domGeometries = dom.geometries.getGeometries();
+            assertEquals(4, staxGeometries.size(), "wrong amount of geometries");
+            assertEquals(domGeometries.size(), staxGeometries.size(), "different amount of geometries than DOM");
+            Ray ray = new Ray(new Point(1, 2, 50), new Vector(-0.01, 0.3, -1));
+            for (int k = 0; k < staxGeometries.size(); ++k) {
+                Geometry s = (Geometry) staxGeometries.get(k), d = (Geometry) domGeometries.get(k);
+                assertEquals(d.getClass(), s.getClass(), "wrong type of geometry");
+                assertEquals(d.getEmission(), s.getEmission(), "wrong emission");
+                Material sm = s.getMaterial(), dm = d.getMaterial();
+                assertTrue(sm.kD.equals(dm.kD) && sm.kS.equals(dm.kS) && sm.kR.equals(dm.kR) && sm.kT.equals(dm.kT)
+                        && sm.nShininess == dm.nShininess, "wrong material");
+                List<GeoPoint> si = s.findGeoIntersections(ray), di = d.findGeoIntersections(ray);
+                assertEquals(di == null ? null : di.get(0).point, si == null ? null : si.get(0).point,
+                        "wrong intersection");
+            }
+            // TC03: numbers with signs, exponents and no integer part
+            Vector expected = new Vector(-0.0025 - 100, 1, 0.5).crossProduct(new Vector(-100, -1e-3, 7)).normalize();
+            Vector normal = ((Geometry) staxGeometries.get(2)).getNormal(new Point(100, 0, 0));
+            assertEquals(1, Math.abs(expected.dotProduct(normal)), 1e-12, "wrong numbers of triangle");
+
+            // TC04: geometries of the same attributes share a material
+            assertSame(((Geometry) staxGeometries.get(1)).getMaterial(), ((Geometry) staxGeometries.get(2)).getMaterial(),
+                    "same material attributes should share a material");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Test method for lights and polygons of {@link xml.StaxSceneParser#parseXMLScene(String, Scene)} */
+    @Test
+    void testLightsAndErrors() throws Exception {
+        Path file = Files.createTempFile("stax_scene_lights_test", ".xml");
+        try {
+            Files.writeString(file, """
+                    <scene background-color="0 0 0">
+                        <ambient-light color="30 30 30" Ka="0.1 0.2 0.3"/>
+                        <lights>
+                            <point-light intensity="255 0 0" position="2.6 60.6 22.5" Kl="0.001" Kq="2e-5"/>
+                            <spot-light direction="0 1 0" position="8 45.5 5.5" intensity="255 255 224"/>
+                            <directional-light intensity="0 0 250" direction="0.3 1 0.3"/>
+                        </lights>
+                        <geometries>
+                            <polygon s0="0 0 0" s1="1 0 0" s2="1 1 0" s3="0 1 0"/>
+                        </geometries>
+                    </scene>
+                    """);
+            Scene scene = new Scene("lights");
+            StaxSceneParser.parseXMLScene(file.toString(), scene);
+            // TC01: lights and polygon are read
+            assertEquals(3, scene.lights.size(), "wrong amount of lights");
+            assertEquals(1, scene.geometries.getGeometries().size(), "wrong amount of geometries");
+            assertEquals(new Color(3, 6, 9), scene.ambientLight.getIntensity(), "wrong ambient light");
+
+            // TC02: wrong amount of numbers
+            Files.writeString(file, "<scene background-color=\"0 0\"/>");
+            assertThrows(IllegalArgumentException.class, () -> StaxSceneParser.parseXMLScene(file.toString(), new Scene("bad")),
+                    "color of 2 numbers should throw");
+            Files.writeString(file, "<scene background-color=\"0 0 1x\"/>");
+            assertThrows(IllegalArgumentException.class, () -> StaxSceneParser.parseXMLScene(file.toString(), new Scene("bad")),
+                    "illegal number should throw");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Test method for {@link xml.StaxSceneParser#parseXMLJob(String)} */
+    @Test
+    void testJob() throws Exception {
+        Path file = Files.createTempFile("stax_job_test", ".xml");
+        try {
+            Files.writeString(file, """
+                    <scene name="job scene" background-color="0 0 255">
+                        <camera location="0 0 1000" to="0 0 -1" up="0 1 0" vp-size="200 100" vp-distance="1000"
+                                anti-aliasing="4" adaptive="true" threads="2" print-interval="100"/>
+                        <imageWriter name="stax_job_test" Nx="20" Ny="10" format="ppm"/>
+                        <ambient-light color="0 0 0" Ka="1"/>
+                        <geometries>
+                            <sphere center="0 0 -100" radius="40" emission-light="255 0 0"/>
+                        </geometries>
+                    </scene>
+                    """);
+            // TC01: scene, camera and image writer of a single file
+            RenderJob job = StaxSceneParser.parseXMLJob(file.toString());
+            assertEquals("job scene", job.getScene().name, "wrong scene name");
+            assertEquals(200, job.getCamera().getVpWidth(), "wrong view plane width");
+            assertEquals(1000, job.getCamera().getVpDistance(), "wrong view plane distance");
+            assertEquals(20, job.getImageWriter().getNx(), "wrong image width");
+            assertEquals(ImageFormat.PPM, job.getFormat(), "wrong image format");
+            job.render().writeToImage();
+            assertEquals(new Color(255, 0, 0).getRGB(), job.getImageWriter().getPixel(10, 5), "wrong color of sphere");
+            assertEquals(new Color(0, 0, 255).getRGB(), job.getImageWriter().getPixel(0, 0), "wrong background color");
+
+            // TC02: file without camera
+            Files.writeString(file, "<scene background-color=\"0 0 0\"><imageWriter name=\"x\" Nx=\"2\" Ny=\"2\"/></scene>");
+            assertThrows(MissingResourceException.class, () -> StaxSceneParser.parseXMLJob(file.toString()),
+                    "job without camera should throw");
+
+            // TC03: job of the final image has the whole scene of the final image, as the DOM parser reads it
+            RenderJob finalJob = StaxSceneParser.parseXMLJob("src/xml/finalimage.xml");
+            Scene finalScene = new Scene("final scene");
+            XMLParser.parseXMLScene("src/xml/finalimage.xml", finalScene);
+            assertEquals(finalScene.lights.size(), finalJob.getScene().lights.size(), "wrong amount of lights");
+            assertEquals(finalScene.geometries.getGeometries().size(), finalJob.getScene().geometries.getGeometries().size(),
+                    "wrong amount of geometries");
+            Geometry floor = (Geometry) finalJob.getScene().geometries.getGeometries().stream()
+                    .filter(g -> g instanceof Plane).findFirst().orElseThrow();
+            assertEquals(new Color(88, 57, 39), floor.getEmission(), "wrong emission of floor");
+            // TC04: job of the final image has the camera and image writer of the final image
+            assertEquals("final image", finalJob.getImageWriter().getImageName(), "wrong image name");
+            assertEquals(1500, finalJob.getImageWriter().getNx(), "wrong width of final image");
+            assertEquals(1500, finalJob.getImageWriter().getNy(), "wrong height of final image");
+            assertEquals(2.5, finalJob.getCamera().getVpWidth(), 1e-10, "wrong view plane width");
+            assertEquals(2, finalJob.getCamera().getVpHeight(), 1e-10, "wrong view plane height");
+            assertEquals(2.8, finalJob.getCamera().getVpDistance(), 1e-10, "wrong view plane distance");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}